@@ -0,0 +1,642 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.v7.data.util.sqlcontainer.connection;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A JDBCConnectionPool with a fixed upper limit of connections, intended for
+ * applications where many SQLContainers use the same pool concurrently.
+ * <p>
+ * Unlike {@link SimpleJDBCConnectionPool}, reserving and releasing connections
+ * does not lock the whole pool. When all connections are in use,
+ * {@link #reserveConnection()} waits in a first-in-first-out queue until a
+ * connection is released or the reserve timeout has passed. Connections that
+ * have been idle for a while are validated before they are handed out, and
+ * connections that have been idle for longer than the maximum idle time are
+ * closed. Prepared statements are cached per connection and reused when the
+ * same SQL is prepared again.
+ * <p>
+ * Connections are opened on demand, so no connections are open before the
+ * first call to {@link #reserveConnection()}.
+ *
+ * @since 8.11
+ * @deprecated As of 8.0, no replacement available.
+ */
+@SuppressWarnings("serial")
+@Deprecated
+public class BoundedJDBCConnectionPool implements JDBCConnectionPool {
+
+    /**
+     * Connections idle for longer than this are validated before they are
+     * reserved.
+     */
+    private static final long VALIDATION_INTERVAL = TimeUnit.SECONDS
+            .toNanos(5);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final String driverName;
+    private final String connectionUri;
+    private final String userName;
+    private final String password;
+    private final int maxConnections;
+
+    private volatile long reserveTimeout = 30000;
+    private volatile long maxIdleTime = 600000;
+    private volatile int statementCacheSize = 20;
+
+    private transient volatile PoolState state;
+
+    /**
+     * Creates a new pool that opens at most 20 connections.
+     *
+     * @param driverName
+     *            the class name of the JDBC driver, not <code>null</code>
+     * @param connectionUri
+     *            the URI of the database, not <code>null</code>
+     * @param userName
+     *            the database user name, not <code>null</code>
+     * @param password
+     *            the database password, not <code>null</code>
+     */
+    public BoundedJDBCConnectionPool(String driverName, String connectionUri,
+            String userName, String password) {
+        this(driverName, connectionUri, userName, password, 20);
+    }
+
+    /**
+     * Creates a new pool that opens at most the given number of connections.
+     *
+     * @param driverName
+     *            the class name of the JDBC driver, not <code>null</code>
+     * @param connectionUri
+     *            the URI of the database, not <code>null</code>
+     * @param userName
+     *            the database user name, not <code>null</code>
+     * @param password
+     *            the database password, not <code>null</code>
+     * @param maxConnections
+     *            the maximum number of open connections, at least 1
+     */
+    public BoundedJDBCConnectionPool(String driverName, String connectionUri,
+            String userName, String password, int maxConnections) {
+        if (driverName == null) {
+            throw new IllegalArgumentException(
+                    "JDBC driver class name must be given.");
+        }
+        if (connectionUri == null) {
+            throw new IllegalArgumentException(
+                    "Database connection URI must be given.");
+        }
+        if (userName == null) {
+            throw new IllegalArgumentException(
+                    "Database username must be given.");
+        }
+        if (password == null) {
+            throw new IllegalArgumentException(
+                    "Database password must be given.");
+        }
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException(
+                    "Maximum number of connections must be at least 1.");
+        }
+        this.driverName = driverName;
+        this.connectionUri = connectionUri;
+        this.userName = userName;
+        this.password = password;
+        this.maxConnections = maxConnections;
+
+        /* Initialize JDBC driver */
+        try {
+            Class.forName(driverName).newInstance();
+        } catch (Exception ex) {
+            throw new RuntimeException("Specified JDBC Driver: " + driverName
+                    + " - initialization failed.", ex);
+        }
+        state = new PoolState(maxConnections);
+    }
+
+    /**
+     * Sets how long {@link #reserveConnection()} waits for a connection to be
+     * released when all connections are in use. The default is 30 seconds.
+     *
+     * @param reserveTimeout
+     *            the timeout in milliseconds, 0 to fail immediately
+     */
+    public void setReserveTimeout(long reserveTimeout) {
+        if (reserveTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "Reserve timeout cannot be negative.");
+        }
+        this.reserveTimeout = reserveTimeout;
+    }
+
+    /**
+     * Gets how long {@link #reserveConnection()} waits for a connection to be
+     * released when all connections are in use.
+     *
+     * @return the timeout in milliseconds
+     */
+    public long getReserveTimeout() {
+        return reserveTimeout;
+    }
+
+    /**
+     * Sets how long a connection may stay unused in the pool before it is
+     * closed. The default is 10 minutes.
+     *
+     * @param maxIdleTime
+     *            the maximum idle time in milliseconds
+     */
+    public void setMaxIdleTime(long maxIdleTime) {
+        if (maxIdleTime < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum idle time cannot be negative.");
+        }
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * Gets how long a connection may stay unused in the pool before it is
+     * closed.
+     *
+     * @return the maximum idle time in milliseconds
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * Sets the number of prepared statements to keep open for reuse in each
+     * connection. Only statements prepared with
+     * {@link Connection#prepareStatement(String)} are cached. The default is
+     * 20.
+     *
+     * @param statementCacheSize
+     *            the number of statements to cache per connection, 0 to
+     *            disable caching
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "Statement cache size cannot be negative.");
+        }
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Gets the number of prepared statements kept open for reuse in each
+     * connection.
+     *
+     * @return the number of statements to cache per connection
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Gets the maximum number of connections this pool opens.
+     *
+     * @return the maximum number of connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Gets the number of connections that are currently reserved.
+     *
+     * @return the number of reserved connections
+     */
+    public int getActiveConnectionCount() {
+        return state.active.size();
+    }
+
+    /**
+     * Gets the number of open connections that are currently available for
+     * reserving.
+     *
+     * @return the number of idle connections
+     */
+    public int getIdleConnectionCount() {
+        return state.idle.size();
+    }
+
+    /**
+     * Gets an estimate of the number of threads waiting for a connection to
+     * be released.
+     *
+     * @return the number of waiting threads
+     */
+    public int getWaitingThreadCount() {
+        return state.permits.getQueueLength();
+    }
+
+    /**
+     * Gets the number of connections reserved from this pool.
+     *
+     * @return the number of successful calls to {@link #reserveConnection()}
+     */
+    public long getReserveCount() {
+        return state.reserveCount.sum();
+    }
+
+    /**
+     * Gets the total time threads have waited for a connection to be
+     * released, including calls that timed out.
+     *
+     * @return the total wait time in milliseconds
+     */
+    public long getTotalWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(state.waitTime.sum());
+    }
+
+    @Override
+    public Connection reserveConnection() throws SQLException {
+        PoolState state = this.state;
+        acquirePermit(state);
+        PooledConnection pooled;
+        try {
+            pooled = takeIdleConnection(state);
+            if (pooled == null) {
+                pooled = new PooledConnection(createConnection());
+            }
+            state.active.put(pooled.connection, pooled);
+        } catch (SQLException | RuntimeException e) {
+            state.permits.release();
+            throw e;
+        }
+        if (state.destroyed) {
+            // The pool was destroyed after the state was read, so the
+            // connection would never be closed
+            if (state.active.remove(pooled.connection) != null) {
+                pooled.close();
+            }
+            return reserveConnection();
+        }
+        state.reserveCount.increment();
+        return pooled.connection;
+    }
+
+    private void acquirePermit(PoolState state) throws SQLException {
+        boolean acquired;
+        try {
+            // Unlike tryAcquire(), the timed version does not overtake threads
+            // that are already waiting
+            acquired = state.permits.tryAcquire(0, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                long start = System.nanoTime();
+                try {
+                    acquired = state.permits.tryAcquire(reserveTimeout,
+                            TimeUnit.MILLISECONDS);
+                } finally {
+                    state.waitTime.add(System.nanoTime() - start);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(
+                    "Interrupted while waiting for a connection.", e);
+        }
+        if (!acquired) {
+            throw new SQLException(
+                    "Connection limit has been reached and no connection was released within "
+                            + reserveTimeout + " ms.");
+        }
+    }
+
+    private PooledConnection takeIdleConnection(PoolState state) {
+        long maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleTime);
+        PooledConnection pooled;
+        while ((pooled = state.idle.pollFirst()) != null) {
+            long idleTime = System.nanoTime() - pooled.releaseTime;
+            if (idleTime <= maxIdleNanos && (idleTime <= VALIDATION_INTERVAL
+                    || isValid(pooled.physicalConnection))) {
+                return pooled;
+            }
+            pooled.close();
+        }
+        return null;
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * An open transaction is rolled back before the connection is made
+     * available again. Connections that were not reserved from this pool are
+     * ignored.
+     */
+    @Override
+    public void releaseConnection(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        PoolState state = this.state;
+        PooledConnection pooled = state.active.remove(conn);
+        if (pooled == null) {
+            return;
+        }
+        try {
+            /* Try to roll back if necessary */
+            try {
+                if (!pooled.physicalConnection.getAutoCommit()) {
+                    pooled.physicalConnection.rollback();
+                }
+                pooled.releaseTime = System.nanoTime();
+                state.idle.offerFirst(pooled);
+                if (state.destroyed
+                        && state.idle.removeFirstOccurrence(pooled)) {
+                    pooled.close();
+                }
+            } catch (SQLException e) {
+                /* Roll back failed, close and discard connection */
+                pooled.close();
+            }
+        } finally {
+            state.permits.release();
+        }
+        evictIdleConnections(state);
+    }
+
+    /*
+     * Closes connections from the least recently used end of the idle queue
+     * until one that has not been idle for too long is found.
+     */
+    private void evictIdleConnections(PoolState state) {
+        long maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleTime);
+        PooledConnection oldest;
+        while ((oldest = state.idle.peekLast()) != null
+                && System.nanoTime() - oldest.releaseTime > maxIdleNanos) {
+            if (state.idle.removeLastOccurrence(oldest)) {
+                oldest.close();
+            }
+        }
+    }
+
+    private Connection createConnection() throws SQLException {
+        Connection c = DriverManager.getConnection(connectionUri, userName,
+                password);
+        c.setAutoCommit(false);
+        if (driverName.toLowerCase(Locale.ROOT).contains("mysql")) {
+            try {
+                Statement s = c.createStatement();
+                s.execute("SET SESSION sql_mode = 'ANSI'");
+                s.close();
+            } catch (Exception e) {
+                // Failed to set ansi mode; continue
+            }
+        }
+        return c;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The pool can be used again after it has been destroyed, in which case
+     * new connections are opened.
+     */
+    @Override
+    public void destroy() {
+        PoolState oldState = state;
+        state = new PoolState(maxConnections);
+        // Threads that still use the old state close the connections they
+        // add to it from now on
+        oldState.destroyed = true;
+        PooledConnection pooled;
+        while ((pooled = oldState.idle.pollFirst()) != null) {
+            pooled.close();
+        }
+        for (Connection connection : oldState.active.keySet()) {
+            pooled = oldState.active.remove(connection);
+            if (pooled != null) {
+                pooled.close();
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        state = new PoolState(maxConnections);
+    }
+
+    private static class PoolState implements Serializable {
+        private final Semaphore permits;
+        private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+        private final Map<Connection, PooledConnection> active = new ConcurrentHashMap<>();
+        private final LongAdder reserveCount = new LongAdder();
+        private final LongAdder waitTime = new LongAdder();
+        private volatile boolean destroyed;
+
+        private PoolState(int maxConnections) {
+            permits = new Semaphore(maxConnections, true);
+        }
+    }
+
+    /*
+     * A physical connection and the proxy handed out for it. The proxy
+     * returns cached prepared statements and otherwise delegates to the
+     * physical connection. Only one thread uses a reserved connection at a
+     * time, so the statement cache is not synchronized.
+     */
+    private class PooledConnection implements InvocationHandler, Serializable {
+        private final Connection physicalConnection;
+        private final Connection connection;
+        private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<>(
+                16, 0.75f, true);
+        private volatile long releaseTime;
+
+        private PooledConnection(Connection physicalConnection) {
+            this.physicalConnection = physicalConnection;
+            connection = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Pooled " + physicalConnection;
+            case "prepareStatement":
+                if (args.length == 1 && statementCacheSize > 0) {
+                    return prepareCachedStatement((String) args[0]);
+                }
+                break;
+            case "close":
+                closeStatements();
+                break;
+            default:
+                break;
+            }
+            return invokeDelegate(physicalConnection, method, args);
+        }
+
+        private PreparedStatement prepareCachedStatement(String sql)
+                throws SQLException {
+            PreparedStatement statement = statements.remove(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = physicalConnection.prepareStatement(sql);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    new CachedStatement(this, sql, statement));
+        }
+
+        private void returnStatement(String sql, PreparedStatement statement)
+                throws SQLException {
+            if (statement.isClosed()) {
+                return;
+            }
+            statement.clearParameters();
+            PreparedStatement previous = statements.put(sql, statement);
+            if (previous != null) {
+                // The same SQL was prepared twice and both were in use
+                previous.close();
+            }
+            Iterator<PreparedStatement> iterator = statements.values()
+                    .iterator();
+            while (statements.size() > statementCacheSize) {
+                PreparedStatement eldest = iterator.next();
+                iterator.remove();
+                eldest.close();
+            }
+        }
+
+        private void closeStatements() {
+            List<PreparedStatement> cached = new ArrayList<>(
+                    statements.values());
+            statements.clear();
+            for (PreparedStatement statement : cached) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    // No need to do anything
+                }
+            }
+        }
+
+        private void close() {
+            closeStatements();
+            try {
+                physicalConnection.close();
+            } catch (SQLException e) {
+                // No need to do anything
+            }
+        }
+    }
+
+    /*
+     * Handler for a prepared statement proxy that returns the statement to
+     * the cache of its connection instead of closing it.
+     */
+    private static class CachedStatement
+            implements InvocationHandler, Serializable {
+        private final PooledConnection owner;
+        private final String sql;
+        private final PreparedStatement statement;
+        private ResultSet resultSet;
+        private boolean closed;
+
+        private CachedStatement(PooledConnection owner, String sql,
+                PreparedStatement statement) {
+            this.owner = owner;
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Cached " + statement;
+            case "isClosed":
+                return closed || statement.isClosed();
+            case "getConnection":
+                return owner.connection;
+            case "close":
+                if (!closed) {
+                    closed = true;
+                    if (resultSet != null) {
+                        resultSet.close();
+                    }
+                    owner.returnStatement(sql, statement);
+                }
+                return null;
+            default:
+                if (closed) {
+                    throw new SQLException("Statement is closed.");
+                }
+                Object result = invokeDelegate(statement, method, args);
+                if (result instanceof ResultSet) {
+                    resultSet = (ResultSet) result;
+                }
+                return result;
+            }
+        }
+    }
+
+    private static Object invokeDelegate(Object delegate, Method method,
+            Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
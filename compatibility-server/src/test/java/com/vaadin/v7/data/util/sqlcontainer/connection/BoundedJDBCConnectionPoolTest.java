@@ -0,0 +1,318 @@
+package com.vaadin.v7.data.util.sqlcontainer.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.v7.data.util.sqlcontainer.SQLTestsConstants;
+
+public class BoundedJDBCConnectionPoolTest {
+    private static final String QUERY = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS WHERE USER_NAME = ?";
+
+    private BoundedJDBCConnectionPool connectionPool;
+
+    @Before
+    public void setUp() {
+        connectionPool = new BoundedJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2);
+        connectionPool.setReserveTimeout(0);
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.destroy();
+    }
+
+    @Test
+    public void reserveConnection_returnsConnection() throws SQLException {
+        Connection conn = connectionPool.reserveConnection();
+        assertNotNull(conn);
+        assertFalse(conn.getAutoCommit());
+        assertEquals(1, connectionPool.getActiveConnectionCount());
+        assertEquals(0, connectionPool.getIdleConnectionCount());
+        assertEquals(1, connectionPool.getReserveCount());
+    }
+
+    @Test
+    public void releaseConnection_connectionReused() throws SQLException {
+        Connection conn = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(conn);
+        assertFalse(conn.isClosed());
+        assertEquals(0, connectionPool.getActiveConnectionCount());
+        assertEquals(1, connectionPool.getIdleConnectionCount());
+
+        assertSame(conn, connectionPool.reserveConnection());
+    }
+
+    @Test(expected = SQLException.class)
+    public void reserveConnection_noConnectionsLeft_shouldFail()
+            throws SQLException {
+        try {
+            connectionPool.reserveConnection();
+            connectionPool.reserveConnection();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            fail("Exception before all connections used! " + e.getMessage());
+        }
+
+        connectionPool.reserveConnection();
+    }
+
+    @Test
+    public void reserveConnection_noConnectionsLeft_waitsForRelease()
+            throws Exception {
+        connectionPool.setReserveTimeout(10000);
+        Connection conn = connectionPool.reserveConnection();
+        connectionPool.reserveConnection();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            Future<Connection> waiting = executor.submit(() -> {
+                started.countDown();
+                return connectionPool.reserveConnection();
+            });
+            started.await();
+            while (connectionPool.getWaitingThreadCount() == 0) {
+                Thread.sleep(1);
+            }
+            assertFalse(waiting.isDone());
+
+            connectionPool.releaseConnection(conn);
+            assertSame(conn, waiting.get(10, TimeUnit.SECONDS));
+            assertEquals(0, connectionPool.getWaitingThreadCount());
+            assertTrue(connectionPool.getTotalWaitTime() >= 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void reserveConnection_threadWaiting_doesNotOvertake()
+            throws Exception {
+        connectionPool.setReserveTimeout(10000);
+        Connection conn = connectionPool.reserveConnection();
+        connectionPool.reserveConnection();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Connection> waiting = executor
+                    .submit(() -> connectionPool.reserveConnection());
+            while (connectionPool.getWaitingThreadCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            connectionPool.releaseConnection(conn);
+            connectionPool.setReserveTimeout(0);
+            try {
+                connectionPool.reserveConnection();
+                fail("Reserved the connection released for a waiting thread");
+            } catch (SQLException e) {
+                // expected
+            }
+            assertSame(conn, waiting.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void releaseConnection_transactionRolledBack() throws SQLException {
+        Connection conn = connectionPool.reserveConnection();
+        conn.createStatement()
+                .execute("CREATE TABLE pooltest (id INTEGER PRIMARY KEY)");
+        conn.commit();
+        try {
+            conn.createStatement()
+                    .executeUpdate("INSERT INTO pooltest VALUES (1)");
+            connectionPool.releaseConnection(conn);
+
+            conn = connectionPool.reserveConnection();
+            ResultSet rs = conn.createStatement()
+                    .executeQuery("SELECT COUNT(*) FROM pooltest");
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        } finally {
+            conn.createStatement().execute("DROP TABLE pooltest");
+            conn.commit();
+        }
+    }
+
+    @Test
+    public void releaseConnection_closedConnection_discarded()
+            throws SQLException {
+        Connection conn = connectionPool.reserveConnection();
+        conn.close();
+        connectionPool.releaseConnection(conn);
+        assertEquals(0, connectionPool.getActiveConnectionCount());
+        assertEquals(0, connectionPool.getIdleConnectionCount());
+
+        Connection newConn = connectionPool.reserveConnection();
+        assertNotSame(conn, newConn);
+        assertFalse(newConn.isClosed());
+    }
+
+    @Test
+    public void releaseConnection_unknownOrNullConnection_ignored()
+            throws SQLException {
+        connectionPool.releaseConnection(null);
+        BoundedJDBCConnectionPool otherPool = new BoundedJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 1);
+        try {
+            connectionPool.releaseConnection(otherPool.reserveConnection());
+            assertEquals(0, connectionPool.getIdleConnectionCount());
+        } finally {
+            otherPool.destroy();
+        }
+    }
+
+    @Test
+    public void releaseConnection_idleConnectionsEvicted() throws Exception {
+        Connection conn1 = connectionPool.reserveConnection();
+        Connection conn2 = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(conn1);
+        Thread.sleep(20);
+        connectionPool.setMaxIdleTime(10);
+        connectionPool.releaseConnection(conn2);
+
+        assertTrue(conn1.isClosed());
+        assertFalse(conn2.isClosed());
+        assertEquals(1, connectionPool.getIdleConnectionCount());
+
+        Thread.sleep(20);
+        Connection conn = connectionPool.reserveConnection();
+        assertNotSame(conn2, conn);
+        assertTrue(conn2.isClosed());
+    }
+
+    @Test
+    public void prepareStatement_sameSql_statementReused()
+            throws SQLException {
+        Connection conn = connectionPool.reserveConnection();
+        PreparedStatement statement = conn.prepareStatement(QUERY);
+        statement.setString(1, SQLTestsConstants.dbUser);
+        ResultSet rs = statement.executeQuery();
+        rs.next();
+        assertEquals(1, rs.getInt(1));
+        Statement physical = rs.getStatement();
+        statement.close();
+        assertTrue(statement.isClosed());
+        assertTrue(rs.isClosed());
+
+        PreparedStatement reused = conn.prepareStatement(QUERY);
+        assertFalse(reused.isClosed());
+        reused.setString(1, "nobody");
+        rs = reused.executeQuery();
+        assertSame(physical, rs.getStatement());
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+        reused.close();
+    }
+
+    @Test
+    public void prepareStatement_physicalStatementClosed_notReused()
+            throws SQLException {
+        Connection conn = connectionPool.reserveConnection();
+        PreparedStatement statement = conn.prepareStatement(QUERY);
+        statement.setString(1, SQLTestsConstants.dbUser);
+        ResultSet rs = statement.executeQuery();
+        Statement physical = rs.getStatement();
+        // Like TableQuery, which closes the statement of a result set
+        physical.close();
+        statement.close();
+
+        statement = conn.prepareStatement(QUERY);
+        statement.setString(1, SQLTestsConstants.dbUser);
+        rs = statement.executeQuery();
+        assertNotSame(physical, rs.getStatement());
+        statement.close();
+    }
+
+    @Test
+    public void prepareStatement_cacheDisabled_statementClosed()
+            throws SQLException {
+        connectionPool.setStatementCacheSize(0);
+        Connection conn = connectionPool.reserveConnection();
+        PreparedStatement statement = conn.prepareStatement(QUERY);
+        statement.close();
+        assertTrue(statement.isClosed());
+        assertNotSame(statement, conn.prepareStatement(QUERY));
+    }
+
+    @Test
+    public void destroy_shouldCloseAllConnections() throws SQLException {
+        Connection c1 = connectionPool.reserveConnection();
+        Connection c2 = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(c1);
+        connectionPool.destroy();
+
+        assertTrue(c1.isClosed());
+        assertTrue(c2.isClosed());
+        assertEquals(0, connectionPool.getActiveConnectionCount());
+        assertEquals(0, connectionPool.getIdleConnectionCount());
+
+        assertFalse(connectionPool.reserveConnection().isClosed());
+    }
+
+    @Test
+    public void serialize_deserializedPoolUsable() throws Exception {
+        connectionPool.reserveConnection();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(connectionPool);
+        }
+        BoundedJDBCConnectionPool deserialized = (BoundedJDBCConnectionPool) new ObjectInputStream(
+                new ByteArrayInputStream(bos.toByteArray())).readObject();
+        try {
+            assertEquals(0, deserialized.getActiveConnectionCount());
+            assertNotNull(deserialized.reserveConnection());
+            assertNotNull(deserialized.reserveConnection());
+        } finally {
+            deserialized.destroy();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void construct_onlyDriverNameGiven_shouldFail() {
+        new BoundedJDBCConnectionPool(SQLTestsConstants.dbDriver, null, null,
+                null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void construct_noConnections_shouldFail() {
+        new BoundedJDBCConnectionPool(SQLTestsConstants.dbDriver,
+                SQLTestsConstants.dbURL, SQLTestsConstants.dbUser,
+                SQLTestsConstants.dbPwd, 0);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void construct_nonExistingDriver_shouldFail() {
+        new BoundedJDBCConnectionPool("foo", SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd);
+    }
+}
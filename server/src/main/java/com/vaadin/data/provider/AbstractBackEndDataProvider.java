@@ -66,6 +66,33 @@ public abstract class AbstractBackEndDataProvider<T, F> extends
         return sizeInBackEnd(mixInSortOrders(query));
     }
 
+    @Override
+    public FetchResult<T> fetchWithSize(Query<T, F> query) {
+        return fetchWithSizeFromBackEnd(mixInSortOrders(query));
+    }
+
+    /**
+     * Fetches data from the back end using the given query together with the
+     * number of items matching the filter of the query. The default
+     * implementation uses {@link #sizeInBackEnd(Query)} and
+     * {@link #fetchFromBackEnd(Query)}; override this if the back end can
+     * answer both with a single query.
+     *
+     * @param query
+     *            the query that defines sorting, filtering and paging for
+     *            fetching the data
+     * @return the items matching the query and the number of items matching
+     *         its filter
+     * @since 8.11
+     */
+    protected FetchResult<T> fetchWithSizeFromBackEnd(Query<T, F> query) {
+        // Count with the filter only, like size(Query) is called
+        int size = sizeInBackEnd(
+                new Query<>(query.getFilter().orElse(null)));
+        return new FetchResult<>(
+                fetchFromBackEnd(query).collect(Collectors.toList()), size);
+    }
+
     /**
      * Fetches data from the back end using the given query.
      *
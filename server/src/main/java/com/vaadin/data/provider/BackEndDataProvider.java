@@ -18,6 +18,7 @@ package com.vaadin.data.provider;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * A data provider that lazy loads items from a back end.
@@ -85,6 +86,30 @@ public interface BackEndDataProvider<T, F> extends DataProvider<T, F> {
         }
     }
 
+    /**
+     * Fetches the items in the range of the given query together with the
+     * number of items matching its filter. Components that need both, like
+     * {@link DataCommunicator} after a reset, use this method instead of
+     * separate {@link #size(Query)} and {@link #fetch(Query)} calls.
+     * <p>
+     * The default implementation makes those two calls. Data providers whose
+     * back end can return the total together with a page, e.g. using a
+     * <code>COUNT(*) OVER ()</code> window function, should override this to
+     * halve the number of back end queries.
+     *
+     * @param query
+     *            the query that defines sorting, filtering and paging for
+     *            fetching the data
+     * @return the items in the range of the query and the number of items
+     *         matching its filter, not <code>null</code>
+     * @since 8.11
+     */
+    default FetchResult<T> fetchWithSize(Query<T, F> query) {
+        int size = size(new Query<>(query.getFilter().orElse(null)));
+        return new FetchResult<>(fetch(query).collect(Collectors.toList()),
+                size);
+    }
+
     @Override
     default boolean isInMemory() {
         return false;
@@ -87,9 +87,35 @@ public class CallbackDataProvider<T, F>
         public int count(Query<T, F> query);
     }
 
+    /**
+     * Callback interface for fetching a page of items from a backend together
+     * with the number of items matching the filter of the query.
+     *
+     * @param <T>
+     *            the type of the items to fetch
+     * @param <F>
+     *            the type of the optional filter in the query,
+     *            <code>Void</code> if filtering is not supported
+     * @since 8.11
+     */
+    @FunctionalInterface
+    public interface FetchWithSizeCallback<T, F> extends Serializable {
+        /**
+         * Fetches the items in the range of a query and counts the number of
+         * items matching its filter. The query is the same as for
+         * {@link FetchCallback#fetch(Query)}.
+         *
+         * @param query
+         *            the query that defines which items to fetch and count
+         * @return the fetched items and the number of matching items
+         */
+        public FetchResult<T> fetchWithSize(Query<T, F> query);
+    }
+
     private final FetchCallback<T, F> fetchCallback;
     private final CountCallback<T, F> countCallback;
     private final ValueProvider<T, Object> idGetter;
+    private FetchWithSizeCallback<T, F> fetchWithSizeCallback;
 
     /**
      * Constructs a new DataProvider to request data using callbacks for
@@ -142,6 +168,43 @@ public class CallbackDataProvider<T, F>
         return countCallback.count(query);
     }
 
+    @Override
+    protected FetchResult<T> fetchWithSizeFromBackEnd(Query<T, F> query) {
+        if (fetchWithSizeCallback == null) {
+            return super.fetchWithSizeFromBackEnd(query);
+        }
+        return fetchWithSizeCallback.fetchWithSize(query);
+    }
+
+    /**
+     * Sets a callback for fetching a page of items and counting all matching
+     * items with a single back end query. When set, it is used instead of the
+     * fetch and count callbacks when both are needed at the same time, e.g.
+     * when a Grid is reset after a filter change. The count callback is still
+     * used when only the size is needed.
+     *
+     * @param fetchWithSizeCallback
+     *            function that returns the items for a query and the number of
+     *            items matching its filter, or <code>null</code> to use the
+     *            fetch and count callbacks
+     * @since 8.11
+     */
+    public void setFetchWithSizeCallback(
+            FetchWithSizeCallback<T, F> fetchWithSizeCallback) {
+        this.fetchWithSizeCallback = fetchWithSizeCallback;
+    }
+
+    /**
+     * Gets the callback for fetching a page of items and counting all matching
+     * items with a single back end query.
+     *
+     * @return the fetch with size callback, or <code>null</code> if not set
+     * @since 8.11
+     */
+    public FetchWithSizeCallback<T, F> getFetchWithSizeCallback() {
+        return fetchWithSizeCallback;
+    }
+
     @Override
     public Object getId(T item) {
         Object itemId = idGetter.apply(item);
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.SerializablePredicate;
+import com.vaadin.server.SerializableSupplier;
+import com.vaadin.shared.Registration;
+
+/**
+ * Wrapper for a {@link ListDataProvider} that filters items by a case
+ * insensitive substring match against their captions, using an index instead
+ * of testing every item for every query.
+ * <p>
+ * The index contains the lower case captions of all items and the positions of
+ * the items for each three character sequence that occurs in the captions. It
+ * is built lazily when first needed. It is discarded when the wrapped data
+ * provider is refreshed while a component is listening to this wrapper, when
+ * a new listener is added and when the locale changes. The result of the latest filter
+ * is kept so that the size and fetch queries for the same filter text are only
+ * resolved once, and so that a filter text extending the previous one only
+ * needs to check the previous matches.
+ * <p>
+ * Filters and sort orders set on the wrapped data provider are applied to the
+ * matching items in the same way as by the wrapped data provider itself.
+ *
+ * @see com.vaadin.ui.ComboBox#setCaptionIndexEnabled(boolean)
+ *
+ * @author Vaadin Ltd
+ * @since 8.11
+ *
+ * @param <T>
+ *            the data type
+ */
+public class CaptionIndexDataProvider<T>
+        extends DataProviderWrapper<T, String, SerializablePredicate<T>> {
+
+    private static final int GRAM = 3;
+
+    private final ValueProvider<T, String> captionProvider;
+    private final SerializableSupplier<Locale> localeSupplier;
+
+    private transient volatile Index index;
+
+    /**
+     * Growable list of item positions, used while building the index.
+     */
+    private static final class Posting implements Serializable {
+        private int[] ids = new int[2];
+        private int size;
+
+        private void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                // Same sequence repeated within one caption
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Snapshot of the items and their captions.
+     */
+    private static final class Index implements Serializable {
+        private final Locale locale;
+        private final Object[] items;
+        private final String[] captions;
+        /*
+         * Open addressing hash table from three character sequences to the
+         * ascending positions of the captions containing them
+         */
+        private long[] gramKeys;
+        private int[][] gramPositions;
+
+        private volatile String lastFilter;
+        private volatile int[] lastMatches;
+
+        private Index(Locale locale, Object[] items, String[] captions) {
+            this.locale = locale;
+            this.items = items;
+            this.captions = captions;
+            buildGrams();
+        }
+
+        private void buildGrams() {
+            long[] keys = new long[1024];
+            Posting[] postings = new Posting[keys.length];
+            int count = 0;
+            for (int i = 0; i < captions.length; i++) {
+                String caption = captions[i];
+                for (int j = 0; j + GRAM <= caption.length(); j++) {
+                    long key = gram(caption, j);
+                    int slot = findSlot(keys, postings, key);
+                    if (postings[slot] == null) {
+                        if (2 * ++count > keys.length) {
+                            Posting[] oldPostings = postings;
+                            long[] oldKeys = keys;
+                            keys = new long[oldKeys.length * 2];
+                            postings = new Posting[keys.length];
+                            for (int k = 0; k < oldKeys.length; k++) {
+                                if (oldPostings[k] != null) {
+                                    int newSlot = findSlot(keys, postings,
+                                            oldKeys[k]);
+                                    keys[newSlot] = oldKeys[k];
+                                    postings[newSlot] = oldPostings[k];
+                                }
+                            }
+                            slot = findSlot(keys, postings, key);
+                        }
+                        keys[slot] = key;
+                        postings[slot] = new Posting();
+                    }
+                    postings[slot].add(i);
+                }
+            }
+            gramKeys = keys;
+            gramPositions = new int[keys.length][];
+            for (int k = 0; k < keys.length; k++) {
+                if (postings[k] != null) {
+                    gramPositions[k] = Arrays.copyOf(postings[k].ids,
+                            postings[k].size);
+                }
+            }
+        }
+
+        private static int findSlot(long[] keys, Object[] values, long key) {
+            int mask = keys.length - 1;
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long gram(String text, int offset) {
+            return ((long) text.charAt(offset) << 32)
+                    | ((long) text.charAt(offset + 1) << 16)
+                    | text.charAt(offset + 2);
+        }
+
+        private int[] match(String filter) {
+            String previous = lastFilter;
+            int[] previousMatches = lastMatches;
+            if (filter.equals(previous)) {
+                return previousMatches;
+            }
+
+            int[] candidates = null;
+            if (previous != null && filter.contains(previous)) {
+                candidates = previousMatches;
+            }
+            if (filter.length() >= GRAM) {
+                for (int j = 0; j + GRAM <= filter.length(); j++) {
+                    int[] list = gramPositions[findSlot(gramKeys,
+                            gramPositions, gram(filter, j))];
+                    if (list == null) {
+                        candidates = new int[0];
+                        break;
+                    }
+                    if (candidates == null || list.length < candidates.length) {
+                        candidates = list;
+                    }
+                }
+            }
+
+            int[] matches;
+            if (candidates == null) {
+                matches = IntStream.range(0, captions.length)
+                        .filter(i -> captions[i].contains(filter)).toArray();
+            } else {
+                matches = IntStream.of(candidates)
+                        .filter(i -> captions[i].contains(filter)).toArray();
+            }
+            // Publish the matches before the filter they belong to
+            lastMatches = matches;
+            lastFilter = filter;
+            return matches;
+        }
+    }
+
+    /**
+     * Creates a new wrapper for the given data provider.
+     *
+     * @param dataProvider
+     *            the list data provider to wrap, not <code>null</code>
+     * @param captionProvider
+     *            the function for getting the caption of an item, not
+     *            <code>null</code>; <code>null</code> captions are treated as
+     *            empty strings
+     * @param localeSupplier
+     *            supplier of the locale used for converting captions and
+     *            filter texts to lower case, not <code>null</code>
+     */
+    public CaptionIndexDataProvider(ListDataProvider<T> dataProvider,
+            ValueProvider<T, String> captionProvider,
+            SerializableSupplier<Locale> localeSupplier) {
+        super(dataProvider);
+        this.captionProvider = Objects.requireNonNull(captionProvider,
+                "Caption provider cannot be null");
+        this.localeSupplier = Objects.requireNonNull(localeSupplier,
+                "Locale supplier cannot be null");
+    }
+
+    /**
+     * Discards the index so that it is rebuilt for the next filtered query.
+     * This is done automatically when the wrapped data provider is refreshed,
+     * but needs to be called explicitly if captions change in some other way,
+     * e.g. when the caption provider starts returning different values.
+     */
+    public void clearIndex() {
+        index = null;
+    }
+
+    @Override
+    public Registration addDataProviderListener(
+            DataProviderListener<T> listener) {
+        // Items may have changed while nobody was listening
+        clearIndex();
+        return super.addDataProviderListener(event -> {
+            clearIndex();
+            listener.onDataChange(event);
+        });
+    }
+
+    @Override
+    public void refreshAll() {
+        clearIndex();
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        clearIndex();
+        super.refreshItem(item);
+    }
+
+    @Override
+    public int size(Query<T, String> query) {
+        Optional<String> filter = getFilterText(query);
+        if (!filter.isPresent()) {
+            return super.size(query);
+        }
+        Index current = getIndex();
+        int[] matches = current.match(filter.get());
+        if (getListDataProvider().getFilter() == null) {
+            return matches.length;
+        }
+        return (int) getMatchingItems(current, matches).count();
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, String> query) {
+        Optional<String> filter = getFilterText(query);
+        if (!filter.isPresent()) {
+            return super.fetch(query);
+        }
+        Index current = getIndex();
+        Stream<T> stream = getMatchingItems(current,
+                current.match(filter.get()));
+
+        Optional<Comparator<T>> comparing = Stream
+                .of(query.getInMemorySorting(),
+                        getListDataProvider().getSortComparator())
+                .filter(c -> c != null)
+                .reduce((c1, c2) -> c1.thenComparing(c2));
+        if (comparing.isPresent()) {
+            stream = stream.sorted(comparing.get());
+        }
+
+        return stream.skip(query.getOffset()).limit(query.getLimit());
+    }
+
+    @Override
+    protected SerializablePredicate<T> getFilter(Query<T, String> query) {
+        // Only used for queries without filter text
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Stream<T> getMatchingItems(Index index, int[] matches) {
+        Object[] items = index.items;
+        Stream<T> stream = IntStream.of(matches).mapToObj(i -> (T) items[i]);
+        SerializablePredicate<T> filter = getListDataProvider().getFilter();
+        if (filter != null) {
+            stream = stream.filter(filter);
+        }
+        return stream;
+    }
+
+    private Optional<String> getFilterText(Query<T, String> query) {
+        return query.getFilter().filter(text -> !text.isEmpty())
+                .map(text -> text.toLowerCase(getLocale()));
+    }
+
+    private ListDataProvider<T> getListDataProvider() {
+        return (ListDataProvider<T>) dataProvider;
+    }
+
+    private Locale getLocale() {
+        Locale locale = localeSupplier.get();
+        return locale == null ? Locale.getDefault() : locale;
+    }
+
+    private Index getIndex() {
+        Locale locale = getLocale();
+        Index current = index;
+        if (current == null || !current.locale.equals(locale)) {
+            Object[] items = getListDataProvider().getItems().toArray();
+            String[] captions = new String[items.length];
+            for (int i = 0; i < items.length; i++) {
+                @SuppressWarnings("unchecked")
+                String caption = captionProvider.apply((T) items[i]);
+                captions[i] = caption == null ? ""
+                        : caption.toLowerCase(locale);
+            }
+            current = new Index(locale, items, captions);
+            index = current;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.data.provider;
+
+import java.util.Objects;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.KeyMapper;
+import com.vaadin.server.SerializableFunction;
+
+/**
+ * A {@link DataKeyMapper} that uses less memory per mapped data object than
+ * {@link KeyMapper}.
+ * <p>
+ * Keys are generated from a {@code long} counter and the mappings are kept in
+ * open addressing hash tables of primitive keys instead of hash maps of
+ * string keys. Optionally, only the identifiers of the data objects are kept
+ * and the data objects are resolved from their identifiers when needed, which
+ * allows the data objects to be garbage collected while they are shown in a
+ * component.
+ * <p>
+ * To use this mapper, override
+ * {@link DataCommunicator#createKeyMapper(ValueProvider)}:
+ *
+ * <pre>
+ * protected DataKeyMapper&lt;Person&gt; createKeyMapper(
+ *         ValueProvider&lt;Person, Object&gt; identifierGetter) {
+ *     return new CompactKeyMapper&lt;&gt;(identifierGetter,
+ *             id -&gt; personService.findById((Long) id));
+ * }
+ * </pre>
+ * <p>
+ * The identifiers returned by the identifier getter may not be
+ * {@code null}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.11
+ *
+ * @param <V>
+ *            the type of the mapped data objects
+ */
+public class CompactKeyMapper<V> implements DataKeyMapper<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long lastKey = 0;
+
+    private ValueProvider<V, Object> identifierGetter;
+
+    private final SerializableFunction<Object, V> itemResolver;
+
+    /*
+     * Identifier to key table. An empty slot has a null identifier.
+     */
+    private Object[] ids;
+    private long[] idKeys;
+
+    /*
+     * Key to data object (or identifier, when only identifiers are kept)
+     * table. An empty slot has the key 0, which is never used for a mapping.
+     */
+    private long[] keys;
+    private Object[] values;
+
+    private int size;
+
+    /**
+     * Constructs a new mapper that keeps references to the mapped data
+     * objects.
+     *
+     * @param identifierGetter
+     *            has to return a unique key for every bean, and the returned
+     *            key has to follow general {@code hashCode()} and
+     *            {@code equals()} contract, see {@link Object#hashCode()} for
+     *            details.
+     */
+    public CompactKeyMapper(ValueProvider<V, Object> identifierGetter) {
+        this(identifierGetter, null);
+    }
+
+    /**
+     * Constructs a new mapper that only keeps the identifiers of the mapped
+     * data objects if an item resolver is given. The item resolver is used
+     * for fetching a data object based on its identifier whenever
+     * {@link #get(String)} is called.
+     *
+     * @param identifierGetter
+     *            has to return a unique key for every bean, and the returned
+     *            key has to follow general {@code hashCode()} and
+     *            {@code equals()} contract, see {@link Object#hashCode()} for
+     *            details.
+     * @param itemResolver
+     *            the function for finding a data object by its identifier, or
+     *            {@code null} to keep references to the data objects
+     */
+    public CompactKeyMapper(ValueProvider<V, Object> identifierGetter,
+            SerializableFunction<Object, V> itemResolver) {
+        this.identifierGetter = Objects.requireNonNull(identifierGetter,
+                "identifierGetter cannot be null");
+        this.itemResolver = itemResolver;
+        clear();
+    }
+
+    @Override
+    public String key(V dataObject) {
+        if (dataObject == null) {
+            return "null";
+        }
+
+        Object id = getId(dataObject);
+        int slot = findId(id);
+        if (ids[slot] != null) {
+            return String.valueOf(idKeys[slot]);
+        }
+
+        if (size + 1 > ids.length / 4 * 3) {
+            resize(ids.length * 2);
+            slot = findId(id);
+        }
+
+        long key = ++lastKey;
+        ids[slot] = id;
+        idKeys[slot] = key;
+        int keySlot = findKey(key);
+        keys[keySlot] = key;
+        values[keySlot] = itemResolver == null ? dataObject : id;
+        size++;
+
+        return String.valueOf(key);
+    }
+
+    @Override
+    public boolean has(V dataObject) {
+        return dataObject != null && ids[findId(getId(dataObject))] != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(String key) {
+        long parsedKey = parseKey(key);
+        if (parsedKey <= 0) {
+            return null;
+        }
+        int slot = findKey(parsedKey);
+        if (keys[slot] == 0) {
+            return null;
+        }
+        if (itemResolver == null) {
+            return (V) values[slot];
+        }
+        return itemResolver.apply(values[slot]);
+    }
+
+    @Override
+    public void remove(V dataObject) {
+        if (dataObject == null) {
+            return;
+        }
+        int slot = findId(getId(dataObject));
+        if (ids[slot] == null) {
+            return;
+        }
+        long key = idKeys[slot];
+        removeId(slot);
+        removeKey(findKey(key));
+        size--;
+    }
+
+    @Override
+    public void removeAll() {
+        clear();
+    }
+
+    @Override
+    public void refresh(V dataObject) {
+        if (itemResolver != null) {
+            // Identifiers don't change
+            return;
+        }
+        int slot = findId(getId(dataObject));
+        if (ids[slot] != null) {
+            values[findKey(idKeys[slot])] = dataObject;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If only the identifiers of the data objects are kept, the identifiers
+     * for the new identifier getter cannot be determined and all mappings are
+     * removed.
+     */
+    @Override
+    public void setIdentifierGetter(ValueProvider<V, Object> identifierGetter) {
+        if (this.identifierGetter == identifierGetter) {
+            return;
+        }
+        this.identifierGetter = identifierGetter;
+        if (itemResolver != null) {
+            clear();
+            return;
+        }
+        ids = new Object[ids.length];
+        idKeys = new long[ids.length];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                @SuppressWarnings("unchecked")
+                Object id = getId((V) values[i]);
+                int slot = findId(id);
+                ids[slot] = id;
+                idKeys[slot] = keys[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the number of data objects currently mapped.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return size;
+    }
+
+    private Object getId(V dataObject) {
+        return Objects.requireNonNull(identifierGetter.apply(dataObject),
+                "Identifiers cannot be null");
+    }
+
+    private void clear() {
+        ids = new Object[INITIAL_CAPACITY];
+        idKeys = new long[INITIAL_CAPACITY];
+        keys = new long[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        Object[] oldIds = ids;
+        long[] oldIdKeys = idKeys;
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        ids = new Object[capacity];
+        idKeys = new long[capacity];
+        keys = new long[capacity];
+        values = new Object[capacity];
+
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != null) {
+                int slot = findId(oldIds[i]);
+                ids[slot] = oldIds[i];
+                idKeys[slot] = oldIdKeys[i];
+            }
+            if (oldKeys[i] != 0) {
+                int slot = findKey(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(int hashCode) {
+        int hash = hashCode * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /*
+     * Returns the slot containing the identifier or the empty slot where it
+     * should be inserted.
+     */
+    private int findId(Object id) {
+        int mask = ids.length - 1;
+        int slot = hash(id.hashCode()) & mask;
+        while (ids[slot] != null && !ids[slot].equals(id)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int findKey(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(Long.hashCode(key)) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /*
+     * Removals shift the following entries of the probe sequence backwards
+     * so that no deletion markers are needed.
+     */
+    private void removeId(int slot) {
+        int mask = ids.length - 1;
+        int hole = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            Object id = ids[i];
+            if (id == null) {
+                break;
+            }
+            int home = hash(id.hashCode()) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                ids[hole] = id;
+                idKeys[hole] = idKeys[i];
+                hole = i;
+            }
+        }
+        ids[hole] = null;
+        idKeys[hole] = 0;
+    }
+
+    private void removeKey(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            long key = keys[i];
+            if (key == 0) {
+                break;
+            }
+            int home = hash(Long.hashCode(key)) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = key;
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+    }
+
+    private static long parseKey(String key) {
+        if (key == null || key.isEmpty() || key.length() > 18
+                || key.charAt(0) == '0') {
+            return -1;
+        }
+        long parsed = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            parsed = parsed * 10 + (c - '0');
+        }
+        return parsed;
+    }
+}
@@ -232,6 +232,16 @@ public class DataCommunicator<T> extends AbstractExtension {
     private final List<QuerySortOrder> backEndSorting = new ArrayList<>();
     private final DataCommunicatorClientRpc rpc;
 
+    /**
+     * Whether a DataCommunicator class uses the default
+     * {@link #fetchItemsWithRange(int, int)} and {@link #getDataProviderSize()}.
+     */
+    private static final ClassValue<Boolean> USES_DEFAULT_FETCH = new UsesDefaultFetch();
+
+    private boolean sizeCacheEnabled = false;
+    private int cachedSize = -1;
+    private Object cachedSizeFilter;
+
     public DataCommunicator() {
         addDataGenerator(handler);
         rpc = getRpcProxy(DataCommunicatorClientRpc.class);
@@ -323,6 +333,22 @@ public class DataCommunicator<T> extends AbstractExtension {
         }
     }
 
+    /**
+     * Triggered when the data provider has notified of a change that requires
+     * all data to be sent to the client again. Marks a full reset to be
+     * pending.
+     * <p>
+     * This may be called from a thread that does not hold the session lock,
+     * so any state used while handling requests should only be updated when
+     * the reset is sent to the client.
+     *
+     * @since 8.11
+     */
+    protected void onDataReset() {
+        reset = true;
+        clearSizeCache();
+    }
+
     /**
      * Initially and in the case of a reset all data should be pushed to the
      * client.
@@ -351,12 +377,25 @@ public class DataCommunicator<T> extends AbstractExtension {
             return;
         }
 
+        Range requestedRows = getPushRows();
+        List<T> rowsToPush = null;
         if (initial || reset) {
             if (reset) {
                 handler.dropAllActiveData();
             }
 
-            rpc.reset(getDataProviderSize());
+            int size = -1;
+            if (!requestedRows.isEmpty() && !isSizeCached()) {
+                FetchResult<T> result = fetchItemsWithRangeAndSize(
+                        requestedRows.getStart(), requestedRows.length());
+                if (result != null) {
+                    size = result.getSize();
+                    cacheSize(size);
+                    rowsToPush = result.getItems();
+                }
+            }
+
+            rpc.reset(size >= 0 ? size : getDataProviderSize());
         }
 
         if (!updatedData.isEmpty()) {
@@ -368,15 +407,18 @@ public class DataCommunicator<T> extends AbstractExtension {
             rpc.updateData(dataArray);
         }
 
-        Range requestedRows = getPushRows();
         boolean triggerReset = false;
         if (!requestedRows.isEmpty()) {
             int offset = requestedRows.getStart();
             int limit = requestedRows.length();
 
-            List<T> rowsToPush = fetchItemsWithRange(offset, limit);
+            if (rowsToPush == null) {
+                rowsToPush = fetchItemsWithRange(offset, limit);
+            }
 
             if (!initial && !reset && rowsToPush.isEmpty()) {
+                // The size sent to the client is out of date
+                clearSizeCache();
                 triggerReset = true;
             }
 
@@ -406,6 +448,39 @@ public class DataCommunicator<T> extends AbstractExtension {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Fetches a list of items from the DataProvider together with the number
+     * of items matching the current filter, using
+     * {@link BackEndDataProvider#fetchWithSize(Query)}. This is used instead
+     * of separate {@link #getDataProviderSize()} and
+     * {@link #fetchItemsWithRange(int, int)} calls when the data is reset.
+     * <p>
+     * The default implementation returns <code>null</code> if a subclass
+     * overrides either of those methods, so that the overridden methods are
+     * still used.
+     *
+     * @param offset
+     *            the starting index of the range
+     * @param limit
+     *            the max number of results
+     * @return the items in the given range and the total number of items, or
+     *         <code>null</code> if the data provider does not support fetching
+     *         both at once
+     *
+     * @since 8.11
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    protected FetchResult<T> fetchItemsWithRangeAndSize(int offset,
+            int limit) {
+        if (!(getDataProvider() instanceof BackEndDataProvider)
+                || !USES_DEFAULT_FETCH.get(getClass())) {
+            return null;
+        }
+        return ((BackEndDataProvider) getDataProvider())
+                .fetchWithSize(new Query(offset, limit, backEndSorting,
+                        inMemorySorting, filter));
+    }
+
     /**
      * Adds a data generator to this data communicator. Data generators can be
      * used to insert custom data to the rows sent to the client. If the data
@@ -654,7 +729,9 @@ public class DataCommunicator<T> extends AbstractExtension {
     /**
      * Creates a {@link DataKeyMapper} to use with this DataCommunicator.
      * <p>
-     * This method is called from the constructor.
+     * This method is called from the constructor. It can be overridden to
+     * use for instance a {@link CompactKeyMapper} to reduce the memory used
+     * for the currently active data objects.
      *
      * @param identifierGetter
      *            has to return a unique key for every bean, and the returned
@@ -812,7 +889,77 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public int getDataProviderSize() {
-        return getDataProvider().size(new Query(getFilter()));
+        if (isSizeCached()) {
+            return cachedSize;
+        }
+        int size = getDataProvider().size(new Query(getFilter()));
+        cacheSize(size);
+        return size;
+    }
+
+    /**
+     * Sets whether the size of the data provider is cached. When enabled, the
+     * size is queried once for each filter and reused, e.g. when sorting
+     * changes, until the data provider fires a data change event or the
+     * communicator is detached.
+     * <p>
+     * Only enable the cache if the data provider fires events whenever the
+     * number of items changes. The size cache is disabled by default.
+     *
+     * @param sizeCacheEnabled
+     *            <code>true</code> to cache the size, <code>false</code> to
+     *            query it from the data provider every time
+     * @since 8.11
+     */
+    public void setSizeCacheEnabled(boolean sizeCacheEnabled) {
+        this.sizeCacheEnabled = sizeCacheEnabled;
+        clearSizeCache();
+    }
+
+    /**
+     * Gets whether the size of the data provider is cached.
+     *
+     * @see #setSizeCacheEnabled(boolean)
+     *
+     * @return <code>true</code> if the size is cached, otherwise
+     *         <code>false</code>
+     * @since 8.11
+     */
+    public boolean isSizeCacheEnabled() {
+        return sizeCacheEnabled;
+    }
+
+    private boolean isSizeCached() {
+        return cachedSize >= 0 && Objects.equals(cachedSizeFilter, filter);
+    }
+
+    private void cacheSize(int size) {
+        // Without a listener there would be no notification of changes
+        if (sizeCacheEnabled && dataProviderUpdateRegistration != null) {
+            cachedSize = size;
+            cachedSizeFilter = filter;
+        }
+    }
+
+    private void clearSizeCache() {
+        cachedSize = -1;
+        cachedSizeFilter = null;
+    }
+
+    private static class UsesDefaultFetch extends ClassValue<Boolean> {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type
+                        .getMethod("fetchItemsWithRange", int.class,
+                                int.class)
+                        .getDeclaringClass() == DataCommunicator.class
+                        && type.getMethod("getDataProviderSize")
+                                .getDeclaringClass() == DataCommunicator.class;
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
 
     @Override
@@ -834,13 +981,14 @@ public class DataCommunicator<T> extends AbstractExtension {
                         generators.forEach(g -> g.refreshData(item));
                         getUI().access(() -> refresh(item));
                     } else {
-                        reset = true;
+                        onDataReset();
                         getUI().access(() -> markAsDirty());
                     }
                 });
     }
 
     private void detachDataProviderListener() {
+        clearSizeCache();
         if (dataProviderUpdateRegistration != null) {
             dataProviderUpdateRegistration.remove();
             dataProviderUpdateRegistration = null;
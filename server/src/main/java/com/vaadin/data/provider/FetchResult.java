@@ -0,0 +1,76 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The items fetched for a query together with the total number of items
+ * matching the filter of the query. Returned by
+ * {@link BackEndDataProvider#fetchWithSize(Query)} so that a back end can
+ * answer both in one round trip.
+ *
+ * @author Vaadin Ltd
+ * @since 8.11
+ *
+ * @param <T>
+ *            the type of the items
+ */
+public class FetchResult<T> implements Serializable {
+
+    private final List<T> items;
+    private final int size;
+
+    /**
+     * Creates a new fetch result.
+     *
+     * @param items
+     *            the items in the range of the query, not <code>null</code>
+     * @param size
+     *            the number of items matching the filter of the query,
+     *            regardless of its offset and limit, not negative
+     */
+    public FetchResult(List<T> items, int size) {
+        Objects.requireNonNull(items, "Items cannot be null");
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative");
+        }
+        this.items = Collections.unmodifiableList(items);
+        this.size = size;
+    }
+
+    /**
+     * Gets the items in the range of the query.
+     *
+     * @return an unmodifiable list of items, not <code>null</code>
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the number of items matching the filter of the query, regardless of
+     * its offset and limit.
+     *
+     * @return the number of matching items
+     */
+    public int getSize() {
+        return size;
+    }
+}
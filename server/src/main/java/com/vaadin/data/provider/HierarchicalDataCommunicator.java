@@ -73,6 +73,33 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    protected void sendDataToClient(boolean initial) {
+        // Data provider events may come from threads not holding the session
+        // lock, so they only mark a reset and the index is dropped here
+        if (reset && mapper != null) {
+            mapper.resetHierarchy();
+        }
+        super.sendDataToClient(initial);
+    }
+
+    @Override
+    public void attach() {
+        super.attach();
+        // The data might have changed while detached without any events
+        if (mapper != null) {
+            mapper.resetHierarchy();
+        }
+    }
+
+    @Override
+    public void detach() {
+        super.detach();
+        if (mapper != null) {
+            mapper.resetHierarchy();
+        }
+    }
+
     @Override
     public HierarchicalDataProvider<T, ?> getDataProvider() {
         return (HierarchicalDataProvider<T, ?>) super.getDataProvider();
@@ -15,6 +15,8 @@
  */
 package com.vaadin.data.provider;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -42,6 +44,13 @@ import elemental.json.JsonObject;
  * Keeps track of the expanded nodes, and size of of the subtrees for each
  * expanded node.
  * <p>
+ * The currently visible hierarchy is indexed lazily into a tree of nodes that
+ * know the number of visible rows below them. Expanding and collapsing only
+ * updates the affected branch of the index, and flat indices, tree size and
+ * range fetches are resolved from it without walking the whole hierarchy.
+ * Changes in sorting, filtering or data drop the index and it is rebuilt on
+ * next use.
+ * <p>
  * This class is framework internal implementation details, and can be changed /
  * moved at any point. This means that you should not directly use this for
  * anything.
@@ -69,6 +78,13 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
 
     private Set<Object> expandedItemIds = new HashSet<>();
 
+    /**
+     * Index of the currently visible hierarchy, {@code null} if not built yet.
+     * The root node represents the invisible common parent of the root items.
+     */
+    private TreeNode<T> rootNode;
+    private Map<Object, TreeNode<T>> nodeMap = new HashMap<>();
+
     /**
      * Constructs a new HierarchyMapper.
      *
@@ -85,7 +101,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the amount of available data
      */
     public int getTreeSize() {
-        return (int) getHierarchy(null).count();
+        return getRootNode().size;
     }
 
     /**
@@ -97,9 +113,11 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      *
      */
     public Integer getParentIndex(T item) {
-        // TODO: This can be optimized.
-        List<T> flatHierarchy = getHierarchy(null).collect(Collectors.toList());
-        return flatHierarchy.indexOf(getParentOfItem(item));
+        T parent = getParentOfItem(item);
+        if (parent == null) {
+            return -1;
+        }
+        return getIndexOf(parent).orElse(-1);
     }
 
     /**
@@ -127,9 +145,12 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return range of rows added by expanding the item
      */
     public Range expand(T item, Integer position) {
-        if (doExpand(item) && position != null) {
-            return Range.withLength(position + 1,
-                    (int) getHierarchy(item, false).count());
+        if (doExpand(item)) {
+            reloadNode(item);
+            if (position != null) {
+                return Range.withLength(position + 1,
+                        getVisibleDescendantCount(item));
+            }
         }
 
         return Range.emptyRange();
@@ -183,9 +204,10 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
         if (isExpanded(item)) {
             if (position != null) {
                 removedRows = Range.withLength(position + 1,
-                        (int) getHierarchy(item, false).count());
+                        getVisibleDescendantCount(item));
             }
             expandedItemIds.remove(getDataProvider().getId(item));
+            reloadNode(item);
         }
         return removedRows;
     }
@@ -275,6 +297,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setInMemorySorting(Comparator<T> inMemorySorting) {
         this.inMemorySorting = inMemorySorting;
+        resetHierarchy();
     }
 
     /**
@@ -295,6 +318,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setBackEndSorting(List<QuerySortOrder> backEndSorting) {
         this.backEndSorting = backEndSorting;
+        resetHierarchy();
     }
 
     /**
@@ -315,6 +339,19 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setFilter(Object filter) {
         this.filter = (F) filter;
+        resetHierarchy();
+    }
+
+    /**
+     * Drops the index of the currently visible hierarchy. The index is built
+     * again from the data provider when it is next needed. This should be
+     * called when the data in the data provider has changed.
+     *
+     * @since 8.11
+     */
+    public void resetHierarchy() {
+        rootNode = null;
+        nodeMap.clear();
     }
 
     /**
@@ -349,7 +386,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the stream of items
      */
     public Stream<T> fetchItems(Range range) {
-        return getHierarchy(null).skip(range.getStart()).limit(range.length());
+        return fetchDescendants(getRootNode(), range);
     }
 
     /**
@@ -363,8 +400,13 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the stream of items
      */
     public Stream<T> fetchItems(T parent, Range range) {
-        return getHierarchy(parent, false).skip(range.getStart())
-                .limit(range.length());
+        TreeNode<T> node = findNode(parent);
+        if (node == null) {
+            // Not visible, thus not indexed
+            return getHierarchy(parent, false).skip(range.getStart())
+                    .limit(range.length());
+        }
+        return fetchDescendants(node, range);
     }
 
     /* Methods for providing information on the hierarchy. */
@@ -450,21 +492,17 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
             return Optional.empty();
         }
 
-        final List<Object> collect = getHierarchy(null).map(provider::getId)
-                .collect(Collectors.toList());
-        int index = collect.indexOf(getDataProvider().getId(target));
-        return Optional.ofNullable(index < 0 ? null : index);
-    }
+        TreeNode<T> node = findNode(target);
+        if (node == null) {
+            return Optional.empty();
+        }
 
-    /**
-     * Gets the full hierarchy tree starting from given node.
-     *
-     * @param parent
-     *            the parent node to start from
-     * @return the flattened hierarchy as a stream
-     */
-    private Stream<T> getHierarchy(T parent) {
-        return getHierarchy(parent, true);
+        int index = -1;
+        while (node.parent != null) {
+            index += 1 + node.parent.getRowCountBefore(node.indexInParent);
+            node = node.parent;
+        }
+        return Optional.of(index);
     }
 
     /**
@@ -572,9 +610,274 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
         return Stream.concat(parentStream, children);
     }
 
+    /**
+     * Gets the root of the visible hierarchy index, building the index if
+     * needed.
+     *
+     * @return the root node of the index
+     */
+    private TreeNode<T> getRootNode() {
+        if (rootNode == null) {
+            nodeMap.clear();
+            rootNode = new TreeNode<>(null, null, -1);
+            loadChildren(rootNode);
+        }
+        return rootNode;
+    }
+
+    /**
+     * Finds the index node of the given item.
+     *
+     * @param item
+     *            the item to find, or {@code null} for the root
+     * @return the node of the item, or {@code null} if the item is not visible
+     */
+    private TreeNode<T> findNode(T item) {
+        TreeNode<T> root = getRootNode();
+        if (item == null) {
+            return root;
+        }
+        return nodeMap.get(getDataProvider().getId(item));
+    }
+
+    /**
+     * Gets the amount of visible rows under the given item.
+     *
+     * @param item
+     *            the item
+     * @return the amount of visible descendants
+     */
+    private int getVisibleDescendantCount(T item) {
+        TreeNode<T> node = findNode(item);
+        if (node == null) {
+            // Not visible, thus not indexed
+            return (int) getHierarchy(item, false).count();
+        }
+        return node.size;
+    }
+
+    /**
+     * Reloads the children of the given item in the index after a change in
+     * its expanded state, and updates the row counts of its ancestors. Does
+     * nothing if the index has not been built or the item is not visible.
+     *
+     * @param item
+     *            the item to reload
+     */
+    private void reloadNode(T item) {
+        if (rootNode == null) {
+            return;
+        }
+        TreeNode<T> node = nodeMap.get(getDataProvider().getId(item));
+        if (node == null) {
+            return;
+        }
+        int oldSize = node.size;
+        unloadChildren(node);
+        loadChildren(node);
+        int delta = node.size - oldSize;
+        while (node.parent != null) {
+            node.parent.addRowCount(node.indexInParent, delta);
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Loads the children of the given node recursively from the data provider
+     * for as far as the nodes are expanded.
+     *
+     * @param node
+     *            the node to load children for
+     */
+    private void loadChildren(TreeNode<T> node) {
+        T parent = node.item;
+        List<T> childList = Collections.emptyList();
+        if (isExpanded(parent)) {
+            childList = getDirectChildren(parent).collect(Collectors.toList());
+            if (childList.isEmpty()) {
+                removeChildren(parent == null ? null
+                        : getDataProvider().getId(parent));
+            } else {
+                registerChildren(parent, childList);
+            }
+        }
+
+        List<TreeNode<T>> children = new ArrayList<>(childList.size());
+        for (T child : childList) {
+            TreeNode<T> childNode = new TreeNode<>(child, node,
+                    children.size());
+            nodeMap.put(getDataProvider().getId(child), childNode);
+            loadChildren(childNode);
+            children.add(childNode);
+        }
+        node.setChildren(children);
+    }
+
+    /**
+     * Removes the descendants of the given node from the index.
+     *
+     * @param node
+     *            the node to unload children of
+     */
+    private void unloadChildren(TreeNode<T> node) {
+        for (TreeNode<T> child : node.children) {
+            unloadChildren(child);
+            nodeMap.remove(getDataProvider().getId(child.item));
+        }
+        node.setChildren(Collections.emptyList());
+    }
+
+    /**
+     * Fetches a range of the visible descendants of the given node in
+     * hierarchical order.
+     *
+     * @param node
+     *            the node to fetch descendants of
+     * @param range
+     *            the range relative to the first descendant
+     * @return the stream of items
+     */
+    private Stream<T> fetchDescendants(TreeNode<T> node, Range range) {
+        int end = Math.min(range.getEnd(), node.size);
+        if (range.getStart() >= end) {
+            return Stream.empty();
+        }
+
+        // Find the first node of the range
+        TreeNode<T> current = node;
+        int offset = range.getStart();
+        while (true) {
+            int childIndex = current.findChildIndex(offset);
+            offset -= current.getRowCountBefore(childIndex);
+            current = current.children.get(childIndex);
+            if (offset == 0) {
+                break;
+            }
+            // Skip the child itself
+            --offset;
+        }
+
+        List<T> items = new ArrayList<>(end - range.getStart());
+        for (int i = range.getStart(); i < end; ++i) {
+            items.add(current.item);
+            current = current.next();
+        }
+        return items.stream();
+    }
+
     @Override
     public void destroyAllData() {
         childMap.clear();
         parentIdMap.clear();
+        resetHierarchy();
+    }
+
+    @Override
+    public void refreshData(T item) {
+        // Refreshing an item does not change its children or expanded state,
+        // only the instance returned for it
+        TreeNode<T> node = nodeMap.get(getDataProvider().getId(item));
+        if (node != null) {
+            node.item = item;
+        }
+    }
+
+    /**
+     * Node in the index of the visible hierarchy. Each node keeps its visible
+     * children and a Fenwick tree over the row counts of the children, where
+     * the row count of a child is the child itself and its visible
+     * descendants. This makes finding flat indices and updating the counts
+     * after an expand or collapse proportional to the depth of the node rather
+     * than to the size of the hierarchy.
+     *
+     * @param <T>
+     *            the data type
+     */
+    private static class TreeNode<T> implements Serializable {
+        private T item;
+        private final TreeNode<T> parent;
+        private final int indexInParent;
+        private List<TreeNode<T>> children = Collections.emptyList();
+        private int[] rowCountTree = new int[1];
+        /** The amount of visible descendants. */
+        private int size;
+
+        private TreeNode(T item, TreeNode<T> parent, int indexInParent) {
+            this.item = item;
+            this.parent = parent;
+            this.indexInParent = indexInParent;
+        }
+
+        private void setChildren(List<TreeNode<T>> children) {
+            this.children = children;
+            rowCountTree = new int[children.size() + 1];
+            size = 0;
+            for (int i = 1; i < rowCountTree.length; ++i) {
+                int rowCount = 1 + children.get(i - 1).size;
+                size += rowCount;
+                rowCountTree[i] += rowCount;
+                int next = i + (i & -i);
+                if (next < rowCountTree.length) {
+                    rowCountTree[next] += rowCountTree[i];
+                }
+            }
+        }
+
+        /**
+         * Adds to the row count of the child in the given index.
+         */
+        private void addRowCount(int childIndex, int delta) {
+            for (int i = childIndex + 1; i < rowCountTree.length; i += i
+                    & -i) {
+                rowCountTree[i] += delta;
+            }
+            size += delta;
+        }
+
+        /**
+         * Gets the total row count of the children before the given index.
+         */
+        private int getRowCountBefore(int childIndex) {
+            int count = 0;
+            for (int i = childIndex; i > 0; i -= i & -i) {
+                count += rowCountTree[i];
+            }
+            return count;
+        }
+
+        /**
+         * Finds the index of the child whose rows contain the given offset
+         * relative to the first descendant of this node.
+         */
+        private int findChildIndex(int offset) {
+            int index = 0;
+            int step = Integer.highestOneBit(rowCountTree.length - 1);
+            for (; step > 0; step >>= 1) {
+                int next = index + step;
+                if (next < rowCountTree.length
+                        && rowCountTree[next] <= offset) {
+                    index = next;
+                    offset -= rowCountTree[next];
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Gets the next visible node in hierarchical order.
+         */
+        private TreeNode<T> next() {
+            if (!children.isEmpty()) {
+                return children.get(0);
+            }
+            TreeNode<T> node = this;
+            while (node.parent != null) {
+                if (node.indexInParent + 1 < node.parent.children.size()) {
+                    return node.parent.children.get(node.indexInParent + 1);
+                }
+                node = node.parent;
+            }
+            return null;
+        }
     }
 }
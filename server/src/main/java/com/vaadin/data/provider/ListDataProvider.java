@@ -15,8 +15,12 @@
  */
 package com.vaadin.data.provider;
 
+import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -41,6 +45,57 @@ public class ListDataProvider<T>
 
     private final Collection<T> backend;
 
+    private boolean viewCacheEnabled = false;
+
+    private int viewCacheMaxSize = 1000000;
+
+    private boolean parallelSort = false;
+
+    /*
+     * Filtered and sorted items by the filters and comparators used for
+     * creating them, in access order. Access is synchronized on this data
+     * provider.
+     */
+    private transient LinkedHashMap<ViewKey, Object[]> views;
+
+    private transient int viewsSize;
+
+    /**
+     * Identifies a cached view by the filters and comparators used for creating
+     * it. They are compared with {@link Object#equals(Object)}, which for
+     * lambdas only matches the same instance.
+     */
+    private static final class ViewKey implements Serializable {
+        private final Object[] parts;
+
+        private ViewKey(Object... parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 1;
+            for (Object part : parts) {
+                hash = 31 * hash + Objects.hashCode(part);
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ViewKey)) {
+                return false;
+            }
+            Object[] other = ((ViewKey) obj).parts;
+            for (int i = 0; i < parts.length; i++) {
+                if (!Objects.equals(parts[i], other[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * Constructs a new ListDataProvider.
      * <p>
@@ -67,7 +122,16 @@ public class ListDataProvider<T>
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
+        Object[] view = getView(query);
+        if (view != null) {
+            int from = Math.min(query.getOffset(), view.length);
+            int to = (int) Math.min((long) from + query.getLimit(),
+                    view.length);
+            return (Stream<T>) Arrays.stream(view, from, to);
+        }
+
         Stream<T> stream = getFilteredStream(query);
 
         Optional<Comparator<T>> comparing = Stream
@@ -84,9 +148,191 @@ public class ListDataProvider<T>
 
     @Override
     public int size(Query<T, SerializablePredicate<T>> query) {
+        if (filter == null && !query.getFilter().isPresent()) {
+            return backend.size();
+        }
+        Object[] view = getView(query);
+        if (view != null) {
+            return view.length;
+        }
         return (int) getFilteredStream(query).count();
     }
 
+    @Override
+    public void refreshAll() {
+        clearViews();
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        clearViews();
+        super.refreshItem(item);
+    }
+
+    /**
+     * Sets whether filtered and sorted views of the items are cached. When
+     * enabled, the items matching the filters of a query are filtered and
+     * sorted once and stored in an array, so that subsequent queries with
+     * equal filters and sorting, e.g. for the following pages of a Grid, only
+     * need to copy the requested range.
+     * <p>
+     * Filters and comparators are compared using their
+     * {@link Object#equals(Object) equals} method. Lambdas are only equal to
+     * themselves, so views are only reused for filters that are created once
+     * and then passed to every query, or for filters that implement equality,
+     * like the caption filters of a {@link com.vaadin.ui.ComboBox ComboBox}
+     * that are equal for the same filter text.
+     * <p>
+     * Cached views are discarded when {@link #refreshAll()} or
+     * {@link #refreshItem(Object)} is called, which means that changes to the
+     * items or the backing collection are not visible until one of those is
+     * called. The view cache is disabled by default.
+     *
+     * @see #setViewCacheMaxSize(int)
+     * @see #setParallelSort(boolean)
+     *
+     * @param viewCacheEnabled
+     *            <code>true</code> to cache views, <code>false</code> to
+     *            filter and sort the items for every query
+     * @since 8.11
+     */
+    public void setViewCacheEnabled(boolean viewCacheEnabled) {
+        this.viewCacheEnabled = viewCacheEnabled;
+        clearViews();
+    }
+
+    /**
+     * Gets whether filtered and sorted views of the items are cached.
+     *
+     * @see #setViewCacheEnabled(boolean)
+     *
+     * @return <code>true</code> if views are cached, otherwise
+     *         <code>false</code>
+     * @since 8.11
+     */
+    public boolean isViewCacheEnabled() {
+        return viewCacheEnabled;
+    }
+
+    /**
+     * Sets the maximum total number of items in cached views. The least
+     * recently used views are discarded when the limit is exceeded, and views
+     * are not cached at all if the backing collection is larger than the
+     * limit. The default is one million items, which takes four to eight
+     * megabytes of memory depending on the JVM.
+     *
+     * @param viewCacheMaxSize
+     *            the maximum number of cached items, not negative
+     * @since 8.11
+     */
+    public void setViewCacheMaxSize(int viewCacheMaxSize) {
+        if (viewCacheMaxSize < 0) {
+            throw new IllegalArgumentException(
+                    "viewCacheMaxSize cannot be negative");
+        }
+        this.viewCacheMaxSize = viewCacheMaxSize;
+        clearViews();
+    }
+
+    /**
+     * Gets the maximum total number of items in cached views.
+     *
+     * @return the maximum number of cached items
+     * @since 8.11
+     */
+    public int getViewCacheMaxSize() {
+        return viewCacheMaxSize;
+    }
+
+    /**
+     * Sets whether cached views are sorted using
+     * {@link Arrays#parallelSort(Object[], Comparator)}, which uses multiple
+     * threads from the common fork-join pool for large views. The comparators
+     * must then be thread safe. Parallel sorting is disabled by default.
+     *
+     * @param parallelSort
+     *            <code>true</code> to sort cached views in parallel,
+     *            <code>false</code> to sort in the calling thread
+     * @since 8.11
+     */
+    public void setParallelSort(boolean parallelSort) {
+        this.parallelSort = parallelSort;
+    }
+
+    /**
+     * Gets whether cached views are sorted in parallel.
+     *
+     * @return <code>true</code> if views are sorted in parallel, otherwise
+     *         <code>false</code>
+     * @since 8.11
+     */
+    public boolean isParallelSort() {
+        return parallelSort;
+    }
+
+    private Object[] getView(Query<T, SerializablePredicate<T>> query) {
+        if (!viewCacheEnabled || backend.size() > viewCacheMaxSize) {
+            return null;
+        }
+        SerializablePredicate<T> queryFilter = query.getFilter().orElse(null);
+        Comparator<T> querySorting = query.getInMemorySorting();
+        if (filter == null && queryFilter == null && querySorting == null
+                && sortOrder == null) {
+            // Nothing to gain from caching the backing collection as is
+            return null;
+        }
+
+        ViewKey key = new ViewKey(filter, queryFilter, sortOrder,
+                querySorting);
+        synchronized (this) {
+            if (views != null) {
+                Object[] view = views.get(key);
+                if (view != null) {
+                    return view;
+                }
+            }
+        }
+
+        Object[] view = getFilteredStream(query).toArray();
+        Optional<Comparator<T>> comparing = Stream.of(querySorting, sortOrder)
+                .filter(c -> c != null)
+                .reduce((c1, c2) -> c1.thenComparing(c2));
+        if (comparing.isPresent()) {
+            @SuppressWarnings("unchecked")
+            Comparator<Object> comparator = (Comparator<Object>) comparing
+                    .get();
+            if (parallelSort) {
+                Arrays.parallelSort(view, comparator);
+            } else {
+                Arrays.sort(view, comparator);
+            }
+        }
+
+        synchronized (this) {
+            if (views == null) {
+                views = new LinkedHashMap<>(4, 0.75f, true);
+            }
+            Object[] previous = views.put(key, view);
+            viewsSize += view.length
+                    - (previous == null ? 0 : previous.length);
+            Iterator<Object[]> iterator = views.values().iterator();
+            while (viewsSize > viewCacheMaxSize && iterator.hasNext()) {
+                Object[] eldest = iterator.next();
+                if (eldest != view) {
+                    viewsSize -= eldest.length;
+                    iterator.remove();
+                }
+            }
+        }
+        return view;
+    }
+
+    private synchronized void clearViews() {
+        views = null;
+        viewsSize = 0;
+    }
+
     private Stream<T> getFilteredStream(
             Query<T, SerializablePredicate<T>> query) {
         Stream<T> stream = backend.stream();
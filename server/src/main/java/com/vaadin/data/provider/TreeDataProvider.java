@@ -15,9 +15,12 @@
  */
 package com.vaadin.data.provider;
 
+import java.io.Serializable;
 import java.util.Comparator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import com.vaadin.data.TreeData;
@@ -45,6 +48,14 @@ public class TreeDataProvider<T>
 
     private SerializableComparator<T> sortOrder = null;
 
+    /*
+     * Whether an item or any of its descendants passes the filters, computed
+     * lazily and reused until the data provider is refreshed. The holder is
+     * replaced as a whole so that concurrent fetches never mix results for
+     * different filters.
+     */
+    private transient volatile SubtreeMatches<T> subtreeMatches;
+
     /**
      * Constructs a new TreeDataProvider.
      * <p>
@@ -110,6 +121,20 @@ public class TreeDataProvider<T>
         return childStream.skip(query.getOffset()).limit(query.getLimit());
     }
 
+    @Override
+    public void refreshAll() {
+        clearSubtreeMatches();
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        // The item may now match or not match the filter, which also affects
+        // all of its ancestors
+        clearSubtreeMatches();
+        super.refreshItem(item);
+    }
+
     @Override
     public SerializablePredicate<T> getFilter() {
         return filter;
@@ -172,20 +197,68 @@ public class TreeDataProvider<T>
 
     private Stream<T> getFilteredStream(Stream<T> stream,
             Optional<SerializablePredicate<T>> queryFilter) {
+        // Read once, the filter may be changed concurrently
+        SerializablePredicate<T> providerFilter = filter;
         final Optional<SerializablePredicate<T>> combinedFilter;
-        if (filter != null) {
-            combinedFilter = Optional
-                    .of(queryFilter.map(filter::and).orElse(filter));
+        if (providerFilter != null) {
+            combinedFilter = Optional.of(queryFilter.map(providerFilter::and)
+                    .orElse(providerFilter));
         } else {
             combinedFilter = queryFilter;
         }
-        return combinedFilter.map(
-                f -> stream.filter(element -> flatten(element).anyMatch(f)))
-                .orElse(stream);
+        if (!combinedFilter.isPresent()) {
+            return stream;
+        }
+        Map<T, Boolean> matches = getSubtreeMatches(queryFilter.orElse(null),
+                providerFilter);
+        return stream.filter(element -> subtreeMatches(element,
+                combinedFilter.get(), matches));
     }
 
-    private Stream<T> flatten(T element) {
-        return Stream.concat(Stream.of(element), getTreeData()
-                .getChildren(element).stream().flatMap(this::flatten));
+    private Map<T, Boolean> getSubtreeMatches(
+            SerializablePredicate<T> queryFilter,
+            SerializablePredicate<T> providerFilter) {
+        SubtreeMatches<T> current = subtreeMatches;
+        if (current == null
+                || !Objects.equals(queryFilter, current.queryFilter)
+                || providerFilter != current.providerFilter) {
+            current = new SubtreeMatches<>(queryFilter, providerFilter);
+            subtreeMatches = current;
+        }
+        return current.matches;
+    }
+
+    private boolean subtreeMatches(T element, SerializablePredicate<T> filter,
+            Map<T, Boolean> matches) {
+        Boolean match = matches.get(element);
+        if (match == null) {
+            match = filter.test(element);
+            if (!match) {
+                for (T child : getTreeData().getChildren(element)) {
+                    if (subtreeMatches(child, filter, matches)) {
+                        match = true;
+                        break;
+                    }
+                }
+            }
+            matches.put(element, match);
+        }
+        return match;
+    }
+
+    private void clearSubtreeMatches() {
+        subtreeMatches = null;
+    }
+
+    private static class SubtreeMatches<T> implements Serializable {
+        private final SerializablePredicate<T> queryFilter;
+        private final SerializablePredicate<T> providerFilter;
+        private final Map<T, Boolean> matches = new ConcurrentHashMap<>();
+
+        private SubtreeMatches(SerializablePredicate<T> queryFilter,
+                SerializablePredicate<T> providerFilter) {
+            this.queryFilter = queryFilter;
+            this.providerFilter = providerFilter;
+        }
     }
 }
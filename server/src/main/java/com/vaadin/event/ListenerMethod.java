@@ -21,11 +21,18 @@ import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.EventListener;
 import java.util.EventObject;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -85,6 +92,26 @@ public class ListenerMethod implements EventListener, Serializable {
      */
     private int eventArgumentIndex;
 
+    /**
+     * Marks that the trigger method cannot be called through a method handle
+     * and is invoked reflectively instead.
+     */
+    private static final MethodHandle NO_HANDLE = MethodHandles
+            .constant(Object.class, null);
+
+    /**
+     * The trigger method bound to the target, taking either the event or no
+     * arguments. Created when the first event is received, or
+     * {@link #NO_HANDLE} if the listener needs an argument array.
+     */
+    private transient MethodHandle handle;
+
+    /**
+     * Trigger methods found by name and parameter types when deserializing,
+     * for each target class.
+     */
+    private static final ClassValue<Map<List<Object>, Method>> DESERIALIZED_METHODS = new DeserializedMethods();
+
     /* Special serialization to handle method references */
     private void writeObject(ObjectOutputStream out) throws IOException {
         try {
@@ -111,12 +138,30 @@ public class ListenerMethod implements EventListener, Serializable {
             Class<?>[] paramTypes = (Class<?>[]) in.readObject();
             // We can not use getMethod directly as we want to support anonymous
             // inner classes
-            method = findHighestMethod(target.getClass(), name, paramTypes);
+            Map<List<Object>, Method> methods = DESERIALIZED_METHODS
+                    .get(target.getClass());
+            List<Object> key = Arrays.asList(name, Arrays.asList(paramTypes));
+            method = methods.get(key);
+            if (method == null) {
+                method = findHighestMethod(target.getClass(), name,
+                        paramTypes);
+                if (method != null) {
+                    methods.put(key, method);
+                }
+            }
         } catch (SecurityException e) {
             getLogger().log(Level.SEVERE, "Internal deserialization error", e);
         }
     }
 
+    private static class DeserializedMethods
+            extends ClassValue<Map<List<Object>, Method>> {
+        @Override
+        protected Map<List<Object>, Method> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    }
+
     private static Method findHighestMethod(Class<?> cls, String method,
             Class<?>[] paramTypes) {
         Class<?>[] ifaces = cls.getInterfaces();
@@ -134,8 +179,8 @@ public class ListenerMethod implements EventListener, Serializable {
             }
         }
         for (Method m : cls.getMethods()) {
-            // we ignore parameter types for now - you need to add this
-            if (m.getName().equals(method)) {
+            if (m.getName().equals(method)
+                    && Arrays.equals(m.getParameterTypes(), paramTypes)) {
                 return m;
             }
         }
@@ -493,6 +538,22 @@ public class ListenerMethod implements EventListener, Serializable {
     public void receiveEvent(EventObject event) {
         // Only send events supported by the method
         if (eventType.isAssignableFrom(event.getClass())) {
+            MethodHandle handle = getHandle();
+            if (handle != NO_HANDLE) {
+                try {
+                    if (eventArgumentIndex == 0) {
+                        handle.invokeExact(event);
+                    } else {
+                        handle.invokeExact();
+                    }
+                } catch (Throwable t) {
+                    throw new MethodException(
+                            "Invocation of method " + method.getName() + " in "
+                                    + target.getClass().getName() + " failed.",
+                            t);
+                }
+                return;
+            }
             try {
                 if (eventArgumentIndex >= 0) {
                     if (eventArgumentIndex == 0 && arguments.length == 1) {
@@ -521,6 +582,40 @@ public class ListenerMethod implements EventListener, Serializable {
         }
     }
 
+    private MethodHandle getHandle() {
+        MethodHandle handle = this.handle;
+        if (handle == null) {
+            handle = createHandle();
+            this.handle = handle;
+        }
+        return handle;
+    }
+
+    /*
+     * Binds the trigger method to the target once, so that events are
+     * delivered without reflective access checks or argument arrays.
+     */
+    private MethodHandle createHandle() {
+        MethodType type;
+        if (eventArgumentIndex == 0 && arguments.length == 1) {
+            type = MethodType.methodType(void.class, EventObject.class);
+        } else if (eventArgumentIndex < 0 && arguments.length == 0) {
+            type = MethodType.methodType(void.class);
+        } else {
+            return NO_HANDLE;
+        }
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                handle = handle.bindTo(target);
+            }
+            return handle.asType(type);
+        } catch (IllegalAccessException e) {
+            // Not accessible through a lookup, use reflection as before
+            return NO_HANDLE;
+        }
+    }
+
     /**
      * Checks if the given object and event match with the ones stored in this
      * listener.
@@ -39,6 +39,10 @@ import com.vaadin.ui.MultiSelect;
 public class MultiSelectionEvent<T> extends ValueChangeEvent<Set<T>>
         implements SelectionEvent<T> {
 
+    private final Set<T> addedSelection;
+    private final Set<T> removedSelection;
+    private final Set<T> deselectedItems;
+
     /**
      * Creates a new event.
      *
@@ -53,6 +57,9 @@ public class MultiSelectionEvent<T> extends ValueChangeEvent<Set<T>>
     public MultiSelectionEvent(AbstractMultiSelect<T> source,
             Set<T> oldSelection, boolean userOriginated) {
         super(source, oldSelection, userOriginated);
+        addedSelection = null;
+        removedSelection = null;
+        deselectedItems = null;
     }
 
     /**
@@ -70,7 +77,45 @@ public class MultiSelectionEvent<T> extends ValueChangeEvent<Set<T>>
      */
     public MultiSelectionEvent(Component component, MultiSelect<T> source,
             Set<T> oldSelection, boolean userOriginated) {
+        this(component, source, oldSelection, null, null, null,
+                userOriginated);
+    }
+
+    /**
+     * Creates a new selection change event in a multiselect component with the
+     * given added and removed items. This is used when the selections are not
+     * kept in memory, so that the changes cannot be computed by comparing the
+     * old and the new selection.
+     *
+     * @param component
+     *            the component
+     * @param source
+     *            the multiselect source
+     * @param oldSelection
+     *            the old set of selected items
+     * @param addedSelection
+     *            the items added to the selection, or {@code null} to compute
+     *            them from the old and the new selection
+     * @param removedSelection
+     *            the items removed from the selection, or {@code null} to
+     *            compute them from the old and the new selection
+     * @param deselectedItems
+     *            the items not selected when all other items are selected
+     *            after the change, or {@code null} if not all items are
+     *            selected
+     * @param userOriginated
+     *            {@code true} if this event originates from the client,
+     *            {@code false} otherwise.
+     * @since 8.11
+     */
+    public MultiSelectionEvent(Component component, MultiSelect<T> source,
+            Set<T> oldSelection, Set<T> addedSelection,
+            Set<T> removedSelection, Set<T> deselectedItems,
+            boolean userOriginated) {
         super(component, source, oldSelection, userOriginated);
+        this.addedSelection = addedSelection;
+        this.removedSelection = removedSelection;
+        this.deselectedItems = deselectedItems;
     }
 
     /**
@@ -107,6 +152,9 @@ public class MultiSelectionEvent<T> extends ValueChangeEvent<Set<T>>
      * @return the items that were removed from selection
      */
     public Set<T> getRemovedSelection() {
+        if (removedSelection != null) {
+            return Collections.unmodifiableSet(removedSelection);
+        }
         LinkedHashSet<T> copy = new LinkedHashSet<>(getOldValue());
         copy.removeAll(getNewSelection());
         return copy;
@@ -122,11 +170,43 @@ public class MultiSelectionEvent<T> extends ValueChangeEvent<Set<T>>
      * @return the items that were removed from selection
      */
     public Set<T> getAddedSelection() {
+        if (addedSelection != null) {
+            return Collections.unmodifiableSet(addedSelection);
+        }
         LinkedHashSet<T> copy = new LinkedHashSet<>(getValue());
         copy.removeAll(getOldValue());
         return copy;
     }
 
+    /**
+     * Gets whether all items are selected after the change, except the
+     * {@link #getDeselectedItems() deselected items}. When this is the case,
+     * {@link #getNewSelection()} fetches the selected items from the data
+     * provider whenever it is iterated.
+     *
+     * @return {@code true} if all items except the deselected ones are
+     *         selected, {@code false} otherwise
+     * @since 8.11
+     */
+    public boolean isAllSelected() {
+        return deselectedItems != null;
+    }
+
+    /**
+     * Gets the items that are not selected when {@link #isAllSelected() all
+     * other items are selected}.
+     *
+     * @return the deselected items, empty if no item has been deselected or
+     *         if not all items are selected
+     * @since 8.11
+     */
+    public Set<T> getDeselectedItems() {
+        if (deselectedItems == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(deselectedItems);
+    }
+
     @Override
     public Optional<T> getFirstSelectedItem() {
         return getValue().stream().findFirst();
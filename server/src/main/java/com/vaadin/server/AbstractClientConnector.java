@@ -70,6 +70,13 @@ public abstract class AbstractClientConnector
      */
     private final Map<Class<?>, ClientRpc> rpcProxyMap = new HashMap<>();
 
+    /**
+     * Proxy class constructors for client RPC interfaces, shared by all
+     * connectors. Using ClassValue so that the interfaces can still be
+     * unloaded.
+     */
+    private static final ClassValue<Constructor<?>> RPC_PROXY_CONSTRUCTORS = new RpcProxyConstructors();
+
     /**
      * Shared state object to be communicated from the server to the client when
      * modified.
@@ -360,30 +367,44 @@ public abstract class AbstractClientConnector
     protected <T extends ClientRpc> T getRpcProxy(final Class<T> rpcInterface) {
         // create, initialize and return a dynamic proxy for RPC
         try {
-            if (!rpcProxyMap.containsKey(rpcInterface)) {
-                Class<?> proxyClass = Proxy.getProxyClass(
-                        rpcInterface.getClassLoader(), rpcInterface);
-                Constructor<?> constructor = proxyClass
-                        .getConstructor(InvocationHandler.class);
-                T rpcProxy = rpcInterface.cast(constructor
+            ClientRpc rpcProxy = rpcProxyMap.get(rpcInterface);
+            if (rpcProxy == null) {
+                Constructor<?> constructor = RPC_PROXY_CONSTRUCTORS
+                        .get(rpcInterface);
+                rpcProxy = rpcInterface.cast(constructor
                         .newInstance(new RpcInvocationHandler(rpcInterface)));
                 // cache the proxy
                 rpcProxyMap.put(rpcInterface, rpcProxy);
             }
-            return (T) rpcProxyMap.get(rpcInterface);
+            return (T) rpcProxy;
         } catch (Exception e) {
             // TODO exception handling?
             throw new RuntimeException(e);
         }
     }
 
+    private static class RpcProxyConstructors
+            extends ClassValue<Constructor<?>> {
+        @Override
+        protected Constructor<?> computeValue(Class<?> rpcInterface) {
+            try {
+                return Proxy
+                        .getProxyClass(rpcInterface.getClassLoader(),
+                                rpcInterface)
+                        .getConstructor(InvocationHandler.class);
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     private class RpcInvocationHandler
             implements InvocationHandler, Serializable {
 
         private final String rpcInterfaceName;
 
         public RpcInvocationHandler(Class<?> rpcInterface) {
-            rpcInterfaceName = rpcInterface.getName().replaceAll("\\$", ".");
+            rpcInterfaceName = rpcInterface.getName().replace('$', '.');
         }
 
         @Override
@@ -0,0 +1,568 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.vaadin.server.VaadinSession.FutureAccess;
+
+/**
+ * Dispatches tasks submitted through {@link VaadinSession#access(Runnable)}
+ * and {@link com.vaadin.ui.UI#access(Runnable)} to the pending access queue of
+ * the session. The dispatcher of a service is available through
+ * {@link VaadinService#getAccessDispatcher()}.
+ * <p>
+ * By default, the dispatcher behaves like earlier versions: the queue is
+ * unbounded and it is purged as soon as the session lock is available. For
+ * applications where background threads produce a large amount of access
+ * tasks, the dispatcher can be configured to
+ * <ul>
+ * <li>limit the number of pending tasks per session and decide what to do
+ * when the limit is reached, see {@link #setMaxPendingTasks(int)} and
+ * {@link #setOverflowPolicy(OverflowPolicy)},</li>
+ * <li>collect tasks for a while before purging the queue so that a single lock
+ * acquisition and a single push handle the whole batch, see
+ * {@link #setBatchInterval(long)},</li>
+ * <li>replace a pending task with a newer one submitted with the same key, see
+ * {@link VaadinSession#access(Object, Runnable)}.</li>
+ * </ul>
+ * The dispatcher also keeps track of how many tasks have been submitted, run,
+ * rejected and coalesced and how long tasks have waited in the queue before
+ * being run.
+ * <p>
+ * The settings can be given as deployment configuration parameters
+ * {@value Constants#SERVLET_PARAMETER_ACCESS_QUEUE_LIMIT},
+ * {@value Constants#SERVLET_PARAMETER_ACCESS_QUEUE_OVERFLOW_POLICY} and
+ * {@value Constants#SERVLET_PARAMETER_ACCESS_BATCH_INTERVAL} or by calling the
+ * setters e.g. in a {@link VaadinServiceInitListener}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.11
+ */
+public class AccessDispatcher implements Serializable {
+
+    /**
+     * Defines what happens when a task is submitted to a session which
+     * already has the maximum number of pending tasks.
+     *
+     * @since 8.11
+     */
+    public enum OverflowPolicy {
+        /**
+         * The submitted task is rejected by throwing a
+         * {@link RejectedExecutionException}.
+         */
+        REJECT,
+        /**
+         * The oldest pending task is cancelled to make room for the submitted
+         * task.
+         */
+        DISCARD_OLDEST,
+        /**
+         * The submitting thread waits until there is room in the queue. The
+         * task is rejected if there is still no room after the
+         * {@link AccessDispatcher#setBlockTimeout(long) block timeout} or if
+         * the submitting thread holds a session lock, since waiting could then
+         * cause a deadlock.
+         */
+        BLOCK;
+    }
+
+    /**
+     * Per session dispatching state, stored in a transient field of the
+     * session.
+     */
+    static class SessionQueueState implements Serializable {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean purgeScheduled = new AtomicBoolean();
+        private final ConcurrentMap<Object, FutureAccess> coalescing = new ConcurrentHashMap<>();
+    }
+
+    private final VaadinService service;
+
+    private volatile int maxPendingTasks = 0;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+    private volatile long blockTimeout = 10000;
+    private volatile long batchInterval = 0;
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder executedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    private transient volatile ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a new dispatcher for the given service.
+     *
+     * @param service
+     *            the service that runs the dispatched tasks, not
+     *            <code>null</code>
+     */
+    public AccessDispatcher(VaadinService service) {
+        this.service = service;
+    }
+
+    /**
+     * Sets the maximum number of tasks that can be pending for a single
+     * session. The default is <code>0</code>, which means that the number is
+     * not limited.
+     *
+     * @param maxPendingTasks
+     *            the maximum number of pending tasks per session, or
+     *            <code>0</code> to not limit the number
+     */
+    public void setMaxPendingTasks(int maxPendingTasks) {
+        if (maxPendingTasks < 0) {
+            throw new IllegalArgumentException(
+                    "maxPendingTasks cannot be negative");
+        }
+        this.maxPendingTasks = maxPendingTasks;
+    }
+
+    /**
+     * Gets the maximum number of tasks that can be pending for a single
+     * session.
+     *
+     * @return the maximum number of pending tasks per session, or
+     *         <code>0</code> if the number is not limited
+     */
+    public int getMaxPendingTasks() {
+        return maxPendingTasks;
+    }
+
+    /**
+     * Sets what to do when a task is submitted to a session which already has
+     * {@link #getMaxPendingTasks()} pending tasks. The default is
+     * {@link OverflowPolicy#REJECT}.
+     *
+     * @param overflowPolicy
+     *            the overflow policy, not <code>null</code>
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException(
+                    "overflowPolicy cannot be null");
+        }
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Gets what to do when a task is submitted to a full queue.
+     *
+     * @return the overflow policy, not <code>null</code>
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets how long a thread submitting a task waits for room in the queue
+     * when the overflow policy is {@link OverflowPolicy#BLOCK}. The default is
+     * 10 seconds.
+     *
+     * @param blockTimeout
+     *            the timeout in milliseconds
+     */
+    public void setBlockTimeout(long blockTimeout) {
+        if (blockTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "blockTimeout cannot be negative");
+        }
+        this.blockTimeout = blockTimeout;
+    }
+
+    /**
+     * Gets how long a thread submitting a task waits for room in the queue.
+     *
+     * @return the timeout in milliseconds
+     */
+    public long getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    /**
+     * Sets for how long tasks submitted from threads not holding the session
+     * lock are collected before the queue is purged. All tasks collected
+     * during the interval are run using one lock acquisition, which also
+     * means that UIs using automatic push are pushed once for the whole
+     * batch. The default is <code>0</code>, which purges the queue right away
+     * for each submitted task.
+     * <p>
+     * The queue is still purged whenever the session lock is released, e.g.
+     * at the end of a request, regardless of this setting.
+     *
+     * @param batchInterval
+     *            the interval in milliseconds, or <code>0</code> to not batch
+     *            tasks
+     */
+    public void setBatchInterval(long batchInterval) {
+        if (batchInterval < 0) {
+            throw new IllegalArgumentException(
+                    "batchInterval cannot be negative");
+        }
+        this.batchInterval = batchInterval;
+    }
+
+    /**
+     * Gets for how long tasks are collected before the queue is purged.
+     *
+     * @return the interval in milliseconds, or <code>0</code> if tasks are not
+     *         batched
+     */
+    public long getBatchInterval() {
+        return batchInterval;
+    }
+
+    /**
+     * Adds a task to the pending access queue of the session and makes sure
+     * the queue gets purged.
+     *
+     * @param session
+     *            the session to access, not <code>null</code>
+     * @param coalescingKey
+     *            a key identifying the task, or <code>null</code> to never
+     *            replace the task with a newer one
+     * @param runnable
+     *            the runnable to run with the session locked
+     * @return a future that can be used to check for task completion and to
+     *         cancel the task
+     * @throws RejectedExecutionException
+     *             if there is no room for the task in the queue
+     */
+    public Future<Void> dispatch(VaadinSession session, Object coalescingKey,
+            Runnable runnable) {
+        FutureAccess future = new FutureAccess(session, runnable);
+        future.coalescingKey = coalescingKey;
+        future.dispatched = true;
+
+        SessionQueueState state = session.getAccessQueueState();
+        Queue<FutureAccess> queue = session.getPendingAccessQueue();
+
+        boolean reserved = false;
+        if (coalescingKey != null) {
+            FutureAccess previous = state.coalescing.put(coalescingKey,
+                    future);
+            if (previous != null
+                    && previous.holdsSlot.compareAndSet(true, false)) {
+                // Take over the slot of the replaced task, which is left in
+                // the queue and skipped when the queue is purged
+                reserved = true;
+                if (previous.cancel(false)) {
+                    coalescedCount.increment();
+                }
+            }
+        }
+
+        int max = maxPendingTasks;
+        if (!reserved && !tryReserve(state, max)) {
+            try {
+                makeRoom(session, state, max);
+            } catch (RejectedExecutionException e) {
+                if (coalescingKey != null) {
+                    state.coalescing.remove(coalescingKey, future);
+                }
+                rejectedCount.increment();
+                throw e;
+            }
+        }
+
+        future.enqueueTime = System.nanoTime();
+        future.holdsSlot.set(true);
+        queue.add(future);
+        submittedCount.increment();
+
+        long interval = batchInterval;
+        if (interval > 0 && !session.hasLock()) {
+            if (state.purgeScheduled.compareAndSet(false, true)) {
+                getScheduler().schedule(() -> {
+                    state.purgeScheduled.set(false);
+                    service.ensureAccessQueuePurged(session);
+                }, interval, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            service.ensureAccessQueuePurged(session);
+        }
+
+        return future;
+    }
+
+    /**
+     * Reserves a pending slot for a new task, unless the queue is full. The
+     * check and the reservation are one atomic step so that concurrent
+     * submitters cannot exceed the limit.
+     */
+    private static boolean tryReserve(SessionQueueState state, int max) {
+        while (true) {
+            int pending = state.pending.get();
+            if (max > 0 && pending >= max) {
+                return false;
+            }
+            if (state.pending.compareAndSet(pending, pending + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserves a pending slot in a full queue according to the overflow
+     * policy, or throws if that is not possible.
+     */
+    private void makeRoom(VaadinSession session, SessionQueueState state,
+            int max) {
+        switch (overflowPolicy) {
+        case DISCARD_OLDEST:
+            Queue<FutureAccess> queue = session.getPendingAccessQueue();
+            while (!tryReserve(state, max)) {
+                FutureAccess oldest = queue.poll();
+                if (oldest == null) {
+                    // Slots are held by tasks that other threads are about to
+                    // add to the queue or have just removed from it
+                    Thread.yield();
+                    continue;
+                }
+                taskRemoved(session, oldest);
+                if (oldest.cancel(false)) {
+                    rejectedCount.increment();
+                }
+            }
+            break;
+        case BLOCK:
+            if (session.hasLock()
+                    || VaadinService.isOtherSessionLocked(session)) {
+                throw new RejectedExecutionException(
+                        "Access queue is full and the current thread holds a session lock");
+            }
+            long deadline = System.currentTimeMillis() + blockTimeout;
+            while (!tryReserve(state, max)) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new RejectedExecutionException(
+                            "Timed out waiting for room in the access queue");
+                }
+                // Make sure someone is draining the queue. This may run the
+                // tasks in this thread, so the monitor must not be held.
+                service.ensureAccessQueuePurged(session);
+                synchronized (state) {
+                    if (state.pending.get() >= max) {
+                        try {
+                            state.wait(Math.min(wait, 100));
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(
+                                    "Interrupted while waiting for room in the access queue",
+                                    e);
+                        }
+                    }
+                }
+            }
+            break;
+        default:
+            throw new RejectedExecutionException("Access queue is full ("
+                    + max + " pending tasks)");
+        }
+    }
+
+    /**
+     * Called by {@link VaadinService#runPendingAccessTasks(VaadinSession)}
+     * when a task has been removed from the queue, before it is run.
+     *
+     * @param session
+     *            the session the task belongs to
+     * @param task
+     *            the task that was removed from the queue
+     */
+    void taskRemoved(VaadinSession session, FutureAccess task) {
+        if (!task.dispatched) {
+            // Added directly to the queue, not through the dispatcher
+            return;
+        }
+        SessionQueueState state = session.getAccessQueueState();
+        if (task.holdsSlot.compareAndSet(true, false)) {
+            state.pending.decrementAndGet();
+        }
+        if (task.coalescingKey != null) {
+            state.coalescing.remove(task.coalescingKey, task);
+        }
+    }
+
+    /**
+     * Called by {@link VaadinService#runPendingAccessTasks(VaadinSession)}
+     * right before a task is run.
+     *
+     * @param task
+     *            the task that is about to be run
+     */
+    void taskStarted(FutureAccess task) {
+        executedCount.increment();
+        if (task.dispatched) {
+            long latency = System.nanoTime() - task.enqueueTime;
+            totalLatency.add(latency);
+            long max;
+            while (latency > (max = maxLatency.get())
+                    && !maxLatency.compareAndSet(max, latency)) {
+                // retry
+            }
+        }
+    }
+
+    /**
+     * Called by {@link VaadinService#runPendingAccessTasks(VaadinSession)}
+     * after the queue has been purged to wake up threads waiting for room.
+     *
+     * @param session
+     *            the session which queue was purged
+     */
+    void queuePurged(VaadinSession session) {
+        if (maxPendingTasks > 0 && overflowPolicy == OverflowPolicy.BLOCK) {
+            SessionQueueState state = session.getAccessQueueState();
+            synchronized (state) {
+                state.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tasks currently waiting in the queue of the given
+     * session.
+     *
+     * @param session
+     *            the session to check, not <code>null</code>
+     * @return the number of pending tasks
+     */
+    public int getPendingTaskCount(VaadinSession session) {
+        return session.getAccessQueueState().pending.get();
+    }
+
+    /**
+     * Gets the number of tasks that have been accepted to the queue of any
+     * session.
+     *
+     * @return the number of submitted tasks
+     */
+    public long getSubmittedTaskCount() {
+        return submittedCount.sum();
+    }
+
+    /**
+     * Gets the number of tasks that have been run.
+     *
+     * @return the number of run tasks
+     */
+    public long getExecutedTaskCount() {
+        return executedCount.sum();
+    }
+
+    /**
+     * Gets the number of tasks that have been rejected or discarded because a
+     * queue was full.
+     *
+     * @return the number of rejected tasks
+     */
+    public long getRejectedTaskCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Gets the number of pending tasks that have been replaced by a newer task
+     * with the same coalescing key.
+     *
+     * @return the number of coalesced tasks
+     */
+    public long getCoalescedTaskCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * Gets the average time tasks have waited in the queue before being run.
+     *
+     * @return the average latency in nanoseconds, or <code>0</code> if no
+     *         tasks have been run
+     */
+    public long getAverageLatency() {
+        long count = executedCount.sum();
+        return count == 0 ? 0 : totalLatency.sum() / count;
+    }
+
+    /**
+     * Gets the longest time a task has waited in the queue before being run.
+     *
+     * @return the maximum latency in nanoseconds
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    /**
+     * Resets all counters and latency statistics.
+     */
+    public void resetStatistics() {
+        submittedCount.reset();
+        executedCount.reset();
+        rejectedCount.reset();
+        coalescedCount.reset();
+        totalLatency.reset();
+        maxLatency.set(0);
+    }
+
+    /**
+     * Stops the thread used for purging batched tasks. Called when the service
+     * is destroyed.
+     */
+    public void destroy() {
+        ScheduledExecutorService s = scheduler;
+        if (s != null) {
+            s.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private ScheduledExecutorService getScheduler() {
+        ScheduledExecutorService s = scheduler;
+        if (s == null) {
+            synchronized (this) {
+                s = scheduler;
+                if (s == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                            1, runnable -> {
+                                Thread thread = new Thread(runnable,
+                                        "vaadin-access-batch");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    executor.setRemoveOnCancelPolicy(true);
+                    scheduler = s = executor;
+                }
+            }
+        }
+        return s;
+    }
+}
@@ -18,9 +18,8 @@ package com.vaadin.server;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
@@ -37,6 +36,7 @@ import java.util.logging.Logger;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.DataNode;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.DocumentType;
@@ -80,6 +80,34 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
      */
     public static final String IGNORE_RESTART_PARAM = "ignoreRestart";
 
+    private static final String NO_SCRIPT_MESSAGE = "You have to enable javascript in your browser to use an application built with Vaadin.";
+
+    private static final String BOOTSTRAP_STYLE = "html, body {height:100%;margin:0;}";
+
+    // Parameter appended to JS to bypass caches after version upgrade.
+    private static final String VERSION_QUERY_PARAMETER = "?v="
+            + Version.getFullVersion();
+
+    /*
+     * Bootstrap page template used when there are no bootstrap listeners,
+     * formatted the same way as jsoup formats the DOM.
+     */
+    private static final String PAGE_HEAD_START = "<!doctype html>\n<html>\n <head>"
+            + "\n  <meta http-equiv=\"Content-Type\" content=\""
+            + ApplicationConstants.CONTENT_TYPE_TEXT_HTML_UTF_8 + "\">"
+            + "\n  <meta http-equiv=\"X-UA-Compatible\" content=\"IE=11\">";
+
+    private static final String PAGE_STYLE = "\n  <style type=\"text/css\">"
+            + BOOTSTRAP_STYLE + "</style>";
+
+    private static final String PAGE_BODY_START = "\n </head>\n <body scroll=\"auto\" class=\""
+            + ApplicationConstants.GENERATED_BODY_CLASSNAME + "\">";
+
+    private static final String PAGE_END = "\n </body>\n</html>";
+
+    private static final String[] INDENTS = { "\n", "\n ", "\n  ", "\n   ",
+            "\n    " };
+
     /**
      * Provides context information for the bootstrap process.
      */
@@ -419,13 +447,19 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
                     bootstrapResponse);
             bootstrapResponse.setUriResolver(context.getUriResolver());
 
-            setupMainDiv(context);
+            String html;
+            if (session.hasBootstrapListeners()) {
+                // Listeners need the DOM to modify
+                setupMainDiv(context);
 
-            BootstrapFragmentResponse fragmentResponse = context
-                    .getBootstrapResponse();
-            session.modifyBootstrapResponse(fragmentResponse);
+                BootstrapFragmentResponse fragmentResponse = context
+                        .getBootstrapResponse();
+                session.modifyBootstrapResponse(fragmentResponse);
 
-            String html = getBootstrapHtml(context);
+                html = getBootstrapHtml(context);
+            } else {
+                html = getTemplateBootstrapHtml(context);
+            }
 
             writeBootstrapPage(response, html);
         } catch (JsonException e) {
@@ -475,6 +509,208 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
         }
     }
 
+    /**
+     * Writes the same HTML as {@link #getBootstrapHtml(BootstrapContext)}
+     * without building a DOM. The markup is precompiled into constants and only
+     * the values for the request are spliced in, escaped the same way as jsoup
+     * escapes them. Can only be used when there are no bootstrap listeners
+     * that need the DOM.
+     */
+    private String getTemplateBootstrapHtml(BootstrapContext context)
+            throws IOException {
+        VaadinRequest request = context.getRequest();
+        StringBuilder html = new StringBuilder(4096);
+
+        if (request.getService().isStandalone(request)) {
+            VaadinResponse response = context.getResponse();
+            response.setHeader("Cache-Control", "no-cache");
+            response.setHeader("Pragma", "no-cache");
+            response.setDateHeader("Expires", 0);
+
+            html.append(PAGE_HEAD_START);
+
+            String viewportContent = getViewportContent(context);
+            if (viewportContent != null) {
+                html.append("\n  <meta name=\"viewport\"");
+                appendAttribute(html, "content", viewportContent);
+                html.append('>');
+            }
+
+            String title = context.getBootstrapResponse().getUIProvider()
+                    .getPageTitle(new UICreateEvent(request,
+                            context.getUIClass()));
+            if (title != null) {
+                html.append("\n  ");
+                appendTitle(html, title);
+            }
+
+            html.append(PAGE_STYLE);
+
+            String themeName = context.getThemeName();
+            if (themeName != null) {
+                String favicon = getThemeUri(context, themeName)
+                        + "/favicon.ico";
+                html.append(
+                        "\n  <link rel=\"shortcut icon\" type=\"image/vnd.microsoft.icon\"");
+                appendAttribute(html, "href", favicon);
+                html.append(
+                        ">\n  <link rel=\"icon\" type=\"image/vnd.microsoft.icon\"");
+                appendAttribute(html, "href", favicon);
+                html.append('>');
+            }
+
+            for (Dependency dependency : findDependencies(context)) {
+                Type type = dependency.getType();
+                String url = context.getUriResolver()
+                        .resolveVaadinUri(dependency.getUrl());
+                if (type == Type.HTMLIMPORT) {
+                    html.append("\n  <link rel=\"import\"");
+                    appendAttribute(html, "href", url);
+                    html.append('>');
+                } else if (type == Type.JAVASCRIPT) {
+                    html.append("\n  <script type=\"text/javascript\"");
+                    appendAttribute(html, "src", url);
+                    html.append("></script>");
+                } else if (type == Type.STYLESHEET) {
+                    html.append(
+                            "\n  <link rel=\"stylesheet\" type=\"text/css\"");
+                    appendAttribute(html, "href", url);
+                    html.append('>');
+                } else {
+                    getLogger().severe("Ignoring unknown dependency type "
+                            + dependency.getType());
+                }
+            }
+
+            html.append(PAGE_BODY_START);
+            appendMainDivAndScripts(context, html, 2);
+            html.append(PAGE_END);
+        } else {
+            appendMainDivAndScripts(context, html, 0);
+        }
+
+        return html.toString();
+    }
+
+    /**
+     * Writes the nodes that {@link #setupMainDiv(BootstrapContext)} creates,
+     * formatted the way jsoup formats them on the given depth.
+     */
+    private void appendMainDivAndScripts(BootstrapContext context,
+            StringBuilder html, int depth) throws IOException {
+        String style = getMainDivStyle(context);
+
+        String indent = INDENTS[depth];
+        if (depth > 0) {
+            html.append(indent);
+        }
+        html.append("<div");
+        appendAttribute(html, "id", context.getAppId());
+        appendAttribute(html, "class", getMainDivClassName(context));
+        if (style != null && !style.isEmpty()) {
+            appendAttribute(html, "style", style);
+        }
+        html.append('>');
+        html.append(INDENTS[depth + 1])
+                .append("<div class=\"v-app-loading\"></div>");
+        html.append(INDENTS[depth + 1]).append("<noscript>");
+        html.append(INDENTS[depth + 2]).append(NO_SCRIPT_MESSAGE);
+        html.append(INDENTS[depth + 1]).append("</noscript>");
+        html.append(indent).append("</div>");
+
+        String vaadinLocation = getVaadinLocation(context);
+
+        String pushJS = getPushScriptLocation(context, vaadinLocation);
+        if (pushJS != null) {
+            html.append(indent).append("<script type=\"text/javascript\"");
+            appendAttribute(html, "src", pushJS);
+            html.append("></script>");
+        }
+
+        String bootstrapLocation = getBootstrapScriptLocation(vaadinLocation);
+        html.append(indent).append("<script type=\"text/javascript\"");
+        appendAttribute(html, "src", bootstrapLocation);
+        html.append("></script>");
+
+        html.append(indent).append("<script type=\"text/javascript\">");
+        appendMainScript(context, bootstrapLocation, html);
+        html.append("</script>");
+    }
+
+    private static String getMainDivClassName(BootstrapContext context) {
+        String themeName = context.getThemeName();
+        String uiClassName = context.getUIClass().getSimpleName()
+                .toLowerCase(Locale.ROOT);
+        if (isPlainClassName(themeName) && isPlainClassName(uiClassName)
+                && !themeName.equals(uiClassName)
+                && !"v-app".equals(themeName)
+                && !"v-app".equals(uiClassName)) {
+            return "v-app " + themeName + " " + uiClassName;
+        }
+        // Let jsoup handle empty, duplicate and whitespace separated names
+        return new Element(Tag.valueOf("div"), "").addClass("v-app")
+                .addClass(themeName).addClass(uiClassName).className();
+    }
+
+    private static boolean isPlainClassName(String className) {
+        if (className == null || className.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < className.length(); i++) {
+            if (Character.isWhitespace(className.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendAttribute(StringBuilder html, String key,
+            String value) {
+        html.append(' ');
+        if (isPlainText(value, false)) {
+            html.append(key).append("=\"").append(value).append('"');
+        } else {
+            html.append(new Attribute(key, value).html());
+        }
+    }
+
+    private static void appendTitle(StringBuilder html, String title) {
+        if (isPlainText(title, true)) {
+            html.append("<title>").append(title).append("</title>");
+        } else {
+            html.append(new Element(Tag.valueOf("title"), "").appendText(title)
+                    .outerHtml());
+        }
+    }
+
+    /**
+     * Checks whether jsoup would write the given value as is. Anything else is
+     * escaped using jsoup to get exactly the same output as the DOM would
+     * produce.
+     */
+    private static boolean isPlainText(String value, boolean text) {
+        if (value == null) {
+            return false;
+        }
+        char previous = 'x';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < ' ' || c > '~' || c == '&') {
+                return false;
+            }
+            if (text) {
+                // Text is escaped differently and whitespace is normalized
+                if (c == '<' || c == '>' || c == ' ' && previous == ' ') {
+                    return false;
+                }
+            } else if (c == '"') {
+                return false;
+            }
+            previous = c;
+        }
+        return true;
+    }
+
     private void sendBootstrapHeaders(VaadinResponse response,
             Map<String, Object> headers) {
         Set<Entry<String, Object>> entrySet = headers.entrySet();
@@ -496,9 +732,10 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
             throws IOException {
         response.setContentType(
                 ApplicationConstants.CONTENT_TYPE_TEXT_HTML_UTF_8);
-        try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(response.getOutputStream(), UTF_8))) {
-            writer.append(html);
+        byte[] bytes = html.getBytes(UTF_8);
+        response.setContentLength(bytes.length);
+        try (OutputStream out = response.getOutputStream()) {
+            out.write(bytes);
         }
     }
 
@@ -522,37 +759,7 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
         head.appendElement("meta").attr("http-equiv", "X-UA-Compatible")
                 .attr("content", "IE=11");
 
-        Class<? extends UI> uiClass = context.getUIClass();
-
-        String viewportContent = null;
-        Viewport viewportAnnotation = uiClass.getAnnotation(Viewport.class);
-        ViewportGeneratorClass viewportGeneratorClassAnnotation = uiClass
-                .getAnnotation(ViewportGeneratorClass.class);
-        if (viewportAnnotation != null
-                && viewportGeneratorClassAnnotation != null) {
-            throw new IllegalStateException(uiClass.getCanonicalName()
-                    + " cannot be annotated with both @"
-                    + Viewport.class.getSimpleName() + " and @"
-                    + ViewportGeneratorClass.class.getSimpleName());
-        }
-
-        if (viewportAnnotation != null) {
-            viewportContent = viewportAnnotation.value();
-        } else if (viewportGeneratorClassAnnotation != null) {
-            Class<? extends ViewportGenerator> viewportGeneratorClass = viewportGeneratorClassAnnotation
-                    .value();
-            try {
-                viewportContent = ReflectTools
-                        .createInstance(viewportGeneratorClass)
-                        .getViewport(context.getRequest());
-            } catch (Exception e) {
-                throw new RuntimeException(
-                        "Error processing viewport generator "
-                                + viewportGeneratorClass.getCanonicalName(),
-                        e);
-            }
-        }
-
+        String viewportContent = getViewportContent(context);
         if (viewportContent != null) {
             head.appendElement("meta").attr("name", "viewport").attr("content",
                     viewportContent);
@@ -565,7 +772,7 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
         }
 
         head.appendElement("style").attr("type", "text/css")
-                .appendText("html, body {height:100%;margin:0;}");
+                .appendText(BOOTSTRAP_STYLE);
 
         // Add favicon links
         String themeName = context.getThemeName();
@@ -579,11 +786,7 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
                     .attr("href", themeUri + "/favicon.ico");
         }
 
-        Collection<? extends Dependency> deps = Dependency.findDependencies(
-                Collections.singletonList(uiClass),
-                context.getSession().getCommunicationManager(),
-                new FilterContext(context.getSession()));
-        for (Dependency dependency : deps) {
+        for (Dependency dependency : findDependencies(context)) {
             Type type = dependency.getType();
             String url = context.getUriResolver()
                     .resolveVaadinUri(dependency.getUrl());
@@ -607,6 +810,49 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
         body.addClass(ApplicationConstants.GENERATED_BODY_CLASSNAME);
     }
 
+    private String getViewportContent(BootstrapContext context) {
+        Class<? extends UI> uiClass = context.getUIClass();
+
+        String viewportContent = null;
+        Viewport viewportAnnotation = uiClass.getAnnotation(Viewport.class);
+        ViewportGeneratorClass viewportGeneratorClassAnnotation = uiClass
+                .getAnnotation(ViewportGeneratorClass.class);
+        if (viewportAnnotation != null
+                && viewportGeneratorClassAnnotation != null) {
+            throw new IllegalStateException(uiClass.getCanonicalName()
+                    + " cannot be annotated with both @"
+                    + Viewport.class.getSimpleName() + " and @"
+                    + ViewportGeneratorClass.class.getSimpleName());
+        }
+
+        if (viewportAnnotation != null) {
+            viewportContent = viewportAnnotation.value();
+        } else if (viewportGeneratorClassAnnotation != null) {
+            Class<? extends ViewportGenerator> viewportGeneratorClass = viewportGeneratorClassAnnotation
+                    .value();
+            try {
+                viewportContent = ReflectTools
+                        .createInstance(viewportGeneratorClass)
+                        .getViewport(context.getRequest());
+            } catch (Exception e) {
+                throw new RuntimeException(
+                        "Error processing viewport generator "
+                                + viewportGeneratorClass.getCanonicalName(),
+                        e);
+            }
+        }
+
+        return viewportContent;
+    }
+
+    private Collection<? extends Dependency> findDependencies(
+            BootstrapContext context) {
+        return Dependency.findDependencies(
+                Collections.singletonList(context.getUIClass()),
+                context.getSession().getCommunicationManager(),
+                new FilterContext(context.getSession()));
+    }
+
     private static Logger getLogger() {
         return Logger.getLogger(BootstrapHandler.class.getName());
     }
@@ -666,37 +912,18 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
             mainDiv.attr("style", style);
         }
         mainDiv.appendElement("div").addClass("v-app-loading");
-        mainDiv.appendElement("noscript").append(
-                "You have to enable javascript in your browser to use an application built with Vaadin.");
+        mainDiv.appendElement("noscript").append(NO_SCRIPT_MESSAGE);
         fragmentNodes.add(mainDiv);
 
-        VaadinRequest request = context.getRequest();
-
-        VaadinService vaadinService = request.getService();
-        String vaadinLocation = vaadinService.getStaticFileLocation(request)
-                + "/VAADIN/";
-
-        // Parameter appended to JS to bypass caches after version upgrade.
-        String versionQueryParam = "?v=" + Version.getFullVersion();
-
-        if (context.getPushMode().isEnabled()) {
-            // Load client-side dependencies for push support
-            String pushJS = vaadinLocation;
-            if (context.getRequest().getService().getDeploymentConfiguration()
-                    .isProductionMode()) {
-                pushJS += ApplicationConstants.VAADIN_PUSH_JS;
-            } else {
-                pushJS += ApplicationConstants.VAADIN_PUSH_DEBUG_JS;
-            }
-
-            pushJS += versionQueryParam;
+        String vaadinLocation = getVaadinLocation(context);
 
+        String pushJS = getPushScriptLocation(context, vaadinLocation);
+        if (pushJS != null) {
             fragmentNodes.add(new Element(Tag.valueOf("script"), "")
                     .attr("type", "text/javascript").attr("src", pushJS));
         }
 
-        String bootstrapLocation = vaadinLocation
-                + ApplicationConstants.VAADIN_BOOTSTRAP_JS + versionQueryParam;
+        String bootstrapLocation = getBootstrapScriptLocation(vaadinLocation);
         fragmentNodes.add(new Element(Tag.valueOf("script"), "")
                 .attr("type", "text/javascript")
                 .attr("src", bootstrapLocation));
@@ -704,6 +931,46 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
                 .attr("type", "text/javascript");
 
         StringBuilder builder = new StringBuilder();
+        appendMainScript(context, bootstrapLocation, builder);
+        mainScriptTag.appendChild(
+                new DataNode(builder.toString(), mainScriptTag.baseUri()));
+        fragmentNodes.add(mainScriptTag);
+
+    }
+
+    private static String getVaadinLocation(BootstrapContext context) {
+        VaadinRequest request = context.getRequest();
+        return request.getService().getStaticFileLocation(request)
+                + "/VAADIN/";
+    }
+
+    private static String getPushScriptLocation(BootstrapContext context,
+            String vaadinLocation) {
+        if (!context.getPushMode().isEnabled()) {
+            return null;
+        }
+
+        // Load client-side dependencies for push support
+        String pushJS = vaadinLocation;
+        if (context.getRequest().getService().getDeploymentConfiguration()
+                .isProductionMode()) {
+            pushJS += ApplicationConstants.VAADIN_PUSH_JS;
+        } else {
+            pushJS += ApplicationConstants.VAADIN_PUSH_DEBUG_JS;
+        }
+
+        // Parameter appended to JS to bypass caches after version upgrade.
+        return pushJS + VERSION_QUERY_PARAMETER;
+    }
+
+    private static String getBootstrapScriptLocation(String vaadinLocation) {
+        return vaadinLocation + ApplicationConstants.VAADIN_BOOTSTRAP_JS
+                + VERSION_QUERY_PARAMETER;
+    }
+
+    private void appendMainScript(BootstrapContext context,
+            String bootstrapLocation, StringBuilder builder)
+            throws IOException {
         builder.append("//<![CDATA[\n");
         builder.append("if (!window.vaadin) alert(" + JsonUtil.quote(
                 "Failed to load the bootstrap javascript: " + bootstrapLocation)
@@ -712,10 +979,6 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
         appendMainScriptTagContents(context, builder);
 
         builder.append("//]]>");
-        mainScriptTag.appendChild(
-                new DataNode(builder.toString(), mainScriptTag.baseUri()));
-        fragmentNodes.add(mainScriptTag);
-
     }
 
     protected void appendMainScriptTagContents(BootstrapContext context,
@@ -116,6 +116,11 @@ public interface Constants {
     static final String SERVLET_PARAMETER_SYNC_ID_CHECK = "syncIdCheck";
     static final String SERVLET_PARAMETER_SENDURLSASPARAMETERS = "sendUrlsAsParameters";
     static final String SERVLET_PARAMETER_PUSH_SUSPEND_TIMEOUT_LONGPOLLING = "pushLongPollingSuspendTimeout";
+    static final String SERVLET_PARAMETER_ACCESS_QUEUE_LIMIT = "accessQueueLimit";
+    static final String SERVLET_PARAMETER_ACCESS_QUEUE_OVERFLOW_POLICY = "accessQueueOverflowPolicy";
+    static final String SERVLET_PARAMETER_ACCESS_BATCH_INTERVAL = "accessBatchInterval";
+    static final String SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE = "staticResourceCacheSize";
+    static final String SERVLET_PARAMETER_MAX_RPC_MESSAGE_SIZE = "maxRpcMessageSize";
     /**
      * Name of system or context property to write declarative syntax with the
      * old "v-" prefix or with the new "vaadin-" prefix. The default value
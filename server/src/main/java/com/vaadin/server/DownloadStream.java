@@ -16,13 +16,21 @@
 
 package com.vaadin.server;
 
+import java.io.EOFException;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -54,6 +62,12 @@ public class DownloadStream implements Serializable {
      */
     public static final long DEFAULT_CACHETIME = 1000 * 60 * 60 * 24;
 
+    /**
+     * The maximum number of ranges served for a single request. Requests for
+     * more ranges are answered with the whole data.
+     */
+    private static final int MAX_RANGES = 16;
+
     private InputStream stream;
 
     private String contentType;
@@ -238,6 +252,15 @@ public class DownloadStream implements Serializable {
      * response. If there's is a parameter named <code>Location</code>, a
      * redirect (302 Moved temporarily) is sent instead of the contents of this
      * stream.
+     * <p>
+     * If the length of the data is known, either from a
+     * <code>Content-Length</code> parameter or because the stream is a
+     * {@link FileInputStream}, byte range requests are supported. A
+     * <code>Range</code> header in a GET request is then answered with the
+     * requested part (206 Partial Content), several parts as
+     * <code>multipart/byteranges</code> or 416 Range Not Satisfiable. Data of
+     * a {@link FileInputStream} is read through its {@link FileChannel}, so
+     * seeking to a range does not read the skipped bytes.
      *
      * @param request
      *            the request for which the response should be written
@@ -293,24 +316,57 @@ public class DownloadStream implements Serializable {
 
                 response.setHeader(CONTENT_DISPOSITION, contentDisposition);
 
+                FileChannel channel = null;
+                if (data instanceof FileInputStream) {
+                    channel = ((FileInputStream) data).getChannel();
+                }
+                List<long[]> ranges = null;
+                long length = getContentLength(channel);
+                if (length >= 0 && getParameter("Content-Encoding") == null) {
+                    response.setHeader("Accept-Ranges", "bytes");
+                    ranges = getRequestedRanges(request, length,
+                            channel != null);
+                    if (ranges != null && ranges.isEmpty()) {
+                        response.setHeader("Content-Range",
+                                "bytes */" + length);
+                        response.setHeader("Content-Length", "0");
+                        response.setStatus(
+                                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                        return;
+                    }
+                }
+
                 int bufferSize = getBufferSize();
                 if (bufferSize <= 0 || bufferSize > Constants.MAX_BUFFER_SIZE) {
                     bufferSize = Constants.DEFAULT_BUFFER_SIZE;
                 }
                 final byte[] buffer = new byte[bufferSize];
-                int bytesRead = 0;
 
-                out = response.getOutputStream();
+                if (ranges == null) {
+                    out = response.getOutputStream();
+                    if (channel != null
+                            && out instanceof WritableByteChannel) {
+                        transfer(channel, channel.position(), length,
+                                (WritableByteChannel) out);
+                        return;
+                    }
 
-                long totalWritten = 0;
-                while ((bytesRead = data.read(buffer)) > 0) {
-                    out.write(buffer, 0, bytesRead);
+                    int bytesRead = 0;
+                    long totalWritten = 0;
+                    while ((bytesRead = data.read(buffer)) > 0) {
+                        out.write(buffer, 0, bytesRead);
 
-                    totalWritten += bytesRead;
-                    if (totalWritten >= buffer.length) {
-                        // Avoid chunked encoding for small resources
-                        out.flush();
+                        totalWritten += bytesRead;
+                        if (totalWritten >= buffer.length) {
+                            // Avoid chunked encoding for small resources
+                            out.flush();
+                        }
                     }
+                } else {
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    out = response.getOutputStream();
+                    writeRanges(data, channel, ranges, length, response, out,
+                            buffer);
                 }
             } finally {
                 tryToCloseStream(out);
@@ -319,6 +375,240 @@ public class DownloadStream implements Serializable {
         }
     }
 
+    /**
+     * Gets the total length of the data, or -1 if it is not known.
+     */
+    private long getContentLength(FileChannel channel) throws IOException {
+        if (channel != null) {
+            return channel.size() - channel.position();
+        }
+        String contentLength = getParameter("Content-Length");
+        if (contentLength != null) {
+            try {
+                return Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                // Not a usable length, serve without ranges
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the byte ranges to send for the request.
+     *
+     * @return the ranges to send, an empty list if none of the requested
+     *         ranges can be satisfied or <code>null</code> if the whole data
+     *         should be sent
+     */
+    private List<long[]> getRequestedRanges(VaadinRequest request,
+            long length, boolean seekable) {
+        if (request == null || !"GET".equals(request.getMethod())) {
+            return null;
+        }
+        String range = request.getHeader("Range");
+        if (range == null || !isIfRangeSatisfied(request)) {
+            return null;
+        }
+        List<long[]> ranges = parseByteRanges(range, length);
+        if (ranges != null && !seekable) {
+            // The stream can only be read forwards
+            for (int i = 1; i < ranges.size(); i++) {
+                if (ranges.get(i)[0] < ranges.get(i - 1)[1]) {
+                    return null;
+                }
+            }
+        }
+        return ranges;
+    }
+
+    private boolean isIfRangeSatisfied(VaadinRequest request) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        // Only the exact validator the client got earlier is accepted
+        String validator = ifRange.startsWith("\"") ? getParameter("ETag")
+                : getParameter("Last-Modified");
+        return ifRange.equals(validator);
+    }
+
+    /**
+     * Parses the byte ranges of a Range header.
+     *
+     * @param header
+     *            the Range header value
+     * @param length
+     *            the length of the content
+     * @return the start (inclusive) and end (exclusive) of each satisfiable
+     *         range, an empty list if no range can be satisfied or
+     *         <code>null</code> if the header is invalid and should be ignored
+     */
+    static List<long[]> parseByteRanges(String header, long length) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            // Serving many ranges costs more than serving the whole data
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        try {
+            for (String spec : specs) {
+                spec = spec.trim();
+                int dash = spec.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                long start;
+                long end;
+                if (first.isEmpty()) {
+                    // Suffix range: the last n bytes
+                    long suffix = Long.parseLong(last);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = suffix == 0 ? 0 : length;
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? Long.MAX_VALUE
+                            : Long.parseLong(last) + 1;
+                    if (start < 0 || end <= start) {
+                        // Invalid range
+                        return null;
+                    }
+                    end = Math.min(end, length);
+                }
+                if (start < end) {
+                    ranges.add(new long[] { start, end });
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return ranges;
+    }
+
+    private void writeRanges(InputStream data, FileChannel channel,
+            List<long[]> ranges, long length, VaadinResponse response,
+            OutputStream out, byte[] buffer) throws IOException {
+        if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setHeader("Content-Range", "bytes " + range[0] + "-"
+                    + (range[1] - 1) + "/" + length);
+            response.setHeader("Content-Length",
+                    String.valueOf(range[1] - range[0]));
+            writeRange(data, channel, 0, range, out, buffer);
+            return;
+        }
+
+        String boundary = UUID.randomUUID().toString();
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long contentLength = 0;
+        for (int i = 0; i < partHeaders.length; i++) {
+            long[] range = ranges.get(i);
+            StringBuilder partHeader = new StringBuilder();
+            partHeader.append("\r\n--").append(boundary).append("\r\n");
+            if (getContentType() != null) {
+                partHeader.append("Content-Type: ").append(getContentType())
+                        .append("\r\n");
+            }
+            partHeader.append("Content-Range: bytes ").append(range[0])
+                    .append('-').append(range[1] - 1).append('/')
+                    .append(length).append("\r\n\r\n");
+            partHeaders[i] = partHeader.toString()
+                    .getBytes(StandardCharsets.UTF_8);
+            contentLength += partHeaders[i].length + range[1] - range[0];
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+        contentLength += end.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setHeader("Content-Length", String.valueOf(contentLength));
+        long position = 0;
+        for (int i = 0; i < partHeaders.length; i++) {
+            out.write(partHeaders[i]);
+            position = writeRange(data, channel, position, ranges.get(i), out,
+                    buffer);
+        }
+        out.write(end);
+    }
+
+    /**
+     * Writes a range of the data, seeking the channel if there is one and
+     * otherwise skipping forward in the stream from the given position.
+     *
+     * @return the position in the stream after the range
+     */
+    private static long writeRange(InputStream data, FileChannel channel,
+            long position, long[] range, OutputStream out, byte[] buffer)
+            throws IOException {
+        long remaining = range[1] - range[0];
+        if (channel != null) {
+            long start = channel.position();
+            if (out instanceof WritableByteChannel) {
+                out.flush();
+                transfer(channel, start + range[0], remaining,
+                        (WritableByteChannel) out);
+                return range[1];
+            }
+            channel.position(start + range[0]);
+        } else {
+            long skip = range[0] - position;
+            while (skip > 0) {
+                long skipped = data.skip(skip);
+                if (skipped <= 0) {
+                    // Not all streams support skipping, read instead
+                    int read = data.read(buffer, 0,
+                            (int) Math.min(buffer.length, skip));
+                    if (read < 0) {
+                        throw new EOFException(
+                                "Stream ended before the requested range");
+                    }
+                    skipped = read;
+                }
+                skip -= skipped;
+            }
+        }
+        while (remaining > 0) {
+            int read = data.read(buffer, 0,
+                    (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException(
+                        "Stream ended before the requested range");
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+        if (channel != null) {
+            // Later ranges are positioned relative to the original position
+            channel.position(channel.position() - range[1]);
+        }
+        return range[1];
+    }
+
+    /**
+     * Transfers data from a file channel to a response that can be written to
+     * as a channel, letting the operating system copy the data where
+     * supported.
+     */
+    private static void transfer(FileChannel channel, long position,
+            long count, WritableByteChannel target) throws IOException {
+        while (count > 0) {
+            long transferred = channel.transferTo(position, count, target);
+            if (transferred <= 0) {
+                throw new EOFException(
+                        "File ended before the requested range");
+            }
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
     /**
      * Returns the filename formatted for inclusion in a Content-Disposition
      * header. Includes both a plain version of the name and a UTF-8 version
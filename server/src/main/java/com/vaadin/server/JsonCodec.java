@@ -19,7 +19,13 @@ package com.vaadin.server;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
@@ -200,6 +206,191 @@ public class JsonCodec implements Serializable {
 
     }
 
+    /**
+     * Encodes a single bean property of an object and diffs it against the
+     * reference value. The property is read through a {@link MethodHandle}
+     * adapted to the type of the property, which allows primitive, boolean and
+     * string properties to be written and compared to the reference without
+     * boxing or going through {@link JsonCodec#encode}. Falls back to
+     * reflective access through {@link BeanProperty#getValue(Object)} if no
+     * method handle can be created for the property.
+     */
+    private static class PropertyEncoder implements Serializable {
+        private final BeanProperty property;
+        private final String name;
+        private final Type type;
+        private final Class<?> readType;
+        private transient MethodHandle getter;
+
+        public PropertyEncoder(BeanProperty property) {
+            this.property = property;
+            name = property.getName();
+            type = property.getType();
+
+            Class<?> handleType = getHandleType(type);
+            MethodHandle handle = createGetter(property, handleType);
+            if (handle == null && handleType != Object.class) {
+                handleType = Object.class;
+            }
+            readType = handleType;
+            getter = handle;
+        }
+
+        private static Class<?> getHandleType(Type type) {
+            if (type == boolean.class) {
+                return boolean.class;
+            } else if (type == String.class) {
+                return String.class;
+            } else if (type instanceof Class<?>
+                    && ((Class<?>) type).isPrimitive() && type != char.class
+                    && type != void.class) {
+                // Encoded as Number.doubleValue() would do
+                return double.class;
+            } else {
+                return Object.class;
+            }
+        }
+
+        private static MethodHandle createGetter(BeanProperty property,
+                Class<?> handleType) {
+            try {
+                MethodHandle handle;
+                if (property instanceof FieldProperty) {
+                    handle = MethodHandles.publicLookup()
+                            .unreflectGetter(((FieldProperty) property).field);
+                } else if (property instanceof MethodProperty) {
+                    handle = MethodHandles.publicLookup().unreflect(
+                            ((MethodProperty) property).pd.getReadMethod());
+                } else {
+                    return null;
+                }
+                return handle.asType(
+                        MethodType.methodType(handleType, Object.class));
+            } catch (IllegalAccessException | WrongMethodTypeException e) {
+                // Use reflection instead
+                return null;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void encode(Object bean, JsonObject referenceValue,
+                JsonObject defaults, JsonObject encoded, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable {
+            JsonValue fieldReference = null;
+            if (referenceValue != null) {
+                fieldReference = referenceValue.get(name);
+            }
+
+            /*
+             * When encoding against defaults, the reference only contains the
+             * values that differ from the defaults, and only such values are
+             * stored in the encoded object.
+             */
+            JsonValue fieldDefault = null;
+            boolean atDefault = false;
+            if (defaults != null) {
+                fieldDefault = defaults.get(name);
+                if (fieldReference == null) {
+                    fieldReference = fieldDefault;
+                    atDefault = true;
+                }
+            }
+            if (fieldReference instanceof JsonNull) {
+                fieldReference = null;
+            }
+
+            if (readType == boolean.class) {
+                boolean value = (boolean) getter.invokeExact(bean);
+                boolean changed = fieldReference == null
+                        || fieldReference.getType() != JsonType.BOOLEAN
+                        || fieldReference.asBoolean() != value;
+                if (changed) {
+                    diff.put(name, value);
+                }
+                if (defaults == null || ((changed || !atDefault)
+                        && (fieldDefault == null
+                                || fieldDefault.getType() != JsonType.BOOLEAN
+                                || fieldDefault.asBoolean() != value))) {
+                    encoded.put(name, value);
+                }
+            } else if (readType == double.class) {
+                double value = (double) getter.invokeExact(bean);
+                boolean changed = fieldReference == null
+                        || fieldReference.getType() != JsonType.NUMBER
+                        || fieldReference.asNumber() != value;
+                if (changed) {
+                    diff.put(name, value);
+                }
+                if (defaults == null || ((changed || !atDefault)
+                        && (fieldDefault == null
+                                || fieldDefault.getType() != JsonType.NUMBER
+                                || fieldDefault.asNumber() != value))) {
+                    encoded.put(name, value);
+                }
+            } else if (readType == String.class) {
+                String value = (String) getter.invokeExact(bean);
+                if (value == null) {
+                    JsonValue encodedNull = ENCODE_RESULT_NULL
+                            .getEncodedValue();
+                    boolean changed = fieldReference != null;
+                    if (changed) {
+                        diff.put(name, encodedNull);
+                    }
+                    if (defaults == null || ((changed || !atDefault)
+                            && (fieldDefault == null || fieldDefault
+                                    .getType() != JsonType.NULL))) {
+                        encoded.put(name, encodedNull);
+                    }
+                } else {
+                    JsonString encodedValue = Json.create(value);
+                    boolean changed = fieldReference == null
+                            || fieldReference.getType() != JsonType.STRING
+                            || !fieldReference.asString().equals(value);
+                    if (changed) {
+                        diff.put(name, encodedValue);
+                    }
+                    if (defaults == null || ((changed || !atDefault)
+                            && (fieldDefault == null
+                                    || fieldDefault
+                                            .getType() != JsonType.STRING
+                                    || !fieldDefault.asString()
+                                            .equals(value)))) {
+                        encoded.put(name, encodedValue);
+                    }
+                }
+            } else {
+                Object value;
+                if (getter != null) {
+                    value = (Object) getter.invokeExact(bean);
+                } else {
+                    value = property.getValue(bean);
+                }
+                EncodeResult encodeResult = JsonCodec.encode(value,
+                        fieldReference, type, connectorTracker);
+                JsonValue encodedValue = encodeResult.getEncodedValue();
+
+                boolean changed = valueChanged(encodedValue, fieldReference);
+                if (changed) {
+                    diff.put(name, encodeResult.getDiffOrValue());
+                }
+                if (defaults == null || ((changed || !atDefault)
+                        && (fieldDefault == null
+                                || !jsonEquals(encodedValue, fieldDefault)))) {
+                    encoded.put(name, encodedValue);
+                }
+            }
+        }
+
+        private void readObject(ObjectInputStream stream)
+                throws IOException, ClassNotFoundException {
+            stream.defaultReadObject();
+            getter = createGetter(property, readType);
+        }
+    }
+
     /**
      * Cache the collection of bean properties for a given type to avoid doing a
      * quite expensive lookup multiple times. Will be used from any thread that
@@ -208,6 +399,13 @@ public class JsonCodec implements Serializable {
      */
     private static final ConcurrentMap<Class<?>, Collection<BeanProperty>> TYPE_PROPERTY_CACHE = new ConcurrentHashMap<>();
 
+    /**
+     * Cache of the property encoders used for encoding objects of a given type.
+     * Like {@link #TYPE_PROPERTY_CACHE}, this is used from any thread that
+     * happens to process Vaadin requests.
+     */
+    private static final ConcurrentMap<Class<?>, PropertyEncoder[]> TYPE_ENCODER_CACHE = new ConcurrentHashMap<>();
+
     private static final Map<Class<?>, String> TYPE_TO_TRANSPORT_TYPE = new HashMap<>();
 
     /**
@@ -714,8 +912,8 @@ public class JsonCodec implements Serializable {
             toReturn = encodeMap(valueType, (Map<?, ?>) value,
                     connectorTracker);
         } else if (value instanceof Connector) {
-            if (value instanceof Component && !(LegacyCommunicationManager
-                    .isComponentVisibleToClient((Component) value))) {
+            if (value instanceof Component && !isVisibleToClient(
+                    (Component) value, connectorTracker)) {
                 // an encoded null is cached, return it directly.
                 return ENCODE_RESULT_NULL;
             }
@@ -739,7 +937,7 @@ public class JsonCodec implements Serializable {
                 // needs to return it directly rather than assigning it to
                 // toReturn.
                 return encodeObject(value, (Class<?>) valueType,
-                        (JsonObject) diffState, connectorTracker);
+                        (JsonObject) diffState, null, connectorTracker);
             }
         } else {
             throw new JsonException("Can not encode type " + valueType);
@@ -747,6 +945,42 @@ public class JsonCodec implements Serializable {
         return new EncodeResult(toReturn);
     }
 
+    /**
+     * Encodes an object and diffs it against a previously encoded value of the
+     * same object that only contains the properties that differ from a
+     * reference value. A property missing from the previous value is taken to
+     * have the value it has in the reference value.
+     * <p>
+     * The encoded value in the result likewise only contains the properties
+     * that differ from the reference value, and can be used as the previous
+     * value the next time the object is encoded with the same reference value.
+     * Values of properties that the reference value does not have are always
+     * included.
+     *
+     * @param value
+     *            the object to encode, not <code>null</code>
+     * @param diffState
+     *            the properties of the previously encoded value that differ
+     *            from the reference value, or <code>null</code> if the value
+     *            has not been encoded before
+     * @param referenceState
+     *            the reference value to compare to, not <code>null</code>
+     * @param valueType
+     *            the bean type of the object
+     * @param connectorTracker
+     *            the connector tracker used when encoding connectors
+     * @return the encoded value and the diff against the previous value
+     * @since 8.11
+     */
+    public static EncodeResult encodeCompact(Object value,
+            JsonObject diffState, JsonObject referenceState,
+            Class<?> valueType, ConnectorTracker connectorTracker) {
+        assert value != null;
+        assert referenceState != null;
+        return encodeObject(value, valueType, diffState, referenceState,
+                connectorTracker);
+    }
+
     public static Collection<BeanProperty> getProperties(Class<?> type)
             throws IntrospectionException {
         Collection<BeanProperty> cachedProperties = TYPE_PROPERTY_CACHE
@@ -765,50 +999,51 @@ public class JsonCodec implements Serializable {
         return properties;
     }
 
+    private static PropertyEncoder[] getPropertyEncoders(Class<?> type)
+            throws IntrospectionException {
+        PropertyEncoder[] cachedEncoders = TYPE_ENCODER_CACHE.get(type);
+        if (cachedEncoders != null) {
+            return cachedEncoders;
+        }
+        Collection<BeanProperty> properties = getProperties(type);
+        PropertyEncoder[] encoders = new PropertyEncoder[properties.size()];
+        Set<String> names = new HashSet<>();
+        int i = 0;
+        for (BeanProperty property : properties) {
+            PropertyEncoder encoder = new PropertyEncoder(property);
+            String fieldName = encoder.getName();
+            if (!names.add(fieldName)) {
+                throw new RuntimeException("Can't encode " + type.getName()
+                        + " as it has multiple properties with the name "
+                        + fieldName.toLowerCase(Locale.ROOT)
+                        + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
+            }
+            encoders[i++] = encoder;
+        }
+
+        // Doesn't matter if the same calculation is done multiple times from
+        // different threads, so there's no need to do e.g. putIfAbsent
+        TYPE_ENCODER_CACHE.put(type, encoders);
+        return encoders;
+    }
+
     /*
      * Loops through the fields of value and encodes them.
      */
     private static EncodeResult encodeObject(Object value, Class<?> valueType,
-            JsonObject referenceValue, ConnectorTracker connectorTracker) {
+            JsonObject referenceValue, JsonObject defaults,
+            ConnectorTracker connectorTracker) {
         JsonObject encoded = Json.createObject();
         JsonObject diff = Json.createObject();
 
         try {
-            for (BeanProperty property : getProperties(valueType)) {
-                String fieldName = property.getName();
-                // We can't use PropertyDescriptor.getPropertyType() as it does
-                // not support generics
-                Type fieldType = property.getType();
-                Object fieldValue = property.getValue(value);
-
-                if (encoded.hasKey(fieldName)) {
-                    throw new RuntimeException("Can't encode "
-                            + valueType.getName()
-                            + " as it has multiple properties with the name "
-                            + fieldName.toLowerCase(Locale.ROOT)
-                            + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
-                }
-
-                JsonValue fieldReference;
-                if (referenceValue != null) {
-                    fieldReference = referenceValue.get(fieldName);
-                    if (fieldReference instanceof JsonNull) {
-                        fieldReference = null;
-                    }
-                } else {
-                    fieldReference = null;
-                }
-
-                EncodeResult encodeResult = encode(fieldValue, fieldReference,
-                        fieldType, connectorTracker);
-                encoded.put(fieldName, encodeResult.getEncodedValue());
-
-                if (valueChanged(encodeResult.getEncodedValue(),
-                        fieldReference)) {
-                    diff.put(fieldName, encodeResult.getDiffOrValue());
-                }
+            for (PropertyEncoder encoder : getPropertyEncoders(valueType)) {
+                encoder.encode(value, referenceValue, defaults, encoded, diff,
+                        connectorTracker);
             }
-        } catch (Exception e) {
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             // TODO: Should exceptions be handled in a different way?
             throw new RuntimeException(e);
         }
@@ -997,6 +1232,15 @@ public class JsonCodec implements Serializable {
         return jsonMap;
     }
 
+    private static boolean isVisibleToClient(ClientConnector connector,
+            ConnectorTracker connectorTracker) {
+        if (connectorTracker != null) {
+            // Cached while writing a response
+            return connectorTracker.isConnectorVisibleToClient(connector);
+        }
+        return LegacyCommunicationManager.isConnectorVisibleToClient(connector);
+    }
+
     /*
      * Encodes a connector map. Invisible connectors are skipped.
      */
@@ -1006,7 +1250,7 @@ public class JsonCodec implements Serializable {
 
         for (Entry<?, ?> entry : map.entrySet()) {
             ClientConnector key = (ClientConnector) entry.getKey();
-            if (LegacyCommunicationManager.isConnectorVisibleToClient(key)) {
+            if (isVisibleToClient(key, connectorTracker)) {
                 EncodeResult encodedValue = encode(entry.getValue(), null,
                         valueType, connectorTracker);
                 jsonMap.put(key.getConnectorId(),
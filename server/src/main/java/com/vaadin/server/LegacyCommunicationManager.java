@@ -41,6 +41,7 @@ import com.vaadin.ui.SelectiveRenderer;
 import com.vaadin.ui.UI;
 import com.vaadin.util.ReflectTools;
 
+import elemental.json.Json;
 import elemental.json.JsonObject;
 import elemental.json.JsonValue;
 
@@ -93,25 +94,69 @@ public class LegacyCommunicationManager implements Serializable {
         UI uI = connector.getUI();
         ConnectorTracker connectorTracker = uI.getConnectorTracker();
         Class<? extends SharedState> stateType = connector.getStateType();
-        JsonValue diffState = connectorTracker.getDiffState(connector);
 
+        JsonValue referenceState = REFERENCE_DIFF_STATES.get(stateType);
+        if (referenceState == null) {
+            referenceState = createReferenceDiffStateState(stateType);
+            REFERENCE_DIFF_STATES.put(stateType, referenceState);
+        }
+
+        EncodeResult encodeResult;
+        if (referenceState instanceof JsonObject) {
+            // Only store the values that differ from the reference state
+            JsonObject reference = (JsonObject) referenceState;
+            JsonObject compactDiffState = connectorTracker
+                    .getCompactDiffState(connector, reference);
+            if (compactDiffState == null) {
+                JsonObject diffState = connectorTracker.getDiffState(connector);
+                if (diffState != null) {
+                    // The full state may have been modified, diff against it
+                    encodeResult = JsonCodec.encode(state, diffState,
+                            stateType, connectorTracker);
+                    connectorTracker.setCompactDiffState(connector,
+                            removeReferenceValues(
+                                    (JsonObject) encodeResult
+                                            .getEncodedValue(),
+                                    reference),
+                            reference);
+                    return (JsonObject) encodeResult.getDiff();
+                }
+            }
+            encodeResult = JsonCodec.encodeCompact(state, compactDiffState,
+                    reference, stateType, connectorTracker);
+            connectorTracker.setCompactDiffState(connector,
+                    (JsonObject) encodeResult.getEncodedValue(), reference);
+            return (JsonObject) encodeResult.getDiff();
+        }
+
+        JsonValue diffState = connectorTracker.getDiffState(connector);
         if (diffState == null) {
             // Use an empty state object as reference for full
             // repaints
-            diffState = REFERENCE_DIFF_STATES.get(stateType);
-            if (diffState == null) {
-                diffState = createReferenceDiffStateState(stateType);
-                REFERENCE_DIFF_STATES.put(stateType, diffState);
-            }
+            diffState = referenceState;
         }
-        EncodeResult encodeResult = JsonCodec.encode(state, diffState,
-                stateType, uI.getConnectorTracker());
+        encodeResult = JsonCodec.encode(state, diffState, stateType,
+                connectorTracker);
         connectorTracker.setDiffState(connector,
                 (JsonObject) encodeResult.getEncodedValue());
 
         return (JsonObject) encodeResult.getDiff();
     }
 
+    private static JsonObject removeReferenceValues(JsonObject state,
+            JsonObject referenceState) {
+        JsonObject values = Json.createObject();
+        for (String key : state.keys()) {
+            JsonValue value = state.get(key);
+            JsonValue referenceValue = referenceState.get(key);
+            if (referenceValue == null
+                    || !JsonCodec.jsonEquals(value, referenceValue)) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
     private static JsonValue createReferenceDiffStateState(
             Class<? extends SharedState> stateType) {
         if (JavaScriptConnectorState.class.isAssignableFrom(stateType)) {
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory cache of static resources served by {@link VaadinServlet} from the
+ * VAADIN directory. Resources are cached by their request path together with
+ * a content hash used as a strong ETag. Gzip compressed variants are created
+ * lazily on first request and Brotli variants are read from a {@code .br} file
+ * next to the resource if one exists.
+ * <p>
+ * The cache is only used in production mode, since resources are then assumed
+ * not to change while the application is running, and only when its size has
+ * been configured.
+ *
+ * @see VaadinServlet#createStaticResourceCache()
+ *
+ * @author Vaadin Ltd
+ * @since 8.11
+ */
+public class StaticResourceCache implements Serializable {
+
+    /**
+     * A cached static resource.
+     *
+     * @since 8.11
+     */
+    public static class Entry implements Serializable {
+        private final String url;
+        private final String mimeType;
+        private final long lastModified;
+        private final byte[] content;
+        private final String hash;
+
+        private volatile byte[] gzipped;
+        private volatile byte[] brotli;
+        private volatile boolean brotliChecked;
+
+        private Entry(String url, String mimeType, long lastModified,
+                byte[] content) {
+            this.url = url;
+            this.mimeType = mimeType;
+            this.lastModified = lastModified;
+            this.content = content;
+            hash = hash(content);
+        }
+
+        /**
+         * Gets the URL the resource was read from.
+         *
+         * @return the resource URL as a string
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * Gets the mime type of the resource.
+         *
+         * @return the mime type, or <code>null</code> if not known
+         */
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        /**
+         * Gets the last modification time of the resource, without
+         * milliseconds.
+         *
+         * @return the last modification timestamp, or <code>0</code> if not
+         *         known
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Gets the uncompressed content of the resource. The returned array
+         * must not be modified.
+         *
+         * @return the resource content
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Gets the strong ETag of the given representation of the resource.
+         *
+         * @param contentEncoding
+         *            the content encoding, or <code>null</code> for the
+         *            uncompressed representation
+         * @return the quoted ETag value
+         */
+        public String getETag(String contentEncoding) {
+            if (contentEncoding == null) {
+                return '"' + hash + '"';
+            }
+            return '"' + hash + '-' + contentEncoding + '"';
+        }
+    }
+
+    private final long maxSize;
+    private final AtomicLong size = new AtomicLong();
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // URLs of resources that did not fit, keyed by URL rather than request
+    // path so that the set is bounded by the number of existing resources
+    private final Set<String> uncacheable = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a new cache holding at most the given number of bytes.
+     *
+     * @param maxSize
+     *            the maximum total size of the cached content in bytes
+     */
+    public StaticResourceCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the cached entry for the given request path.
+     *
+     * @param filename
+     *            the path of the resource, starting with /VAADIN/
+     * @return the cached entry, or <code>null</code> if the resource is not
+     *         cached
+     */
+    public Entry get(String filename) {
+        return entries.get(filename);
+    }
+
+    /**
+     * Reads the resource from the given URL and caches it for the given
+     * request path, unless the cache does not have room for it. A resource
+     * that does not fit is remembered and not read again until the cache is
+     * {@link #clear() cleared}.
+     *
+     * @param filename
+     *            the path of the resource, starting with /VAADIN/
+     * @param resourceUrl
+     *            the URL to read the resource from
+     * @param mimeType
+     *            the mime type of the resource, or <code>null</code> if not
+     *            known
+     * @return the cached entry, or <code>null</code> if the resource could not
+     *         be cached
+     * @throws IOException
+     *             if reading the resource fails
+     */
+    public Entry load(String filename, URL resourceUrl, String mimeType)
+            throws IOException {
+        Entry entry = entries.get(filename);
+        if (entry != null) {
+            return entry;
+        }
+        String url = resourceUrl.toExternalForm();
+        if (uncacheable.contains(url)) {
+            return null;
+        }
+
+        URLConnection connection = resourceUrl.openConnection();
+        long length = connection.getContentLengthLong();
+        if (length > maxSize - size.get()) {
+            // Close the stream, see
+            // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4257700
+            connection.getInputStream().close();
+            uncacheable.add(url);
+            return null;
+        }
+        long lastModified = connection.getLastModified();
+        lastModified -= lastModified % 1000;
+        byte[] content;
+        try (InputStream is = connection.getInputStream()) {
+            content = readFully(is);
+        }
+        if (!reserve(content.length)) {
+            uncacheable.add(url);
+            return null;
+        }
+
+        entry = new Entry(url, mimeType, lastModified, content);
+        Entry previous = entries.putIfAbsent(filename, entry);
+        if (previous != null) {
+            size.addAndGet(-content.length);
+            return previous;
+        }
+        return entry;
+    }
+
+    /**
+     * Gets the gzip compressed content of the given entry. A {@code .gz} file
+     * next to the resource is used if available, otherwise the content is
+     * compressed on first use.
+     *
+     * @param entry
+     *            the cached entry
+     * @return the compressed content, or <code>null</code> if compression
+     *         does not make the resource smaller
+     */
+    public byte[] getGzipped(Entry entry) {
+        byte[] gzipped = entry.gzipped;
+        if (gzipped == null) {
+            synchronized (entry) {
+                gzipped = entry.gzipped;
+                if (gzipped == null) {
+                    gzipped = readVariant(entry, ".gz");
+                    if (gzipped == null) {
+                        gzipped = gzip(entry.content);
+                    }
+                    if (gzipped.length >= entry.content.length
+                            || !reserve(gzipped.length)) {
+                        gzipped = new byte[0];
+                    }
+                    entry.gzipped = gzipped;
+                }
+            }
+        }
+        return gzipped.length == 0 ? null : gzipped;
+    }
+
+    /**
+     * Gets the Brotli compressed content of the given entry, read from a
+     * {@code .br} file next to the resource.
+     *
+     * @param entry
+     *            the cached entry
+     * @return the compressed content, or <code>null</code> if there is no
+     *         Brotli compressed version of the resource
+     */
+    public byte[] getBrotli(Entry entry) {
+        if (!entry.brotliChecked) {
+            synchronized (entry) {
+                if (!entry.brotliChecked) {
+                    byte[] brotli = readVariant(entry, ".br");
+                    if (brotli != null && reserve(brotli.length)) {
+                        entry.brotli = brotli;
+                    }
+                    entry.brotliChecked = true;
+                }
+            }
+        }
+        return entry.brotli;
+    }
+
+    /**
+     * Gets the total size of the cached content.
+     *
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        entries.clear();
+        uncacheable.clear();
+        size.set(0);
+    }
+
+    private boolean reserve(long bytes) {
+        long current;
+        do {
+            current = size.get();
+            if (current + bytes > maxSize) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    private static byte[] readVariant(Entry entry, String suffix) {
+        try (InputStream is = new URL(entry.url + suffix).openStream()) {
+            return readFully(is);
+        } catch (IOException e) {
+            // No precompressed variant
+            return null;
+        }
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                Constants.DEFAULT_BUFFER_SIZE);
+        byte[] buffer = new byte[Constants.DEFAULT_BUFFER_SIZE];
+        int bytes;
+        while ((bytes = is.read(buffer)) >= 0) {
+            out.write(buffer, 0, bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                content.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            // Not possible when writing to memory
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(content);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(digest).substring(0, 22);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required to be supported by all Java platforms
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -15,19 +15,30 @@
  */
 package com.vaadin.server;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+import java.util.Optional;
 
 /**
  * RequestHandler which takes care of locking and unlocking of the VaadinSession
  * automatically. The session is locked before
  * {@link #synchronizedHandleRequest(VaadinSession, VaadinRequest, VaadinResponse)}
  * is called and unlocked after it has completed.
+ * <p>
+ * Handlers that override {@link #isReadAndWriteOutsideSessionLock()} read the
+ * request body before locking the session and write the response after
+ * unlocking it, so that slow network transfers do not keep other requests
+ * for the same session waiting for the lock.
  *
  * @author Vaadin Ltd
  * @since 7.1
  */
 public abstract class SynchronizedRequestHandler implements RequestHandler {
 
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+
     @Override
     public boolean handleRequest(VaadinSession session, VaadinRequest request,
             VaadinResponse response) throws IOException {
@@ -35,6 +46,22 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
             return false;
         }
 
+        if (isReadAndWriteOutsideSessionLock()) {
+            String requestBody = readRequestBody(request);
+            Optional<ResponseWriter> responseWriter;
+            session.lock();
+            try {
+                responseWriter = synchronizedHandleRequest(session, request,
+                        response, requestBody);
+            } finally {
+                session.unlock();
+            }
+            if (responseWriter.isPresent()) {
+                responseWriter.get().writeResponse();
+            }
+            return responseWriter.isPresent();
+        }
+
         session.lock();
         try {
             return synchronizedHandleRequest(session, request, response);
@@ -86,4 +113,141 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
         return true;
     }
 
+    /**
+     * Gets whether this handler reads the request body before locking the
+     * session and writes the response after releasing the lock. If this
+     * method returns <code>true</code>, the session is only locked while
+     * {@link #synchronizedHandleRequest(VaadinSession, VaadinRequest, VaadinResponse, String)}
+     * is called. The default implementation returns <code>false</code>.
+     *
+     * @return <code>true</code> if the request body should be read and the
+     *         response written without holding the session lock,
+     *         <code>false</code> otherwise
+     * @since 8.11
+     */
+    protected boolean isReadAndWriteOutsideSessionLock() {
+        return false;
+    }
+
+    /**
+     * Identical to
+     * {@link #synchronizedHandleRequest(VaadinSession, VaadinRequest, VaadinResponse)}
+     * except the request body has already been read and the response is
+     * written by the returned {@link ResponseWriter} once the session has been
+     * unlocked. Only called if {@link #isReadAndWriteOutsideSessionLock()}
+     * returns <code>true</code>, in which case this method must be overridden
+     * as well.
+     *
+     * @param session
+     *            The session for the request
+     * @param request
+     *            The request to handle
+     * @param response
+     *            The response object to which a response can be written
+     * @param requestBody
+     *            the body of the request, or <code>null</code> if the request
+     *            has no body
+     * @return a writer for the response if the request was handled and no
+     *         further request handlers should be called, otherwise an empty
+     *         optional
+     * @throws IOException
+     *             If an IO error occurred
+     * @throws UnsupportedOperationException
+     *             if this handler does not read and write outside the session
+     *             lock
+     * @since 8.11
+     */
+    protected Optional<ResponseWriter> synchronizedHandleRequest(
+            VaadinSession session, VaadinRequest request,
+            VaadinResponse response, String requestBody)
+            throws IOException, UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Reads the request body before the session is locked. Only called if
+     * {@link #isReadAndWriteOutsideSessionLock()} returns <code>true</code>.
+     * The default implementation reads the whole body.
+     *
+     * @param request
+     *            the request to read, not <code>null</code>
+     * @return the request body, or <code>null</code> if the request has no
+     *         body
+     * @throws IOException
+     *             if reading fails
+     * @since 8.11
+     */
+    protected String readRequestBody(VaadinRequest request)
+            throws IOException {
+        BufferedReader reader = request.getReader();
+        return reader == null ? null : getRequestBody(reader);
+    }
+
+    /**
+     * Reads the whole request body.
+     *
+     * @param reader
+     *            the reader for the request body, not <code>null</code>
+     * @return the request body
+     * @throws IOException
+     *             if reading fails
+     * @since 8.11
+     */
+    public static String getRequestBody(Reader reader) throws IOException {
+        return getRequestBody(reader, -1);
+    }
+
+    /**
+     * Reads the request body up to the given number of characters. If the body
+     * is longer, one more character than the maximum is read and the rest of
+     * the body is left unread, so that the caller can reject the body without
+     * buffering all of it.
+     *
+     * @param reader
+     *            the reader for the request body, not <code>null</code>
+     * @param maxLength
+     *            the maximum number of characters, or a negative number for no
+     *            limit
+     * @return the request body, at most <code>maxLength + 1</code> characters
+     * @throws IOException
+     *             if reading fails
+     * @since 8.11
+     */
+    public static String getRequestBody(Reader reader, long maxLength)
+            throws IOException {
+        long remaining = maxLength < 0 ? Long.MAX_VALUE : maxLength + 1;
+        StringBuilder sb = new StringBuilder(
+                (int) Math.min(MAX_BUFFER_SIZE, remaining));
+        char[] buffer = new char[MAX_BUFFER_SIZE];
+
+        while (remaining > 0) {
+            int read = reader.read(buffer, 0,
+                    (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                break;
+            }
+            sb.append(buffer, 0, read);
+            remaining -= read;
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Writes the response of a request after the session has been unlocked.
+     *
+     * @see SynchronizedRequestHandler#synchronizedHandleRequest(VaadinSession,
+     *      VaadinRequest, VaadinResponse, String)
+     * @since 8.11
+     */
+    @FunctionalInterface
+    public interface ResponseWriter extends Serializable {
+        /**
+         * Writes the response.
+         *
+         * @throws IOException
+         *             if writing fails
+         */
+        void writeResponse() throws IOException;
+    }
 }
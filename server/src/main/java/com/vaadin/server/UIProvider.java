@@ -16,8 +16,10 @@
 
 package com.vaadin.server;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.Inherited;
 import java.util.logging.Level;
@@ -181,31 +183,33 @@ public abstract class UIProvider implements Serializable {
         }
 
         // Find the class AppWidgetset in the default package if one exists
-        WidgetsetInfo info = getWidgetsetClassInfo();
+        VaadinService service = VaadinService.getCurrent();
+        ClassLoader classLoader = service.getClassLoader();
+        AppWidgetset appWidgetset = service.getAppWidgetsets().computeIfAbsent(
+                event.getUIClass(),
+                uiClass -> AppWidgetset.find(uiClass, classLoader));
+        WidgetsetInfo info = getWidgetsetClassInfo(
+                appWidgetset.widgetsetClass);
 
         // Third case: we have a generated class called APP_WIDGETSET_NAME
         if (info != null) {
             return info;
-        } else {
+        } else if (appWidgetset.widgetsetFile) {
             // Fourth case: we have an AppWidgetset.gwt.xml file
-            InputStream resource = event.getUIClass()
-                    .getResourceAsStream("/" + APP_WIDGETSET_NAME + ".gwt.xml");
-            if (resource != null) {
-                return new WidgetsetInfoImpl(false, null, APP_WIDGETSET_NAME);
-            }
+            return new WidgetsetInfoImpl(false, null, APP_WIDGETSET_NAME);
         }
 
         // fifth case: we are using the default widgetset
         return null;
     }
 
-    private Class<WidgetsetInfo> findWidgetsetClass() {
+    private static Class<WidgetsetInfo> findWidgetsetClass(
+            ClassLoader classLoader) {
         try {
             // We cannot naively use Class.forname without getting the correct
             // classloader
             // FIXME This might still fail with osgi
-            ClassLoader tccl = VaadinService.getCurrent().getClassLoader();
-            Class<?> c = Class.forName(APP_WIDGETSET_NAME, true, tccl);
+            Class<?> c = Class.forName(APP_WIDGETSET_NAME, true, classLoader);
 
             // if not implementing the interface, possibly a @WebListener class
             // from an earlier version - ignore it
@@ -218,8 +222,7 @@ public abstract class UIProvider implements Serializable {
         return null;
     }
 
-    private WidgetsetInfo getWidgetsetClassInfo() {
-        Class<WidgetsetInfo> cls = findWidgetsetClass();
+    private WidgetsetInfo getWidgetsetClassInfo(Class<WidgetsetInfo> cls) {
         if (cls != null) {
             try {
                 return cls.newInstance();
@@ -237,6 +240,35 @@ public abstract class UIProvider implements Serializable {
         return null;
     }
 
+    /**
+     * The generated AppWidgetset class and AppWidgetset.gwt.xml file found for
+     * a UI class. Looking them up means a failing class and resource lookup for
+     * every bootstrap request in most applications, so the result is cached in
+     * the {@link VaadinService}, whose class loader the class is looked up
+     * from.
+     */
+    static class AppWidgetset implements Serializable {
+        private final Class<WidgetsetInfo> widgetsetClass;
+        private final boolean widgetsetFile;
+
+        private AppWidgetset(Class<WidgetsetInfo> widgetsetClass,
+                boolean widgetsetFile) {
+            this.widgetsetClass = widgetsetClass;
+            this.widgetsetFile = widgetsetFile;
+        }
+
+        private static AppWidgetset find(Class<?> uiClass,
+                ClassLoader classLoader) {
+            try (InputStream resource = uiClass
+                    .getResourceAsStream("/" + APP_WIDGETSET_NAME + ".gwt.xml")) {
+                return new AppWidgetset(findWidgetsetClass(classLoader),
+                        resource != null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
     /**
      * Checks whether the same UI state should be reused if the framework can
      * detect that the application is opened in a browser window where it has
@@ -134,6 +134,12 @@ public abstract class VaadinService implements Serializable {
 
     private final List<SessionInitListener> sessionInitListeners = new CopyOnWriteArrayList<>();
 
+    /*
+     * Cached by UIProvider. The AppWidgetset class is looked up from the class
+     * loader of this service, so the cache is cleared if it changes.
+     */
+    private final Map<Class<?>, UIProvider.AppWidgetset> appWidgetsets = new ConcurrentHashMap<>();
+
     private final List<SessionDestroyListener> sessionDestroyListeners = new CopyOnWriteArrayList<>();
 
     private SystemMessagesProvider systemMessagesProvider = DefaultSystemMessagesProvider
@@ -159,6 +165,9 @@ public abstract class VaadinService implements Serializable {
      */
     private boolean initialized = false;
 
+    private final AccessDispatcher accessDispatcher = new AccessDispatcher(
+            this);
+
     /**
      * Creates a new vaadin service based on a deployment configuration.
      *
@@ -236,9 +245,37 @@ public abstract class VaadinService implements Serializable {
                 event.getAddedConnectorIdGenerators());
         assert connectorIdGenerator != null;
 
+        if (getDeploymentConfiguration() != null) {
+            configureAccessDispatcher(getDeploymentConfiguration());
+        }
+
         initialized = true;
     }
 
+    private void configureAccessDispatcher(
+            DeploymentConfiguration configuration) {
+        try {
+            accessDispatcher.setMaxPendingTasks(Integer.parseInt(
+                    configuration.getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_ACCESS_QUEUE_LIMIT,
+                            "0")));
+            accessDispatcher.setBatchInterval(Long.parseLong(
+                    configuration.getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_ACCESS_BATCH_INTERVAL,
+                            "0")));
+            accessDispatcher.setOverflowPolicy(
+                    AccessDispatcher.OverflowPolicy.valueOf(configuration
+                            .getApplicationOrSystemProperty(
+                                    Constants.SERVLET_PARAMETER_ACCESS_QUEUE_OVERFLOW_POLICY,
+                                    AccessDispatcher.OverflowPolicy.REJECT
+                                            .name())
+                            .toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            getLogger().log(Level.WARNING,
+                    "Invalid access queue configuration, using defaults", e);
+        }
+    }
+
     /**
      * Gets all available service init listeners. A custom Vaadin service
      * implementation can override this method to discover init listeners in
@@ -360,6 +397,11 @@ public abstract class VaadinService implements Serializable {
                     "Can not set class loader to null");
         }
         this.classLoader = classLoader;
+        appWidgetsets.clear();
+    }
+
+    Map<Class<?>, UIProvider.AppWidgetset> getAppWidgetsets() {
+        return appWidgetsets;
     }
 
     /**
@@ -1976,12 +2018,42 @@ public abstract class VaadinService implements Serializable {
      */
     public Future<Void> accessSession(VaadinSession session,
             Runnable runnable) {
-        FutureAccess future = new FutureAccess(session, runnable);
-        session.getPendingAccessQueue().add(future);
+        return accessDispatcher.dispatch(session, null, runnable);
+    }
 
-        ensureAccessQueuePurged(session);
+    /**
+     * Implementation for {@link VaadinSession#access(Object, Runnable)}.
+     *
+     * @since 8.11
+     * @see VaadinSession#access(Object, Runnable)
+     *
+     * @param session
+     *            the vaadin session to access
+     * @param coalescingKey
+     *            the key identifying the task, or <code>null</code> to never
+     *            replace the task with a newer one
+     * @param runnable
+     *            the runnable to run with the session locked
+     *
+     * @return a future that can be used to check for task completion and to
+     *         cancel the task
+     */
+    public Future<Void> accessSession(VaadinSession session,
+            Object coalescingKey, Runnable runnable) {
+        return accessDispatcher.dispatch(session, coalescingKey, runnable);
+    }
 
-        return future;
+    /**
+     * Gets the dispatcher that adds tasks submitted using
+     * {@link VaadinSession#access(Runnable)} to the pending access queues of
+     * sessions. The dispatcher can be used for limiting and batching the
+     * tasks and for monitoring the queues.
+     *
+     * @since 8.11
+     * @return the access dispatcher of this service, not <code>null</code>
+     */
+    public AccessDispatcher getAccessDispatcher() {
+        return accessDispatcher;
     }
 
     /**
@@ -2047,7 +2119,9 @@ public abstract class VaadinService implements Serializable {
         try {
             while ((pendingAccess = session.getPendingAccessQueue()
                     .poll()) != null) {
+                accessDispatcher.taskRemoved(session, pendingAccess);
                 if (!pendingAccess.isCancelled()) {
+                    accessDispatcher.taskStarted(pendingAccess);
                     pendingAccess.run();
 
                     try {
@@ -2066,6 +2140,7 @@ public abstract class VaadinService implements Serializable {
         } finally {
             CurrentInstance.clearAll();
             CurrentInstance.restoreInstances(oldInstances);
+            accessDispatcher.queuePurged(session);
         }
     }
 
@@ -2123,6 +2198,7 @@ public abstract class VaadinService implements Serializable {
         ServiceDestroyEvent event = new ServiceDestroyEvent(this);
         serviceDestroyListeners
                 .forEach(listener -> listener.serviceDestroy(event));
+        accessDispatcher.destroy();
     }
 
     /**
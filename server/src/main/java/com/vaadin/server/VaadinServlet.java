@@ -41,11 +41,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -214,6 +219,8 @@ public class VaadinServlet extends HttpServlet implements Constants {
         // Sets current service even though there are no request and response
         servletService.setCurrentInstances(null, null);
 
+        staticResourceCache = createStaticResourceCache();
+
         servletInitialized();
 
         CurrentInstance.clearAll();
@@ -273,6 +280,48 @@ public class VaadinServlet extends HttpServlet implements Constants {
         }
     }
 
+    /**
+     * Creates the cache used for serving static resources from the VAADIN
+     * directory. Cached resources are served from memory with strong ETags,
+     * compressed variants and support for range requests, without consulting
+     * {@link #findResourceURL(String)} or
+     * {@link #writeStaticResourceResponse(HttpServletRequest, HttpServletResponse, URL)}
+     * again.
+     * <p>
+     * The cache is disabled by default, since subclasses overriding those
+     * methods would no longer be called for cached resources. It is enabled in
+     * production mode by setting its maximum size in megabytes using the
+     * {@value #SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE} parameter.
+     *
+     * @since 8.11
+     * @return the static resource cache to use, or <code>null</code> to always
+     *         read static resources using
+     *         {@link #writeStaticResourceResponse(HttpServletRequest, HttpServletResponse, URL)}
+     */
+    protected StaticResourceCache createStaticResourceCache() {
+        DeploymentConfiguration configuration = getService()
+                .getDeploymentConfiguration();
+        if (!configuration.isProductionMode()) {
+            return null;
+        }
+        long maxSize;
+        try {
+            maxSize = Long.parseLong(
+                    configuration.getApplicationOrSystemProperty(
+                            SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE,
+                            "0"));
+        } catch (NumberFormatException e) {
+            getLogger().log(Level.WARNING,
+                    "Invalid static resource cache size, not using the cache",
+                    e);
+            maxSize = 0;
+        }
+        if (maxSize <= 0) {
+            return null;
+        }
+        return new StaticResourceCache(maxSize * 1024 * 1024);
+    }
+
     protected void servletInitialized() throws ServletException {
         // Empty by default
     }
@@ -742,17 +791,27 @@ public class VaadinServlet extends HttpServlet implements Constants {
     /**
      * Mutex for preventing to scss compilations to take place simultaneously.
      * This is a workaround needed as the scss compiler currently is not thread
-     * safe (#10292).
-     * <p>
-     * In addition, this is also used to protect the cached compilation results.
+     * safe (#10292). The mutex is shared by all servlets, each of which
+     * compiles in its own background thread.
      */
     private static final Object SCSS_MUTEX = new Object();
 
     /**
-     * Global cache of scss compilation results. This map is protected from
-     * concurrent access by {@link #SCSS_MUTEX}.
+     * Cache of scss compilation results. Stale entries are served while the
+     * scss file is recompiled in the background.
      */
-    private final Map<String, ScssCacheEntry> scssCache = new HashMap<>();
+    private final Map<String, ScssCacheEntry> scssCache = new ConcurrentHashMap<>();
+
+    /**
+     * Scss compilations in progress, used for making sure each file is only
+     * compiled once at a time.
+     */
+    private final ConcurrentMap<String, Future<ScssCacheEntry>> scssCompilations = new ConcurrentHashMap<>();
+
+    /**
+     * Background thread for compiling scss, created when first needed.
+     */
+    private transient ExecutorService scssCompiler;
 
     /**
      * Keeps track of whether a warning about not being able to persist cache
@@ -761,6 +820,11 @@ public class VaadinServlet extends HttpServlet implements Constants {
      */
     private static boolean scssCompileWarWarningEmitted = false;
 
+    /**
+     * Cache of static resources, or <code>null</code> if not in use.
+     */
+    private transient StaticResourceCache staticResourceCache;
+
     /**
      * Pattern for matching request paths that start with /VAADIN/, multiple
      * slashes allowed on either side.
@@ -822,6 +886,16 @@ public class VaadinServlet extends HttpServlet implements Constants {
             HttpServletRequest request, HttpServletResponse response)
             throws IOException, ServletException {
 
+        if (staticResourceCache != null) {
+            StaticResourceCache.Entry entry = staticResourceCache
+                    .get(filename);
+            if (entry != null) {
+                writeCachedStaticResourceResponse(filename, entry, request,
+                        response);
+                return;
+            }
+        }
+
         final ServletContext sc = getServletContext();
         URL resourceUrl = findResourceURL(filename);
 
@@ -851,14 +925,17 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return;
         }
 
-        String cacheControl = "public, max-age=0, must-revalidate";
-        int resourceCacheTime = getCacheTime(filename);
-        if (resourceCacheTime > 0) {
-            cacheControl = "max-age=" + String.valueOf(resourceCacheTime);
+        if (staticResourceCache != null) {
+            StaticResourceCache.Entry entry = staticResourceCache
+                    .load(filename, resourceUrl, sc.getMimeType(filename));
+            if (entry != null) {
+                writeCachedStaticResourceResponse(filename, entry, request,
+                        response);
+                return;
+            }
         }
-        response.setHeader("Cache-Control", cacheControl);
-        response.setDateHeader("Expires",
-                System.currentTimeMillis() + resourceCacheTime * 1000);
+
+        setStaticResourceCacheHeaders(filename, response);
 
         // Find the modification timestamp
         long lastModifiedTime = 0;
@@ -907,6 +984,170 @@ public class VaadinServlet extends HttpServlet implements Constants {
         writeStaticResourceResponse(request, response, resourceUrl);
     }
 
+    private void setStaticResourceCacheHeaders(String filename,
+            HttpServletResponse response) {
+        String cacheControl = "public, max-age=0, must-revalidate";
+        int resourceCacheTime = getCacheTime(filename);
+        if (resourceCacheTime > 0) {
+            cacheControl = "max-age=" + String.valueOf(resourceCacheTime);
+        }
+        response.setHeader("Cache-Control", cacheControl);
+        response.setDateHeader("Expires",
+                System.currentTimeMillis() + resourceCacheTime * 1000);
+    }
+
+    private void writeCachedStaticResourceResponse(String filename,
+            StaticResourceCache.Entry entry, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        setStaticResourceCacheHeaders(filename, response);
+        if (entry.getLastModified() > 0) {
+            response.setDateHeader("Last-Modified", entry.getLastModified());
+        }
+        if (entry.getMimeType() != null) {
+            response.setContentType(entry.getMimeType());
+        }
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("Vary", "Accept-Encoding");
+
+        String contentEncoding = null;
+        byte[] content = entry.getContent();
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        byte[] compressed;
+        boolean allowPrecompressed = allowServePrecompressedResource(request,
+                entry.getUrl());
+        if (allowPrecompressed && acceptEncoding != null
+                && acceptEncoding.contains("br")
+                && (compressed = staticResourceCache
+                        .getBrotli(entry)) != null) {
+            contentEncoding = "br";
+            content = compressed;
+        } else if (allowPrecompressed && (compressed = staticResourceCache
+                .getGzipped(entry)) != null) {
+            contentEncoding = "gzip";
+            content = compressed;
+        }
+
+        String etag = entry.getETag(contentEncoding);
+        response.setHeader("ETag", etag);
+        if (contentEncoding != null) {
+            response.setHeader("Content-Encoding", contentEncoding);
+        }
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null ? matchesETag(ifNoneMatch, etag)
+                : browserHasNewestVersion(request, entry.getLastModified())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        int start = 0;
+        int end = content.length;
+        String range = request.getHeader("Range");
+        if (range != null && isIfRangeSatisfied(request, etag,
+                entry.getLastModified())) {
+            int[] byteRange = parseByteRange(range, content.length);
+            if (byteRange != null && byteRange.length == 0) {
+                response.setHeader("Content-Range",
+                        "bytes */" + content.length);
+                response.setStatus(
+                        HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            } else if (byteRange != null) {
+                start = byteRange[0];
+                end = byteRange[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-"
+                        + (end - 1) + "/" + content.length);
+            }
+        }
+
+        // Written directly from the cached array without intermediate buffers
+        response.setContentLength(end - start);
+        response.getOutputStream().write(content, start, end - start);
+    }
+
+    private static boolean matchesETag(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIfRangeSatisfied(HttpServletRequest request,
+            String etag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return lastModified > 0
+                    && request.getDateHeader("If-Range") == lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses a single byte range from a Range header.
+     *
+     * @param header
+     *            the Range header value
+     * @param length
+     *            the length of the content
+     * @return the start (inclusive) and end (exclusive) of the range, an empty
+     *         array if the range cannot be satisfied or <code>null</code> if
+     *         the header is not a single byte range and should be ignored
+     */
+    static int[] parseByteRange(String header, int length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix range: the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return new int[0];
+                }
+                start = Math.max(0, length - suffix);
+                end = length;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? Long.MAX_VALUE
+                        : Long.parseLong(last) + 1;
+                if (start < 0 || end <= start) {
+                    // Invalid range
+                    return null;
+                }
+                end = Math.min(end, length);
+            }
+            if (start >= length) {
+                return new int[0];
+            }
+            return new int[] { (int) start, (int) end };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Calculates the cache lifetime for the given filename in seconds. By
      * default filenames containing ".nocache." return 0, filenames containing
@@ -1016,6 +1257,10 @@ public class VaadinServlet extends HttpServlet implements Constants {
      * The base implementation of this method returns true if and only if the
      * request indicates that the client accepts gzip compressed responses and
      * the filename extension of the requested resource is .js, .css, or .html.
+     * <p>
+     * When static resources are served from the
+     * {@link #createStaticResourceCache() static resource cache}, this method
+     * also decides whether a Brotli or gzip compressed version may be served.
      *
      * @since 7.5.0
      *
@@ -1104,37 +1349,95 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return true;
         }
 
-        synchronized (SCSS_MUTEX) {
-            ScssCacheEntry cacheEntry = scssCache.get(scssFilename);
+        ScssCacheEntry cacheEntry = scssCache.get(scssFilename);
 
-            if (cacheEntry == null) {
-                try {
-                    cacheEntry = loadPersistedScssCache(scssFilename, sc);
-                } catch (Exception e) {
-                    getLogger().log(Level.WARNING,
-                            "Could not read persisted scss cache", e);
-                }
+        if (cacheEntry == null) {
+            try {
+                cacheEntry = loadPersistedScssCache(scssFilename, sc);
+            } catch (Exception e) {
+                getLogger().log(Level.WARNING,
+                        "Could not read persisted scss cache", e);
             }
-
-            if (cacheEntry == null || !cacheEntry.isStillValid()) {
-                cacheEntry = compileScssOnTheFly(filename, scssFilename, sc);
-                persistCacheEntry(cacheEntry);
+            if (cacheEntry != null) {
+                ScssCacheEntry previous = scssCache.putIfAbsent(scssFilename,
+                        cacheEntry);
+                if (previous != null) {
+                    cacheEntry = previous;
+                }
             }
-            scssCache.put(scssFilename, cacheEntry);
+        }
 
-            if (cacheEntry == null) {
-                // compilation did not produce any result, but logged a message
+        if (cacheEntry == null) {
+            // Nothing to serve before the first compilation has completed
+            try {
+                cacheEntry = compileScss(filename, scssFilename, sc).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                getLogger().log(Level.WARNING, "Scss compilation failed",
+                        e.getCause());
                 return false;
             }
+        } else if (!cacheEntry.isStillValid()) {
+            // Serve the stale css while it is being recompiled
+            compileScss(filename, scssFilename, sc);
+        }
 
-            // This is for development mode only so instruct the browser to
-            // never cache it
-            response.setHeader("Cache-Control", "no-cache");
-            final String mimetype = getService().getMimeType(filename);
-            writeResponse(response, mimetype, cacheEntry.getCss());
-
-            return true;
+        if (cacheEntry == null) {
+            // compilation did not produce any result, but logged a message
+            return false;
         }
+
+        // This is for development mode only so instruct the browser to
+        // never cache it
+        response.setHeader("Cache-Control", "no-cache");
+        final String mimetype = getService().getMimeType(filename);
+        writeResponse(response, mimetype, cacheEntry.getCss());
+
+        return true;
+    }
+
+    /**
+     * Starts compiling the given scss file unless a compilation of the same
+     * file is already in progress. Compilations are run one at a time in a
+     * background thread since the compiler is not thread safe.
+     *
+     * @return a future for the compilation result
+     */
+    private Future<ScssCacheEntry> compileScss(String filename,
+            String scssFilename, ServletContext sc) {
+        return scssCompilations.computeIfAbsent(scssFilename,
+                key -> getScssCompiler().submit(() -> {
+                    try {
+                        synchronized (SCSS_MUTEX) {
+                            ScssCacheEntry entry = compileScssOnTheFly(
+                                    filename, scssFilename, sc);
+                            if (entry == null) {
+                                scssCache.remove(scssFilename);
+                            } else {
+                                persistCacheEntry(entry);
+                                scssCache.put(scssFilename, entry);
+                            }
+                            return entry;
+                        }
+                    } finally {
+                        scssCompilations.remove(scssFilename);
+                    }
+                }));
+    }
+
+    private synchronized ExecutorService getScssCompiler() {
+        if (scssCompiler == null) {
+            ClassLoader classLoader = getService().getClassLoader();
+            scssCompiler = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "vaadin-scss-compiler");
+                thread.setDaemon(true);
+                thread.setContextClassLoader(classLoader);
+                return thread;
+            });
+        }
+        return scssCompiler;
     }
 
     private ScssCacheEntry loadPersistedScssCache(String scssFilename,
@@ -1474,6 +1777,12 @@ public class VaadinServlet extends HttpServlet implements Constants {
     @Override
     public void destroy() {
         super.destroy();
+        synchronized (this) {
+            if (scssCompiler != null) {
+                scssCompiler.shutdownNow();
+                scssCompiler = null;
+            }
+        }
         if (getService() != null) {
             getService().destroy();
         }
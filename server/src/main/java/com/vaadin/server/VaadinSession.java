@@ -37,6 +37,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -82,6 +83,13 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         private final VaadinSession session;
         private final Runnable runnable;
 
+        // Set by AccessDispatcher when the task is added to the queue
+        boolean dispatched;
+        long enqueueTime;
+        Object coalescingKey;
+        // Whether the task holds one of the pending slots of the session
+        final AtomicBoolean holdsSlot = new AtomicBoolean();
+
         /**
          * Creates an instance for the given runnable.
          *
@@ -250,6 +258,8 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     private transient ConcurrentLinkedQueue<FutureAccess> pendingAccessQueue = new ConcurrentLinkedQueue<>();
 
+    private transient AccessDispatcher.SessionQueueState accessQueueState = new AccessDispatcher.SessionQueueState();
+
     /**
      * Creates a new VaadinSession tied to a VaadinService.
      *
@@ -863,6 +873,20 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
                 BOOTSTRAP_PAGE_METHOD);
     }
 
+    /**
+     * Checks whether any bootstrap listeners have been added to this session.
+     * The bootstrap page can be written without building a DOM when there are
+     * no listeners that could modify it.
+     *
+     * @return <code>true</code> if there are bootstrap listeners,
+     *         <code>false</code> otherwise
+     */
+    boolean hasBootstrapListeners() {
+        assert hasLock();
+        return eventRouter.hasListeners(BootstrapFragmentResponse.class)
+                || eventRouter.hasListeners(BootstrapPageResponse.class);
+    }
+
     /**
      * Fires a bootstrap event to all registered listeners. There are currently
      * two supported events, both inheriting from {@link BootstrapResponse}:
@@ -1417,6 +1441,35 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return getService().accessSession(this, runnable);
     }
 
+    /**
+     * Provides exclusive access to this session from outside a request handling
+     * thread, replacing any pending task submitted with the same key. This
+     * works like {@link #access(Runnable)}, but if a task submitted with an
+     * equal coalescing key is still waiting in the queue, that task is
+     * cancelled and the new task takes its place. This is useful for e.g.
+     * updates from a background thread where only the latest value matters.
+     * <p>
+     * Coalescing keys are shared by all UIs in the session.
+     *
+     * @see #access(Runnable)
+     * @see AccessDispatcher
+     *
+     * @since 8.11
+     *
+     * @param coalescingKey
+     *            the key identifying the task, not <code>null</code>
+     * @param runnable
+     *            the runnable which accesses the session
+     * @return a future that can be used to check for task completion and to
+     *         cancel the task
+     */
+    public Future<Void> access(Object coalescingKey, Runnable runnable) {
+        if (coalescingKey == null) {
+            throw new IllegalArgumentException("coalescingKey cannot be null");
+        }
+        return getService().accessSession(this, coalescingKey, runnable);
+    }
+
     /**
      * Gets the queue of tasks submitted using {@link #access(Runnable)}. It is
      * safe to call this method and access the returned queue without holding
@@ -1430,6 +1483,10 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return pendingAccessQueue;
     }
 
+    AccessDispatcher.SessionQueueState getAccessQueueState() {
+        return accessQueueState;
+    }
+
     /**
      * Gets the CSRF token (aka double submit cookie) that is used to protect
      * against Cross Site Request Forgery attacks.
@@ -1457,7 +1514,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
 
     /**
      * Override default deserialization logic to account for transient
-     * {@link #pendingAccessQueue}.
+     * {@link #pendingAccessQueue} and {@link #accessQueueState}.
      */
     private void readObject(ObjectInputStream stream)
             throws IOException, ClassNotFoundException {
@@ -1465,6 +1522,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         try {
             stream.defaultReadObject();
             pendingAccessQueue = new ConcurrentLinkedQueue<>();
+            accessQueueState = new AccessDispatcher.SessionQueueState();
         } finally {
             CurrentInstance.restoreInstances(old);
         }
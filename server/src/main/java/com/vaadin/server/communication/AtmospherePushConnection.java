@@ -105,6 +105,65 @@ public class AtmospherePushConnection implements PushConnection {
         }
     }
 
+    /**
+     * An unsynchronized writer that appends to a {@link StringBuilder}. Unlike
+     * {@link StringWriter}, the builder can be sized up front and the message
+     * is copied only once, when the string to send is created.
+     */
+    private static class MessageWriter extends Writer implements Serializable {
+        private final StringBuilder builder;
+
+        private MessageWriter(int capacity) {
+            builder = new StringBuilder(capacity);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            builder.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str) {
+            builder.append(str);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            builder.append(str, off, off + len);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            builder.append(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+            // Nothing to flush
+        }
+
+        @Override
+        public void close() {
+            // Nothing to close
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+
+    /**
+     * The initial capacity of the message buffer for the first push.
+     */
+    private static final int INITIAL_MESSAGE_CAPACITY = 4096;
+
     protected enum State {
         /**
          * Not connected. Trying to push will set the connection state to
@@ -136,6 +195,7 @@ public class AtmospherePushConnection implements PushConnection {
     private transient AtmosphereResource resource;
     private transient FragmentedMessage incomingMessage;
     private transient Future<Object> outgoingMessage;
+    private transient int lastMessageLength;
 
     public AtmospherePushConnection(UI ui) {
         this.ui = ui;
@@ -164,9 +224,17 @@ public class AtmospherePushConnection implements PushConnection {
             }
         } else {
             try {
-                Writer writer = new StringWriter();
+                // Size the buffer after the previous message so that typical
+                // messages are written without growing it
+                MessageWriter writer = new MessageWriter(
+                        Math.max(INITIAL_MESSAGE_CAPACITY,
+                                lastMessageLength + lastMessageLength / 8));
+                writer.write("for(;;);[{");
                 new UidlWriter().write(getUI(), writer, async);
-                sendMessage("for(;;);[{" + writer + "}]");
+                writer.write("}]");
+                String message = writer.toString();
+                lastMessageLength = message.length();
+                sendMessage(message);
             } catch (Exception e) {
                 throw new RuntimeException("Push failed", e);
             }
@@ -19,22 +19,23 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import com.vaadin.server.AbstractClientConnector;
 import com.vaadin.server.ClientConnector;
-import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonException;
 import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
 
 /**
  * Serializes a connector hierarchy to JSON.
@@ -46,7 +47,9 @@ public class ConnectorHierarchyWriter implements Serializable {
 
     /**
      * Writes a JSON object containing the connector hierarchy (parent-child
-     * mappings) of the dirty connectors in the given UI.
+     * mappings) of the dirty connectors in the given UI. The hierarchy of a
+     * connector is only written if it differs from what the client already
+     * knows about.
      *
      * @param ui
      *            The {@link UI} whose hierarchy to write.
@@ -60,27 +63,42 @@ public class ConnectorHierarchyWriter implements Serializable {
     public void write(UI ui, Writer writer, Set<String> stateUpdateConnectors)
             throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
         JsonObject hierarchyInfo = Json.createObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
             String connectorId = connector.getConnectorId();
-            JsonArray children = Json.createArray();
+            List<String> children = new ArrayList<>();
 
             for (ClientConnector child : AbstractClientConnector
                     .getAllChildrenIterable(connector)) {
-                if (LegacyCommunicationManager
-                        .isConnectorVisibleToClient(child)) {
-                    children.set(children.length(), child.getConnectorId());
+                if (connectorTracker.isConnectorVisibleToClient(child)) {
+                    children.add(child.getConnectorId());
                 }
             }
 
-            // Omit for leaf nodes with state changes
-            if (children.length() > 0
-                    || !stateUpdateConnectors.contains(connectorId)) {
+            boolean send;
+            if (stateUpdateConnectors.contains(connectorId)) {
+                // The client assumes no children for connectors with state
+                // changes, so omit only for leaf nodes
+                send = !children.isEmpty();
+            } else {
+                // Omit if the client already has the same hierarchy
+                send = !connectorTracker.isClientSideInitialized(connector)
+                        || !children.equals(
+                                connectorTracker.getSentHierarchy(connector));
+            }
+            connectorTracker.setSentHierarchy(connector, children);
+
+            if (send) {
+                JsonArray childIds = Json.createArray();
+                for (String childId : children) {
+                    childIds.set(childIds.length(), childId);
+                }
                 try {
-                    hierarchyInfo.put(connectorId, children);
+                    hierarchyInfo.put(connectorId, childIds);
                 } catch (JsonException e) {
                     throw new PaintException(
                             "Failed to send hierarchy information about "
@@ -94,7 +112,7 @@ public class ConnectorHierarchyWriter implements Serializable {
         // used by the real assert later on
         assert storeSentHierarchy(hierarchyInfo, stateUpdateConnectors);
 
-        writer.write(JsonUtil.stringify(hierarchyInfo));
+        new JsonStreamWriter(writer).value(hierarchyInfo);
     }
 
     private boolean storeSentHierarchy(JsonObject hierarchyInfo,
@@ -24,12 +24,12 @@ import java.util.Collection;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.PaintTarget;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
 import elemental.json.JsonException;
 import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
 
 /**
  * Serializes connector type mappings to JSON.
@@ -41,7 +41,9 @@ public class ConnectorTypeWriter implements Serializable {
 
     /**
      * Writes a JSON object containing connector-ID-to-type-ID mappings for each
-     * dirty Connector in the given UI.
+     * dirty Connector in the given UI that has not yet been initialized on the
+     * client side. The type of a connector never changes, so it only needs to
+     * be sent once for each connector id.
      *
      * @param ui
      *            The {@link UI} containing dirty connectors
@@ -55,11 +57,16 @@ public class ConnectorTypeWriter implements Serializable {
     public void write(UI ui, Writer writer, PaintTarget target)
             throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
         JsonObject connectorTypes = Json.createObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
+            if (connectorTracker.isClientSideInitialized(connector)) {
+                // The client already knows the type
+                continue;
+            }
             String connectorType = target.getTag(connector);
             try {
                 connectorTypes.put(connector.getConnectorId(), connectorType);
@@ -71,6 +78,6 @@ public class ConnectorTypeWriter implements Serializable {
                         e);
             }
         }
-        writer.write(JsonUtil.stringify(connectorTypes));
+        new JsonStreamWriter(writer).value(connectorTypes);
     }
 }
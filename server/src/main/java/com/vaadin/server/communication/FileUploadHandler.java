@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.util.Arrays;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.NoInputStreamException;
@@ -55,151 +56,170 @@ public class FileUploadHandler implements RequestHandler {
     /**
      * Stream that extracts content from another stream until the boundary
      * string is encountered.
+     * <p>
+     * The underlying stream is read in blocks into an internal buffer which is
+     * searched for the boundary using the Boyer-Moore-Horspool algorithm. Bytes
+     * that cannot be a part of the boundary are returned in bulk from
+     * {@link #read(byte[], int, int)}. The stream may read past the boundary
+     * from the underlying stream.
      *
      * Public only for unit tests, should be considered private for all other
      * purposes.
      */
     public static class SimpleMultiPartInputStream extends InputStream {
 
-        /**
-         * Counter of how many characters have been matched to boundary string
-         * from the stream
-         */
-        int matchedCount = -1;
+        private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+        private final byte[] boundary;
 
         /**
-         * Used as pointer when returning bytes after partly matched boundary
-         * string.
+         * Horspool shift for each byte value, when the byte is the last one
+         * compared in the buffer.
          */
-        int curBoundaryIndex = 0;
+        private final int[] shifts = new int[256];
+
+        private final byte[] buffer;
+
+        /** Position of the next byte to return from the buffer. */
+        private int position = 0;
+
         /**
-         * The byte found after a "promising start for boundary"
+         * End of the bytes that have been checked not to be a part of the
+         * boundary.
          */
-        private int bufferedByte = -1;
-        private boolean atTheEnd = false;
+        private int safeEnd = 0;
+
+        /** End of the bytes read from the underlying stream. */
+        private int end = 0;
+
+        private boolean boundaryFound = false;
 
-        private final char[] boundary;
+        private boolean endOfStream = false;
 
         private final InputStream realInputStream;
 
         public SimpleMultiPartInputStream(InputStream realInputStream,
                 String boundaryString) {
-            boundary = (CRLF + DASHDASH + boundaryString).toCharArray();
+            boundary = (CRLF + DASHDASH + boundaryString).getBytes(UTF_8);
             this.realInputStream = realInputStream;
+            buffer = new byte[Math.max(DEFAULT_BUFFER_SIZE,
+                    2 * boundary.length)];
+
+            int last = boundary.length - 1;
+            Arrays.fill(shifts, boundary.length);
+            for (int i = 0; i < last; i++) {
+                shifts[boundary[i] & 0xff] = last - i;
+            }
         }
 
         @Override
         public int read() throws IOException {
-            if (atTheEnd) {
-                // End boundary reached, nothing more to read
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return buffer[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureAvailable()) {
                 return -1;
-            } else if (bufferedByte >= 0) {
-                /* Purge partially matched boundary if there was such */
-                return getBuffered();
-            } else if (matchedCount != -1) {
-                /*
-                 * Special case where last "failed" matching ended with first
-                 * character from boundary string
-                 */
-                return matchForBoundary();
-            } else {
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream == -1) {
-                    // unexpected end of stream
-                    throw new IOException(
-                            "The multipart stream ended unexpectedly");
-                }
-                if (boundary[0] == fromActualStream) {
-                    /*
-                     * If matches the first character in boundary string, start
-                     * checking if the boundary is fetched.
-                     */
-                    return matchForBoundary();
-                }
-                return fromActualStream;
             }
+            int count = Math.min(len, safeEnd - position);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return safeEnd - position;
         }
 
         /**
-         * Reads the input to expect a boundary string. Expects that the first
-         * character has already been matched.
+         * Makes sure there are bytes before the boundary available in the
+         * buffer, reading more from the underlying stream if needed.
          *
-         * @return -1 if the boundary was matched, else returns the first byte
-         *         from boundary
+         * @return {@code true} if there are bytes available, {@code false} if
+         *         the boundary has been reached
          * @throws IOException
+         *             if the underlying stream ends before the boundary
          */
-        private int matchForBoundary() throws IOException {
-            matchedCount = 0;
-            /*
-             * Going to "buffered mode". Read until full boundary match or a
-             * different character.
-             */
-            while (true) {
-                matchedCount++;
-                if (matchedCount == boundary.length) {
-                    /*
-                     * The whole boundary matched so we have reached the end of
-                     * file
-                     */
-                    atTheEnd = true;
-                    return -1;
+        private boolean ensureAvailable() throws IOException {
+            while (position == safeEnd) {
+                if (boundaryFound) {
+                    // End boundary reached, nothing more to read
+                    return false;
                 }
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream != boundary[matchedCount]) {
-                    /*
-                     * Did not find full boundary, cache the mismatching byte
-                     * and start returning the partially matched boundary.
-                     */
-                    bufferedByte = fromActualStream;
-                    return getBuffered();
+                if (endOfStream) {
+                    throw new IOException(
+                            "The multipart stream ended unexpectedly");
                 }
+                fillBuffer();
             }
+            return true;
         }
 
         /**
-         * Returns the partly matched boundary string and the byte following
-         * that.
+         * Reads the next block from the underlying stream and searches the
+         * new bytes for the boundary.
          *
-         * @return
          * @throws IOException
+         *             if reading the underlying stream fails
          */
-        private int getBuffered() throws IOException {
-            int b;
-            if (matchedCount == 0) {
-                // The boundary has been returned, return the buffered byte.
-                b = bufferedByte;
-                bufferedByte = -1;
-                matchedCount = -1;
+        private void fillBuffer() throws IOException {
+            if (position > 0) {
+                // Keep the possible start of a boundary
+                System.arraycopy(buffer, position, buffer, 0, end - position);
+                end -= position;
+                safeEnd -= position;
+                position = 0;
+            }
+
+            int read = realInputStream.read(buffer, end, buffer.length - end);
+            if (read == -1) {
+                endOfStream = true;
+                return;
+            }
+            end += read;
+
+            int boundaryIndex = indexOfBoundary(safeEnd);
+            if (boundaryIndex >= 0) {
+                safeEnd = boundaryIndex;
+                boundaryFound = true;
             } else {
-                b = boundary[curBoundaryIndex++];
-                if (curBoundaryIndex == matchedCount) {
-                    // The full boundary has been returned, remaining is the
-                    // char that did not match the boundary.
-
-                    curBoundaryIndex = 0;
-                    if (bufferedByte != boundary[0]) {
-                        /*
-                         * next call for getBuffered will return the
-                         * bufferedByte that came after the partial boundary
-                         * match
-                         */
-                        matchedCount = 0;
-                    } else {
-                        /*
-                         * Special case where buffered byte again matches the
-                         * boundaryString. This could be the start of the real
-                         * end boundary.
-                         */
-                        matchedCount = 0;
-                        bufferedByte = -1;
+                safeEnd = Math.max(safeEnd, end - boundary.length + 1);
+            }
+        }
+
+        /**
+         * Finds the first occurrence of the boundary in the buffer, starting
+         * from the given index.
+         *
+         * @param from
+         *            the index to start from
+         * @return the index of the boundary or -1 if not found
+         */
+        private int indexOfBoundary(int from) {
+            int last = boundary.length - 1;
+            int i = from;
+            while (i + last < end) {
+                int j = last;
+                while (buffer[i + j] == boundary[j]) {
+                    if (j == 0) {
+                        return i;
                     }
+                    j--;
                 }
+                i += shifts[buffer[i + last] & 0xff];
             }
-            if (b == -1) {
-                throw new IOException(
-                        "The multipart stream ended unexpectedly");
-            }
-            return b;
+            return -1;
         }
     }
 
@@ -392,14 +412,8 @@ public class FileUploadHandler implements RequestHandler {
                 + 2 * DASHDASH.length() + CRLF.length());
 
         /*
-         * Reads bytes from the underlying stream. Compares the read bytes to
-         * the boundary string and returns -1 if met.
-         *
-         * The matching happens so that if the read byte equals to the first
-         * char of boundary string, the stream goes to "buffering mode". In
-         * buffering mode bytes are read until the character does not match the
-         * corresponding from boundary string or the full boundary string is
-         * found.
+         * Reads bytes from the underlying stream in blocks. Searches the read
+         * bytes for the boundary string and returns -1 when it is met.
          *
          * Note, if this is someday needed elsewhere, don't shoot yourself to
          * foot and split to a top level helper class.
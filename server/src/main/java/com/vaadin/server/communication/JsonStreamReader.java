@@ -0,0 +1,342 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * Reads JSON directly from a {@link Reader} without first reading the whole
+ * message into a string.
+ * <p>
+ * The reader is read once, in chunks, and the values are built while reading.
+ * The result is the same tree {@link JsonUtil#parse(String)} would produce for
+ * the same input. The number of characters read can be limited so that an
+ * oversized message is rejected as soon as the limit is passed instead of
+ * after it has been buffered in full.
+ *
+ * @see JsonStreamWriter
+ *
+ * @author Vaadin Ltd
+ * @since 8.11
+ */
+public class JsonStreamReader implements Serializable {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * The maximum nesting depth of arrays and objects. Parsing is recursive,
+     * so a deeper message is rejected rather than risking the stack.
+     */
+    private static final int MAX_DEPTH = 512;
+
+    private final Reader reader;
+    private final long maxLength;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private long charsRead = 0;
+    private int depth = 0;
+
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Creates a new JSON stream reader reading from the given reader without
+     * limiting the length of the input.
+     *
+     * @param reader
+     *            the reader to read the JSON from, not {@code null}
+     */
+    public JsonStreamReader(Reader reader) {
+        this(reader, -1);
+    }
+
+    /**
+     * Creates a new JSON stream reader reading at most the given number of
+     * characters from the given reader.
+     *
+     * @param reader
+     *            the reader to read the JSON from, not {@code null}
+     * @param maxLength
+     *            the maximum number of characters to read, or a negative
+     *            number to not limit the length
+     */
+    public JsonStreamReader(Reader reader, long maxLength) {
+        this.reader = reader;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Reads a single JSON value that makes up the rest of the input. Only
+     * whitespace may follow the value.
+     *
+     * @return the value read, or {@code null} if the input is empty or only
+     *         contains whitespace
+     * @throws IOException
+     *             if reading fails
+     * @throws JsonException
+     *             if the input is not valid JSON or is longer than the
+     *             maximum length
+     */
+    public JsonValue read() throws IOException, JsonException {
+        int c = skipWhitespace();
+        if (c == -1) {
+            return null;
+        }
+        JsonValue value = readValue(c);
+        if (skipWhitespace() != -1) {
+            throw error("Unexpected data after the JSON value");
+        }
+        return value;
+    }
+
+    /**
+     * Gets the number of characters read so far.
+     *
+     * @return the number of characters read
+     */
+    public long getCharsRead() {
+        return charsRead - (limit - position);
+    }
+
+    private JsonValue readValue(int c) throws IOException {
+        switch (c) {
+        case '{':
+            return readObject();
+        case '[':
+            return readArray();
+        case '"':
+            return Json.create(readString());
+        case 't':
+            expect("rue");
+            return Json.create(true);
+        case 'f':
+            expect("alse");
+            return Json.create(false);
+        case 'n':
+            expect("ull");
+            return Json.createNull();
+        default:
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return Json.create(readNumber((char) c));
+            }
+            throw unexpected(c);
+        }
+    }
+
+    private JsonObject readObject() throws IOException {
+        enter();
+        JsonObject object = Json.createObject();
+        int c = skipWhitespace();
+        if (c != '}') {
+            while (true) {
+                if (c != '"') {
+                    throw unexpected(c);
+                }
+                String key = readString();
+                if (skipWhitespace() != ':') {
+                    throw error("Expected ':' after object key " + key);
+                }
+                object.put(key, readValue(skipWhitespace()));
+
+                c = skipWhitespace();
+                if (c == '}') {
+                    break;
+                } else if (c != ',') {
+                    throw unexpected(c);
+                }
+                c = skipWhitespace();
+            }
+        }
+        depth--;
+        return object;
+    }
+
+    private JsonArray readArray() throws IOException {
+        enter();
+        JsonArray array = Json.createArray();
+        int c = skipWhitespace();
+        if (c != ']') {
+            while (true) {
+                array.set(array.length(), readValue(c));
+
+                c = skipWhitespace();
+                if (c == ']') {
+                    break;
+                } else if (c != ',') {
+                    throw unexpected(c);
+                }
+                c = skipWhitespace();
+            }
+        }
+        depth--;
+        return array;
+    }
+
+    private String readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (position == limit && !fill()) {
+                throw error("Unterminated string");
+            }
+            // Copy everything up to the next quote or escape in one go
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                position++;
+            }
+            text.append(buffer, start, position - start);
+            if (position == limit) {
+                continue;
+            }
+
+            char c = buffer[position++];
+            if (c == '"') {
+                return text.toString();
+            }
+            text.append(readEscape());
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = next();
+        switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+            return (char) c;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(next(), 16);
+                if (digit == -1) {
+                    throw error("Invalid unicode escape");
+                }
+                value = (value << 4) | digit;
+            }
+            return (char) value;
+        default:
+            throw error("Invalid escape sequence");
+        }
+    }
+
+    private double readNumber(char first) throws IOException {
+        text.setLength(0);
+        text.append(first);
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E'
+                    || c == '+' || c == '-') {
+                text.append(c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        try {
+            return Double.parseDouble(text.toString());
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + text);
+        }
+    }
+
+    private void expect(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (next() != rest.charAt(i)) {
+                throw error("Invalid literal");
+            }
+        }
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("JSON is nested deeper than " + MAX_DEPTH + " levels");
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[position++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            throw error("Unexpected end of JSON");
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            // Readers only return 0 for an empty buffer, so treat it as EOF
+            return false;
+        }
+        charsRead += read;
+        if (maxLength >= 0 && charsRead > maxLength) {
+            throw new JsonException("JSON message is longer than the maximum of "
+                    + maxLength + " characters");
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private JsonException unexpected(int c) {
+        if (c == -1) {
+            return error("Unexpected end of JSON");
+        }
+        return error("Unexpected character '" + (char) c + "'");
+    }
+
+    private JsonException error(String message) {
+        return new JsonException(
+                message + " at position " + (getCharsRead() - 1));
+    }
+}
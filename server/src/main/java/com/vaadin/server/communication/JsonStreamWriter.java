@@ -0,0 +1,422 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * Writes JSON directly to a {@link Writer} without first building the whole
+ * message as a string.
+ * <p>
+ * Values can either be written one at a time using {@link #beginArray()},
+ * {@link #name(String)}, {@link #value(String)} and the other methods of
+ * this class, or as complete {@link JsonValue} trees using
+ * {@link #value(JsonValue)}. The output for a tree is identical to the output
+ * of {@link JsonUtil#stringify(JsonValue)} for the same tree.
+ *
+ * @author Vaadin Ltd
+ * @since 8.11
+ */
+public class JsonStreamWriter implements Serializable {
+
+    private static final long NEGATIVE_ZERO_BITS = Double
+            .doubleToRawLongBits(-0.0);
+
+    private final Writer writer;
+
+    /*
+     * For each open array or object, whether nothing has yet been written to
+     * it. Index 0 is the top level.
+     */
+    private boolean[] first = new boolean[16];
+    private int depth = 0;
+    private boolean afterName = false;
+
+    /**
+     * Creates a new JSON stream writer writing to the given writer.
+     *
+     * @param writer
+     *            the writer to write the JSON to, not {@code null}
+     */
+    public JsonStreamWriter(Writer writer) {
+        this.writer = writer;
+        first[0] = true;
+    }
+
+    /**
+     * Starts a new JSON array.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter beginArray() throws IOException {
+        beforeValue();
+        writer.write('[');
+        push();
+        return this;
+    }
+
+    /**
+     * Ends the current JSON array.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter endArray() throws IOException {
+        depth--;
+        writer.write(']');
+        return this;
+    }
+
+    /**
+     * Starts a new JSON object.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter beginObject() throws IOException {
+        beforeValue();
+        writer.write('{');
+        push();
+        return this;
+    }
+
+    /**
+     * Ends the current JSON object.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter endObject() throws IOException {
+        depth--;
+        writer.write('}');
+        return this;
+    }
+
+    /**
+     * Writes the name of the next property in the current JSON object. Must be
+     * followed by a value.
+     *
+     * @param name
+     *            the name of the property, not {@code null}
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value, or {@code null} if the string is {@code null}.
+     *
+     * @param value
+     *            the string to write
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            writer.write("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a number value. Infinite and NaN values are written as
+     * {@code null}.
+     *
+     * @param value
+     *            the number to write
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(double value) throws IOException {
+        beforeValue();
+        writeNumber(value);
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value
+     *            the boolean to write
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(boolean value) throws IOException {
+        beforeValue();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a {@code null} value.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter nullValue() throws IOException {
+        beforeValue();
+        writer.write("null");
+        return this;
+    }
+
+    /**
+     * Writes a JSON value along with all its contents. The value is written
+     * the same way as by {@link JsonUtil#stringify(JsonValue)}.
+     *
+     * @param value
+     *            the value to write, {@code null} is written as a JSON null
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(JsonValue value) throws IOException {
+        beforeValue();
+        writeValue(value);
+        return this;
+    }
+
+    private void writeValue(JsonValue value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        switch (value.getType()) {
+        case OBJECT:
+            writeObject((JsonObject) value);
+            break;
+        case ARRAY:
+            writeArray((JsonArray) value);
+            break;
+        case STRING:
+            writeString(value.asString());
+            break;
+        case NUMBER:
+            writeNumber(value.asNumber());
+            break;
+        case BOOLEAN:
+            writer.write(value.asBoolean() ? "true" : "false");
+            break;
+        default:
+            writer.write("null");
+        }
+    }
+
+    private void writeArray(JsonArray array) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < array.length(); i++) {
+            if (i != 0) {
+                writer.write(',');
+            }
+            writeValue(array.get(i));
+        }
+        writer.write(']');
+    }
+
+    private void writeObject(JsonObject object) throws IOException {
+        writer.write('{');
+        boolean firstKey = true;
+        for (String key : getKeysInStringifyOrder(object)) {
+            if (key.isEmpty()) {
+                // JsonUtil.stringify writes the value without the key
+                writeValue(object.get(key));
+            } else if (!"$H".equals(key) && !"__gwt_ObjectId".equals(key)) {
+                if (!firstKey) {
+                    writer.write(',');
+                }
+                writeString(key);
+                writer.write(':');
+                writeValue(object.get(key));
+            } else {
+                // Keys injected by the GWT runtime are skipped
+                continue;
+            }
+            firstKey = false;
+        }
+        writer.write('}');
+    }
+
+    /*
+     * JsonUtil.stringify writes numeric keys in string order before all other
+     * keys.
+     */
+    private static List<String> getKeysInStringifyOrder(JsonObject object) {
+        String[] keys = object.keys();
+        List<String> numericKeys = null;
+        for (String key : keys) {
+            if (isNumeric(key)) {
+                if (numericKeys == null) {
+                    numericKeys = new ArrayList<>();
+                }
+                numericKeys.add(key);
+            }
+        }
+        if (numericKeys == null) {
+            return Arrays.asList(keys);
+        }
+        Collections.sort(numericKeys);
+        for (String key : keys) {
+            if (!isNumeric(key)) {
+                numericKeys.add(key);
+            }
+        }
+        return numericKeys;
+    }
+
+    private static boolean isNumeric(String key) {
+        int length = key.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeNumber(double number) throws IOException {
+        if (Double.isInfinite(number) || Double.isNaN(number)) {
+            writer.write("null");
+        } else if (number == (int) number && Math.abs(number) < 1e7
+                && Double.doubleToRawLongBits(number) != NEGATIVE_ZERO_BITS) {
+            // Same as String.valueOf(double) without the trailing ".0"
+            writer.write(Integer.toString((int) number));
+        } else {
+            String formatted = String.valueOf(number);
+            if (formatted.endsWith(".0")) {
+                writer.write(formatted, 0, formatted.length() - 2);
+            } else {
+                writer.write(formatted);
+            }
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        writer.write('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escaped;
+            switch (c) {
+            case '\b':
+                escaped = "\\b";
+                break;
+            case '\t':
+                escaped = "\\t";
+                break;
+            case '\n':
+                escaped = "\\n";
+                break;
+            case '\f':
+                escaped = "\\f";
+                break;
+            case '\r':
+                escaped = "\\r";
+                break;
+            case '"':
+                escaped = "\\\"";
+                break;
+            case '\\':
+                escaped = "\\\\";
+                break;
+            default:
+                if (!isControlChar(c)) {
+                    continue;
+                }
+                String hex = Integer.toString(c, 16);
+                escaped = "\\u" + "0000".substring(hex.length()) + hex;
+            }
+            if (start < i) {
+                writer.write(value, start, i - start);
+            }
+            writer.write(escaped);
+            start = i + 1;
+        }
+        if (start < length) {
+            writer.write(value, start, length - start);
+        }
+        writer.write('"');
+    }
+
+    /*
+     * The characters escaped as unicode literals by JsonUtil.quote.
+     */
+    private static boolean isControlChar(char c) {
+        return c <= 0x1f || (c >= 0x7f && c <= 0x9f) || c == '\u00ad'
+                || c == '\u070f' || c == '\u17b4' || c == '\u17b5'
+                || c == '\ufeff' || (c >= '\u0600' && c <= '\u0604')
+                || (c >= '\u200c' && c <= '\u200f')
+                || (c >= '\u2028' && c <= '\u202f')
+                || (c >= '\u2060' && c <= '\u206f') || c >= '\ufff0';
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else {
+            separate();
+        }
+    }
+
+    private void separate() throws IOException {
+        if (!first[depth]) {
+            writer.write(',');
+        }
+        first[depth] = false;
+    }
+
+    private void push() {
+        depth++;
+        if (depth == first.length) {
+            first = Arrays.copyOf(first, depth * 2);
+        }
+        first[depth] = true;
+    }
+}
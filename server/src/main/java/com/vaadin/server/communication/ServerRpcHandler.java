@@ -19,6 +19,8 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Serializable;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -30,6 +32,7 @@ import java.util.logging.Logger;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.Constants;
+import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.server.JsonCodec;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
@@ -84,7 +87,21 @@ public class ServerRpcHandler implements Serializable {
         private String widgetsetVersion = null;
 
         public RpcRequest(String jsonString, VaadinRequest request) {
-            json = JsonUtil.parse(jsonString);
+            this(JsonUtil.<JsonObject> parse(jsonString), request);
+        }
+
+        /**
+         * Creates a new RPC request from an already parsed message.
+         *
+         * @param json
+         *            the message received from the client, not
+         *            <code>null</code>
+         * @param request
+         *            the request the message was received in
+         * @since 8.11
+         */
+        public RpcRequest(JsonObject json, VaadinRequest request) {
+            this.json = json;
 
             JsonValue token = json.get(ApplicationConstants.CSRF_TOKEN);
             if (token == null) {
@@ -203,6 +220,12 @@ public class ServerRpcHandler implements Serializable {
 
     private static final int MAX_BUFFER_SIZE = 64 * 1024;
 
+    /**
+     * Whether a ServerRpcHandler class overrides the deprecated
+     * {@link #getMessage(Reader)}.
+     */
+    private static final ClassValue<Boolean> GET_MESSAGE_OVERRIDDEN = new GetMessageOverridden();
+
     /**
      * Reads JSON containing zero or more serialized RPC calls (including legacy
      * variable changes) and executes the calls.
@@ -222,14 +245,64 @@ public class ServerRpcHandler implements Serializable {
             throws IOException, InvalidUIDLSecurityKeyException {
         ui.getSession().setLastRequestTimestamp(System.currentTimeMillis());
 
-        String changeMessage = getMessage(reader);
+        if (GET_MESSAGE_OVERRIDDEN.get(getClass())) {
+            // Keep reading the message the way the subclass expects
+            handleRpc(ui, readMessage(getMessage(reader), request), request);
+        } else {
+            handleRpc(ui, readMessage(reader, request), request);
+        }
+    }
+
+    /**
+     * Reads JSON containing zero or more serialized RPC calls (including legacy
+     * variable changes) and executes the calls.
+     *
+     * @param ui
+     *            The {@link UI} receiving the calls. Cannot be null.
+     * @param changeMessage
+     *            the JSON message containing the calls
+     * @param request
+     * @throws InvalidUIDLSecurityKeyException
+     *             If the received security key does not match the one stored in
+     *             the session.
+     * @since 8.11
+     */
+    public void handleRpc(UI ui, String changeMessage, VaadinRequest request)
+            throws InvalidUIDLSecurityKeyException {
+        ui.getSession().setLastRequestTimestamp(System.currentTimeMillis());
+
+        handleRpc(ui, readMessage(changeMessage, request), request);
+    }
 
-        if (changeMessage == null || changeMessage.isEmpty()) {
+    private JsonValue readMessage(String message, VaadinRequest request) {
+        if (message == null || message.isEmpty()) {
+            return null;
+        }
+        try {
+            return readMessage(new StringReader(message), request);
+        } catch (IOException e) {
+            // StringReader only throws if it has been closed
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private JsonValue readMessage(Reader reader, VaadinRequest request)
+            throws IOException {
+        return new JsonStreamReader(reader, getMaxMessageSize(request))
+                .read();
+    }
+
+    private void handleRpc(UI ui, JsonValue message, VaadinRequest request)
+            throws InvalidUIDLSecurityKeyException {
+        if (message == null) {
             // The client sometimes sends empty messages, this is probably a bug
             return;
         }
+        if (!(message instanceof JsonObject)) {
+            throw new JsonException("RPC message is not a JSON object");
+        }
 
-        RpcRequest rpcRequest = new RpcRequest(changeMessage, request);
+        RpcRequest rpcRequest = new RpcRequest((JsonObject) message, request);
 
         // Security: double cookie submission pattern unless disabled by
         // property
@@ -281,6 +354,41 @@ public class ServerRpcHandler implements Serializable {
 
     }
 
+    /**
+     * Gets the maximum number of characters accepted in a single message from
+     * the client. A longer message is rejected with a {@link JsonException}
+     * without processing any of its invocations. The default implementation
+     * uses the
+     * {@value Constants#SERVLET_PARAMETER_MAX_RPC_MESSAGE_SIZE} parameter and
+     * does not limit the size if it has not been set.
+     *
+     * @param request
+     *            the request the message is received in
+     * @return the maximum message size in characters, or a negative number
+     *         for no limit
+     * @since 8.11
+     */
+    protected long getMaxMessageSize(VaadinRequest request) {
+        DeploymentConfiguration configuration = request.getService()
+                .getDeploymentConfiguration();
+        if (configuration == null) {
+            return -1;
+        }
+        String value = configuration.getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_MAX_RPC_MESSAGE_SIZE, null);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            getLogger().warning("Invalid "
+                    + Constants.SERVLET_PARAMETER_MAX_RPC_MESSAGE_SIZE
+                    + " value " + value + ", not limiting the message size");
+            return -1;
+        }
+    }
+
     /**
      * Checks that the version reported by the client (widgetset) matches that
      * of the server.
@@ -625,6 +733,19 @@ public class ServerRpcHandler implements Serializable {
         owner.changeVariables(source, m);
     }
 
+    /**
+     * Reads the whole message from the given reader.
+     *
+     * @param reader
+     *            the reader to read from
+     * @return the message
+     * @throws IOException
+     *             if reading fails
+     * @deprecated {@link #handleRpc(UI, Reader, VaadinRequest)} parses the
+     *             message while reading it and only calls this method if a
+     *             subclass overrides it
+     */
+    @Deprecated
     protected String getMessage(Reader reader) throws IOException {
 
         StringBuilder sb = new StringBuilder(MAX_BUFFER_SIZE);
@@ -641,6 +762,22 @@ public class ServerRpcHandler implements Serializable {
         return sb.toString();
     }
 
+    private static class GetMessageOverridden extends ClassValue<Boolean> {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type; c != ServerRpcHandler.class; c = c
+                    .getSuperclass()) {
+                try {
+                    c.getDeclaredMethod("getMessage", Reader.class);
+                    return true;
+                } catch (NoSuchMethodException e) {
+                    // Not declared in this class
+                }
+            }
+            return false;
+        }
+    }
+
     private static final Logger getLogger() {
         return Logger.getLogger(ServerRpcHandler.class.getName());
     }
@@ -31,7 +31,6 @@ import com.vaadin.ui.UI;
 import elemental.json.Json;
 import elemental.json.JsonException;
 import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
 
 /**
  * Serializes {@link SharedState shared state} changes to JSON.
@@ -78,7 +77,7 @@ public class SharedStateWriter implements Serializable {
                         e);
             }
         }
-        writer.write(JsonUtil.stringify(sharedStates));
+        new JsonStreamWriter(writer).value(sharedStates);
 
         return writtenConnectors;
     }
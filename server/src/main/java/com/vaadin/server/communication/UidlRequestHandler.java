@@ -19,6 +19,7 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -72,42 +73,73 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
         return ServletPortletHelper.isUIDLRequest(request);
     }
 
+    @Override
+    protected boolean isReadAndWriteOutsideSessionLock() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * At most one character more than the maximum RPC message size is read,
+     * so that longer messages are rejected without buffering them.
+     */
+    @Override
+    protected String readRequestBody(VaadinRequest request)
+            throws IOException {
+        return SynchronizedRequestHandler.getRequestBody(request.getReader(),
+                rpcHandler.getMaxMessageSize(request));
+    }
+
     @Override
     public boolean synchronizedHandleRequest(VaadinSession session,
             VaadinRequest request, VaadinResponse response) throws IOException {
+        String requestBody = readRequestBody(request);
+        Optional<ResponseWriter> responseWriter = synchronizedHandleRequest(
+                session, request, response, requestBody);
+        if (responseWriter.isPresent()) {
+            responseWriter.get().writeResponse();
+        }
+        return responseWriter.isPresent();
+    }
+
+    @Override
+    protected Optional<ResponseWriter> synchronizedHandleRequest(
+            VaadinSession session, VaadinRequest request,
+            VaadinResponse response, String requestBody) throws IOException {
         UI uI = session.getService().findUI(request);
         if (uI == null) {
             // This should not happen but it will if the UI has been closed. We
             // really don't want to see it in the server logs though
-            UIInitHandler.commitJsonResponse(request, response,
-                    getUINotFoundErrorJSON(session.getService(), request));
-            return true;
+            String json = getUINotFoundErrorJSON(session.getService(),
+                    request);
+            return Optional.of(() -> UIInitHandler.commitJsonResponse(request,
+                    response, json));
         }
 
         StringWriter stringWriter = new StringWriter();
 
         try {
-            rpcHandler.handleRpc(uI, request.getReader(), request);
+            rpcHandler.handleRpc(uI, requestBody, request);
 
             writeUidl(request, response, uI, stringWriter);
         } catch (JsonException e) {
             getLogger().log(Level.SEVERE, "Error writing JSON to response", e);
             // Refresh on client side
-            writeRefresh(request, response);
-            return true;
+            return Optional.of(() -> writeRefresh(request, response));
         } catch (InvalidUIDLSecurityKeyException e) {
             getLogger().log(Level.WARNING,
                     "Invalid security key received from {0}",
                     request.getRemoteHost());
             // Refresh on client side
-            writeRefresh(request, response);
-            return true;
+            return Optional.of(() -> writeRefresh(request, response));
         } finally {
             stringWriter.close();
         }
 
-        return UIInitHandler.commitJsonResponse(request, response,
-                stringWriter.toString());
+        String json = stringWriter.toString();
+        return Optional.of(() -> UIInitHandler.commitJsonResponse(request,
+                response, json));
     }
 
     private void writeRefresh(VaadinRequest request, VaadinResponse response)
@@ -23,8 +23,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -102,19 +104,8 @@ public class UidlWriter implements Serializable {
             }
 
             // process parents before children
-            Collections.sort(connectorsToProcess,
-                    Comparator.comparingInt(conn -> {
-                        int depth = 0;
-                        ClientConnector connector = conn;
-                        // this is a very fast operation, even for 100+ levels
-                        while (connector.getParent() != null) {
-                            ++depth;
-                            connector = connector.getParent();
-                        }
-                        return depth;
-                    }));
-
-            for (ClientConnector connector : connectorsToProcess) {
+            for (ClientConnector connector : sortByDepth(
+                    connectorsToProcess)) {
                 // call isDirty() to find out if ConnectorTracker knows the
                 // connector
                 boolean initialized = uiConnectorTracker.isDirty(connector)
@@ -176,20 +167,15 @@ public class UidlWriter implements Serializable {
                     .write(ui, writer);
             writer.write(", "); // close states
 
-            // TODO This should be optimized. The type only needs to be
-            // sent once for each connector id + on refresh. Use the same cache
-            // as
-            // widget mapping
+            // The type is only sent once for each connector id + on refresh
 
             writer.write("\"types\":");
             new ConnectorTypeWriter().write(ui, writer, paintTarget);
             writer.write(", "); // close states
 
-            // Send update hierarchy information to the client.
-
-            // This could be optimized aswell to send only info if hierarchy has
-            // actually changed. Much like with the shared state. Note though
-            // that an empty hierarchy is information aswell (e.g. change from 1
+            // Send update hierarchy information to the client. Only
+            // hierarchies that have actually changed are sent. Note though that
+            // an empty hierarchy is information aswell (e.g. change from 1
             // child to 0 children)
 
             writer.write("\"hierarchy\":");
@@ -326,6 +312,48 @@ public class UidlWriter implements Serializable {
         }
     }
 
+    /**
+     * Sorts the connectors so that parents come before their children, keeping
+     * the order of connectors at the same depth. The depth of each connector
+     * is computed only once, reusing the depths of the parents, and the sort
+     * is a counting sort by depth.
+     */
+    private static ClientConnector[] sortByDepth(
+            List<ClientConnector> connectors) {
+        Map<ClientConnector, Integer> depths = new HashMap<>();
+        int[] connectorDepths = new int[connectors.size()];
+        int maxDepth = 0;
+        for (int i = 0; i < connectorDepths.length; i++) {
+            connectorDepths[i] = getDepth(connectors.get(i), depths);
+            maxDepth = Math.max(maxDepth, connectorDepths[i]);
+        }
+
+        // Start index of each depth in the result
+        int[] starts = new int[maxDepth + 2];
+        for (int depth : connectorDepths) {
+            starts[depth + 1]++;
+        }
+        for (int depth = 1; depth < starts.length; depth++) {
+            starts[depth] += starts[depth - 1];
+        }
+        ClientConnector[] sorted = new ClientConnector[connectorDepths.length];
+        for (int i = 0; i < connectorDepths.length; i++) {
+            sorted[starts[connectorDepths[i]]++] = connectors.get(i);
+        }
+        return sorted;
+    }
+
+    private static int getDepth(ClientConnector connector,
+            Map<ClientConnector, Integer> depths) {
+        Integer depth = depths.get(connector);
+        if (depth == null) {
+            ClientConnector parent = connector.getParent();
+            depth = parent == null ? 0 : getDepth(parent, depths) + 1;
+            depths.put(connector, depth);
+        }
+        return depth;
+    }
+
     private JsonArray toJsonArray(List<Dependency> list) {
         JsonArray result = Json.createArray();
         for (int i = 0; i < list.size(); i++) {
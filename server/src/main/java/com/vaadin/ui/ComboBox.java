@@ -20,6 +20,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -29,6 +30,7 @@ import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 import com.vaadin.data.provider.CallbackDataProvider;
+import com.vaadin.data.provider.CaptionIndexDataProvider;
 import com.vaadin.data.provider.DataChangeEvent;
 import com.vaadin.data.provider.DataCommunicator;
 import com.vaadin.data.provider.DataGenerator;
@@ -54,6 +56,7 @@ import com.vaadin.server.ResourceReference;
 import com.vaadin.server.SerializableBiPredicate;
 import com.vaadin.server.SerializableConsumer;
 import com.vaadin.server.SerializableFunction;
+import com.vaadin.server.SerializablePredicate;
 import com.vaadin.server.SerializableToIntFunction;
 import com.vaadin.shared.Registration;
 import com.vaadin.shared.data.DataCommunicatorConstants;
@@ -245,6 +248,8 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
         // Just ignore when neither setDataProvider nor setItems has been called
     };
 
+    private boolean captionIndexEnabled = false;
+
     /**
      * Constructs an empty combo box without a caption. The content of the combo
      * box can be set with {@link #setDataProvider(DataProvider)} or
@@ -411,6 +416,9 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
      * Filtering will use a case insensitive match to show all items where the
      * filter text is a substring of the caption displayed for that item.
      * <p>
+     * If the caption index is enabled, the matching items are found using a
+     * {@link CaptionIndexDataProvider}.
+     * <p>
      * Note that this is a shorthand that calls
      * {@link #setDataProvider(DataProvider)} with a wrapper of the provided
      * list data provider. This means that {@link #getDataProvider()} will
@@ -421,6 +429,15 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
      * @since 8.0
      */
     public void setDataProvider(ListDataProvider<T> listDataProvider) {
+        if (captionIndexEnabled) {
+            Objects.requireNonNull(listDataProvider,
+                    "List data provider cannot be null");
+            setDataProvider(new CaptionIndexDataProvider<>(listDataProvider,
+                    this::getItemCaptionOfItem, this::getLocale),
+                    SerializableFunction.identity());
+            return;
+        }
+
         // Cannot use the case insensitive contains shorthand from
         // ListDataProvider since it wouldn't react to locale changes
         CaptionFilter defaultCaptionFilter = (itemText, filterText) -> itemText
@@ -469,8 +486,55 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
 
         // Must do getItemCaptionGenerator() for each operation since it might
         // not be the same as when this method was invoked
-        setDataProvider(listDataProvider, filterText -> item -> captionFilter
-                .test(getItemCaptionOfItem(item), filterText));
+        setDataProvider(listDataProvider,
+                filterText -> new CaptionFilterPredicate(captionFilter,
+                        filterText));
+    }
+
+    /**
+     * Filters items by their captions. Predicates created for the same filter
+     * text with the same caption filter, caption generator and locale are
+     * equal, so that a {@link ListDataProvider} can reuse the view it has
+     * cached for the filter text instead of filtering the items again.
+     */
+    private class CaptionFilterPredicate implements SerializablePredicate<T> {
+        private final ComboBox<T> comboBox = ComboBox.this;
+        private final CaptionFilter captionFilter;
+        private final String filterText;
+        private final ItemCaptionGenerator<T> itemCaptionGenerator;
+        private final Locale locale;
+
+        private CaptionFilterPredicate(CaptionFilter captionFilter,
+                String filterText) {
+            this.captionFilter = captionFilter;
+            this.filterText = filterText;
+            itemCaptionGenerator = getItemCaptionGenerator();
+            locale = getLocale();
+        }
+
+        @Override
+        public boolean test(T item) {
+            return captionFilter.test(getItemCaptionOfItem(item), filterText);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ComboBox.CaptionFilterPredicate)) {
+                return false;
+            }
+            CaptionFilterPredicate other = (CaptionFilterPredicate) obj;
+            return other.comboBox == comboBox
+                    && other.captionFilter == captionFilter
+                    && other.itemCaptionGenerator == itemCaptionGenerator
+                    && Objects.equals(other.locale, locale)
+                    && Objects.equals(other.filterText, filterText);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(captionFilter),
+                    filterText, locale);
+        }
     }
 
     // Helper method for the above to make lambda more readable
@@ -713,6 +777,53 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
     public void setItemCaptionGenerator(
             ItemCaptionGenerator<T> itemCaptionGenerator) {
         super.setItemCaptionGenerator(itemCaptionGenerator);
+        if (getDataProvider() instanceof CaptionIndexDataProvider) {
+            ((CaptionIndexDataProvider<T>) getDataProvider()).clearIndex();
+        } else if (getDataProvider() instanceof ListDataProvider) {
+            // Recreate the caption filter so that a cached view of the items
+            // filtered by the old captions is not reused
+            filterSlot.accept(getState(false).currentFilterText);
+        }
+    }
+
+    /**
+     * Sets whether filtering items set using {@link #setItems(Collection)} or
+     * {@link #setDataProvider(ListDataProvider)} should use an index of the
+     * item captions. With the index, the time needed for finding the items
+     * matching the filter text does not grow with the number of items in the
+     * same way as when each item caption is checked separately. The index is
+     * built when the items are filtered for the first time, and rebuilt after
+     * the data provider has been refreshed, so it is mostly useful for large
+     * sets of items that do not change often.
+     * <p>
+     * This setting only affects items or list data providers set after this
+     * method has been called. Custom {@link CaptionFilter}s are never indexed.
+     * The caption index is disabled by default.
+     *
+     * @see CaptionIndexDataProvider
+     *
+     * @param captionIndexEnabled
+     *            <code>true</code> to use a caption index, <code>false</code>
+     *            to check each item caption separately
+     * @since 8.11
+     */
+    public void setCaptionIndexEnabled(boolean captionIndexEnabled) {
+        this.captionIndexEnabled = captionIndexEnabled;
+    }
+
+    /**
+     * Gets whether filtering items set using {@link #setItems(Collection)} or
+     * {@link #setDataProvider(ListDataProvider)} uses an index of the item
+     * captions.
+     *
+     * @see #setCaptionIndexEnabled(boolean)
+     *
+     * @return <code>true</code> if a caption index is used, otherwise
+     *         <code>false</code>
+     * @since 8.11
+     */
+    public boolean isCaptionIndexEnabled() {
+        return captionIndexEnabled;
     }
 
     /**
@@ -976,7 +1087,8 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
         // dropdown
         // is opened. Only done for in-memory data providers for performance
         // reasons.
-        if (dataProvider instanceof InMemoryDataProvider) {
+        if (dataProvider instanceof InMemoryDataProvider
+                || dataProvider instanceof CaptionIndexDataProvider) {
             dataProvider.addDataProviderListener(event -> {
                 if ((!(event instanceof DataChangeEvent.DataRefreshEvent))
                         && (getPageLength() == 0)) {
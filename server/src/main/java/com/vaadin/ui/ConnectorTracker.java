@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -46,8 +47,9 @@ import com.vaadin.server.communication.ConnectorHierarchyWriter;
 import com.vaadin.shared.Registration;
 
 import elemental.json.Json;
-import elemental.json.JsonException;
+import elemental.json.JsonArray;
 import elemental.json.JsonObject;
+import elemental.json.JsonValue;
 
 /**
  * A class which takes care of book keeping of {@link ClientConnector}s for a
@@ -80,6 +82,23 @@ public class ConnectorTracker implements Serializable {
     private static final boolean fineLogging = getLogger()
             .isLoggable(Level.FINE);
 
+    /* Type tags of the binary form of diff states used in serialization */
+    private static final byte JSON_NULL = 0;
+    private static final byte JSON_FALSE = 1;
+    private static final byte JSON_TRUE = 2;
+    private static final byte JSON_INT = 3;
+    private static final byte JSON_DOUBLE = 4;
+    private static final byte JSON_SHORT_STRING = 5;
+    private static final byte JSON_LONG_STRING = 6;
+    private static final byte JSON_ARRAY = 7;
+    private static final byte JSON_OBJECT = 8;
+
+    /*
+     * writeUTF uses at most three bytes per char and is limited to 65535
+     * bytes
+     */
+    private static final int MAX_SHORT_STRING_LENGTH = 65535 / 3;
+
     private final Map<String, ClientConnector> connectorIdToConnector = new HashMap<>();
     private final Set<ClientConnector> dirtyConnectors = new HashSet<>();
     private final Set<ClientConnector> uninitializedConnectors = new HashSet<>();
@@ -98,6 +117,25 @@ public class ConnectorTracker implements Serializable {
 
     private final UI uI;
     private transient Map<ClientConnector, JsonObject> diffStates = new HashMap<>();
+    /**
+     * The states of connectors as last sent to the client, stored as the
+     * values that differ from a reference state shared by all connectors with
+     * the same state type. A connector has a state in at most one of this map
+     * and {@link #diffStates}.
+     */
+    private transient Map<ClientConnector, CompactDiffState> compactDiffStates = new HashMap<>();
+    /**
+     * The ids of the visible children of connectors as last known by the
+     * client.
+     */
+    private transient Map<ClientConnector, List<String>> sentHierarchies = new HashMap<>();
+    /**
+     * The visibility to the client of the connectors checked while writing
+     * the current response, or <code>null</code> if no response is being
+     * written. The hierarchy and visibility cannot change while writing a
+     * response, so each connector only needs to be checked once.
+     */
+    private transient Map<ClientConnector, Boolean> responseVisibility;
 
     /** Maps connectorIds to a map of named StreamVariables */
     private Map<String, Map<String, StreamVariable>> pidToNameToStreamVariable;
@@ -253,6 +291,8 @@ public class ConnectorTracker implements Serializable {
     public void markAllClientSidesUninitialized() {
         uninitializedConnectors.addAll(connectorIdToConnector.values());
         diffStates.clear();
+        compactDiffStates.clear();
+        sentHierarchies.clear();
     }
 
     /**
@@ -317,6 +357,7 @@ public class ConnectorTracker implements Serializable {
                 .iterator();
         GlobalResourceHandler globalResourceHandler = uI.getSession()
                 .getGlobalResourceHandler(false);
+        Map<ClientConnector, Boolean> visibility = new HashMap<>();
         while (iterator.hasNext()) {
             ClientConnector connector = iterator.next();
             assert connector != null;
@@ -335,16 +376,19 @@ public class ConnectorTracker implements Serializable {
                 }
                 uninitializedConnectors.remove(connector);
                 diffStates.remove(connector);
+                compactDiffStates.remove(connector);
+                sentHierarchies.remove(connector);
                 iterator.remove();
             } else if (!uninitializedConnectors.contains(connector)
-                    && !LegacyCommunicationManager
-                            .isConnectorVisibleToClient(connector)) {
+                    && !isVisibleToClient(connector, visibility)) {
                 // Connector was visible to the client but is no longer (e.g.
                 // setVisible(false) has been called or SelectiveRenderer tells
                 // it's no longer shown) -> make sure that the full state is
                 // sent again when/if made visible
                 uninitializedConnectors.add(connector);
                 diffStates.remove(connector);
+                compactDiffStates.remove(connector);
+                sentHierarchies.remove(connector);
                 assert isRemovalSentToClient(connector) : "Connector "
                         + connector + " (id = " + connector.getConnectorId()
                         + ") is no longer visible to the client, but no corresponding hierarchy change was sent.";
@@ -469,6 +513,8 @@ public class ConnectorTracker implements Serializable {
         }
         uninitializedConnectors.remove(connector);
         diffStates.remove(connector);
+        compactDiffStates.remove(connector);
+        sentHierarchies.remove(connector);
     }
 
     /**
@@ -672,22 +718,177 @@ public class ConnectorTracker implements Serializable {
         Collection<ClientConnector> dirtyConnectors = getDirtyConnectors();
         ArrayList<ClientConnector> dirtyVisibleConnectors = new ArrayList<>(
                 dirtyConnectors.size());
+        // Dirty connectors often share ancestors, check each only once
+        Map<ClientConnector, Boolean> visibility = responseVisibility != null
+                ? responseVisibility
+                : new HashMap<>();
         for (ClientConnector c : dirtyConnectors) {
-            if (LegacyCommunicationManager.isConnectorVisibleToClient(c)) {
+            if (isVisibleToClient(c, visibility)) {
                 dirtyVisibleConnectors.add(c);
             }
         }
         return dirtyVisibleConnectors;
     }
 
+    /**
+     * Checks if the connector is visible to the client, in the same way as
+     * {@link LegacyCommunicationManager#isConnectorVisibleToClient(ClientConnector)}.
+     * While a response is being written, the result for each connector and its
+     * ancestors is cached until the response has been written.
+     *
+     * @see #isWritingResponse()
+     * @param connector
+     *            the connector to check
+     * @return <code>true</code> if the connector is visible to the client,
+     *         <code>false</code> otherwise
+     * @since 8.11
+     */
+    public boolean isConnectorVisibleToClient(ClientConnector connector) {
+        if (responseVisibility == null) {
+            return LegacyCommunicationManager
+                    .isConnectorVisibleToClient(connector);
+        }
+        return isVisibleToClient(connector, responseVisibility);
+    }
+
+    /**
+     * Same as
+     * {@link LegacyCommunicationManager#isConnectorVisibleToClient(ClientConnector)}
+     * and {@link LegacyCommunicationManager#isComponentVisibleToClient(Component)},
+     * but using and updating the given known visibilities so that no
+     * ancestor is checked twice.
+     */
+    private static boolean isVisibleToClient(ClientConnector connector,
+            Map<ClientConnector, Boolean> visibility) {
+        Boolean cached = visibility.get(connector);
+        if (cached != null) {
+            return cached;
+        }
+
+        boolean visible;
+        ClientConnector parent = connector.getParent();
+        if (connector instanceof Component) {
+            Component component = (Component) connector;
+            if (!component.isVisible()) {
+                visible = false;
+            } else if (parent instanceof SelectiveRenderer
+                    && !((SelectiveRenderer) parent).isRendered(component)) {
+                visible = false;
+            } else if (parent != null) {
+                visible = isVisibleToClient(parent, visibility);
+            } else {
+                // Only the UI is visible without a parent
+                visible = component instanceof UI;
+            }
+        } else {
+            visible = parent != null && isVisibleToClient(parent, visibility);
+        }
+        visibility.put(connector, visible);
+        return visible;
+    }
+
     public JsonObject getDiffState(ClientConnector connector) {
         assert getConnector(connector.getConnectorId()) == connector;
-        return diffStates.get(connector);
+        JsonObject diffState = diffStates.get(connector);
+        if (diffState == null) {
+            CompactDiffState compactDiffState = compactDiffStates
+                    .remove(connector);
+            if (compactDiffState != null) {
+                // The caller may modify the full state
+                diffState = compactDiffState.expand();
+                diffStates.put(connector, diffState);
+            }
+        }
+        return diffState;
     }
 
     public void setDiffState(ClientConnector connector, JsonObject diffState) {
         assert getConnector(connector.getConnectorId()) == connector;
         diffStates.put(connector, diffState);
+        compactDiffStates.remove(connector);
+    }
+
+    /**
+     * Gets the state of the given connector as last sent to the client, if it
+     * is stored as the values that differ from the given reference state.
+     *
+     * @see #setCompactDiffState(ClientConnector, JsonObject, JsonObject)
+     * @param connector
+     *            the connector to get the state for
+     * @param referenceState
+     *            the reference state the state should be stored against
+     * @return the values that differ from the reference state, or
+     *         <code>null</code> if there is no state stored against the
+     *         reference state for the connector
+     * @since 8.11
+     */
+    public JsonObject getCompactDiffState(ClientConnector connector,
+            JsonObject referenceState) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        CompactDiffState compactDiffState = compactDiffStates.get(connector);
+        if (compactDiffState != null
+                && compactDiffState.reference == referenceState) {
+            return compactDiffState.values;
+        }
+        return null;
+    }
+
+    /**
+     * Sets the state of the given connector as last sent to the client, as
+     * the values that differ from a reference state. Properties not included
+     * in the state are taken to have the value they have in the reference
+     * state. This uses less memory than
+     * {@link #setDiffState(ClientConnector, JsonObject)} when most of the
+     * properties have their default values.
+     * <p>
+     * The reference state is typically shared by all connectors with the same
+     * state type and must not be modified.
+     * {@link #getDiffState(ClientConnector)} returns a full copy of the state
+     * that includes the values from the reference state.
+     *
+     * @param connector
+     *            the connector to set the state for
+     * @param diffState
+     *            the values that differ from the reference state
+     * @param referenceState
+     *            the reference state, not <code>null</code>
+     * @since 8.11
+     */
+    public void setCompactDiffState(ClientConnector connector,
+            JsonObject diffState, JsonObject referenceState) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        compactDiffStates.put(connector,
+                new CompactDiffState(referenceState, diffState));
+        diffStates.remove(connector);
+    }
+
+    /**
+     * Gets the ids of the visible children of the given connector as they were
+     * last sent to the client.
+     *
+     * @param connector
+     *            the connector to get the hierarchy for
+     * @return the list of child connector ids, or {@code null} if the
+     *         hierarchy of the connector is not known to have been sent
+     * @since 8.11
+     */
+    public List<String> getSentHierarchy(ClientConnector connector) {
+        return sentHierarchies.get(connector);
+    }
+
+    /**
+     * Sets the ids of the visible children of the given connector that are
+     * known by the client after the current response.
+     *
+     * @param connector
+     *            the connector to set the hierarchy for
+     * @param childIds
+     *            the list of child connector ids
+     * @since 8.11
+     */
+    public void setSentHierarchy(ClientConnector connector,
+            List<String> childIds) {
+        sentHierarchies.put(connector, childIds);
     }
 
     public boolean isDirty(ClientConnector connector) {
@@ -745,19 +946,41 @@ public class ConnectorTracker implements Serializable {
             currentSyncId++;
         }
         this.writingResponse = writingResponse;
+        responseVisibility = writingResponse ? new HashMap<>() : null;
     }
 
     /* Special serialization to JsonObjects which are not serializable */
     private void writeObject(ObjectOutputStream out) throws IOException {
         out.defaultWriteObject();
-        // Convert JsonObjects in diff state to String representation as
-        // JsonObject is not serializable
-        Map<ClientConnector, String> stringDiffStates = new HashMap<>(
-                diffStates.size() * 2);
-        for (ClientConnector key : diffStates.keySet()) {
-            stringDiffStates.put(key, diffStates.get(key).toString());
+        // Write the diff states directly in a binary form instead of as JSON
+        // strings that would have to be generated and parsed again
+        out.writeInt(diffStates.size());
+        for (Map.Entry<ClientConnector, JsonObject> entry : diffStates
+                .entrySet()) {
+            out.writeObject(entry.getKey());
+            writeJson(out, entry.getValue());
+        }
+
+        // Each shared reference state is written once
+        Map<JsonObject, Integer> references = new IdentityHashMap<>();
+        for (CompactDiffState compactDiffState : compactDiffStates.values()) {
+            references.putIfAbsent(compactDiffState.reference,
+                    references.size());
+        }
+        JsonObject[] referenceArray = new JsonObject[references.size()];
+        references.forEach(
+                (reference, index) -> referenceArray[index] = reference);
+        out.writeInt(referenceArray.length);
+        for (JsonObject reference : referenceArray) {
+            writeJson(out, reference);
+        }
+        out.writeInt(compactDiffStates.size());
+        for (Map.Entry<ClientConnector, CompactDiffState> entry : compactDiffStates
+                .entrySet()) {
+            out.writeObject(entry.getKey());
+            out.writeInt(references.get(entry.getValue().reference));
+            writeJson(out, entry.getValue().values);
         }
-        out.writeObject(stringDiffStates);
     }
 
     /* Special serialization to JsonObjects which are not serializable */
@@ -765,21 +988,122 @@ public class ConnectorTracker implements Serializable {
             throws IOException, ClassNotFoundException {
         in.defaultReadObject();
 
-        // Read String versions of JsonObjects and parse into JsonObjects as
-        // JsonObject is not serializable
-        diffStates = new HashMap<>();
-        @SuppressWarnings("unchecked")
-        Map<ClientConnector, String> stringDiffStates = (HashMap<ClientConnector, String>) in
-                .readObject();
-        diffStates = new HashMap<>(stringDiffStates.size() * 2);
-        for (ClientConnector key : stringDiffStates.keySet()) {
-            try {
-                diffStates.put(key, Json.parse(stringDiffStates.get(key)));
-            } catch (JsonException e) {
-                throw new IOException(e);
+        // Hierarchies are sent again after deserialization
+        sentHierarchies = new HashMap<>();
+
+        int size = in.readInt();
+        diffStates = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            ClientConnector connector = (ClientConnector) in.readObject();
+            diffStates.put(connector, (JsonObject) readJson(in));
+        }
+
+        JsonObject[] references = new JsonObject[in.readInt()];
+        for (int i = 0; i < references.length; i++) {
+            references[i] = (JsonObject) readJson(in);
+        }
+        size = in.readInt();
+        compactDiffStates = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            ClientConnector connector = (ClientConnector) in.readObject();
+            JsonObject reference = references[in.readInt()];
+            compactDiffStates.put(connector,
+                    new CompactDiffState(reference, (JsonObject) readJson(in)));
+        }
+    }
+
+    private static void writeJson(ObjectOutputStream out, JsonValue value)
+            throws IOException {
+        switch (value.getType()) {
+        case NULL:
+            out.writeByte(JSON_NULL);
+            break;
+        case BOOLEAN:
+            out.writeByte(value.asBoolean() ? JSON_TRUE : JSON_FALSE);
+            break;
+        case NUMBER:
+            double number = value.asNumber();
+            int intValue = (int) number;
+            if (intValue == number && (intValue != 0
+                    || Double.doubleToRawLongBits(number) == 0L)) {
+                out.writeByte(JSON_INT);
+                out.writeInt(intValue);
+            } else {
+                out.writeByte(JSON_DOUBLE);
+                out.writeDouble(number);
             }
+            break;
+        case STRING:
+            String string = value.asString();
+            if (string.length() <= MAX_SHORT_STRING_LENGTH) {
+                out.writeByte(JSON_SHORT_STRING);
+                out.writeUTF(string);
+            } else {
+                out.writeByte(JSON_LONG_STRING);
+                out.writeObject(string);
+            }
+            break;
+        case ARRAY:
+            JsonArray array = (JsonArray) value;
+            out.writeByte(JSON_ARRAY);
+            out.writeInt(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                writeJson(out, array.get(i));
+            }
+            break;
+        case OBJECT:
+            JsonObject object = (JsonObject) value;
+            String[] keys = object.keys();
+            out.writeByte(JSON_OBJECT);
+            out.writeInt(keys.length);
+            for (String key : keys) {
+                // The same key instances are used in most states, so they
+                // are only written once per stream
+                out.writeObject(key);
+                writeJson(out, object.get(key));
+            }
+            break;
+        default:
+            throw new IOException("Unsupported JSON type " + value.getType());
         }
+    }
 
+    private static JsonValue readJson(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        byte type = in.readByte();
+        switch (type) {
+        case JSON_NULL:
+            return Json.createNull();
+        case JSON_FALSE:
+            return Json.create(false);
+        case JSON_TRUE:
+            return Json.create(true);
+        case JSON_INT:
+            return Json.create(in.readInt());
+        case JSON_DOUBLE:
+            return Json.create(in.readDouble());
+        case JSON_SHORT_STRING:
+            return Json.create(in.readUTF());
+        case JSON_LONG_STRING:
+            return Json.create((String) in.readObject());
+        case JSON_ARRAY:
+            int length = in.readInt();
+            JsonArray array = Json.createArray();
+            for (int i = 0; i < length; i++) {
+                array.set(i, readJson(in));
+            }
+            return array;
+        case JSON_OBJECT:
+            int size = in.readInt();
+            JsonObject object = Json.createObject();
+            for (int i = 0; i < size; i++) {
+                String key = (String) in.readObject();
+                object.put(key, readJson(in));
+            }
+            return object;
+        default:
+            throw new IOException("Invalid JSON type " + type);
+        }
     }
 
     /**
@@ -952,4 +1276,54 @@ public class ConnectorTracker implements Serializable {
         });
     }
 
+    /**
+     * The state of a connector as last sent to the client, stored as the
+     * values that differ from a reference state.
+     */
+    private static class CompactDiffState implements Serializable {
+        private final JsonObject reference;
+        private final JsonObject values;
+
+        private CompactDiffState(JsonObject reference, JsonObject values) {
+            this.reference = reference;
+            this.values = values;
+        }
+
+        private JsonObject expand() {
+            JsonObject state = Json.createObject();
+            for (String key : reference.keys()) {
+                if (!values.hasKey(key)) {
+                    // The reference state is shared and must not be modified
+                    state.put(key, copy(reference.get(key)));
+                }
+            }
+            for (String key : values.keys()) {
+                JsonValue value = values.get(key);
+                state.put(key, value);
+            }
+            return state;
+        }
+
+        private static JsonValue copy(JsonValue value) {
+            switch (value.getType()) {
+            case ARRAY:
+                JsonArray array = (JsonArray) value;
+                JsonArray arrayCopy = Json.createArray();
+                for (int i = 0; i < array.length(); i++) {
+                    arrayCopy.set(i, copy(array.get(i)));
+                }
+                return arrayCopy;
+            case OBJECT:
+                JsonObject object = (JsonObject) value;
+                JsonObject objectCopy = Json.createObject();
+                for (String key : object.keys()) {
+                    objectCopy.put(key, copy(object.get(key)));
+                }
+                return objectCopy;
+            default:
+                // Other values are immutable
+                return value;
+            }
+        }
+    }
 }
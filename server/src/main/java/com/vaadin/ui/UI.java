@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -1569,7 +1570,51 @@ public abstract class UI extends AbstractSingleComponentContainer
             throw new UIDetachedException();
         }
 
-        return session.access(new ErrorHandlingRunnable() {
+        return session.access(createAccessTask(session, runnable));
+    }
+
+    /**
+     * Provides exclusive access to this UI from outside a request handling
+     * thread, replacing any pending task submitted for this UI with the same
+     * key. This works like {@link #access(Runnable)}, but if a task submitted
+     * with an equal coalescing key is still waiting to be run, that task is
+     * cancelled and the new task takes its place. This is useful e.g. for
+     * updates from a background thread where only the latest value matters.
+     * <p>
+     * Coalescing keys are scoped to this UI.
+     *
+     * @see #access(Runnable)
+     * @see VaadinSession#access(Object, Runnable)
+     *
+     * @since 8.11
+     *
+     * @param coalescingKey
+     *            the key identifying the task, not <code>null</code>
+     * @param runnable
+     *            the runnable which accesses the UI
+     * @throws UIDetachedException
+     *             if the UI is not attached to a session (and locking can
+     *             therefore not be done)
+     * @return a future that can be used to check for task completion and to
+     *         cancel the task
+     */
+    public Future<Void> access(Object coalescingKey, Runnable runnable) {
+        if (coalescingKey == null) {
+            throw new IllegalArgumentException("coalescingKey cannot be null");
+        }
+        VaadinSession session = getSession();
+
+        if (session == null) {
+            throw new UIDetachedException();
+        }
+
+        return session.access(Arrays.asList(this, coalescingKey),
+                createAccessTask(session, runnable));
+    }
+
+    private ErrorHandlingRunnable createAccessTask(VaadinSession session,
+            Runnable runnable) {
+        return new ErrorHandlingRunnable() {
             @Override
             public void run() {
                 accessSynchronously(runnable);
@@ -1627,7 +1672,7 @@ public abstract class UI extends AbstractSingleComponentContainer
                     getLogger().log(Level.SEVERE, e.getMessage(), e);
                 }
             }
-        });
+        };
     }
 
     /**
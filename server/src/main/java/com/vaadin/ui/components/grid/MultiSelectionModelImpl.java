@@ -15,12 +15,17 @@
  */
 package com.vaadin.ui.components.grid;
 
+import java.io.Serializable;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -94,6 +99,14 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
 
     private List<T> selection = new ArrayList<>();
 
+    /*
+     * The deselected items by id when all items have been selected in the
+     * virtual select all mode, null when not all items are selected that way.
+     */
+    private Map<Object, T> allSelectedExceptions;
+
+    private boolean virtualSelectAll = false;
+
     private SelectAllCheckBoxVisibility selectAllCheckBoxVisibility = SelectAllCheckBoxVisibility.DEFAULT;
 
     @Override
@@ -131,6 +144,58 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
         return getState(false).selectAllCheckBoxVisible;
     }
 
+    /**
+     * Sets whether selecting all items should keep the selection as all items
+     * except the ones deselected after that, instead of fetching all items
+     * from the data provider.
+     * <p>
+     * When enabled, {@link #selectAll()} and the select all checkbox do not
+     * fetch any items. {@link #getSelectedItems()} returns a set that fetches
+     * the items matching the current filter of the data provider when it is
+     * iterated, and the selection events carry the added and removed items
+     * in the same form. The size of that set is queried from the data provider
+     * as long as no item has been deselected, but once items have been
+     * deselected, it can only be found out by fetching all items, since the
+     * deselected items may no longer be in the data provider. Use
+     * {@link MultiSelectionEvent#isAllSelected()} and
+     * {@link MultiSelectionEvent#getDeselectedItems()} to find out what is
+     * selected without fetching the items. The select all checkbox is also
+     * visible by default for
+     * lazy data providers, since selecting all no longer loads all rows into
+     * memory.
+     * <p>
+     * While all items are selected this way, any item that has not been
+     * deselected is considered selected, including items that do not match
+     * the current filter.
+     * <p>
+     * The default value is {@code false}. Changing the value only affects how
+     * all items are selected the next time.
+     *
+     * @param virtualSelectAll
+     *            {@code true} to select all items without fetching them,
+     *            {@code false} to fetch all items when selecting all
+     * @since 8.11
+     */
+    public void setVirtualSelectAll(boolean virtualSelectAll) {
+        if (this.virtualSelectAll != virtualSelectAll) {
+            this.virtualSelectAll = virtualSelectAll;
+            markAsDirty();
+        }
+    }
+
+    /**
+     * Gets whether selecting all items keeps the selection as all items except
+     * the deselected ones, without fetching the items.
+     *
+     * @return {@code true} if all items are selected without fetching them,
+     *         {@code false} otherwise
+     * @see #setVirtualSelectAll(boolean)
+     * @since 8.11
+     */
+    public boolean isVirtualSelectAll() {
+        return virtualSelectAll;
+    }
+
     /**
      * Returns whether all items are selected or not.
      * <p>
@@ -157,6 +222,9 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
      * @return {@code true} if id is selected, {@code false} if not
      */
     protected boolean selectionContainsId(Object id) {
+        if (allSelectedExceptions != null) {
+            return !allSelectedExceptions.containsKey(id);
+        }
         DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
         return selection.stream().map(dataProvider::getId)
                 .anyMatch(i -> id.equals(i));
@@ -186,8 +254,8 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             getState(false).selectAllCheckBoxVisible = false;
             break;
         case DEFAULT:
-            getState(false).selectAllCheckBoxVisible = getGrid()
-                    .getDataProvider().isInMemory();
+            getState(false).selectAllCheckBoxVisible = virtualSelectAll
+                    || getGrid().getDataProvider().isInMemory();
             break;
         default:
             break;
@@ -203,6 +271,10 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
 
     @Override
     public Set<T> getSelectedItems() {
+        if (allSelectedExceptions != null) {
+            return new AllSelectedItems(
+                    new LinkedHashMap<>(allSelectedExceptions));
+        }
         return Collections.unmodifiableSet(new LinkedHashSet<>(selection));
     }
 
@@ -236,6 +308,10 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
                 Set<T> copy = value.stream().map(Objects::requireNonNull)
                         .collect(Collectors.toCollection(LinkedHashSet::new));
 
+                if (allSelectedExceptions != null) {
+                    replaceAllSelected(copy);
+                    return;
+                }
                 updateSelection(copy, new LinkedHashSet<>(getSelectedItems()));
             }
 
@@ -314,18 +390,92 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             getState().allSelected = true;
         }
 
-        Stream<T> allItemsStream;
-        DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
+        if (virtualSelectAll) {
+            selectAllVirtually(userOriginated);
+            return;
+        }
+
         // this will fetch everything from backend
+        LinkedHashSet<T> allItems = new LinkedHashSet<>();
+        fetchAllItems(getGrid().getDataProvider()).forEach(allItems::add);
+        updateSelection(allItems, Collections.emptySet(), userOriginated);
+    }
+
+    /**
+     * Selects all items without fetching them by only keeping track of the
+     * items deselected after this.
+     */
+    private void selectAllVirtually(boolean userOriginated) {
+        verifyUserSelectionAllowed(userOriginated);
+        verifyAttached();
+
+        Set<T> addedItems;
+        if (allSelectedExceptions == null) {
+            // Everything that was not selected before
+            addedItems = new AllSelectedItems(toIdMap(selection));
+        } else if (allSelectedExceptions.isEmpty()) {
+            return;
+        } else {
+            addedItems = new LinkedHashSet<>(allSelectedExceptions.values());
+        }
+
+        Set<T> oldSelection = getSelectedItems();
+        selection.clear();
+        allSelectedExceptions = new LinkedHashMap<>();
+        getGrid().getDataCommunicator().reset();
+
+        fireEvent(new MultiSelectionEvent<>(getGrid(), asMultiSelect(),
+                oldSelection, addedItems, Collections.emptySet(),
+                Collections.emptySet(), userOriginated));
+    }
+
+    /**
+     * Replaces the selection of all items except the deselected ones with the
+     * given items without fetching all items.
+     */
+    private void replaceAllSelected(Set<T> items) {
+        verifyAttached();
+
+        DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
+        Set<T> oldSelection = getSelectedItems();
+        Set<T> addedItems = items.stream()
+                .filter(item -> allSelectedExceptions
+                        .containsKey(dataProvider.getId(item)))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Object, T> notRemoved = new LinkedHashMap<>(allSelectedExceptions);
+        notRemoved.putAll(toIdMap(items));
+
+        allSelectedExceptions = null;
+        selection = new ArrayList<>(items);
+        getState().allSelected = false;
+        getGrid().getDataCommunicator().reset();
+
+        fireEvent(new MultiSelectionEvent<>(getGrid(), asMultiSelect(),
+                oldSelection, addedItems, new AllSelectedItems(notRemoved),
+                null, false));
+    }
+
+    private Map<Object, T> toIdMap(Collection<T> items) {
+        DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
+        Map<Object, T> map = new LinkedHashMap<>();
+        items.forEach(item -> map.put(dataProvider.getId(item), item));
+        return map;
+    }
+
+    /**
+     * Fetch all items from the given data provider, including all descendants
+     * for a hierarchical data provider.
+     *
+     * @param dataProvider
+     *            the data provider to fetch from
+     * @return all items in the data provider
+     */
+    private Stream<T> fetchAllItems(DataProvider<T, ?> dataProvider) {
         if (dataProvider instanceof HierarchicalDataProvider) {
-            allItemsStream = fetchAllHierarchical(
+            return fetchAllHierarchical(
                     (HierarchicalDataProvider<T, ?>) dataProvider);
-        } else {
-            allItemsStream = fetchAll(dataProvider);
         }
-        LinkedHashSet<T> allItems = new LinkedHashSet<>();
-        allItemsStream.forEach(allItems::add);
-        updateSelection(allItems, Collections.emptySet(), userOriginated);
+        return fetchAll(dataProvider);
     }
 
     /**
@@ -394,6 +544,20 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             getState().allSelected = false;
         }
 
+        if (allSelectedExceptions != null) {
+            verifyUserSelectionAllowed(userOriginated);
+            verifyAttached();
+
+            Set<T> oldSelection = getSelectedItems();
+            allSelectedExceptions = null;
+            getGrid().getDataCommunicator().reset();
+
+            fireEvent(new MultiSelectionEvent<>(getGrid(), asMultiSelect(),
+                    oldSelection, Collections.emptySet(), oldSelection, null,
+                    userOriginated));
+            return;
+        }
+
         updateSelection(Collections.emptySet(), new LinkedHashSet<>(selection),
                 userOriginated);
     }
@@ -424,10 +588,7 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
         Objects.requireNonNull(addedItems);
         Objects.requireNonNull(removedItems);
 
-        if (userOriginated && !isUserSelectionAllowed()) {
-            throw new IllegalStateException("Client tried to update selection"
-                    + " although user selection is disallowed");
-        }
+        verifyUserSelectionAllowed(userOriginated);
 
         DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
 
@@ -452,6 +613,12 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             getState().allSelected = false;
         }
 
+        if (allSelectedExceptions != null) {
+            updateAllSelectedExceptions(addedItems, removedItems,
+                    userOriginated);
+            return;
+        }
+
         doUpdateSelection(set -> {
             // order of add / remove does not matter since no duplicates
             Set<Object> removedItemIds = removedItems.stream()
@@ -470,12 +637,54 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
         }, userOriginated);
     }
 
-    private void doUpdateSelection(Consumer<Collection<T>> handler,
-            boolean userOriginated) {
+    private void updateAllSelectedExceptions(Set<T> addedItems,
+            Set<T> removedItems, boolean userOriginated) {
+        verifyAttached();
+
+        DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
+        // Only report the items that actually change
+        Set<T> added = addedItems.stream()
+                .filter(item -> allSelectedExceptions
+                        .containsKey(dataProvider.getId(item)))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<T> removed = removedItems.stream()
+                .filter(item -> !allSelectedExceptions
+                        .containsKey(dataProvider.getId(item)))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Set<T> oldSelection = getSelectedItems();
+        added.forEach(
+                item -> allSelectedExceptions.remove(dataProvider.getId(item)));
+        removed.forEach(item -> allSelectedExceptions
+                .put(dataProvider.getId(item), item));
+
+        DataCommunicator<T> dataCommunicator = getGrid().getDataCommunicator();
+        added.forEach(dataCommunicator::refresh);
+        removed.forEach(dataCommunicator::refresh);
+
+        fireEvent(new MultiSelectionEvent<>(getGrid(), asMultiSelect(),
+                oldSelection, added, removed,
+                new LinkedHashSet<>(allSelectedExceptions.values()),
+                userOriginated));
+    }
+
+    private void verifyUserSelectionAllowed(boolean userOriginated) {
+        if (userOriginated && !isUserSelectionAllowed()) {
+            throw new IllegalStateException("Client tried to update selection"
+                    + " although user selection is disallowed");
+        }
+    }
+
+    private void verifyAttached() {
         if (getParent() == null) {
             throw new IllegalStateException(
                     "Trying to update selection for grid selection model that has been detached from the grid.");
         }
+    }
+
+    private void doUpdateSelection(Consumer<Collection<T>> handler,
+            boolean userOriginated) {
+        verifyAttached();
 
         LinkedHashSet<T> oldSelection = new LinkedHashSet<>(selection);
         handler.accept(selection);
@@ -488,6 +697,10 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
     public void refreshData(T item) {
         DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
         Object refreshId = dataProvider.getId(item);
+        if (allSelectedExceptions != null) {
+            allSelectedExceptions.replace(refreshId, item);
+            return;
+        }
         for (int i = 0; i < selection.size(); ++i) {
             if (dataProvider.getId(selection.get(i)).equals(refreshId)) {
                 selection.set(i, item);
@@ -495,4 +708,128 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             }
         }
     }
+
+    /**
+     * The items of the data provider that match its current filter, except the
+     * given ones. The items are fetched from the data provider whenever the
+     * set is iterated, while {@link #contains(Object)} only checks the
+     * exceptions. The size is also counted by fetching the items if there are
+     * exceptions, since a data provider cannot tell which of them it still
+     * contains. Emptiness is checked by fetching at most one item more than
+     * there are exceptions, and the hash code only depends on the data
+     * provider and the exceptions, so that comparing the selection to an
+     * empty value never fetches all the items.
+     */
+    private class AllSelectedItems extends AbstractSet<T>
+            implements Serializable {
+        private final DataProvider<T, ?> dataProvider = getGrid()
+                .getDataProvider();
+        private final Map<Object, T> exceptions;
+
+        private AllSelectedItems(Map<Object, T> exceptions) {
+            this.exceptions = exceptions;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return stream().iterator();
+        }
+
+        @Override
+        public Stream<T> stream() {
+            return fetchAllItems(dataProvider).filter(
+                    item -> !exceptions.containsKey(dataProvider.getId(item)));
+        }
+
+        @Override
+        public int size() {
+            if (exceptions.isEmpty()
+                    && !(dataProvider instanceof HierarchicalDataProvider)) {
+                return dataProvider.size(new Query<>());
+            }
+            return (int) stream().count();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            if (exceptions.isEmpty()
+                    && !(dataProvider instanceof HierarchicalDataProvider)) {
+                return dataProvider.size(new Query<>()) == 0;
+            }
+            return !containsOtherThanExceptions(null);
+        }
+
+        /**
+         * Checks whether there are items that are not exceptions among the
+         * given parent's children, or the root items of a non-hierarchical
+         * data provider. Only one item more than there are exceptions is
+         * fetched for each level, and only the children of exceptions are
+         * checked further.
+         */
+        private boolean containsOtherThanExceptions(T parent) {
+            int limit = exceptions.size() + 1;
+            List<T> items;
+            if (dataProvider instanceof HierarchicalDataProvider) {
+                items = ((HierarchicalDataProvider<T, ?>) dataProvider)
+                        .fetchChildren(new HierarchicalQuery<>(0, limit,
+                                Collections.emptyList(), null, null, parent))
+                        .collect(Collectors.toList());
+            } else {
+                items = dataProvider.fetch(new Query<>(0, limit,
+                        Collections.emptyList(), null, null))
+                        .collect(Collectors.toList());
+            }
+            for (T item : items) {
+                if (!exceptions.containsKey(dataProvider.getId(item))) {
+                    return true;
+                }
+            }
+            if (dataProvider instanceof HierarchicalDataProvider) {
+                for (T item : items) {
+                    if (containsOtherThanExceptions(item)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (o instanceof MultiSelectionModelImpl.AllSelectedItems) {
+                AllSelectedItems other = (AllSelectedItems) o;
+                if (other.dataProvider == dataProvider
+                        && other.exceptions.keySet()
+                                .equals(exceptions.keySet())) {
+                    return true;
+                }
+            }
+            if (o instanceof Set && ((Set<?>) o).isEmpty()) {
+                return isEmpty();
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dataProvider, exceptions.keySet());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean contains(Object item) {
+            if (item == null) {
+                return false;
+            }
+            try {
+                return !exceptions
+                        .containsKey(dataProvider.getId((T) item));
+            } catch (ClassCastException e) {
+                return false;
+            }
+        }
+    }
 }
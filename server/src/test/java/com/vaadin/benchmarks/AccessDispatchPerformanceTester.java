@@ -0,0 +1,104 @@
+package com.vaadin.benchmarks;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.vaadin.server.AccessDispatcher;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+
+/*
+ * Measures a background thread submitting 50000 price ticks for 200 symbols
+ * through VaadinSession.access as fast as it can. Every time the session lock
+ * is ultimately released, the session simulates an automatic push that takes
+ * 50 microseconds.
+ *
+ * Results on Linux x64, Java 8, third round:
+ *
+ * Default dispatching:
+ * 50000 tasks run, 50000 pushes, 2733 ms, average queue latency 0.0 ms
+ *
+ * 20 ms batch interval:
+ * 50000 tasks run, 1 pushes, 23 ms, average queue latency 20.6 ms
+ *
+ * 20 ms batch interval, coalescing by symbol:
+ * 200 tasks run, 1 pushes, 21 ms, average queue latency 16.6 ms
+ */
+public class AccessDispatchPerformanceTester {
+
+    private static final int TICKS = 50000;
+    private static final int SYMBOLS = 200;
+    private static final long PUSH_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static class PushingSession extends MockVaadinSession {
+        private final AtomicInteger pushes = new AtomicInteger();
+
+        public PushingSession(VaadinService service) {
+            super(service);
+        }
+
+        @Override
+        public void unlock() {
+            boolean ultimateRelease = ((ReentrantLock) getLockInstance())
+                    .getHoldCount() == 1;
+            super.unlock();
+            if (ultimateRelease) {
+                pushes.incrementAndGet();
+                long end = System.nanoTime() + PUSH_NANOS;
+                while (System.nanoTime() < end) {
+                    // simulate writing the push message
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int round = 0; round < 3; round++) {
+            System.out.println("Default dispatching:");
+            measure(0, false);
+            System.out.println("20 ms batch interval:");
+            measure(20, false);
+            System.out.println("20 ms batch interval, coalescing by symbol:");
+            measure(20, true);
+        }
+        System.exit(0);
+    }
+
+    private static void measure(long batchInterval, boolean coalesce)
+            throws Exception {
+        VaadinServletService service = new VaadinServletService(
+                new VaadinServlet(), new MockDeploymentConfiguration());
+        AccessDispatcher dispatcher = service.getAccessDispatcher();
+        dispatcher.setBatchInterval(batchInterval);
+        PushingSession session = new PushingSession(service);
+        AtomicLong sink = new AtomicLong();
+
+        long start = System.nanoTime();
+        Future<Void> last = null;
+        for (int i = 0; i < TICKS; i++) {
+            int symbol = i % SYMBOLS;
+            long price = i;
+            Runnable task = () -> sink.addAndGet(price);
+            if (coalesce) {
+                last = session.access(Integer.valueOf(symbol), task);
+            } else {
+                last = session.access(task);
+            }
+        }
+        last.get(10, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf(
+                "%d tasks run, %d pushes, %d ms, average queue latency %.1f ms%n",
+                dispatcher.getExecutedTaskCount(), session.pushes.get(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed),
+                dispatcher.getAverageLatency() / 1000000.0);
+        service.destroy();
+    }
+}
@@ -0,0 +1,178 @@
+package com.vaadin.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.vaadin.annotations.JavaScript;
+import com.vaadin.annotations.StyleSheet;
+import com.vaadin.annotations.Theme;
+import com.vaadin.annotations.Title;
+import com.vaadin.annotations.Viewport;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.UIClassSelectionEvent;
+import com.vaadin.server.UIProvider;
+import com.vaadin.server.UICreateEvent;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletRequest;
+import com.vaadin.server.VaadinServletResponse;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.communication.ServletBootstrapHandler;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.UI;
+
+/*
+ * Measures initial page loads served by ServletBootstrapHandler for a UI
+ * with a theme, a title, a viewport and a few dependencies. The page is
+ * written to an in-memory output stream.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, 20000 requests, last of three rounds in two
+ * runs:
+ *
+ * Previous implementation, jsoup DOM built and written for every request:
+ * 9400-9800 requests/s, 217 kB allocated/request
+ *
+ * Page written from a precompiled template when there are no bootstrap
+ * listeners, AppWidgetset lookup cached per UI class:
+ * 30200-30500 requests/s, 98 kB allocated/request
+ *
+ * Most of the remaining time and allocation is computing the application
+ * parameters and URLs, which are done the same way for both.
+ */
+public class BootstrapPerformanceTester {
+
+    private static final int ROUNDS = 20000;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    @Theme("valo")
+    @Title("Bootstrap benchmark")
+    @Viewport("width=device-width, initial-scale=1")
+    @JavaScript({ "vaadin://scripts/first.js", "vaadin://scripts/second.js" })
+    @StyleSheet("vaadin://styles/extra.css")
+    public static class BenchmarkUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        configuration.setProductionMode(true);
+        VaadinServletService service = new VaadinServletService(servlet,
+                configuration);
+        VaadinService.setCurrent(service);
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        session.setConfiguration(configuration);
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        session.addUIProvider(new UIProvider() {
+            @Override
+            public Class<? extends UI> getUIClass(
+                    UIClassSelectionEvent event) {
+                return BenchmarkUI.class;
+            }
+
+            @Override
+            public UI createInstance(UICreateEvent event) {
+                return new BenchmarkUI();
+            }
+        });
+
+        // Plain stubs instead of mocks to keep their overhead out of the
+        // measurement
+        Map<String, Object> requestValues = new HashMap<>();
+        requestValues.put("getServletPath", "");
+        requestValues.put("getPathInfo", "/");
+        requestValues.put("getContextPath", "");
+        requestValues.put("getRequestURI", "/");
+        requestValues.put("getScheme", "http");
+        requestValues.put("getServerName", "localhost");
+        requestValues.put("getServerPort", 8080);
+        requestValues.put("getLocale", Locale.ENGLISH);
+        HttpServletRequest httpRequest = stub(HttpServletRequest.class,
+                (proxy, method, arguments) -> {
+                    if ("getRequestURL".equals(method.getName())) {
+                        return new StringBuffer("http://localhost:8080/");
+                    }
+                    return requestValues.get(method.getName());
+                });
+        VaadinServletRequest request = new VaadinServletRequest(httpRequest,
+                service);
+
+        ByteArrayOutputStream page = new ByteArrayOutputStream();
+        ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                page.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                page.write(b, off, len);
+            }
+        };
+        HttpServletResponse httpResponse = stub(HttpServletResponse.class,
+                (proxy, method, arguments) -> {
+                    if ("getOutputStream".equals(method.getName())) {
+                        return outputStream;
+                    }
+                    return null;
+                });
+        VaadinServletResponse response = new VaadinServletResponse(
+                httpResponse, service);
+
+        ServletBootstrapHandler handler = new ServletBootstrapHandler();
+        for (int i = 0; i < 3; i++) {
+            long allocated = -THREAD_BEAN
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+            long time = -System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                page.reset();
+                handler.synchronizedHandleRequest(session, request, response);
+            }
+            time += System.nanoTime();
+            allocated += THREAD_BEAN
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+            System.out.println(String.format(
+                    "%.0f requests/s, %.1f kB allocated/request, %d bytes",
+                    ROUNDS / (time / 1e9), allocated / 1024.0 / ROUNDS,
+                    page.size()));
+        }
+        System.out.println(page.toString("UTF-8"));
+    }
+
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                new Class<?>[] { type }, (proxy, method, arguments) -> {
+                    Object value = handler.invoke(proxy, method, arguments);
+                    Class<?> returnType = method.getReturnType();
+                    if (value == null && returnType == boolean.class) {
+                        return false;
+                    } else if (value == null && returnType == int.class) {
+                        return 0;
+                    } else if (value == null && returnType == long.class) {
+                        return 0L;
+                    }
+                    return value;
+                }));
+    }
+}
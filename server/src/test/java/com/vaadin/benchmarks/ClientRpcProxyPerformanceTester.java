@@ -0,0 +1,81 @@
+package com.vaadin.benchmarks;
+
+import java.lang.management.ManagementFactory;
+
+import com.vaadin.server.AbstractClientConnector;
+import com.vaadin.shared.data.DataCommunicatorClientRpc;
+import com.vaadin.ui.AbstractComponent;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+/*
+ * Measures calling a client RPC method through the proxy returned by
+ * getRpcProxy, and creating the proxy for a new connector.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, third round of three runs, for creating a
+ * component and its proxy:
+ *
+ * Proxy class and constructor looked up for each connector:
+ * 233 - 387 ns, 1008 bytes allocated
+ *
+ * Constructor shared through a ClassValue:
+ * 85 - 136 ns, 384 bytes allocated
+ *
+ * Calling the proxy takes 21 - 36 ns and allocates 103 bytes either way.
+ */
+public class ClientRpcProxyPerformanceTester {
+
+    private static final int CALLS = 2000000;
+    private static final int CONNECTORS = 200000;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    public static class TestConnector extends AbstractComponent {
+        public DataCommunicatorClientRpc getRpc() {
+            return getRpcProxy(DataCommunicatorClientRpc.class);
+        }
+    }
+
+    public static void main(String[] args) {
+        JsonArray data = Json.createArray();
+        for (int round = 0; round < 3; round++) {
+            TestConnector connector = new TestConnector();
+            DataCommunicatorClientRpc rpc = connector.getRpc();
+            long time = -System.nanoTime();
+            long allocated = -allocatedBytes();
+            for (int i = 0; i < CALLS; i++) {
+                rpc.updateData(data);
+                if (i % 1000 == 0) {
+                    connector.retrievePendingRpcCalls();
+                }
+            }
+            time += System.nanoTime();
+            allocated += allocatedBytes();
+            report("RPC call", time, allocated, CALLS);
+
+            time = -System.nanoTime();
+            allocated = -allocatedBytes();
+            for (int i = 0; i < CONNECTORS; i++) {
+                new TestConnector().getRpc();
+            }
+            time += System.nanoTime();
+            allocated += allocatedBytes();
+            report("Connector with proxy", time, allocated, CONNECTORS);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void report(String name, long time, long allocated,
+            int count) {
+        System.out.println(String.format("%s: %.1f ns, %.0f bytes allocated",
+                name, (double) time / count, (double) allocated / count));
+    }
+}
@@ -0,0 +1,86 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.data.provider.CaptionIndexDataProvider;
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.ListDataProvider;
+import com.vaadin.data.provider.Query;
+
+/*
+ * Measures the size and fetch queries a ComboBox makes for each keystroke when
+ * typing "7A3K9" into a ComboBox with 200000 product codes, using the default
+ * case insensitive substring filter of ComboBox and using
+ * CaptionIndexDataProvider.
+ *
+ * Results on Linux x64, Java 8, average of 20 typed sequences, third round:
+ *
+ * Default caption filter: 55.1 ms per keystroke
+ *
+ * Caption index: 1.3 ms per keystroke, building the index took 235 ms
+ */
+public class ComboBoxFilterPerformanceTester {
+
+    private static final int ITEMS = 200000;
+    private static final String TYPED = "7A3K9";
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        List<String> codes = new ArrayList<>();
+        String chars = "0123456789ABCDEFGHJKLMNPQRSTUVWXYZ";
+        for (int i = 0; i < ITEMS; i++) {
+            StringBuilder code = new StringBuilder("PRD-");
+            for (int j = 0; j < 10; j++) {
+                code.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            codes.add(code.toString());
+        }
+        ValueProvider<String, String> caption = code -> code;
+        Locale locale = Locale.ENGLISH;
+
+        ListDataProvider<String> list = DataProvider.ofCollection(codes);
+        DataProvider<String, String> defaultFilter = list
+                .withConvertedFilter(filterText -> item -> caption.apply(item)
+                        .toLowerCase(locale)
+                        .contains(filterText.toLowerCase(locale)));
+        CaptionIndexDataProvider<String> indexed = new CaptionIndexDataProvider<>(
+                list, caption, () -> locale);
+
+        for (int i = 0; i < 3; i++) {
+            System.out.printf("Default caption filter: %.1f ms per keystroke%n",
+                    measure(defaultFilter));
+            long start = System.nanoTime();
+            indexed.clearIndex();
+            indexed.size(new Query<>(0, 1, null, null, "x"));
+            System.out.printf("Building the index: %d ms%n",
+                    (System.nanoTime() - start) / 1000000);
+            System.out.printf("Caption index: %.1f ms per keystroke%n",
+                    measure(indexed));
+        }
+    }
+
+    private static double measure(DataProvider<String, String> provider) {
+        long found = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 1; i <= TYPED.length(); i++) {
+                String filter = TYPED.substring(0, i);
+                Query<String, String> sizeQuery = new Query<>(0,
+                        Integer.MAX_VALUE, null, null, filter);
+                found += provider.size(sizeQuery);
+                found += provider.fetch(new Query<>(0, 10, null, null, filter))
+                        .count();
+            }
+        }
+        if (found < 0) {
+            System.out.println(found);
+        }
+        return (System.nanoTime() - start) / 1000000.0
+                / (ROUNDS * TYPED.length());
+    }
+}
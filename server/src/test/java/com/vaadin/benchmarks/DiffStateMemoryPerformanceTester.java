@@ -0,0 +1,115 @@
+package com.vaadin.benchmarks;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.CheckBox;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/*
+ * Measures the heap used by the diff states of UIs with 2000 components:
+ * 400 rows in a VerticalLayout, each a HorizontalLayout with a Label, a
+ * TextField, a CheckBox and a Button. The heap is measured after the UIs
+ * have been rendered once and again after their diff states have been
+ * cleared.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, compressed oops, average of 10 UIs, three
+ * runs:
+ *
+ * Previous implementation, full diff states:
+ * 3220-3354 kB/UI, first render 164-171 ms/UI
+ *
+ * Diff states storing only the values that differ from the shared reference
+ * state:
+ * 1470-1487 kB/UI, first render 130-159 ms/UI
+ *
+ * The remaining heap is mostly the per-connector JSON objects and map
+ * entries themselves; a typical row component stores one or two values.
+ */
+public class DiffStateMemoryPerformanceTester {
+
+    private static final int ROWS = 400;
+    private static final int UIS = 10;
+
+    public static void main(String[] args) throws Exception {
+        VaadinServletService service = new VaadinServletService(
+                new VaadinServlet(), new MockDeploymentConfiguration());
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+
+        List<UI> uis = new ArrayList<>();
+        for (int i = 0; i < UIS; i++) {
+            UI ui = new UI() {
+                @Override
+                protected void init(VaadinRequest request) {
+                }
+            };
+            ui.doInit(Mockito.mock(VaadinRequest.class), i + 1, null);
+            ui.setSession(session);
+            session.addUI(ui);
+            ui.setContent(createContent(i));
+            uis.add(ui);
+        }
+
+        long time = System.nanoTime();
+        for (UI ui : uis) {
+            new UidlWriter().write(ui, new StringWriter(), false);
+        }
+        time = System.nanoTime() - time;
+
+        long rendered = usedHeap();
+        for (UI ui : uis) {
+            ui.getConnectorTracker().markAllClientSidesUninitialized();
+        }
+        long cleared = usedHeap();
+
+        System.out.println(String.format(
+                "Diff states: %d kB/UI, first render %.1f ms/UI",
+                (rendered - cleared) / 1024 / UIS, time / 1e6 / UIS));
+    }
+
+    private static VerticalLayout createContent(int ui) {
+        VerticalLayout layout = new VerticalLayout();
+        for (int row = 0; row < ROWS; row++) {
+            TextField textField = new TextField();
+            textField.setValue("Value " + row);
+            CheckBox checkBox = new CheckBox("Done", row % 2 == 0);
+            Button button = new Button("Edit " + row);
+            button.setDescription("Edit row " + row + " of UI " + ui);
+            HorizontalLayout rowLayout = new HorizontalLayout(
+                    new Label("Row " + row), textField, checkBox, button);
+            layout.addComponent(rowLayout);
+        }
+        CssLayout footer = new CssLayout();
+        layout.addComponent(footer);
+        return layout;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
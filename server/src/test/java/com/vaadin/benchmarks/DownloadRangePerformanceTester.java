@@ -0,0 +1,87 @@
+package com.vaadin.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.FileResource;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+
+/*
+ * Measures serving the last megabyte of a 256 MB FileResource, as a video
+ * player seeking near the end or a resumed download does. The response is
+ * written to an output stream that discards the data.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, 20 requests, last of three rounds:
+ *
+ * Previous implementation, Range header ignored and the whole file sent:
+ * 37.8 ms/request, 256 MB written/request, 40.8 kB allocated/request
+ *
+ * Range served by seeking the file channel:
+ * 0.7-0.8 ms/request, 1 MB written/request, 50.2 kB allocated/request
+ *
+ * The file is in the page cache. Most of the allocation is the mocked
+ * request and response. The copy buffer is the same in both cases.
+ */
+public class DownloadRangePerformanceTester {
+
+    private static final long FILE_SIZE = 256 * 1024 * 1024;
+    private static final long RANGE_SIZE = 1024 * 1024;
+    private static final int ROUNDS = 20;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private static long written;
+
+    public static void main(String[] args) throws Exception {
+        File file = File.createTempFile("range", ".bin");
+        file.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(FILE_SIZE);
+        }
+        FileResource resource = new FileResource(file);
+
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getMethod()).thenReturn("GET");
+        Mockito.when(request.getHeader("Range"))
+                .thenReturn("bytes=-" + RANGE_SIZE);
+        VaadinResponse response = Mockito.mock(VaadinResponse.class);
+        Mockito.when(response.getOutputStream())
+                .thenAnswer(invocation -> new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        written++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                        written += len;
+                    }
+                });
+
+        for (int i = 0; i < 3; i++) {
+            written = 0;
+            long allocated = -THREAD_BEAN
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+            long time = -System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                resource.getStream().writeResponse(request, response);
+            }
+            time += System.nanoTime();
+            allocated += THREAD_BEAN
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+            System.out.println(String.format(
+                    "%.1f ms/request, %d MB written/request, %.1f kB allocated/request",
+                    time / 1e6 / ROUNDS, written / ROUNDS / 1024 / 1024,
+                    allocated / 1024.0 / ROUNDS));
+        }
+    }
+}
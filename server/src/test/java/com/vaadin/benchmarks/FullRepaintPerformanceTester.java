@@ -0,0 +1,100 @@
+package com.vaadin.benchmarks;
+
+import java.io.StringWriter;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.ComponentContainer;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/*
+ * Measures full repaints of a UI with deeply nested layouts: 100 branches,
+ * each 40 layouts deep, with a Label and a Button in every layout, 12000
+ * components in total. Every round marks all connectors dirty and
+ * uninitialized, as a page reload does, and writes the response.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, 20 rounds, last of three rounds in three
+ * runs:
+ *
+ * Previous implementation, visibility and depth computed by walking to the
+ * root for every check and comparison:
+ * 309-345 ms/repaint
+ *
+ * Visibility cached while writing the response, depths computed once per
+ * connector:
+ * 107-153 ms/repaint
+ *
+ * The response is 822 kB in both cases.
+ */
+public class FullRepaintPerformanceTester {
+
+    private static final int BRANCHES = 100;
+    private static final int DEPTH = 40;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        VaadinServletService service = new VaadinServletService(
+                new VaadinServlet(), new MockDeploymentConfiguration());
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.doInit(Mockito.mock(VaadinRequest.class), 1, null);
+        ui.setSession(session);
+        session.addUI(ui);
+        ui.setContent(createContent());
+        new UidlWriter().write(ui, new StringWriter(), false);
+
+        for (int i = 0; i < 3; i++) {
+            long time = 0;
+            int length = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                ui.getConnectorTracker().markAllConnectorsDirty();
+                ui.getConnectorTracker().markAllClientSidesUninitialized();
+                StringWriter writer = new StringWriter();
+                time -= System.nanoTime();
+                new UidlWriter().write(ui, writer, false);
+                time += System.nanoTime();
+                length = writer.getBuffer().length();
+            }
+            System.out.println(String.format("%.1f ms/repaint, %d kB",
+                    time / 1e6 / ROUNDS, length / 1024));
+        }
+    }
+
+    private static VerticalLayout createContent() {
+        VerticalLayout root = new VerticalLayout();
+        for (int branch = 0; branch < BRANCHES; branch++) {
+            ComponentContainer parent = root;
+            for (int depth = 0; depth < DEPTH; depth++) {
+                ComponentContainer layout = depth % 2 == 0
+                        ? new HorizontalLayout()
+                        : new CssLayout();
+                layout.addComponent(new Label("Label " + depth));
+                layout.addComponent(new Button("Button " + depth));
+                parent.addComponent(layout);
+                parent = layout;
+            }
+        }
+        return root;
+    }
+}
@@ -0,0 +1,170 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.vaadin.data.provider.DataCommunicator;
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.communication.ClientRpcWriter;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Grid;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.impl.JsonUtil;
+
+/*
+ * Measures writing the client RPC call containing the data for a 1000 row x
+ * 20 column Grid. Row data is generated before each write and is not
+ * included in the results.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, 100 writes, output is 0.50 MB per write:
+ *
+ * Previous implementation, building JSON arrays for the calls and
+ * stringifying them before writing:
+ * 30.1 ms/write, 43.8 MB allocated/write
+ *
+ * Streaming the calls with JsonStreamWriter:
+ * 6.1 ms/write, 0.5 MB allocated/write
+ */
+public class GridPushPerformanceTester {
+
+    private static final int ROWS = 1000;
+    private static final int COLUMNS = 20;
+    private static final int ROUNDS = 100;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private static long time;
+    private static long allocated;
+
+    public static void main(String[] args) throws IOException {
+        Grid<Integer> grid = new Grid<>();
+        for (int column = 0; column < COLUMNS; column++) {
+            int c = column;
+            grid.addColumn(row -> "Row " + row + ", column " + c);
+        }
+        grid.setItems(IntStream.range(0, ROWS).boxed());
+        MockUI ui = new MockUI();
+        ui.setContent(grid);
+        DataCommunicator<Integer> dataCommunicator = grid
+                .getDataCommunicator();
+        dataCommunicator.setMinPushSize(ROWS);
+
+        CountingWriter writer = new CountingWriter();
+
+        // warmup
+        for (int i = 0; i < ROUNDS; i++) {
+            dataCommunicator.beforeClientResponse(true);
+            writeStringified(dataCommunicator.retrievePendingRpcCalls(),
+                    writer);
+            dataCommunicator.beforeClientResponse(true);
+            new ClientRpcWriter().write(ui, writer);
+        }
+
+        reset();
+        writer.count = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            dataCommunicator.beforeClientResponse(true);
+            List<ClientMethodInvocation> calls = dataCommunicator
+                    .retrievePendingRpcCalls();
+            start();
+            writeStringified(calls, writer);
+            stop();
+        }
+        System.out.println(String.format("Output: %.2f MB/write",
+                writer.count / (double) ROUNDS / 1024 / 1024));
+        report("Stringified");
+
+        reset();
+        for (int i = 0; i < ROUNDS; i++) {
+            dataCommunicator.beforeClientResponse(true);
+            start();
+            new ClientRpcWriter().write(ui, writer);
+            stop();
+        }
+        report("Streamed");
+    }
+
+    /*
+     * What ClientRpcWriter used to do.
+     */
+    private static void writeStringified(List<ClientMethodInvocation> calls,
+            Writer writer) throws IOException {
+        JsonArray rpcCalls = Json.createArray();
+        for (ClientMethodInvocation invocation : calls) {
+            JsonArray invocationJson = Json.createArray();
+            invocationJson.set(0, invocation.getConnector().getConnectorId());
+            invocationJson.set(1, invocation.getInterfaceName());
+            invocationJson.set(2, invocation.getMethodName());
+            JsonArray paramJson = Json.createArray();
+            for (int i = 0; i < invocation.getParameterTypes().length; ++i) {
+                Type parameterType = invocation.getParameterTypes()[i];
+                paramJson.set(i,
+                        JsonCodec.encode(invocation.getParameters()[i], null,
+                                parameterType, null).getEncodedValue());
+            }
+            invocationJson.set(3, paramJson);
+            rpcCalls.set(rpcCalls.length(), invocationJson);
+        }
+        writer.write(JsonUtil.stringify(rpcCalls));
+    }
+
+    private static void reset() {
+        time = 0;
+        allocated = 0;
+    }
+
+    private static void start() {
+        time -= System.nanoTime();
+        allocated -= THREAD_BEAN
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void stop() {
+        time += System.nanoTime();
+        allocated += THREAD_BEAN
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void report(String name) {
+        System.out.println(String.format(
+                "%s: %.1f ms/write, %.1f MB allocated/write", name,
+                time / 1e6 / ROUNDS, allocated / 1024.0 / 1024 / ROUNDS));
+    }
+
+    private static class CountingWriter extends Writer {
+        private long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
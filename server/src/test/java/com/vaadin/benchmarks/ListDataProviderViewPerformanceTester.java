@@ -0,0 +1,80 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.ListDataProvider;
+import com.vaadin.data.provider.Query;
+import com.vaadin.server.SerializablePredicate;
+
+/*
+ * Measures scrolling through the first 100 pages of 40 rows of a sorted and
+ * filtered Grid backed by a ListDataProvider with 500000 items, as a size
+ * query followed by one fetch per page with the same filter and comparator
+ * instances, like DataCommunicator does.
+ *
+ * Results on Linux x64, Java 8, average of 5 scrolls, third round:
+ *
+ * No view cache: 10233.5 ms
+ *
+ * View cache: 104.8 ms
+ *
+ * View cache, parallel sort: 104.4 ms (measured on a single core)
+ */
+public class ListDataProviderViewPerformanceTester {
+
+    private static final int ITEMS = 500000;
+    private static final int PAGE = 40;
+    private static final int PAGES = 100;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            items.add(random.nextInt());
+        }
+
+        for (int i = 0; i < 3; i++) {
+            System.out.printf("No view cache: %.1f ms%n",
+                    measure(items, false, false));
+            System.out.printf("View cache: %.1f ms%n",
+                    measure(items, true, false));
+            System.out.printf("View cache, parallel sort: %.1f ms%n",
+                    measure(items, true, true));
+        }
+    }
+
+    private static double measure(List<Integer> items, boolean cache,
+            boolean parallel) {
+        long total = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            ListDataProvider<Integer> dataProvider = DataProvider
+                    .ofCollection(items);
+            dataProvider.setViewCacheEnabled(cache);
+            dataProvider.setParallelSort(parallel);
+            SerializablePredicate<Integer> filter = value -> value % 3 != 0;
+            Comparator<Integer> comparator = Comparator.naturalOrder();
+
+            long start = System.nanoTime();
+            int size = dataProvider
+                    .size(new Query<>(0, Integer.MAX_VALUE, null,
+                            comparator, filter));
+            long sum = size;
+            for (int page = 0; page < PAGES; page++) {
+                sum += dataProvider
+                        .fetch(new Query<>(page * PAGE, PAGE, null,
+                                comparator, filter))
+                        .count();
+            }
+            total += System.nanoTime() - start;
+            if (sum == 0) {
+                throw new IllegalStateException();
+            }
+        }
+        return total / 1e6 / ROUNDS;
+    }
+}
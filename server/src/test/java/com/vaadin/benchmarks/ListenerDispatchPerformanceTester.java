@@ -0,0 +1,68 @@
+package com.vaadin.benchmarks;
+
+import java.lang.reflect.Method;
+
+import com.vaadin.event.EventRouter;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Component.Event;
+import com.vaadin.ui.Component.Listener;
+import com.vaadin.ui.Label;
+import com.vaadin.util.ReflectTools;
+
+/*
+ * Measures firing an event to 10 listeners registered to an EventRouter, as
+ * components do for value change and click listeners. The listeners are
+ * lambdas of different classes, like in an application with many listeners.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, 2000000 events, third round, three runs:
+ *
+ * ListenerMethod calling Method.invoke:
+ * 170.6 - 180.0 ns/event
+ *
+ * ListenerMethod calling a bound MethodHandle:
+ * 106.4 - 116.0 ns/event
+ *
+ * If all listeners have the same class, Method.invoke is inlined better and
+ * takes 12 ns/event compared to 21 ns/event for the method handle. That does
+ * not happen in an application, where the same call site dispatches to all
+ * kinds of listeners.
+ */
+public class ListenerDispatchPerformanceTester {
+
+    private static final int EVENTS = 2000000;
+
+    private static final Method COMPONENT_EVENT_METHOD = ReflectTools
+            .findMethod(Component.Listener.class, "componentEvent",
+                    Component.Event.class);
+
+    private static long calls;
+
+    public static void main(String[] args) {
+        // Lambdas from different sites have different classes
+        Listener[] listeners = { event -> calls++, event -> calls += 2,
+                event -> calls += 3, event -> calls += 4, event -> calls += 5,
+                event -> calls += 6, event -> calls += 7, event -> calls += 8,
+                event -> calls += 9, event -> calls += 10 };
+        EventRouter router = new EventRouter();
+        for (Listener listener : listeners) {
+            router.addListener(Component.Event.class, listener,
+                    COMPONENT_EVENT_METHOD);
+        }
+        Event event = new Component.Event(new Label());
+
+        for (int round = 0; round < 3; round++) {
+            long time = -System.nanoTime();
+            for (int i = 0; i < EVENTS; i++) {
+                router.fireEvent(event);
+            }
+            time += System.nanoTime();
+            System.out.println(String.format("EventRouter: %.1f ns/event",
+                    (double) time / EVENTS));
+        }
+        if (calls == 0) {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.vaadin.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.vaadin.server.communication.FileUploadHandler.SimpleMultiPartInputStream;
+
+/*
+ * Measures the throughput of extracting an uploaded file from a multipart
+ * stream, reading it one byte at a time and in 4 kB blocks like
+ * FileUploadHandler.streamToReceiver does.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, 64 MB of random data:
+ *
+ * Previous implementation matching the boundary one byte at a time, where
+ * block reads fell back to InputStream.read():
+ * byte at a time: 189 MB/s, 4 kB blocks: 148 MB/s
+ *
+ * Buffered implementation with Boyer-Moore-Horspool boundary search:
+ * byte at a time: 437 MB/s, 4 kB blocks: 2444 MB/s
+ */
+public class MultiPartUploadPerformanceTester {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+    private static final int SIZE = 64 * 1024 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        byte[] input = createInput();
+
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            readByteAtATime(input);
+            readInBlocks(input);
+        }
+
+        long start = System.nanoTime();
+        readByteAtATime(input);
+        report("byte at a time", start);
+
+        start = System.nanoTime();
+        readInBlocks(input);
+        report("4 kB blocks", start);
+    }
+
+    private static byte[] createInput() {
+        byte[] content = new byte[SIZE];
+        new Random(1).nextBytes(content);
+        byte[] boundary = ("\r\n--" + BOUNDARY + "--\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] input = Arrays.copyOf(content, SIZE + boundary.length);
+        System.arraycopy(boundary, 0, input, SIZE, boundary.length);
+        return input;
+    }
+
+    private static long readByteAtATime(byte[] input) throws IOException {
+        long total = 0;
+        try (InputStream in = new SimpleMultiPartInputStream(
+                new ByteArrayInputStream(input), BOUNDARY)) {
+            while (in.read() != -1) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    private static long readInBlocks(byte[] input) throws IOException {
+        long total = 0;
+        byte[] buffer = new byte[4 * 1024];
+        try (InputStream in = new SimpleMultiPartInputStream(
+                new ByteArrayInputStream(input), BOUNDARY)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    private static void report(String name, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%s: %.0f MB/s", name,
+                SIZE / seconds / 1024 / 1024));
+    }
+}
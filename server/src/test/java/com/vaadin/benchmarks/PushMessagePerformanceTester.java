@@ -0,0 +1,133 @@
+package com.vaadin.benchmarks;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.stream.IntStream;
+
+import org.atmosphere.cpr.AtmosphereResource;
+import org.mockito.Mockito;
+
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.communication.AtmospherePushConnection;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.UI;
+
+/*
+ * Measures AtmospherePushConnection.push() for a UI with a Grid that pushes
+ * 500 rows x 20 columns each time, including writing the UIDL. The message
+ * is discarded instead of being broadcast.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, 200 pushes, message is 0.25 MB per push,
+ * third round:
+ *
+ * Previous implementation, StringWriter and string concatenation:
+ * 13.6 ms/push, 7.1 MB allocated/push
+ *
+ * Message written to a presized StringBuilder:
+ * 12.8 ms/push, 4.6 MB allocated/push
+ *
+ * Most of the remaining time and allocation is generating the UIDL. The
+ * times vary between rounds by more than the difference.
+ */
+public class PushMessagePerformanceTester {
+
+    private static final int ROWS = 500;
+    private static final int COLUMNS = 20;
+    private static final int ROUNDS = 200;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private static long time;
+    private static long allocated;
+    private static long length;
+
+    public static void main(String[] args) throws Exception {
+        VaadinServletService service = new VaadinServletService(
+                new VaadinServlet(), new MockDeploymentConfiguration());
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.setSession(session);
+        Grid<Integer> grid = new Grid<>();
+        for (int column = 0; column < COLUMNS; column++) {
+            int c = column;
+            grid.addColumn(row -> "Row " + row + ", column " + c);
+        }
+        grid.getDataCommunicator().setMinPushSize(ROWS);
+        ui.setContent(grid);
+
+        AtmospherePushConnection previous = new AtmospherePushConnection(ui) {
+            @Override
+            public void push(boolean async) {
+                // What push used to do
+                try {
+                    Writer writer = new StringWriter();
+                    new UidlWriter().write(getUI(), writer, async);
+                    sendMessage("for(;;);[{" + writer + "}]");
+                } catch (Exception e) {
+                    throw new RuntimeException("Push failed", e);
+                }
+            }
+
+            @Override
+            protected void sendMessage(String message) {
+                length += message.length();
+            }
+        };
+        AtmospherePushConnection current = new AtmospherePushConnection(ui) {
+            @Override
+            protected void sendMessage(String message) {
+                length += message.length();
+            }
+        };
+        previous.connect(Mockito.mock(AtmosphereResource.class));
+        current.connect(Mockito.mock(AtmosphereResource.class));
+
+        for (int i = 0; i < 3; i++) {
+            measure(grid, previous);
+            report("StringWriter");
+            measure(grid, current);
+            report("Presized StringBuilder");
+        }
+    }
+
+    private static void measure(Grid<Integer> grid,
+            AtmospherePushConnection connection) {
+        time = 0;
+        allocated = 0;
+        length = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            grid.setItems(IntStream.range(i, i + ROWS).boxed());
+            time -= System.nanoTime();
+            allocated -= THREAD_BEAN
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+            connection.push();
+            time += System.nanoTime();
+            allocated += THREAD_BEAN
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+
+    private static void report(String name) {
+        System.out.println(String.format(
+                "%s: %.2f MB/push, %.2f ms/push, %.1f MB allocated/push",
+                name, length / 1024.0 / 1024 / ROUNDS, time / 1e6 / ROUNDS,
+                allocated / 1024.0 / 1024 / ROUNDS));
+    }
+}
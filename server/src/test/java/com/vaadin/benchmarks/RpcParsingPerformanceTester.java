@@ -0,0 +1,155 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.communication.ServerRpcHandler;
+import com.vaadin.shared.ui.textfield.AbstractTextFieldServerRpc;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+
+/*
+ * Measures ServerRpcHandler.handleRpc(UI, Reader, VaadinRequest) for a batch
+ * of 2000 text field value changes, each with a 1000 character value. The
+ * message is 2.1 MB and is read from a StringReader, so the numbers are
+ * for reading, parsing and applying the invocations only.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, 20 batches, third round:
+ *
+ * Previous implementation, message read into a String and parsed with
+ * JsonUtil.parse:
+ * 34.8-35.1 ms/batch, 36.8 MB allocated/batch
+ *
+ * Message parsed with JsonStreamReader while reading:
+ * 9.3-10.1 ms/batch, 6.7 MB allocated/batch
+ *
+ * Most of the remaining allocation is the 2000 decoded values themselves.
+ */
+public class RpcParsingPerformanceTester {
+
+    private static final int FIELDS = 2000;
+    private static final int VALUE_LENGTH = 1000;
+    private static final int ROUNDS = 20;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private static long time;
+    private static long allocated;
+
+    public static void main(String[] args) throws Exception {
+        VaadinServletService service = new VaadinServletService(
+                new VaadinServlet(), new MockDeploymentConfiguration());
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.setSession(session);
+        CssLayout layout = new CssLayout();
+        List<TextField> fields = new ArrayList<>();
+        for (int i = 0; i < FIELDS; i++) {
+            TextField field = new TextField();
+            fields.add(field);
+            layout.addComponent(field);
+        }
+        ui.setContent(layout);
+
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getService()).thenReturn(service);
+
+        ServerRpcHandler previous = new ServerRpcHandler() {
+            @Override
+            public void handleRpc(UI ui, Reader reader, VaadinRequest request)
+                    throws IOException, InvalidUIDLSecurityKeyException {
+                // What handleRpc used to do, without the security checks
+                RpcRequest rpcRequest = new RpcRequest(getMessage(reader),
+                        request);
+                ui.setLastProcessedClientToServerId(
+                        rpcRequest.getClientToServerId());
+                handleInvocations(ui, rpcRequest.getSyncId(),
+                        rpcRequest.getRpcInvocationsData());
+            }
+        };
+        ServerRpcHandler current = new ServerRpcHandler();
+
+        for (int i = 0; i < 3; i++) {
+            measure(ui, fields, previous, request);
+            report("String and JsonUtil.parse");
+            measure(ui, fields, current, request);
+            report("JsonStreamReader");
+        }
+    }
+
+    private static void measure(UI ui, List<TextField> fields,
+            ServerRpcHandler handler, VaadinRequest request)
+            throws Exception {
+        time = 0;
+        allocated = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            String message = createMessage(ui, fields, i);
+            time -= System.nanoTime();
+            allocated -= THREAD_BEAN
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+            handler.handleRpc(ui, new StringReader(message), request);
+            time += System.nanoTime();
+            allocated += THREAD_BEAN
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+            if (fields.get(0).getValue().charAt(0) != (char) ('a' + i)) {
+                throw new IllegalStateException("Changes were not applied");
+            }
+        }
+    }
+
+    private static String createMessage(UI ui, List<TextField> fields,
+            int round) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < VALUE_LENGTH; i++) {
+            value.append((char) ('a' + (i + round) % 26));
+        }
+        StringBuilder message = new StringBuilder();
+        message.append("{\"csrfToken\":\"")
+                .append(ui.getSession().getCsrfToken())
+                .append("\",\"rpc\":[");
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                message.append(',');
+            }
+            message.append("[\"").append(fields.get(i).getConnectorId())
+                    .append("\",\"")
+                    .append(AbstractTextFieldServerRpc.class.getName())
+                    .append("\",\"setText\",[\"").append(value).append("\",")
+                    .append(VALUE_LENGTH).append("]]");
+        }
+        message.append("],\"syncId\":-1,\"clientId\":")
+                .append(ui.getLastProcessedClientToServerId() + 1)
+                .append('}');
+        return message.toString();
+    }
+
+    private static void report(String name) {
+        System.out.println(String.format(
+                "%s: %.2f ms/batch, %.1f MB allocated/batch", name,
+                time / 1e6 / ROUNDS, allocated / 1024.0 / 1024 / ROUNDS));
+    }
+}
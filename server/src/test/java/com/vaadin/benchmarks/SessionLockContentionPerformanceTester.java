@@ -0,0 +1,139 @@
+package com.vaadin.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.SynchronizedRequestHandler;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
+
+/*
+ * Measures how long requests from one browser tab wait for the session lock
+ * while another tab of the same session keeps sending requests whose bodies
+ * take 20 ms to receive and whose responses take 20 ms to send. Handling a
+ * request takes 2 ms.
+ *
+ * Results on Linux x64, Java 8, 200 requests from the waiting tab:
+ *
+ * Reading and writing while holding the session lock:
+ * average wait 73.0 ms, maximum wait 128.5 ms
+ *
+ * Reading and writing outside the session lock:
+ * average wait 0.1 ms, maximum wait 9.7 ms
+ */
+public class SessionLockContentionPerformanceTester {
+
+    private static final long NETWORK_MILLIS = 20;
+    private static final long HANDLE_MILLIS = 2;
+    private static final int REQUESTS = 200;
+
+    public static void main(String[] args) throws Exception {
+        VaadinSession session = new MockVaadinSession(
+                Mockito.mock(VaadinService.class));
+
+        System.out.println("Reading and writing while holding the lock:");
+        measure(session, false);
+        System.out.println("Reading and writing outside the lock:");
+        measure(session, true);
+    }
+
+    private static void measure(VaadinSession session,
+            boolean outsideSessionLock) throws Exception {
+        SynchronizedRequestHandler handler = createHandler(outsideSessionLock);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Thread slowTab = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    VaadinRequest request = Mockito.mock(VaadinRequest.class);
+                    Mockito.when(request.getReader())
+                            .thenReturn(new BufferedReader(
+                                    new SlowReader("{}")));
+                    handler.handleRequest(session, request,
+                            Mockito.mock(VaadinResponse.class));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        slowTab.start();
+
+        long totalWait = 0;
+        long maxWait = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            sleep(3);
+            long start = System.nanoTime();
+            session.lock();
+            long wait = System.nanoTime() - start;
+            session.unlock();
+            totalWait += wait;
+            maxWait = Math.max(maxWait, wait);
+        }
+
+        running.set(false);
+        slowTab.join();
+
+        System.out.println(String.format(
+                "average wait %.1f ms, maximum wait %.1f ms",
+                totalWait / 1e6 / REQUESTS, maxWait / 1e6));
+    }
+
+    private static SynchronizedRequestHandler createHandler(
+            boolean outsideSessionLock) {
+        return new SynchronizedRequestHandler() {
+            @Override
+            protected boolean isReadAndWriteOutsideSessionLock() {
+                return outsideSessionLock;
+            }
+
+            @Override
+            public boolean synchronizedHandleRequest(VaadinSession session,
+                    VaadinRequest request, VaadinResponse response)
+                    throws IOException {
+                getRequestBody(request.getReader());
+                sleep(HANDLE_MILLIS);
+                sleep(NETWORK_MILLIS);
+                return true;
+            }
+
+            @Override
+            public Optional<ResponseWriter> synchronizedHandleRequest(
+                    VaadinSession session, VaadinRequest request,
+                    VaadinResponse response, String requestBody) {
+                sleep(HANDLE_MILLIS);
+                return Optional.of(() -> sleep(NETWORK_MILLIS));
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static class SlowReader extends StringReader {
+        private boolean delayed = false;
+
+        public SlowReader(String s) {
+            super(s);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (!delayed) {
+                delayed = true;
+                sleep(NETWORK_MILLIS);
+            }
+            return super.read(cbuf, off, len);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.vaadin.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.mockito.Mockito;
+
+import com.vaadin.data.Binder;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.ComboBox;
+import com.vaadin.ui.FormLayout;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Notification;
+import com.vaadin.ui.TabSheet;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/*
+ * Measures Java serialization of a VaadinSession with three UIs that have
+ * been rendered once. Each UI has a Grid with 1000 beans, ten bound forms
+ * with a combo box and a button and a TabSheet with five tabs.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, 100 rounds, last of three rounds in two runs:
+ *
+ * Previous implementation, diff states written as JSON strings:
+ * 445 KB, write 13.0-13.7 ms, read 13.4-13.7 ms, 17.9 MB allocated/round
+ *
+ * Diff states written in a binary form, listener methods looked up once per
+ * class when reading:
+ * 403 KB, write 10.9-11.0 ms, read 12.6-13.3 ms, 7.4 MB allocated/round
+ *
+ * Most of the remaining time is default serialization of the component
+ * trees, the data and the serializable lambdas.
+ */
+public class SessionSerializationPerformanceTester {
+
+    private static final int UIS = 3;
+    private static final int ROUNDS = 100;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    public static class Person implements Serializable {
+        private String name;
+        private int age;
+        private String email = "";
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public void setEmail(String email) {
+            this.email = email;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        VaadinServletService service = new VaadinServletService(
+                new VaadinServlet(), new MockDeploymentConfiguration());
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        for (int i = 0; i < UIS; i++) {
+            UI ui = new UI() {
+                @Override
+                protected void init(VaadinRequest request) {
+                }
+            };
+            ui.doInit(Mockito.mock(VaadinRequest.class), i + 1, null);
+            ui.setSession(session);
+            session.addUI(ui);
+            ui.setContent(createContent());
+            new UidlWriter().write(ui, new StringWriter(), false);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            long writeTime = 0;
+            long readTime = 0;
+            long allocated = 0;
+            byte[] bytes = null;
+            for (int round = 0; round < ROUNDS; round++) {
+                allocated -= THREAD_BEAN
+                        .getThreadAllocatedBytes(Thread.currentThread().getId());
+                writeTime -= System.nanoTime();
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+                    out.writeObject(session);
+                }
+                bytes = bos.toByteArray();
+                writeTime += System.nanoTime();
+
+                readTime -= System.nanoTime();
+                new ObjectInputStream(new ByteArrayInputStream(bytes))
+                        .readObject();
+                readTime += System.nanoTime();
+                allocated += THREAD_BEAN
+                        .getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            System.out.println(String.format(
+                    "%d KB, write %.1f ms, read %.1f ms, %.1f MB allocated/round",
+                    bytes.length / 1024, writeTime / 1e6 / ROUNDS,
+                    readTime / 1e6 / ROUNDS,
+                    allocated / 1024.0 / 1024 / ROUNDS));
+        }
+    }
+
+    private static VerticalLayout createContent() {
+        VerticalLayout layout = new VerticalLayout();
+        List<Person> people = IntStream.range(0, 1000).mapToObj(i -> {
+            Person person = new Person();
+            person.setName("Person " + i);
+            person.setAge(i % 100);
+            return person;
+        }).collect(Collectors.toList());
+
+        Grid<Person> grid = new Grid<>(Person.class);
+        grid.setItems(people);
+        layout.addComponent(grid);
+
+        for (int i = 0; i < 10; i++) {
+            Binder<Person> binder = new Binder<>(Person.class);
+            TextField name = new TextField("Name " + i);
+            TextField email = new TextField("Email " + i);
+            binder.forField(name).asRequired("Name is required").bind("name");
+            binder.forField(email).bind("email");
+            binder.setBean(people.get(i));
+
+            ComboBox<Person> comboBox = new ComboBox<>("Manager",
+                    new ArrayList<>(people.subList(0, 100)));
+            comboBox.setItemCaptionGenerator(Person::getName);
+            Button save = new Button("Save " + i,
+                    event -> Notification.show("Saved"));
+
+            FormLayout form = new FormLayout(name, email, comboBox, save,
+                    new Label("Form " + i));
+            layout.addComponent(form);
+        }
+
+        TabSheet tabSheet = new TabSheet();
+        for (int i = 0; i < 5; i++) {
+            tabSheet.addTab(new Label("Content " + i), "Tab " + i);
+        }
+        layout.addComponent(tabSheet);
+        return layout;
+    }
+}
@@ -0,0 +1,134 @@
+package com.vaadin.benchmarks;
+
+import java.lang.reflect.Type;
+
+import com.vaadin.server.EncodeResult;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.JsonCodec.BeanProperty;
+import com.vaadin.shared.ui.grid.GridState;
+import com.vaadin.shared.ui.window.WindowState;
+
+import elemental.json.Json;
+import elemental.json.JsonNull;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/*
+ * Compares diffing Grid and Window states against their reference states
+ * using JsonCodec.encode with reading and encoding every top level property
+ * reflectively, the way JsonCodec used to do it. Nested values are encoded
+ * using JsonCodec.encode in both cases.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, 1 000 000 encodings of each state:
+ *
+ * Reflective property access:
+ * GridState: 8409 ns/state, WindowState: 6768 ns/state
+ *
+ * Method handle based property encoders (JsonCodec.encode):
+ * GridState: 7923 ns/state, WindowState: 4468 ns/state
+ */
+public class StateEncodingPerformanceTester {
+
+    private static final int ROUNDS = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        GridState gridState = new GridState();
+        gridState.caption = "Grid";
+        gridState.frozenColumnCount = 2;
+        JsonObject gridReference = (JsonObject) JsonCodec
+                .encode(new GridState(), null, GridState.class, null)
+                .getEncodedValue();
+
+        WindowState windowState = new WindowState();
+        windowState.caption = "Window";
+        windowState.positionX = 100;
+        windowState.modal = true;
+        JsonObject windowReference = (JsonObject) JsonCodec
+                .encode(new WindowState(), null, WindowState.class, null)
+                .getEncodedValue();
+
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            encodeReflectively(gridState, gridReference);
+            encodeReflectively(windowState, windowReference);
+            encode(gridState, gridReference);
+            encode(windowState, windowReference);
+        }
+
+        System.out.println("Reflective property access:");
+        long start = System.nanoTime();
+        encodeReflectively(gridState, gridReference);
+        report("GridState", start);
+        start = System.nanoTime();
+        encodeReflectively(windowState, windowReference);
+        report("WindowState", start);
+
+        System.out.println("JsonCodec.encode:");
+        start = System.nanoTime();
+        encode(gridState, gridReference);
+        report("GridState", start);
+        start = System.nanoTime();
+        encode(windowState, windowReference);
+        report("WindowState", start);
+    }
+
+    private static int encode(Object state, JsonObject reference) {
+        int changes = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            JsonObject diff = (JsonObject) JsonCodec
+                    .encode(state, reference, state.getClass(), null)
+                    .getDiff();
+            changes += diff.keys().length;
+        }
+        return changes;
+    }
+
+    private static int encodeReflectively(Object state, JsonObject reference)
+            throws Exception {
+        int changes = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            changes += encodeObject(state, reference).keys().length;
+        }
+        return changes;
+    }
+
+    private static JsonObject encodeObject(Object state, JsonObject reference)
+            throws Exception {
+        JsonObject encoded = Json.createObject();
+        JsonObject diff = Json.createObject();
+        for (BeanProperty property : JsonCodec
+                .getProperties(state.getClass())) {
+            String name = property.getName();
+            Type type = property.getType();
+            Object value = property.getValue(state);
+            if (encoded.hasKey(name)) {
+                throw new IllegalStateException(name);
+            }
+            JsonValue fieldReference = reference.get(name);
+            if (fieldReference instanceof JsonNull) {
+                fieldReference = null;
+            }
+            EncodeResult result = JsonCodec.encode(value, fieldReference,
+                    type, null);
+            encoded.put(name, result.getEncodedValue());
+            JsonValue encodedValue = result.getEncodedValue();
+            if (encodedValue instanceof JsonNull) {
+                encodedValue = null;
+            }
+            if (encodedValue != fieldReference && (encodedValue == null
+                    || fieldReference == null
+                    || !JsonCodec.jsonEquals(encodedValue, fieldReference))) {
+                diff.put(name, result.getDiffOrValue());
+            }
+        }
+        return diff;
+    }
+
+    private static void report(String name, long start) {
+        double nanos = System.nanoTime() - start;
+        System.out.println(String.format("%s: %.0f ns/state", name,
+                nanos / ROUNDS));
+    }
+}
@@ -0,0 +1,116 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Properties;
+import java.util.function.BiFunction;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.VaadinServlet;
+
+/*
+ * Measures serving /VAADIN/vaadinBootstrap.js from the class path through
+ * VaadinServlet.serveStaticResources to a client accepting gzip.
+ *
+ * Results on Linux x64, Java 8, 20000 requests after warm-up, third round.
+ * The build output contains a pre-built vaadinBootstrap.js.gz, so both cases
+ * send the same gzip compressed bytes:
+ *
+ * Without the static resource cache:
+ * 49.5 us per request, 3.9 kB sent per request
+ *
+ * With the static resource cache:
+ * 1.3 us per request, 3.9 kB sent per request
+ */
+public class StaticResourcePerformanceTester {
+
+    private static final int REQUESTS = 20000;
+
+    private static class Servlet extends VaadinServlet {
+        void serve(HttpServletRequest request, HttpServletResponse response)
+                throws Exception {
+            serveStaticResourcesInVAADIN("/VAADIN/vaadinBootstrap.js", request,
+                    response);
+        }
+    }
+
+    private static long bytesSent;
+
+    public static void main(String[] args) throws Exception {
+        for (int round = 0; round < 3; round++) {
+            System.out.println("Without the static resource cache:");
+            measure("0");
+            System.out.println("With the static resource cache:");
+            measure("64");
+        }
+    }
+
+    private static void measure(String cacheSize) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("productionMode", "true");
+        properties.setProperty("staticResourceCacheSize", cacheSize);
+        Servlet servlet = new Servlet();
+        servlet.init(new MockServletConfig(properties));
+
+        HttpServletRequest request = stub(HttpServletRequest.class,
+                (method, args) -> {
+                    if (method.equals("getHeader")
+                            && "Accept-Encoding".equals(args[0])) {
+                        return "gzip, deflate";
+                    } else if (method.equals("getDateHeader")) {
+                        return -1L;
+                    }
+                    return null;
+                });
+        ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                bytesSent++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytesSent += len;
+            }
+        };
+        HttpServletResponse response = stub(HttpServletResponse.class,
+                (method, args) -> method.equals("getOutputStream") ? out
+                        : null);
+
+        for (int i = 0; i < REQUESTS; i++) {
+            servlet.serve(request, response);
+        }
+
+        bytesSent = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            servlet.serve(request, response);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%.1f us per request, %.1f kB sent per request%n",
+                elapsed / 1000.0 / REQUESTS, bytesSent / 1024.0 / REQUESTS);
+        servlet.destroy();
+    }
+
+    /*
+     * Lightweight stub that does not record invocations like a mock would.
+     */
+    private static <T> T stub(Class<T> type,
+            BiFunction<String, Object[], Object> answer) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                new Class<?>[] { type }, (proxy, method, args) -> {
+                    Object value = answer.apply(method.getName(), args);
+                    if (value == null && method.getReturnType() == int.class) {
+                        return 0;
+                    } else if (value == null
+                            && method.getReturnType() == boolean.class) {
+                        return false;
+                    }
+                    return value;
+                }));
+    }
+}
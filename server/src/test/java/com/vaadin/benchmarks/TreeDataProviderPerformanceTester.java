@@ -0,0 +1,67 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.data.TreeData;
+import com.vaadin.data.provider.HierarchicalQuery;
+import com.vaadin.data.provider.TreeDataProvider;
+import com.vaadin.server.SerializablePredicate;
+
+/*
+ * Measures filtering a TreeDataProvider with 100000 items, ten children per
+ * item, five levels deep. The filter matches one item in a thousand. The
+ * children of every item are counted and fetched once, which is what a fully
+ * expanded TreeGrid does.
+ *
+ * Please run with -server.
+ *
+ * Results on Linux x64, Java 8, last three of five rounds in three runs:
+ *
+ * Previous implementation, every subtree flattened for each query:
+ * 128-391 ms/round
+ *
+ * Subtree matches cached until the data provider is refreshed:
+ * 50-85 ms/round
+ *
+ * The difference grows with the depth of the tree, as the previous
+ * implementation visited each item once for every ancestor. Most of the
+ * remaining time is running the 200000 queries themselves.
+ */
+public class TreeDataProviderPerformanceTester {
+
+    private static final int CHILDREN = 10;
+    private static final int ITEMS = 100000;
+
+    public static void main(String[] args) {
+        TreeData<String> data = new TreeData<>();
+        List<String> parents = new ArrayList<>();
+        parents.add(null);
+        for (int i = 0; parents.size() < ITEMS; i++) {
+            String parent = parents.get(i);
+            for (int child = 0; child < CHILDREN; child++) {
+                String item = (parent == null ? "" : parent + "/") + child;
+                data.addItem(parent, item);
+                parents.add(item);
+            }
+        }
+
+        TreeDataProvider<String> provider = new TreeDataProvider<>(data);
+        SerializablePredicate<String> filter = item -> item.endsWith("/7/7/7");
+
+        for (int round = 0; round < 5; round++) {
+            provider.setFilter(filter);
+            long time = System.nanoTime();
+            long fetched = 0;
+            for (String parent : parents) {
+                HierarchicalQuery<String, SerializablePredicate<String>> query = new HierarchicalQuery<>(
+                        null, parent);
+                provider.getChildCount(query);
+                fetched += provider.fetchChildren(query).count();
+            }
+            time = System.nanoTime() - time;
+            System.out.println(String.format("%d items fetched, %.1f ms",
+                    fetched, time / 1e6));
+        }
+    }
+}
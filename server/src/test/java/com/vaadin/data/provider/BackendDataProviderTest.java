@@ -1,12 +1,19 @@
 package com.vaadin.data.provider;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.junit.Test;
+
 import com.vaadin.server.SerializablePredicate;
 import com.vaadin.shared.data.sort.SortDirection;
 
@@ -65,4 +72,45 @@ public class BackendDataProviderTest extends
         getDataProvider().setSortOrders(sortOrder);
     }
 
+    @Test
+    public void fetchWithSize_pageAndTotalWithDefaultSorting() {
+        getDataProvider().setSortOrder(
+                new QuerySortOrder("id", SortDirection.DESCENDING));
+
+        FetchResult<StrBean> result = getDataProvider()
+                .fetchWithSize(new Query<>(2, 3, Collections.emptyList(), null,
+                        fooFilter));
+
+        List<StrBean> foos = data.stream().filter(fooFilter)
+                .sorted(Comparator.comparing(StrBean::getId).reversed())
+                .collect(Collectors.toList());
+        assertEquals(foos.size(), result.getSize());
+        assertEquals(foos.subList(2, 5), result.getItems());
+    }
+
+    @Test
+    public void fetchWithSize_countQueryHasNoPaging() {
+        AtomicInteger counts = new AtomicInteger();
+        CallbackDataProvider<StrBean, Void> provider = new CallbackDataProvider<>(
+                query -> data.stream().skip(query.getOffset())
+                        .limit(query.getLimit()),
+                query -> {
+                    counts.incrementAndGet();
+                    assertEquals(0, query.getOffset());
+                    assertEquals(Integer.MAX_VALUE, query.getLimit());
+                    assertTrue(query.getSortOrders().isEmpty());
+                    return (int) data.stream().skip(query.getOffset())
+                            .limit(query.getLimit()).count();
+                });
+
+        FetchResult<StrBean> result = provider
+                .fetchWithSize(new Query<>(10, 5,
+                        Collections.singletonList(new QuerySortOrder("id",
+                                SortDirection.ASCENDING)),
+                        null, null));
+
+        assertEquals(1, counts.get());
+        assertEquals(data.size(), result.getSize());
+        assertEquals(5, result.getItems().size());
+    }
 }
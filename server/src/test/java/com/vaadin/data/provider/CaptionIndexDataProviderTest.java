@@ -0,0 +1,139 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.shared.data.sort.SortDirection;
+
+public class CaptionIndexDataProviderTest {
+
+    private List<String> items;
+    private ListDataProvider<String> backend;
+    private Locale locale = Locale.ENGLISH;
+    private CaptionIndexDataProvider<String> provider;
+
+    @Before
+    public void setup() {
+        Random random = new Random(42);
+        items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder caption = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                caption.append((char) ('a' + random.nextInt(4)));
+                if (random.nextInt(5) == 0) {
+                    caption.setCharAt(j, Character
+                            .toUpperCase(caption.charAt(j)));
+                }
+            }
+            items.add(caption.toString());
+        }
+        backend = new ListDataProvider<>(items);
+        provider = new CaptionIndexDataProvider<>(backend, item -> item,
+                () -> locale);
+    }
+
+    @Test
+    public void filters_sameResultAsSubstringMatch() {
+        for (String filter : Arrays.asList("a", "Ab", "abc", "abca", "cab",
+                "dddd", "x", "abx", "bcdabc")) {
+            assertFilter(filter);
+        }
+    }
+
+    @Test
+    public void typingFilter_sameResultAsSubstringMatch() {
+        String typed = "abcadb";
+        for (int i = 1; i <= typed.length(); i++) {
+            assertFilter(typed.substring(0, i));
+        }
+        for (int i = typed.length(); i > 0; i--) {
+            assertFilter(typed.substring(0, i));
+        }
+    }
+
+    @Test
+    public void noFilter_allItems() {
+        assertEquals(items.size(), provider.size(new Query<>()));
+        assertEquals(items.size(),
+                provider.size(new Query<>(0, 50, null, null, "")));
+        assertEquals(50, provider.fetch(new Query<>(0, 50, null, null, ""))
+                .count());
+    }
+
+    @Test
+    public void backendFilterAndSort_applied() {
+        backend.setFilter(item -> item.length() > 5);
+        backend.setSortOrder(item -> item, SortDirection.DESCENDING);
+
+        List<String> expected = items.stream()
+                .filter(item -> item.length() > 5)
+                .filter(item -> item.toLowerCase(locale).contains("ab"))
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+
+        Query<String, String> query = new Query<>(3, 10, null, null, "ab");
+        assertEquals(expected.size(), provider.size(query));
+        assertEquals(expected.subList(3, 13),
+                provider.fetch(query).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void refreshAll_indexRebuilt() {
+        // Like a component using the data provider
+        provider.addDataProviderListener(event -> {
+        });
+        assertFilter("abcabc");
+
+        items.add("xAbCaBcx");
+        backend.refreshAll();
+
+        assertFilter("abcabc");
+    }
+
+    @Test
+    public void itemsChangedBeforeListenerAdded_indexRebuilt() {
+        assertFilter("dd");
+
+        items.add("DDD");
+        provider.addDataProviderListener(event -> {
+        });
+
+        assertFilter("dd");
+    }
+
+    @Test
+    public void localeChange_indexRebuilt() {
+        items.clear();
+        items.add("TITLE");
+        items.add("title");
+
+        assertEquals(2, provider.size(new Query<>(0, 10, null, null, "ti")));
+
+        locale = new Locale("tr");
+        // Turkish lower case for I is dotless
+        assertEquals(1, provider.size(new Query<>(0, 10, null, null, "ti")));
+    }
+
+    private void assertFilter(String filter) {
+        List<String> expected = items.stream()
+                .filter(item -> item.toLowerCase(locale)
+                        .contains(filter.toLowerCase(locale)))
+                .collect(Collectors.toList());
+        Query<String, String> query = new Query<>(0, Integer.MAX_VALUE, null,
+                null, filter);
+        assertEquals(filter, expected.size(), provider.size(query));
+        assertEquals(filter, expected,
+                provider.fetch(query).collect(Collectors.toList()));
+    }
+}
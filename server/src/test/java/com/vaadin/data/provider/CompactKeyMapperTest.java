@@ -0,0 +1,159 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.vaadin.tests.server.ClassesSerializableTest;
+
+public class CompactKeyMapperTest {
+
+    @Test
+    public void keyAndGet() {
+        CompactKeyMapper<StrBean> mapper = new CompactKeyMapper<>(
+                StrBean::getId);
+        StrBean first = new StrBean("first", 1, 0);
+        StrBean second = new StrBean("second", 2, 0);
+
+        String firstKey = mapper.key(first);
+        String secondKey = mapper.key(second);
+
+        assertNotEquals(firstKey, secondKey);
+        assertEquals(firstKey, mapper.key(first));
+        assertSame(first, mapper.get(firstKey));
+        assertSame(second, mapper.get(secondKey));
+        assertTrue(mapper.has(first));
+        assertEquals(2, mapper.size());
+
+        assertEquals("null", mapper.key(null));
+        assertNull(mapper.get("null"));
+        assertNull(mapper.get("0" + firstKey));
+        assertNull(mapper.get("12345"));
+    }
+
+    @Test
+    public void remove_keyNotReused() {
+        CompactKeyMapper<StrBean> mapper = new CompactKeyMapper<>(
+                StrBean::getId);
+        StrBean bean = new StrBean("bean", 1, 0);
+        String key = mapper.key(bean);
+
+        mapper.remove(bean);
+        assertFalse(mapper.has(bean));
+        assertNull(mapper.get(key));
+        assertEquals(0, mapper.size());
+
+        assertNotEquals(key, mapper.key(bean));
+
+        mapper.removeAll();
+        assertFalse(mapper.has(bean));
+        assertEquals(0, mapper.size());
+    }
+
+    @Test
+    public void refresh_replacesDataObject() {
+        CompactKeyMapper<StrBean> mapper = new CompactKeyMapper<>(
+                StrBean::getId);
+        StrBean bean = new StrBean("bean", 1, 0);
+        String key = mapper.key(bean);
+
+        StrBean updated = new StrBean("updated", 1, 0);
+        mapper.refresh(updated);
+
+        assertSame(updated, mapper.get(key));
+        assertEquals(key, mapper.key(bean));
+    }
+
+    @Test
+    public void itemResolver_onlyIdentifiersKept() {
+        Map<Integer, StrBean> backEnd = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            backEnd.put(i, new StrBean("bean " + i, i, 0));
+        }
+        CompactKeyMapper<StrBean> mapper = new CompactKeyMapper<>(
+                StrBean::getId, backEnd::get);
+
+        StrBean copy = new StrBean("copy", 5, 0);
+        String key = mapper.key(copy);
+
+        assertTrue(mapper.has(backEnd.get(5)));
+        assertSame(backEnd.get(5), mapper.get(key));
+
+        mapper.setIdentifierGetter(StrBean::getValue);
+        assertFalse(mapper.has(backEnd.get(5)));
+        assertNull(mapper.get(key));
+    }
+
+    @Test
+    public void setIdentifierGetter_mappingsUpdated() {
+        CompactKeyMapper<StrBean> mapper = new CompactKeyMapper<>(
+                StrBean::getId);
+        StrBean bean = new StrBean("bean", 1, 0);
+        String key = mapper.key(bean);
+
+        mapper.setIdentifierGetter(StrBean::getValue);
+
+        assertTrue(mapper.has(new StrBean("bean", 2, 0)));
+        assertFalse(mapper.has(new StrBean("other", 1, 0)));
+        assertEquals(key, mapper.key(new StrBean("bean", 2, 0)));
+    }
+
+    @Test
+    public void randomOperations_matchKeyMapper() {
+        CompactKeyMapper<Integer> mapper = new CompactKeyMapper<>(i -> i);
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            Integer item = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                String key = mapper.key(item);
+                String previous = expected.put(item, key);
+                if (previous != null) {
+                    assertEquals(previous, key);
+                }
+            } else {
+                mapper.remove(item);
+                expected.remove(item);
+            }
+        }
+
+        assertEquals(expected.size(), mapper.size());
+        for (int item = 0; item < 2000; item++) {
+            String key = expected.get(item);
+            assertEquals(key != null, mapper.has(item));
+            if (key != null) {
+                assertEquals(item, (int) mapper.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void serializable() throws Exception {
+        CompactKeyMapper<StrBean> mapper = new CompactKeyMapper<>(
+                StrBean::getId);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add(mapper.key(new StrBean("bean " + i, i, 0)));
+        }
+
+        CompactKeyMapper<StrBean> deserialized = ClassesSerializableTest
+                .serializeAndDeserialize(mapper);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("bean " + i,
+                    deserialized.get(keys.get(i)).getValue());
+        }
+    }
+}
@@ -5,8 +5,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -20,6 +24,7 @@ import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
+import com.vaadin.shared.data.sort.SortDirection;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
@@ -314,4 +319,202 @@ public class DataCommunicatorTest {
         assertTrue("DataCommunicator should be marked as dirty",
                 ui.getConnectorTracker().isDirty(communicator));
     }
+
+    private static class CountingBackEnd {
+        private final List<String> items = new ArrayList<>(
+                Arrays.asList("one", "two", "three"));
+        private int fetches;
+        private int counts;
+        private int fetchesWithSize;
+
+        private CallbackDataProvider<String, String> createDataProvider() {
+            CallbackDataProvider<String, String> dataProvider = new CallbackDataProvider<>(
+                    query -> {
+                        fetches++;
+                        return filter(query).skip(query.getOffset())
+                                .limit(query.getLimit());
+                    }, query -> {
+                        counts++;
+                        return (int) filter(query).count();
+                    });
+            dataProvider.setFetchWithSizeCallback(query -> {
+                fetchesWithSize++;
+                List<String> matching = filter(query)
+                        .collect(Collectors.toList());
+                return new FetchResult<>(
+                        matching.stream().skip(query.getOffset())
+                                .limit(query.getLimit())
+                                .collect(Collectors.toList()),
+                        matching.size());
+            });
+            return dataProvider;
+        }
+
+        private Stream<String> filter(Query<String, String> query) {
+            return items.stream().filter(item -> item
+                    .contains(query.getFilter().orElse("")));
+        }
+    }
+
+    private static class StringDataCommunicator
+            extends DataCommunicator<String> {
+        protected void extend(UI ui) {
+            super.extend(ui);
+        }
+    }
+
+    @Test
+    public void reset_fetchesItemsAndSizeWithOneQuery() {
+        session.lock();
+        UI ui = new TestUI(session);
+        CountingBackEnd backEnd = new CountingBackEnd();
+        StringDataCommunicator communicator = new StringDataCommunicator();
+        communicator.extend(ui);
+        communicator.setSizeCacheEnabled(true);
+        communicator.setDataProvider(backEnd.createDataProvider(), null);
+
+        communicator.beforeClientResponse(true);
+
+        assertEquals(1, backEnd.fetchesWithSize);
+        assertEquals(0, backEnd.fetches);
+        assertEquals(0, backEnd.counts);
+        assertTrue(communicator.getKeyMapper().has("three"));
+        assertEquals(3, communicator.getDataProviderSize());
+        assertEquals(0, backEnd.counts);
+    }
+
+    @Test
+    public void sortingChange_usesCachedSize() {
+        session.lock();
+        UI ui = new TestUI(session);
+        CountingBackEnd backEnd = new CountingBackEnd();
+        StringDataCommunicator communicator = new StringDataCommunicator();
+        communicator.extend(ui);
+        communicator.setSizeCacheEnabled(true);
+        communicator.setDataProvider(backEnd.createDataProvider(), null);
+        communicator.beforeClientResponse(true);
+
+        communicator.setBackEndSorting(
+                Collections.singletonList(new QuerySortOrder("name",
+                        SortDirection.DESCENDING)));
+        communicator.onRequestRows(0, 3, 0, 0);
+        communicator.beforeClientResponse(false);
+
+        assertEquals(0, backEnd.counts);
+        assertEquals(1, backEnd.fetches);
+    }
+
+    @Test
+    public void dataChange_invalidatesCachedSize() {
+        session.lock();
+        UI ui = new TestUI(session);
+        CountingBackEnd backEnd = new CountingBackEnd();
+        CallbackDataProvider<String, String> dataProvider = backEnd
+                .createDataProvider();
+        StringDataCommunicator communicator = new StringDataCommunicator();
+        communicator.extend(ui);
+        communicator.setSizeCacheEnabled(true);
+        communicator.setDataProvider(dataProvider, null);
+        communicator.beforeClientResponse(true);
+
+        backEnd.items.add("four");
+        assertEquals(3, communicator.getDataProviderSize());
+
+        dataProvider.refreshAll();
+        assertEquals(4, communicator.getDataProviderSize());
+        assertEquals(1, backEnd.counts);
+
+        dataProvider.refreshItem("four");
+        assertEquals(4, communicator.getDataProviderSize());
+        assertEquals(1, backEnd.counts);
+    }
+
+    @Test
+    public void filterChange_sizeCachedByFilter() {
+        session.lock();
+        UI ui = new TestUI(session);
+        CountingBackEnd backEnd = new CountingBackEnd();
+        StringDataCommunicator communicator = new StringDataCommunicator();
+        communicator.extend(ui);
+        communicator.setSizeCacheEnabled(true);
+        SerializableConsumer<String> filterSlot = communicator
+                .setDataProvider(backEnd.createDataProvider(), null);
+        communicator.beforeClientResponse(true);
+
+        filterSlot.accept("o");
+        assertEquals(2, communicator.getDataProviderSize());
+        assertEquals(1, backEnd.counts);
+        assertEquals(2, communicator.getDataProviderSize());
+        assertEquals(1, backEnd.counts);
+
+        filterSlot.accept(null);
+        assertEquals(3, communicator.getDataProviderSize());
+        assertEquals(2, backEnd.counts);
+    }
+
+    @Test
+    public void sizeCacheDisabledOrDetached_sizeQueriedEveryTime() {
+        session.lock();
+        UI ui = new TestUI(session);
+        CountingBackEnd backEnd = new CountingBackEnd();
+        StringDataCommunicator communicator = new StringDataCommunicator();
+        communicator.setDataProvider(backEnd.createDataProvider(), null);
+
+        communicator.getDataProviderSize();
+        communicator.getDataProviderSize();
+        assertEquals(2, backEnd.counts);
+
+        communicator.extend(ui);
+        communicator.setSizeCacheEnabled(false);
+        communicator.getDataProviderSize();
+        communicator.getDataProviderSize();
+        assertEquals(4, backEnd.counts);
+    }
+
+    @Test
+    public void sizeCacheDisabled_resetDoesNotCountAgain() {
+        session.lock();
+        UI ui = new TestUI(session);
+        CountingBackEnd backEnd = new CountingBackEnd();
+        StringDataCommunicator communicator = new StringDataCommunicator();
+        communicator.extend(ui);
+        communicator.setSizeCacheEnabled(false);
+        communicator.setDataProvider(backEnd.createDataProvider(), null);
+
+        communicator.beforeClientResponse(true);
+
+        assertEquals(1, backEnd.fetchesWithSize);
+        assertEquals(0, backEnd.fetches);
+        assertEquals(0, backEnd.counts);
+    }
+
+    @Test
+    public void fetchMethodsOverridden_overriddenMethodsUsedOnReset() {
+        session.lock();
+        UI ui = new TestUI(session);
+        CountingBackEnd backEnd = new CountingBackEnd();
+        List<String> calls = new ArrayList<>();
+        StringDataCommunicator communicator = new StringDataCommunicator() {
+            @Override
+            public List<String> fetchItemsWithRange(int offset, int limit) {
+                calls.add("fetch");
+                return super.fetchItemsWithRange(offset, limit);
+            }
+
+            @Override
+            public int getDataProviderSize() {
+                calls.add("size");
+                return super.getDataProviderSize();
+            }
+        };
+        communicator.extend(ui);
+        communicator.setDataProvider(backEnd.createDataProvider(), null);
+
+        communicator.beforeClientResponse(true);
+
+        assertEquals(Arrays.asList("size", "fetch"), calls);
+        assertEquals(0, backEnd.fetchesWithSize);
+        assertEquals(1, backEnd.fetches);
+        assertEquals(1, backEnd.counts);
+    }
 }
@@ -0,0 +1,145 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.vaadin.server.SerializablePredicate;
+
+/**
+ * Runs the {@link ListDataProvider} tests with the view cache enabled and
+ * verifies the caching itself.
+ */
+public class ListDataProviderViewCacheTest extends ListDataProviderTest {
+
+    @Override
+    protected ListDataProvider<StrBean> createDataProvider() {
+        ListDataProvider<StrBean> dataProvider = super.createDataProvider();
+        dataProvider.setViewCacheEnabled(true);
+        return dataProvider;
+    }
+
+    @Test
+    public void viewCacheDisabledByDefault() {
+        assertFalse(DataProvider.ofItems("a").isViewCacheEnabled());
+        assertTrue(getDataProvider().isViewCacheEnabled());
+    }
+
+    @Test
+    public void pagedFetch_sortsOnlyOnce() {
+        AtomicInteger comparisons = new AtomicInteger();
+        Comparator<StrBean> comparator = (b1, b2) -> {
+            comparisons.incrementAndGet();
+            return Integer.compare(b1.getId(), b2.getId());
+        };
+
+        List<Integer> ids = new ArrayList<>();
+        for (int offset = 0; offset < data.size(); offset += 30) {
+            getDataProvider()
+                    .fetch(new Query<>(offset, 30, null, comparator, null))
+                    .map(StrBean::getId).forEach(ids::add);
+        }
+        int sortComparisons = comparisons.get();
+        assertTrue(sortComparisons > 0);
+
+        getDataProvider().fetch(new Query<>(90, 30, null, comparator, null))
+                .count();
+        assertEquals(sortComparisons, comparisons.get());
+
+        assertEquals(data.stream().map(StrBean::getId).sorted()
+                .collect(Collectors.toList()), ids);
+    }
+
+    @Test
+    public void size_usesCachedView() {
+        AtomicInteger tests = new AtomicInteger();
+        SerializablePredicate<StrBean> filter = bean -> {
+            tests.incrementAndGet();
+            return bean.getValue().equals("Foo");
+        };
+        Query<StrBean, SerializablePredicate<StrBean>> query = new Query<>(
+                filter);
+
+        int size = getDataProvider().size(query);
+        assertEquals(data.size(), tests.get());
+        assertEquals(size, getDataProvider().fetch(query).count());
+        assertEquals(size, getDataProvider().size(query));
+        assertEquals(data.size(), tests.get());
+    }
+
+    @Test
+    public void refreshAll_discardsCachedViews() {
+        Query<StrBean, SerializablePredicate<StrBean>> query = new Query<>(
+                fooFilter);
+        int size = getDataProvider().size(query);
+
+        data.add(new StrBean("Foo", 100, 0));
+        assertEquals(size, getDataProvider().size(query));
+
+        getDataProvider().refreshAll();
+        assertEquals(size + 1, getDataProvider().size(query));
+    }
+
+    @Test
+    public void refreshItem_discardsCachedViews() {
+        Query<StrBean, SerializablePredicate<StrBean>> query = new Query<>(
+                fooFilter);
+        int size = getDataProvider().size(query);
+
+        StrBean bean = data.stream().filter(fooFilter).findFirst().get();
+        bean.setValue("Bar");
+        assertEquals(size, getDataProvider().size(query));
+
+        getDataProvider().refreshItem(bean);
+        assertEquals(size - 1, getDataProvider().size(query));
+    }
+
+    @Test
+    public void setFilter_usesNewView() {
+        int all = getDataProvider().size(new Query<>(gt5Filter));
+        getDataProvider().setFilter(fooFilter);
+        assertEquals(
+                data.stream().filter(fooFilter).filter(gt5Filter).count(),
+                getDataProvider().size(new Query<>(gt5Filter)));
+        getDataProvider().clearFilters();
+        assertEquals(all, getDataProvider().size(new Query<>(gt5Filter)));
+    }
+
+    @Test
+    public void collectionLargerThanMaxSize_notCached() {
+        getDataProvider().setViewCacheMaxSize(data.size() - 1);
+
+        Query<StrBean, SerializablePredicate<StrBean>> query = new Query<>(
+                fooFilter);
+        int size = getDataProvider().size(query);
+        data.add(new StrBean("Foo", 100, 0));
+        assertEquals(size + 1, getDataProvider().size(query));
+    }
+
+    @Test
+    public void parallelSort_sortsView() {
+        getDataProvider().setParallelSort(true);
+        getDataProvider().setSortComparator(
+                (b1, b2) -> Integer.compare(b2.getId(), b1.getId()));
+
+        assertEquals(
+                data.stream().map(StrBean::getId)
+                        .sorted(Comparator.reverseOrder())
+                        .collect(Collectors.toList()),
+                getDataProvider().fetch(new Query<>()).map(StrBean::getId)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMaxSize_throws() {
+        getDataProvider().setViewCacheMaxSize(-1);
+    }
+}
@@ -9,6 +9,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -248,6 +252,114 @@ public class TreeDataProviderTest
         assertTrue(provider.fetchChildren(query).allMatch(root1::equals));
     }
 
+    @Test
+    public void filter_evaluatedOncePerItem() {
+        TreeData<String> stringData = createDeepTree();
+        TreeDataProvider<String> provider = new TreeDataProvider<>(
+                stringData);
+        AtomicInteger tests = new AtomicInteger();
+        provider.setFilter(item -> {
+            tests.incrementAndGet();
+            return item.equals("a/b/c/d");
+        });
+
+        for (String parent : Arrays.asList(null, "a", "a/b", "a/b/c", null,
+                "a")) {
+            HierarchicalQuery<String, SerializablePredicate<String>> query = new HierarchicalQuery<>(
+                    null, parent);
+            assertEquals(1, provider.getChildCount(query));
+            assertEquals(1, provider.fetchChildren(query).count());
+        }
+        assertEquals(
+                "Each item should only be tested against the filter once",
+                6, tests.get());
+    }
+
+    @Test
+    public void filter_treeDataChangedAndRefreshed_changesIncluded() {
+        TreeData<String> stringData = createDeepTree();
+        TreeDataProvider<String> provider = new TreeDataProvider<>(
+                stringData);
+        provider.setFilter(item -> item.endsWith("x"));
+        HierarchicalQuery<String, SerializablePredicate<String>> query = new HierarchicalQuery<>(
+                null, null);
+        assertEquals(0, provider.getChildCount(query));
+
+        stringData.addItem("a/b/c", "a/b/c/x");
+        provider.refreshAll();
+        assertEquals(Arrays.asList("a"),
+                provider.fetchChildren(query).collect(Collectors.toList()));
+
+        stringData.removeItem("a/b/c/x");
+        stringData.addItem("b", "b/x");
+        provider.refreshItem("b/x");
+        assertEquals(Arrays.asList("b"),
+                provider.fetchChildren(query).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void filter_queryFilterChanged_newFilterUsed() {
+        TreeDataProvider<String> provider = new TreeDataProvider<>(
+                createDeepTree());
+        assertEquals(Arrays.asList("a"),
+                provider.fetchChildren(new HierarchicalQuery<>(
+                        item -> item.equals("a/b/c/d"), null))
+                        .collect(Collectors.toList()));
+        assertEquals(Arrays.asList("b", "c"),
+                provider.fetchChildren(new HierarchicalQuery<>(
+                        item -> !item.startsWith("a"), null))
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void filter_concurrentQueriesWithDifferentFilters_correctResults()
+            throws Exception {
+        TreeData<String> stringData = new TreeData<>();
+        for (int i = 0; i < 100; i++) {
+            stringData.addItem(null, "root" + i);
+            for (int j = 0; j < 20; j++) {
+                stringData.addItem("root" + i, "root" + i + "/" + j);
+            }
+        }
+        TreeDataProvider<String> provider = new TreeDataProvider<>(
+                stringData);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int task = 0; task < 4; task++) {
+                String suffix = "/" + task;
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 200; round++) {
+                        // A new filter instance every round
+                        SerializablePredicate<String> filter = item -> item
+                                .endsWith(suffix);
+                        assertEquals(100, provider.getChildCount(
+                                new HierarchicalQuery<>(filter, null)));
+                        assertEquals(Arrays.asList("root7" + suffix),
+                                provider.fetchChildren(new HierarchicalQuery<>(
+                                        filter, "root7"))
+                                        .collect(Collectors.toList()));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static TreeData<String> createDeepTree() {
+        TreeData<String> stringData = new TreeData<>();
+        stringData.addRootItems("a", "b", "c");
+        stringData.addItem("a", "a/b");
+        stringData.addItem("a/b", "a/b/c");
+        stringData.addItem("a/b/c", "a/b/c/d");
+        return stringData;
+    }
+
     @Test
     public void setFilter() {
         getDataProvider().setFilter(item -> item.getValue().equals("Xyz")
@@ -97,6 +97,33 @@ public class HierarchicalCommunicatorTest {
         assertEquals(-1, communicator.getParentIndex(FOLDER).longValue());
     }
 
+    @Test
+    public void refreshAll_hierarchyResetWhenSentToClient() {
+        communicator.expand(ROOT);
+        assertEquals(2, communicator.getDataProviderSize());
+
+        treeData.addItems(ROOT, "NEW");
+        dataProvider.refreshAll();
+        // Data provider events are not handled with the session lock held
+        assertEquals(2, communicator.getDataProviderSize());
+
+        communicator.beforeClientResponse(false);
+        assertEquals(3, communicator.getDataProviderSize());
+    }
+
+    @Test
+    public void dataChangedWhileDetached_hierarchyResetOnAttach() {
+        communicator.expand(ROOT);
+        assertEquals(2, communicator.getDataProviderSize());
+
+        communicator.detach();
+        treeData.addItems(ROOT, "NEW");
+        communicator.attach();
+
+        assertEquals(3, communicator.getDataProviderSize());
+        assertEquals(0, communicator.getParentIndex("NEW").intValue());
+    }
+
     private static class TestHierarchicalDataCommunicator<T>
             extends HierarchicalDataCommunicator<T> {
         @Override
@@ -1,6 +1,8 @@
 package com.vaadin.data.provider.hierarchical;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -210,6 +212,76 @@ public class HierarchyMapperWithDataTest {
         verifyFetchIsCorrect(expectedResult, range);
     }
 
+    @Test
+    public void indexOfAndParentIndexMatchFetchedRows() {
+        expand(testData.get(0));
+        expand(testData.get(1));
+        Node lastRoot = roots.get(roots.size() - 1);
+        expand(lastRoot);
+        expand(testData.get(testData.indexOf(lastRoot) + 1));
+        collapse(testData.get(1));
+        checkMapSize();
+
+        List<Node> rows = mapper.fetchItems(Range.between(0, mapSize))
+                .collect(Collectors.toList());
+        assertEquals(mapSize, rows.size());
+        for (int i = 0; i < rows.size(); ++i) {
+            Node node = rows.get(i);
+            assertEquals("Unexpected index", Integer.valueOf(i),
+                    mapper.getIndexOf(node).get());
+            Integer expectedParentIndex = node.getParent() == null ? -1
+                    : rows.indexOf(node.getParent());
+            assertEquals("Unexpected parent index", expectedParentIndex,
+                    mapper.getParentIndex(node));
+        }
+        assertFalse("Hidden node should not have an index",
+                mapper.getIndexOf(testData.get(2)).isPresent());
+    }
+
+    @Test
+    public void fetchChildrenOfExpandedNode() {
+        expand(testData.get(0));
+        expand(testData.get(1));
+
+        List<Node> children = mapper
+                .fetchItems(testData.get(0), Range.between(1, 4))
+                .collect(Collectors.toList());
+        assertEquals(testData.subList(2, 5), children);
+    }
+
+    @Test
+    public void resetHierarchyAfterDataChange() {
+        TreeData<Node> treeData = new TreeData<>();
+        Node root = new Node(0);
+        treeData.addItem(null, root);
+        treeData.addItem(root, new Node(root, 1));
+        mapper = new HierarchyMapper<>(new TreeDataProvider<>(treeData));
+        mapper.expand(root, 0);
+        assertEquals(2, mapper.getTreeSize());
+
+        treeData.addItem(root, new Node(root, 2));
+        mapper.resetHierarchy();
+        assertEquals(3, mapper.getTreeSize());
+    }
+
+    @Test
+    public void refreshData_refreshedInstanceFetched() {
+        TreeData<String> treeData = new TreeData<>();
+        treeData.addItem(null, "root");
+        treeData.addItem("root", "child");
+        HierarchyMapper<String, SerializablePredicate<String>> stringMapper = new HierarchyMapper<>(
+                new TreeDataProvider<>(treeData));
+        stringMapper.expand("root", 0);
+        assertEquals(2, stringMapper.getTreeSize());
+
+        String refreshed = new String("child");
+        stringMapper.refreshData(refreshed);
+
+        assertSame(refreshed, stringMapper.fetchItems(Range.withLength(1, 1))
+                .findFirst().get());
+        assertEquals(2, stringMapper.getTreeSize());
+    }
+
     private void expand(Node node) {
         insertRows(mapper.expand(node, mapper.getIndexOf(node).orElse(null)));
     }
@@ -1,8 +1,10 @@
 package com.vaadin.server;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -14,6 +16,7 @@ import java.io.InputStream;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.net.URL;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
@@ -21,8 +24,10 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.vaadin.shared.MouseEventDetails;
+import com.vaadin.shared.communication.ClientRpc;
 import com.vaadin.shared.communication.FieldRpc.BlurServerRpc;
 import com.vaadin.shared.ui.ClickRpc;
+import com.vaadin.ui.AbstractComponent;
 
 /**
  * We test that AbstractClientConnector has a suitable isThis method which is
@@ -96,6 +101,43 @@ public class AbstractClientConnectorTest {
         assertNull("Class should be garbage collected", classRef.get());
     }
 
+    public interface NestedClientRpc extends ClientRpc {
+        public void call(String value);
+    }
+
+    private static class RpcConnector extends AbstractComponent {
+        private NestedClientRpc getRpc() {
+            return getRpcProxy(NestedClientRpc.class);
+        }
+    }
+
+    @Test
+    public void getRpcProxy_proxyClassSharedAndCallsQueued() {
+        RpcConnector connector = new RpcConnector();
+        RpcConnector other = new RpcConnector();
+        NestedClientRpc rpc = connector.getRpc();
+
+        assertSame(rpc, connector.getRpc());
+        assertSame(rpc.getClass(), other.getRpc().getClass());
+
+        rpc.call("first");
+        other.getRpc().call("other");
+        rpc.call("second");
+
+        List<ClientMethodInvocation> calls = connector
+                .retrievePendingRpcCalls();
+        assertEquals(2, calls.size());
+        assertEquals(
+                "com.vaadin.server.AbstractClientConnectorTest.NestedClientRpc",
+                calls.get(0).getInterfaceName());
+        assertEquals("call", calls.get(0).getMethodName());
+        assertArrayEquals(new Object[] { "first" },
+                calls.get(0).getParameters());
+        assertArrayEquals(new Object[] { "second" },
+                calls.get(1).getParameters());
+        assertEquals(1, other.retrievePendingRpcCalls().size());
+    }
+
     private WeakReference<Class<?>> loadClass(String name)
             throws ClassNotFoundException {
         ClassLoader loader = new TestClassLoader();
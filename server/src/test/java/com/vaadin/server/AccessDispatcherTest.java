@@ -0,0 +1,186 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.AccessDispatcher.OverflowPolicy;
+
+public class AccessDispatcherTest {
+
+    private VaadinService service;
+    private AccessDispatcher dispatcher;
+    private MockVaadinSession session;
+    private final List<String> log = new ArrayList<>();
+
+    @Before
+    public void setup() throws ServletException {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        service = servlet.getService();
+        dispatcher = service.getAccessDispatcher();
+        session = new MockVaadinSession(service);
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    public void reject_fullQueue_taskRejected() {
+        dispatcher.setMaxPendingTasks(2);
+
+        session.lock();
+        session.access(() -> log.add("1"));
+        session.access(() -> log.add("2"));
+        try {
+            session.access(() -> log.add("3"));
+            throw new AssertionError("Task should have been rejected");
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        assertEquals(2, dispatcher.getPendingTaskCount(session));
+        session.unlock();
+
+        assertEquals("[1, 2]", log.toString());
+        assertEquals(0, dispatcher.getPendingTaskCount(session));
+        assertEquals(2, dispatcher.getSubmittedTaskCount());
+        assertEquals(2, dispatcher.getExecutedTaskCount());
+        assertEquals(1, dispatcher.getRejectedTaskCount());
+    }
+
+    @Test
+    public void reject_concurrentSubmitters_limitNotExceeded()
+            throws Exception {
+        dispatcher.setMaxPendingTasks(10);
+
+        session.lock();
+        try {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> submitters = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                submitters.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 100; j++) {
+                        try {
+                            dispatcher.dispatch(session, null, () -> {
+                            });
+                        } catch (RejectedExecutionException e) {
+                            // expected once the queue is full
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> submitter : submitters) {
+                submitter.get(10, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            assertEquals(10, dispatcher.getPendingTaskCount(session));
+            assertEquals(10, session.getPendingAccessQueue().size());
+            assertEquals(10, dispatcher.getSubmittedTaskCount());
+            assertEquals(790, dispatcher.getRejectedTaskCount());
+        } finally {
+            session.unlock();
+        }
+        assertEquals(0, dispatcher.getPendingTaskCount(session));
+    }
+
+    @Test
+    public void discardOldest_fullQueue_oldestCancelled() {
+        dispatcher.setMaxPendingTasks(2);
+        dispatcher.setOverflowPolicy(OverflowPolicy.DISCARD_OLDEST);
+
+        session.lock();
+        Future<Void> first = session.access(() -> log.add("1"));
+        session.access(() -> log.add("2"));
+        session.access(() -> log.add("3"));
+        session.unlock();
+
+        assertTrue(first.isCancelled());
+        assertEquals("[2, 3]", log.toString());
+        assertEquals(1, dispatcher.getRejectedTaskCount());
+    }
+
+    @Test
+    public void block_holdingLock_taskRejected() {
+        dispatcher.setMaxPendingTasks(1);
+        dispatcher.setOverflowPolicy(OverflowPolicy.BLOCK);
+
+        session.lock();
+        try {
+            session.access(() -> log.add("1"));
+            session.access(() -> log.add("2"));
+            throw new AssertionError("Task should have been rejected");
+        } catch (RejectedExecutionException expected) {
+            // expected
+        } finally {
+            session.unlock();
+        }
+        assertEquals("[1]", log.toString());
+    }
+
+    @Test
+    public void coalescingKey_pendingTaskReplaced() {
+        session.lock();
+        Future<Void> first = session.access("tick", () -> log.add("1"));
+        session.access("other", () -> log.add("other"));
+        session.access("tick", () -> log.add("2"));
+        session.access("tick", () -> log.add("3"));
+        assertEquals(2, dispatcher.getPendingTaskCount(session));
+        // Replaced tasks are skipped when purging rather than removed
+        assertEquals(4, session.getPendingAccessQueue().size());
+        session.unlock();
+
+        assertTrue(first.isCancelled());
+        assertEquals("[other, 3]", log.toString());
+        assertEquals(2, dispatcher.getCoalescedTaskCount());
+
+        // The key can be reused after the task has been run
+        session.access("tick", () -> log.add("4"));
+        assertEquals("[other, 3, 4]", log.toString());
+    }
+
+    @Test
+    public void batchInterval_tasksRunTogether() throws Exception {
+        dispatcher.setBatchInterval(50);
+
+        Future<Void> last = null;
+        for (int i = 0; i < 10; i++) {
+            String value = String.valueOf(i);
+            last = session.access(() -> {
+                synchronized (log) {
+                    log.add(value);
+                }
+            });
+        }
+        assertFalse("Tasks should wait for the batch interval",
+                last.isDone());
+
+        last.get(5, TimeUnit.SECONDS);
+        synchronized (log) {
+            assertEquals(10, log.size());
+        }
+        assertEquals(0, dispatcher.getPendingTaskCount(session));
+        assertTrue(dispatcher.getMaxLatency() > 0);
+    }
+}
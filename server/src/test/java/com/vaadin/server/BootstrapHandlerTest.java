@@ -1,14 +1,31 @@
 package com.vaadin.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
 import java.util.Properties;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.annotations.HtmlImport;
+import com.vaadin.annotations.JavaScript;
+import com.vaadin.annotations.StyleSheet;
+import com.vaadin.annotations.Theme;
+import com.vaadin.annotations.Title;
+import com.vaadin.annotations.Viewport;
 import com.vaadin.server.BootstrapHandler.BootstrapContext;
 import com.vaadin.server.BootstrapHandler.BootstrapUriResolver;
+import com.vaadin.server.communication.ServletBootstrapHandler;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.UI;
 
 public class BootstrapHandlerTest {
 
@@ -28,6 +45,181 @@ public class BootstrapHandlerTest {
         }
     }
 
+    @Theme("valo")
+    @Title("Bootstrap test")
+    @Viewport("width=device-width, initial-scale=1")
+    @JavaScript({ "vaadin://scripts/first.js", "https://host/second.js" })
+    @StyleSheet("vaadin://styles/extra.css")
+    @HtmlImport("frontend://bower_components/polymer/polymer.html")
+    public static class AnnotatedUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    @Title("Tom & Jerry <b>  \"quoted\"\t\u00e4\u00a0")
+    @Viewport("width=\"device-width\" & <scale>")
+    public static class SpecialCharactersUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    @Theme("sameasui")
+    public static class SameAsUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    private final ByteArrayOutputStream page = new ByteArrayOutputStream();
+    private final HttpServletResponse httpResponse = Mockito
+            .mock(HttpServletResponse.class);
+
+    @Test
+    public void templatePage_sameAsDomPage() throws Exception {
+        assertTemplateSameAsDom(AnnotatedUI.class, true, null);
+        assertTemplateSameAsDom(AnnotatedUI.class, false, null);
+    }
+
+    @Test
+    public void templatePage_noAnnotations_sameAsDomPage() throws Exception {
+        assertTemplateSameAsDom(UI.class, true, null);
+        assertTemplateSameAsDom(UI.class, false, null);
+    }
+
+    @Test
+    public void templatePage_escapedValues_sameAsDomPage() throws Exception {
+        assertTemplateSameAsDom(SpecialCharactersUI.class, true,
+                "width: 100%; font-family: \"a&b\"");
+        assertTemplateSameAsDom(SpecialCharactersUI.class, false,
+                "<style>");
+    }
+
+    @Test
+    public void templatePage_themeSameAsUIClassName_sameAsDomPage()
+            throws Exception {
+        assertTemplateSameAsDom(SameAsUI.class, true, null);
+        assertTrue(page.toString("UTF-8")
+                .contains("class=\"v-app sameasui\""));
+    }
+
+    @Test
+    public void templatePage_headersSent() throws Exception {
+        VaadinSession session = createSession(AnnotatedUI.class, true);
+        handleRequest(session, new ServletBootstrapHandler());
+
+        Mockito.verify(httpResponse).setHeader("Cache-Control", "no-cache");
+        Mockito.verify(httpResponse).setHeader("Pragma", "no-cache");
+        Mockito.verify(httpResponse).setDateHeader("Expires", 0);
+    }
+
+    @Test
+    public void bootstrapListener_modificationsIncluded() throws Exception {
+        VaadinSession session = createSession(AnnotatedUI.class, true);
+        session.addBootstrapListener(new BootstrapListener() {
+            @Override
+            public void modifyBootstrapFragment(
+                    BootstrapFragmentResponse response) {
+                response.getFragmentNodes().get(0).attr("data-fragment",
+                        "modified");
+            }
+
+            @Override
+            public void modifyBootstrapPage(BootstrapPageResponse response) {
+                response.getDocument().head().appendElement("meta")
+                        .attr("name", "modified");
+                response.setHeader("X-Modified", "true");
+            }
+        });
+        String html = handleRequest(session, new ServletBootstrapHandler());
+
+        assertTrue(html, html.contains("data-fragment=\"modified\""));
+        assertTrue(html, html.contains("<meta name=\"modified\">"));
+        Mockito.verify(httpResponse).setHeader("X-Modified", "true");
+    }
+
+    private void assertTemplateSameAsDom(Class<? extends UI> uiClass,
+            boolean standalone, String mainDivStyle) throws Exception {
+        BootstrapHandler handler = new ServletBootstrapHandler() {
+            @Override
+            protected String getMainDivStyle(BootstrapContext context) {
+                return mainDivStyle;
+            }
+        };
+        VaadinSession session = createSession(uiClass, standalone);
+        String template = handleRequest(session, handler);
+
+        // Any listener makes the handler build the DOM
+        session.addBootstrapListener(new BootstrapListener() {
+            @Override
+            public void modifyBootstrapFragment(
+                    BootstrapFragmentResponse response) {
+            }
+
+            @Override
+            public void modifyBootstrapPage(BootstrapPageResponse response) {
+            }
+        });
+        String dom = handleRequest(session, handler);
+
+        assertEquals(dom, template);
+    }
+
+    private VaadinSession createSession(Class<? extends UI> uiClass,
+            boolean standalone) throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        VaadinServletService service = new VaadinServletService(servlet,
+                configuration) {
+            @Override
+            public boolean isStandalone(VaadinRequest request) {
+                return standalone;
+            }
+        };
+        VaadinService.setCurrent(service);
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        session.setConfiguration(configuration);
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        session.addUIProvider(new UIProvider() {
+            @Override
+            public Class<? extends UI> getUIClass(
+                    UIClassSelectionEvent event) {
+                return uiClass;
+            }
+        });
+        return session;
+    }
+
+    private String handleRequest(VaadinSession session,
+            BootstrapHandler handler) throws IOException {
+        HttpServletRequest httpRequest = Mockito
+                .mock(HttpServletRequest.class);
+        Mockito.when(httpRequest.getServletPath()).thenReturn("");
+        Mockito.when(httpRequest.getPathInfo()).thenReturn("/");
+        Mockito.when(httpRequest.getContextPath()).thenReturn("");
+        Mockito.when(httpRequest.getRequestURI()).thenReturn("/");
+        Mockito.when(httpRequest.getLocale()).thenReturn(Locale.ENGLISH);
+        VaadinServletService service = (VaadinServletService) session
+                .getService();
+        Mockito.when(httpResponse.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                        page.write(b);
+                    }
+                });
+
+        page.reset();
+        handler.synchronizedHandleRequest(session,
+                new VaadinServletRequest(httpRequest, service),
+                new VaadinServletResponse(httpResponse, service));
+        return page.toString("UTF-8");
+    }
+
     @Test
     public void resolveFrontendES5() {
         testResolveFrontEnd("frontend://foobar.html",
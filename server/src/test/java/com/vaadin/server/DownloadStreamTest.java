@@ -1,15 +1,37 @@
 package com.vaadin.server;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class DownloadStreamTest {
     private String filename = "A å日.png";
@@ -19,9 +41,18 @@ public class DownloadStreamTest {
             + ".png";
     private DownloadStream stream;
 
+    private final byte[] data = new byte[100];
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void setup() {
         stream = new DownloadStream(mock(InputStream.class), "", filename);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
     }
 
     @Test
@@ -36,4 +67,255 @@ public class DownloadStreamTest {
                 contains(
                         String.format("filename*=utf-8''%s", encodedFileName)));
     }
+
+    @Test
+    public void noRange_wholeDataServed() throws IOException {
+        VaadinResponse response = serve(createStream(), "GET", null);
+
+        verify(response, never()).setStatus(
+                HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Accept-Ranges", "bytes");
+        assertArrayEquals(data, written.toByteArray());
+    }
+
+    @Test
+    public void unknownLength_rangeIgnored() throws IOException {
+        DownloadStream stream = new DownloadStream(
+                new ByteArrayInputStream(data), "application/test", "test");
+        VaadinResponse response = serve(stream, "GET", "bytes=10-19");
+
+        verify(response, never()).setHeader(eq("Accept-Ranges"), anyString());
+        verify(response, never()).setStatus(
+                HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertArrayEquals(data, written.toByteArray());
+    }
+
+    @Test
+    public void singleRange_partialContentServed() throws IOException {
+        VaadinResponse response = serve(createStream(), "GET", "bytes=10-19");
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 10-19/100");
+        verify(response).setHeader("Content-Length", "10");
+        assertArrayEquals(Arrays.copyOfRange(data, 10, 20),
+                written.toByteArray());
+    }
+
+    @Test
+    public void postRequest_rangeIgnored() throws IOException {
+        VaadinResponse response = serve(createStream(), "POST", "bytes=10-19");
+
+        verify(response, never()).setStatus(
+                HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertArrayEquals(data, written.toByteArray());
+    }
+
+    @Test
+    public void unsatisfiableRange_rangeNotSatisfiable() throws IOException {
+        VaadinResponse response = serve(createStream(), "GET", "bytes=100-");
+
+        verify(response).setStatus(
+                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        verify(response).setHeader("Content-Range", "bytes */100");
+        assertEquals(0, written.size());
+    }
+
+    @Test
+    public void multipleRanges_multipartServed() throws IOException {
+        VaadinResponse response = serve(createStream(), "GET",
+                "bytes=0-4, 90-");
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response)
+                .setContentType(startsWith("multipart/byteranges; boundary="));
+        String body = new String(written.toByteArray(),
+                StandardCharsets.ISO_8859_1);
+        String boundary = body.substring(4, body.indexOf("\r\n", 4));
+        String expected = "\r\n--" + boundary + "\r\n"
+                + "Content-Type: application/test\r\n"
+                + "Content-Range: bytes 0-4/100\r\n\r\n"
+                + new String(data, 0, 5, StandardCharsets.ISO_8859_1)
+                + "\r\n--" + boundary + "\r\n"
+                + "Content-Type: application/test\r\n"
+                + "Content-Range: bytes 90-99/100\r\n\r\n"
+                + new String(data, 90, 10, StandardCharsets.ISO_8859_1)
+                + "\r\n--" + boundary + "--\r\n";
+        assertEquals(expected, body);
+        verify(response).setHeader("Content-Length",
+                String.valueOf(written.size()));
+    }
+
+    @Test
+    public void rangesOutOfOrder_streamServedWhole() throws IOException {
+        VaadinResponse response = serve(createStream(), "GET",
+                "bytes=90-, 0-4");
+
+        verify(response, never()).setStatus(
+                HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertArrayEquals(data, written.toByteArray());
+    }
+
+    @Test
+    public void rangesOutOfOrder_fileServedInRequestedOrder()
+            throws IOException {
+        VaadinResponse response = serve(createFileStream(), "GET",
+                "bytes=90-, 0-4");
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        String body = new String(written.toByteArray(),
+                StandardCharsets.ISO_8859_1);
+        assertTrue(body.indexOf("bytes 90-99/100") < body
+                .indexOf("bytes 0-4/100"));
+        assertTrue(body.contains(
+                new String(data, 0, 5, StandardCharsets.ISO_8859_1)));
+        assertTrue(body.contains(
+                new String(data, 90, 10, StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void fileRange_partialContentServed() throws IOException {
+        VaadinResponse response = serve(createFileStream(), "GET",
+                "bytes=-15");
+
+        verify(response).setHeader("Accept-Ranges", "bytes");
+        verify(response).setHeader("Content-Range", "bytes 85-99/100");
+        assertArrayEquals(Arrays.copyOfRange(data, 85, 100),
+                written.toByteArray());
+    }
+
+    @Test
+    public void fileToChannel_dataTransferred() throws IOException {
+        VaadinRequest request = createRequest("GET", null);
+        VaadinResponse response = mock(VaadinResponse.class);
+        when(response.getOutputStream()).thenReturn(new ChannelOutput());
+        createFileStream().writeResponse(request, response);
+        assertArrayEquals(data, written.toByteArray());
+
+        written.reset();
+        request = createRequest("GET", "bytes=10-19,30-34");
+        createFileStream().writeResponse(request, response);
+        String body = new String(written.toByteArray(),
+                StandardCharsets.ISO_8859_1);
+        assertTrue(body.contains("bytes 10-19/100\r\n\r\n"
+                + new String(data, 10, 10, StandardCharsets.ISO_8859_1)));
+        assertTrue(body.contains("bytes 30-34/100\r\n\r\n"
+                + new String(data, 30, 5, StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void ifRangeMatchesETag_partialContentServed() throws IOException {
+        DownloadStream stream = createStream();
+        stream.setParameter("ETag", "\"v1\"");
+        VaadinRequest request = createRequest("GET", "bytes=10-19");
+        when(request.getHeader("If-Range")).thenReturn("\"v1\"");
+        VaadinResponse response = serve(stream, request);
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertEquals(10, written.size());
+    }
+
+    @Test
+    public void ifRangeDoesNotMatch_wholeDataServed() throws IOException {
+        DownloadStream stream = createStream();
+        stream.setParameter("ETag", "\"v2\"");
+        VaadinRequest request = createRequest("GET", "bytes=10-19");
+        when(request.getHeader("If-Range")).thenReturn("\"v1\"");
+        VaadinResponse response = serve(stream, request);
+
+        verify(response, never()).setStatus(
+                HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertArrayEquals(data, written.toByteArray());
+    }
+
+    @Test
+    public void parseByteRanges() {
+        assertRanges(new long[] { 0, 100 }, "bytes=0-");
+        assertRanges(new long[] { 10, 21 }, "bytes=10-20");
+        assertRanges(new long[] { 90, 100 }, "bytes=90-200");
+        assertRanges(new long[] { 80, 100 }, "bytes=-20");
+        assertRanges(new long[] { 0, 100 }, "bytes=-200");
+        assertRanges(new long[] { 0, 2, 5, 7 }, "bytes=0-1, 5-6");
+        assertRanges(new long[] { 5, 7 }, "bytes=5-6,100-,-0");
+        assertRanges(new long[0], "bytes=100-");
+        assertNull(DownloadStream.parseByteRanges("bytes=20-10", 100));
+        assertNull(DownloadStream.parseByteRanges("bytes=0-1,a-b", 100));
+        assertNull(DownloadStream.parseByteRanges("items=0-1", 100));
+        assertNull(DownloadStream.parseByteRanges("bytes=5", 100));
+        StringBuilder many = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= 16; i++) {
+            many.append(',').append(i).append('-').append(i);
+        }
+        assertNull(DownloadStream.parseByteRanges(many.toString(), 100));
+    }
+
+    private static void assertRanges(long[] expected, String header) {
+        List<long[]> ranges = DownloadStream.parseByteRanges(header, 100);
+        long[] actual = new long[ranges.size() * 2];
+        for (int i = 0; i < ranges.size(); i++) {
+            actual[i * 2] = ranges.get(i)[0];
+            actual[i * 2 + 1] = ranges.get(i)[1];
+        }
+        assertArrayEquals(header, expected, actual);
+    }
+
+    private DownloadStream createStream() {
+        DownloadStream stream = new DownloadStream(
+                new ByteArrayInputStream(data), "application/test", "test");
+        stream.setParameter("Content-Length", String.valueOf(data.length));
+        return stream;
+    }
+
+    private DownloadStream createFileStream() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), data);
+        return new DownloadStream(new FileInputStream(file),
+                "application/test", "test");
+    }
+
+    private VaadinRequest createRequest(String method, String range) {
+        VaadinRequest request = mock(VaadinRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getHeader("Range")).thenReturn(range);
+        return request;
+    }
+
+    private VaadinResponse serve(DownloadStream stream, String method,
+            String range) throws IOException {
+        return serve(stream, createRequest(method, range));
+    }
+
+    private VaadinResponse serve(DownloadStream stream, VaadinRequest request)
+            throws IOException {
+        VaadinResponse response = mock(VaadinResponse.class);
+        when(response.getOutputStream()).thenReturn(written);
+        stream.writeResponse(request, response);
+        return response;
+    }
+
+    /**
+     * An output stream that can also be written to as a channel, like the
+     * output streams of some servlet containers.
+     */
+    private class ChannelOutput extends ByteArrayOutputStream
+            implements WritableByteChannel {
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written.write(b, off, len);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            byte[] bytes = new byte[length];
+            src.get(bytes);
+            written.write(bytes, 0, length);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+    }
 }
@@ -1,9 +1,12 @@
 package com.vaadin.server;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,6 +20,8 @@ import com.vaadin.shared.ui.splitpanel.AbstractSplitPanelState;
 import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonException;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
 import elemental.json.JsonValue;
 
 /**
@@ -30,6 +35,24 @@ public class JSONSerializerTest {
     Map<String, AbstractSplitPanelState> stringToStateMap;
     Map<AbstractSplitPanelState, String> stateToStringMap;
 
+    public static class PropertyTypesBean {
+        public boolean flag;
+        public int count;
+        public long total;
+        public double ratio;
+        public String text;
+        public Integer boxed;
+        private String property;
+
+        public String getProperty() {
+            return property;
+        }
+
+        public void setProperty(String property) {
+            this.property = property;
+        }
+    }
+
     @Test
     public void testStringToBeanMapSerialization() throws Exception {
         Type mapType = getClass().getDeclaredField("stringToStateMap")
@@ -70,6 +93,48 @@ public class JSONSerializerTest {
         ensureDecodedCorrectly(stateToStringMap, encodedMap, mapType);
     }
 
+    @Test
+    public void testBeanDiffAgainstReference() {
+        PropertyTypesBean bean = new PropertyTypesBean();
+        bean.flag = true;
+        bean.count = 5;
+        bean.total = 1L << 40;
+        bean.ratio = 0.5;
+        bean.text = "text";
+        bean.boxed = 7;
+        bean.setProperty("property");
+
+        JsonObject encoded = (JsonObject) JsonCodec
+                .encode(bean, null, PropertyTypesBean.class, null)
+                .getEncodedValue();
+        assertEquals(true, encoded.getBoolean("flag"));
+        assertEquals(5, encoded.getNumber("count"), 0);
+        assertEquals(1L << 40, encoded.getNumber("total"), 0);
+        assertEquals(0.5, encoded.getNumber("ratio"), 0);
+        assertEquals("text", encoded.getString("text"));
+        assertEquals(7, encoded.getNumber("boxed"), 0);
+        assertEquals("property", encoded.getString("property"));
+
+        // Nothing has changed
+        JsonObject diff = (JsonObject) JsonCodec
+                .encode(bean, encoded, PropertyTypesBean.class, null)
+                .getDiff();
+        assertEquals(0, diff.keys().length);
+
+        bean.flag = false;
+        bean.count = 6;
+        bean.text = null;
+        diff = (JsonObject) JsonCodec
+                .encode(bean, encoded, PropertyTypesBean.class, null)
+                .getDiff();
+        String[] keys = diff.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(new String[] { "count", "flag", "text" }, keys);
+        assertEquals(false, diff.getBoolean("flag"));
+        assertEquals(6, diff.getNumber("count"), 0);
+        assertEquals(JsonType.NULL, diff.get("text").getType());
+    }
+
     @Test
     public void testNullLegacyValue() throws JsonException {
         JsonArray inputArray = Json.createArray();
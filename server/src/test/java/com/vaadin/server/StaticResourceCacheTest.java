@@ -0,0 +1,274 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+public class StaticResourceCacheTest {
+
+    private static final String FILENAME = "/VAADIN/vaadinBootstrap.js";
+
+    private VaadinServlet servlet;
+    private byte[] expected;
+    private ByteArrayOutputStream written;
+
+    @Before
+    public void setup() throws ServletException, IOException {
+        servlet = createServlet(true);
+        try (InputStream is = getClass().getClassLoader()
+                .getResourceAsStream(FILENAME.substring(1))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int bytes;
+            while ((bytes = is.read(buffer)) >= 0) {
+                out.write(buffer, 0, bytes);
+            }
+            expected = out.toByteArray();
+        }
+    }
+
+    @Test
+    public void productionMode_contentServedWithETag() throws Exception {
+        HttpServletResponse response = serve(createRequest());
+
+        assertArrayEquals(expected, written.toByteArray());
+        String etag = getHeader(response, "ETag");
+        assertNotNull(etag);
+
+        HttpServletRequest conditional = createRequest();
+        Mockito.when(conditional.getHeader("If-None-Match")).thenReturn(etag);
+        response = serve(conditional);
+
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, written.size());
+    }
+
+    @Test
+    public void acceptsGzip_compressedVariantServed() throws Exception {
+        HttpServletRequest request = createRequest();
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip, deflate, br");
+        HttpServletResponse response = serve(request);
+
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        assertTrue(getHeader(response, "ETag").endsWith("-gzip\""));
+        assertTrue(written.size() < expected.length);
+        try (GZIPInputStream gzip = new GZIPInputStream(
+                new ByteArrayInputStream(written.toByteArray()))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int bytes;
+            while ((bytes = gzip.read(buffer)) >= 0) {
+                out.write(buffer, 0, bytes);
+            }
+            assertArrayEquals(expected, out.toByteArray());
+        }
+    }
+
+    @Test
+    public void precompressionNotAllowed_uncompressedContentServed()
+            throws Exception {
+        servlet = new VaadinServlet() {
+            @Override
+            protected boolean allowServePrecompressedResource(
+                    HttpServletRequest request, String url) {
+                return false;
+            }
+        };
+        Properties properties = new Properties();
+        properties.setProperty(Constants.SERVLET_PARAMETER_PRODUCTION_MODE,
+                "true");
+        properties.setProperty(
+                Constants.SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE, "64");
+        servlet.init(new MockServletConfig(properties));
+
+        HttpServletRequest request = createRequest();
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip, deflate, br");
+        HttpServletResponse response = serve(request);
+
+        Mockito.verify(response, Mockito.never()).setHeader(
+                Mockito.eq("Content-Encoding"), Mockito.anyString());
+        assertArrayEquals(expected, written.toByteArray());
+    }
+
+    @Test
+    public void resourceDoesNotFit_notReadAgain() throws Exception {
+        AtomicInteger connections = new AtomicInteger();
+        URL url = new URL(null, "test:/VAADIN/large.js",
+                new URLStreamHandler() {
+                    @Override
+                    protected URLConnection openConnection(URL u) {
+                        connections.incrementAndGet();
+                        return new URLConnection(u) {
+                            @Override
+                            public void connect() {
+                            }
+
+                            @Override
+                            public long getContentLengthLong() {
+                                return expected.length;
+                            }
+
+                            @Override
+                            public InputStream getInputStream() {
+                                return new ByteArrayInputStream(expected);
+                            }
+                        };
+                    }
+                });
+        StaticResourceCache cache = new StaticResourceCache(
+                expected.length - 1);
+
+        assertNull(cache.load("/VAADIN/large.js", url, null));
+        assertNull(cache.load("/VAADIN/large.js", url, null));
+        assertEquals(1, connections.get());
+
+        cache.clear();
+        assertNull(cache.load("/VAADIN/large.js", url, null));
+        assertEquals(2, connections.get());
+    }
+
+    @Test
+    public void rangeRequest_partialContentServed() throws Exception {
+        HttpServletRequest request = createRequest();
+        Mockito.when(request.getHeader("Range")).thenReturn("bytes=10-19");
+        HttpServletResponse response = serve(request);
+
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        Mockito.verify(response).setHeader("Content-Range",
+                "bytes 10-19/" + expected.length);
+        byte[] part = new byte[10];
+        System.arraycopy(expected, 10, part, 0, 10);
+        assertArrayEquals(part, written.toByteArray());
+    }
+
+    @Test
+    public void rangeRequest_unsatisfiable() throws Exception {
+        HttpServletRequest request = createRequest();
+        Mockito.when(request.getHeader("Range"))
+                .thenReturn("bytes=" + expected.length + "-");
+        HttpServletResponse response = serve(request);
+
+        Mockito.verify(response).setStatus(
+                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertEquals(0, written.size());
+    }
+
+    @Test
+    public void parseByteRange() {
+        assertArrayEquals(new int[] { 0, 100 },
+                VaadinServlet.parseByteRange("bytes=0-", 100));
+        assertArrayEquals(new int[] { 10, 21 },
+                VaadinServlet.parseByteRange("bytes=10-20", 100));
+        assertArrayEquals(new int[] { 90, 100 },
+                VaadinServlet.parseByteRange("bytes=90-200", 100));
+        assertArrayEquals(new int[] { 80, 100 },
+                VaadinServlet.parseByteRange("bytes=-20", 100));
+        assertArrayEquals(new int[] { 0, 100 },
+                VaadinServlet.parseByteRange("bytes=-200", 100));
+        assertArrayEquals(new int[0],
+                VaadinServlet.parseByteRange("bytes=100-", 100));
+        assertNull(VaadinServlet.parseByteRange("bytes=20-10", 100));
+        assertNull(VaadinServlet.parseByteRange("bytes=0-1,5-6", 100));
+        assertNull(VaadinServlet.parseByteRange("items=0-1", 100));
+        assertNull(VaadinServlet.parseByteRange("bytes=a-b", 100));
+    }
+
+    @Test
+    public void developmentMode_notCached() throws Exception {
+        servlet = createServlet(false);
+        HttpServletResponse response = serve(createRequest());
+
+        assertArrayEquals(expected, written.toByteArray());
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("ETag"), Mockito.anyString());
+    }
+
+    @Test
+    public void cacheSizeNotSet_notCached() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(Constants.SERVLET_PARAMETER_PRODUCTION_MODE,
+                "true");
+        servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(properties));
+        HttpServletResponse response = serve(createRequest());
+
+        assertArrayEquals(expected, written.toByteArray());
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("ETag"), Mockito.anyString());
+    }
+
+    private static VaadinServlet createServlet(boolean productionMode)
+            throws ServletException {
+        Properties properties = new Properties();
+        properties.setProperty(Constants.SERVLET_PARAMETER_PRODUCTION_MODE,
+                String.valueOf(productionMode));
+        properties.setProperty(
+                Constants.SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE, "64");
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(properties));
+        return servlet;
+    }
+
+    private static HttpServletRequest createRequest() {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getDateHeader(Mockito.anyString()))
+                .thenReturn(-1L);
+        return request;
+    }
+
+    private HttpServletResponse serve(HttpServletRequest request)
+            throws Exception {
+        written = new ByteArrayOutputStream();
+        HttpServletResponse response = Mockito
+                .mock(HttpServletResponse.class);
+        Mockito.when(response.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        written.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len)
+                            throws IOException {
+                        written.write(b, off, len);
+                    }
+                });
+        servlet.serveStaticResourcesInVAADIN(FILENAME, request, response);
+        return response;
+    }
+
+    private static String getHeader(HttpServletResponse response,
+            String name) {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(response).setHeader(Mockito.eq(name), captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,124 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SynchronizedRequestHandlerTest {
+
+    private MockVaadinSession session;
+    private VaadinRequest request;
+    private VaadinResponse response;
+
+    @Before
+    public void setup() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        session = new MockVaadinSession(servlet.getService());
+        request = mock(VaadinRequest.class);
+        response = mock(VaadinResponse.class);
+    }
+
+    @Test
+    public void readAndWriteOutsideSessionLock() throws IOException {
+        when(request.getReader())
+                .thenReturn(new BufferedReader(new StringReader("body")) {
+                    @Override
+                    public int read(char[] cbuf) throws IOException {
+                        assertFalse(session.hasLock());
+                        return super.read(cbuf);
+                    }
+                });
+        StringBuilder log = new StringBuilder();
+
+        SynchronizedRequestHandler handler = new SynchronizedRequestHandler() {
+            @Override
+            protected boolean isReadAndWriteOutsideSessionLock() {
+                return true;
+            }
+
+            @Override
+            protected Optional<ResponseWriter> synchronizedHandleRequest(
+                    VaadinSession session, VaadinRequest request,
+                    VaadinResponse response, String requestBody) {
+                assertTrue(session.hasLock());
+                log.append("handle ").append(requestBody);
+                return Optional.of(() -> {
+                    assertFalse(session.hasLock());
+                    log.append(", write");
+                });
+            }
+
+            @Override
+            public boolean synchronizedHandleRequest(VaadinSession session,
+                    VaadinRequest request, VaadinResponse response) {
+                throw new AssertionError();
+            }
+        };
+
+        assertTrue(handler.handleRequest(session, request, response));
+        assertEquals("handle body, write", log.toString());
+    }
+
+    @Test
+    public void readAndWriteOutsideSessionLock_notHandled()
+            throws IOException {
+        SynchronizedRequestHandler handler = new SynchronizedRequestHandler() {
+            @Override
+            protected boolean isReadAndWriteOutsideSessionLock() {
+                return true;
+            }
+
+            @Override
+            protected Optional<ResponseWriter> synchronizedHandleRequest(
+                    VaadinSession session, VaadinRequest request,
+                    VaadinResponse response, String requestBody) {
+                return Optional.empty();
+            }
+
+            @Override
+            public boolean synchronizedHandleRequest(VaadinSession session,
+                    VaadinRequest request, VaadinResponse response) {
+                throw new AssertionError();
+            }
+        };
+
+        assertFalse(handler.handleRequest(session, request, response));
+    }
+
+    @Test
+    public void defaultHandlerHoldsLock() throws IOException {
+        SynchronizedRequestHandler handler = new SynchronizedRequestHandler() {
+            @Override
+            public boolean synchronizedHandleRequest(VaadinSession session,
+                    VaadinRequest request, VaadinResponse response) {
+                assertTrue(session.hasLock());
+                return true;
+            }
+        };
+
+        assertTrue(handler.handleRequest(session, request, response));
+        assertFalse(session.hasLock());
+    }
+
+    @Test
+    public void getRequestBody_maxLength_readsOneCharacterMore()
+            throws IOException {
+        assertEquals("0123456789", SynchronizedRequestHandler
+                .getRequestBody(new StringReader("0123456789"), -1));
+        assertEquals("0123456789", SynchronizedRequestHandler
+                .getRequestBody(new StringReader("0123456789"), 10));
+        assertEquals("012345", SynchronizedRequestHandler
+                .getRequestBody(new StringReader("0123456789"), 5));
+    }
+}
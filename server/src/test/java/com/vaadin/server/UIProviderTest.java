@@ -1,7 +1,10 @@
 package com.vaadin.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -9,9 +12,12 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import com.vaadin.annotations.Theme;
 import com.vaadin.annotations.Widgetset;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.UI;
 
 /**
  * Tests for {@link UIProvider} class.
@@ -60,6 +66,51 @@ public class UIProviderTest {
                         Theme.class));
     }
 
+    @Test
+    public void getWidgetsetInfo_appWidgetsetCachedPerService()
+            throws Exception {
+        VaadinService service1 = createService();
+        VaadinService service2 = createService();
+        UIProvider provider = new DefaultUIProvider();
+        try {
+            assertNull(getWidgetsetInfo(provider, service1));
+            assertTrue(service1.getAppWidgetsets().containsKey(TestUI.class));
+            assertFalse(service2.getAppWidgetsets().containsKey(TestUI.class));
+
+            assertNull(getWidgetsetInfo(provider, service2));
+            assertTrue(service2.getAppWidgetsets().containsKey(TestUI.class));
+
+            service1.setClassLoader(new ClassLoader(
+                    getClass().getClassLoader()) {
+            });
+            assertFalse(service1.getAppWidgetsets().containsKey(TestUI.class));
+        } finally {
+            VaadinService.setCurrent(null);
+        }
+    }
+
+    private static VaadinService createService() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        return new VaadinServletService(servlet,
+                new MockDeploymentConfiguration());
+    }
+
+    private static WidgetsetInfo getWidgetsetInfo(UIProvider provider,
+            VaadinService service) {
+        VaadinService.setCurrent(service);
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getService()).thenReturn(service);
+        return provider.getWidgetsetInfo(
+                new UICreateEvent(request, TestUI.class));
+    }
+
+    public static class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.TYPE)
     public @interface TestAnnotation {
@@ -0,0 +1,155 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+public class VaadinServletScssCacheTest {
+
+    private static final String CSS = "/VAADIN/themes/cachetest/styles.css";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File scssFile;
+    private VaadinServlet servlet;
+
+    @Before
+    public void setup() throws IOException, ServletException {
+        File root = folder.getRoot();
+        scssFile = new File(root, "VAADIN/themes/cachetest/styles.scss");
+        scssFile.getParentFile().mkdirs();
+        write(scssFile, ".cachetest { color: red; }");
+        servlet = createServlet();
+    }
+
+    private VaadinServlet createServlet() throws ServletException {
+        File root = folder.getRoot();
+        ServletContext context = new MockServletContext() {
+            @Override
+            public String getRealPath(String path) {
+                return new File(root, path).getPath();
+            }
+
+            @Override
+            public URL getResource(String path)
+                    throws MalformedURLException {
+                File file = new File(root, path);
+                return file.exists() ? file.toURI().toURL() : null;
+            }
+        };
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig() {
+            @Override
+            public ServletContext getServletContext() {
+                return context;
+            }
+        });
+        return servlet;
+    }
+
+    @After
+    public void tearDown() {
+        servlet.destroy();
+    }
+
+    @Test
+    public void concurrentFirstRequests_compiledOnceAndPersisted()
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit((Callable<String>) this::request));
+            }
+            for (Future<String> result : results) {
+                assertTrue(result.get().contains("color: red"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(new File(scssFile.getPath() + ".cache").exists());
+    }
+
+    @Test
+    public void changedDependency_staleCssServedUntilRecompiled()
+            throws Exception {
+        assertTrue(request().contains("color: red"));
+
+        write(scssFile, ".cachetest { color: blue; }");
+        scssFile.setLastModified(scssFile.lastModified() + 2000);
+
+        assertTrue("Stale css should be served while recompiling",
+                request().contains("color: red"));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        String css;
+        while (!(css = request()).contains("color: blue")
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(css.contains("color: blue"));
+    }
+
+    @Test
+    public void persistedCache_servedByNewServlet() throws Exception {
+        assertTrue(request().contains("color: red"));
+        servlet.destroy();
+
+        // Replace the content without changing the timestamp to see that
+        // the persisted result is used
+        long lastModified = scssFile.lastModified();
+        write(scssFile, ".cachetest { color: green; }");
+        scssFile.setLastModified(lastModified);
+
+        servlet = createServlet();
+        assertTrue(request().contains("color: red"));
+    }
+
+    private String request() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = Mockito
+                .mock(HttpServletResponse.class);
+        Mockito.when(response.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        out.write(b);
+                    }
+                });
+        servlet.serveStaticResourcesInVAADIN(CSS,
+                Mockito.mock(HttpServletRequest.class), response);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -1,19 +1,32 @@
 package com.vaadin.server.communication;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.atmosphere.cpr.AtmosphereResource;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
 import com.vaadin.server.communication.AtmospherePushConnection.State;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.Label;
 import com.vaadin.ui.UI;
 
+import elemental.json.JsonArray;
+import elemental.json.impl.JsonUtil;
+
 public class AtmospherePushConnectionTest {
     @Test
     public void testSerialization() throws Exception {
@@ -36,4 +49,52 @@ public class AtmospherePushConnectionTest {
 
         assertEquals(State.DISCONNECTED, connection.getState());
     }
+
+    @Test
+    public void push_sendsCompleteMessages() throws Exception {
+        VaadinServletService service = new VaadinServletService(
+                new VaadinServlet(), new MockDeploymentConfiguration());
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.setSession(session);
+        ui.setContent(new Label("Pushed"));
+
+        List<Object> messages = new ArrayList<>();
+        AtmospherePushConnection connection = new AtmospherePushConnection(
+                ui) {
+            @Override
+            protected void sendMessage(String message) {
+                messages.add(message);
+            }
+        };
+        connection.connect(
+                EasyMock.createNiceMock(AtmosphereResource.class));
+
+        connection.push();
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longValue.append(i);
+        }
+        ui.setContent(new Label(longValue.toString()));
+        connection.push();
+
+        assertEquals(2, messages.size());
+        for (Object message : messages) {
+            String json = (String) message;
+            assertTrue(json.startsWith("for(;;);[{"));
+            assertTrue(json.endsWith("}]"));
+            JsonArray parsed = JsonUtil
+                    .parse(json.substring("for(;;);".length()));
+            assertEquals(1, parsed.length());
+        }
+        assertTrue(((String) messages.get(0)).contains("Pushed"));
+        assertTrue(((String) messages.get(1)).contains(longValue));
+    }
 }
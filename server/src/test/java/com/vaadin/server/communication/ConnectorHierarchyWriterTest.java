@@ -0,0 +1,94 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+import elemental.json.JsonObject;
+import elemental.json.impl.JsonUtil;
+
+public class ConnectorHierarchyWriterTest {
+
+    private UI ui;
+    private VerticalLayout layout;
+    private Label label;
+
+    @Before
+    public void setup() {
+        ui = new MockUI();
+        layout = new VerticalLayout();
+        label = new Label();
+        layout.addComponent(label);
+        ui.setContent(layout);
+    }
+
+    @Test
+    public void initialHierarchyIsSent() throws IOException {
+        JsonObject hierarchy = writeHierarchy(Collections.emptySet());
+
+        assertEquals(1, hierarchy.getArray(ui.getConnectorId()).length());
+        assertEquals(label.getConnectorId(),
+                hierarchy.getArray(layout.getConnectorId()).getString(0));
+    }
+
+    @Test
+    public void unchangedHierarchyIsNotSentAgain() throws IOException {
+        writeHierarchy(Collections.emptySet());
+        markClientSideInitialized();
+
+        layout.markAsDirty();
+        JsonObject hierarchy = writeHierarchy(Collections.emptySet());
+        assertEquals(0, hierarchy.keys().length);
+    }
+
+    @Test
+    public void changedHierarchyIsSent() throws IOException {
+        writeHierarchy(Collections.emptySet());
+        markClientSideInitialized();
+
+        layout.removeComponent(label);
+        JsonObject hierarchy = writeHierarchy(Collections.emptySet());
+        assertEquals(0, hierarchy.getArray(layout.getConnectorId()).length());
+    }
+
+    @Test
+    public void hierarchyIsSentWithStateChanges() throws IOException {
+        writeHierarchy(Collections.emptySet());
+        markClientSideInitialized();
+
+        // The client assumes an empty hierarchy for connectors with state
+        // changes but no hierarchy information
+        layout.markAsDirty();
+        JsonObject hierarchy = writeHierarchy(
+                Collections.singleton(layout.getConnectorId()));
+        assertEquals(1, hierarchy.getArray(layout.getConnectorId()).length());
+    }
+
+    private JsonObject writeHierarchy(Set<String> stateUpdateConnectors)
+            throws IOException {
+        StringWriter writer = new StringWriter();
+        new ConnectorHierarchyWriter().write(ui, writer,
+                stateUpdateConnectors);
+        ui.getConnectorTracker().markAllConnectorsClean();
+        return JsonUtil.parse(writer.toString());
+    }
+
+    private void markClientSideInitialized() {
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        tracker.markClientSideInitialized(ui);
+        tracker.markClientSideInitialized(layout);
+        tracker.markClientSideInitialized(label);
+    }
+}
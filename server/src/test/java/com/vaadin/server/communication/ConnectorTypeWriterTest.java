@@ -0,0 +1,48 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.PaintTarget;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+import elemental.json.JsonObject;
+import elemental.json.impl.JsonUtil;
+
+public class ConnectorTypeWriterTest {
+
+    @Test
+    public void typesAreOnlySentForUninitializedConnectors()
+            throws IOException {
+        UI ui = new MockUI();
+        VerticalLayout layout = new VerticalLayout();
+        Label label = new Label();
+        ui.setContent(layout);
+
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        tracker.markClientSideInitialized(ui);
+        tracker.markClientSideInitialized(layout);
+        layout.addComponent(label);
+        tracker.markAllConnectorsDirty();
+
+        PaintTarget target = Mockito.mock(PaintTarget.class);
+        Mockito.when(target.getTag(Mockito.any(ClientConnector.class)))
+                .thenReturn("1");
+
+        StringWriter writer = new StringWriter();
+        new ConnectorTypeWriter().write(ui, writer, target);
+        JsonObject types = JsonUtil.parse(writer.toString());
+        assertEquals(1, types.keys().length);
+        assertEquals("1", types.getString(label.getConnectorId()));
+    }
+}
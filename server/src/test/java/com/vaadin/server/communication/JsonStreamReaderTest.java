@@ -0,0 +1,115 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import elemental.json.JsonException;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamReaderTest {
+
+    @Test
+    public void values_sameAsParse() throws IOException {
+        String[] jsons = { "0", "-0", "42", "-2.25", "1e7", "1.5E-7", "1e+21",
+                "true", "false", "null", "\"\"", "\"plain\"",
+                "\"quote \\\" and \\\\ backslash \\/\"",
+                "\"\\b\\t\\n\\f\\r\"", "\"unicode \\u00e4\\u20AC \u20ac\"",
+                "[]", "{}", " [ 1 , \"a\" , [ ] , { } , null ] ",
+                "{\"b\":true,\"10\":\"ten\",\"a\":null,\"nested\":{\"k\":[1,[2,[3]]]}}",
+                "{\"csrfToken\":\"abc\",\"rpc\":[[\"1\",\"v\",\"v\",[\"text\",[\"s\",\"x\"]]]],\"syncId\":1,\"clientId\":0}" };
+        for (String json : jsons) {
+            assertSameAsParse(json);
+        }
+    }
+
+    @Test
+    public void longString_readAcrossBufferBoundaries() throws IOException {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            value.append("ab\\\"c\\u00e4");
+        }
+        assertSameAsParse("[\"" + value + "\"," + value.length() + "]");
+    }
+
+    @Test
+    public void emptyInput_returnsNull() throws IOException {
+        assertNull(new JsonStreamReader(new StringReader("")).read());
+        assertNull(new JsonStreamReader(new StringReader(" \n\t")).read());
+    }
+
+    @Test
+    public void malformedInput_throws() throws IOException {
+        String[] jsons = { "[1,]", "[1 2]", "{\"a\" 1}", "{a:1}", "\"open",
+                "[", "tru", "nul", "\"\\x\"", "\"\\u12g4\"", "1 2", "[1]]",
+                "-", "1e", "@" };
+        for (String json : jsons) {
+            try {
+                new JsonStreamReader(new StringReader(json)).read();
+                fail("Should have rejected " + json);
+            } catch (JsonException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = JsonException.class)
+    public void deeplyNested_throws() throws IOException {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            json.append('[');
+        }
+        new JsonStreamReader(new StringReader(json.toString())).read();
+    }
+
+    @Test
+    public void maxLength_allowsMessageOfExactLength() throws IOException {
+        String json = "[\"0123456789\"]";
+        JsonValue value = new JsonStreamReader(new StringReader(json),
+                json.length()).read();
+        assertEquals(json, JsonUtil.stringify(value));
+    }
+
+    @Test(expected = JsonException.class)
+    public void maxLength_longerMessage_throws() throws IOException {
+        new JsonStreamReader(new StringReader("[\"0123456789\"]"), 13).read();
+    }
+
+    @Test
+    public void maxLength_stopsReadingWhenExceeded() throws IOException {
+        int[] read = new int[1];
+        Reader endless = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                cbuf[off] = read[0]++ == 0 ? '[' : ' ';
+                return 1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            new JsonStreamReader(endless, 1000).read();
+            fail();
+        } catch (JsonException expected) {
+            assertEquals(1001, read[0]);
+        }
+    }
+
+    private static void assertSameAsParse(String json) throws IOException {
+        JsonValue expected = JsonUtil.parse(json);
+        JsonValue actual = new JsonStreamReader(new StringReader(json))
+                .read();
+        assertEquals(json, JsonUtil.stringify(expected),
+                JsonUtil.stringify(actual));
+        assertEquals(json, expected.getType(), actual.getType());
+    }
+}
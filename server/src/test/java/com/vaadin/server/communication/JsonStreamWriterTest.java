@@ -0,0 +1,104 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamWriterTest {
+
+    @Test
+    public void numbers_sameAsStringify() throws IOException {
+        double[] numbers = { 0, -0.0, 1, -1, 42, 0.5, -2.25, 1e7 - 1, 1e7,
+                -1e7, 1e21, 1.5e-7, Integer.MAX_VALUE, Long.MAX_VALUE,
+                Double.NaN, Double.POSITIVE_INFINITY };
+        for (double number : numbers) {
+            assertSameAsStringify(Json.create(number));
+        }
+    }
+
+    @Test
+    public void strings_sameAsStringify() throws IOException {
+        String[] strings = { "", "plain", "quote \" and \\ backslash",
+                "\b\t\n\f\r", "control \u0001\u001f\u007f\u009f",
+                "\u00ad\u070f\u17b4\u17b5\ufeff\u0600\u200c\u2028\u2060\ufff0",
+                "unicode \u00e4\u20ac" };
+        for (String string : strings) {
+            assertSameAsStringify(Json.create(string));
+        }
+    }
+
+    @Test
+    public void nestedValues_sameAsStringify() throws IOException {
+        JsonObject object = Json.createObject();
+        object.put("b", true);
+        object.put("10", "ten");
+        object.put("a", Json.createNull());
+        object.put("2", 2);
+        object.put("$H", 1);
+        JsonArray array = Json.createArray();
+        array.set(0, Json.createObject());
+        array.set(1, Json.createArray());
+        array.set(2, "x\"y");
+        JsonObject nested = Json.createObject();
+        nested.put("k", "1");
+        nested.put("d", array);
+        array.set(3, Json.createObject());
+        object.put("nested", nested);
+
+        assertSameAsStringify(object);
+        assertSameAsStringify(array);
+        assertSameAsStringify(Json.createObject());
+        assertSameAsStringify(Json.createArray());
+    }
+
+    @Test
+    public void streamedValues() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonObject object = Json.createObject();
+        object.put("x", 1);
+
+        new JsonStreamWriter(out).beginArray().beginArray().value("a")
+                .value(1.5).value(false).nullValue().endArray()
+                .beginObject().name("o").value(object).name("s")
+                .value((String) null).endObject().beginArray().endArray()
+                .endArray();
+
+        assertEquals("[[\"a\",1.5,false,null],{\"o\":{\"x\":1},\"s\":null},[]]",
+                out.toString());
+    }
+
+    @Test
+    public void deepNesting() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonStreamWriter writer = new JsonStreamWriter(out);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            writer.beginArray().value(i);
+            expected.append('[').append(i);
+            if (i != 39) {
+                expected.append(',');
+            }
+        }
+        for (int i = 0; i < 40; i++) {
+            writer.endArray();
+            expected.append(']');
+        }
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    private static void assertSameAsStringify(JsonValue value)
+            throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonStreamWriter(out).value(value);
+        assertEquals(JsonUtil.stringify(value), out.toString());
+    }
+}
@@ -1,15 +1,30 @@
 package com.vaadin.server.communication;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.server.Constants;
+import com.vaadin.server.SynchronizedRequestHandler;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
+import elemental.json.JsonException;
 
 public class ServerRpcHandlerTest {
 
@@ -46,4 +61,79 @@ public class ServerRpcHandlerTest {
         // This only tests that an invocation for a non-existant connector does
         // not cause any exceptions
     }
+
+    @Test
+    public void handleRpc_messageLongerThanMaximum_rejected()
+            throws Exception {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        configuration.setApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_MAX_RPC_MESSAGE_SIZE, "100");
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getDeploymentConfiguration())
+                .thenReturn(configuration);
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getService()).thenReturn(service);
+
+        AlwaysLockedVaadinSession s = new AlwaysLockedVaadinSession(service);
+        TestUI ui = new TestUI();
+        ui.doInit(request, 1, null);
+        ui.setSession(s);
+        s.addUI(ui);
+
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            padding.append(' ');
+        }
+        String message = "{\"clientId\":0,\"rpc\":[]," + padding + "}";
+
+        ServerRpcHandler rpcHandler = new ServerRpcHandler();
+        try {
+            rpcHandler.handleRpc(ui, new StringReader(message), request);
+            fail("Streamed message should have been rejected");
+        } catch (JsonException expected) {
+            // expected
+        }
+        try {
+            rpcHandler.handleRpc(ui, message, request);
+            fail("Message string should have been rejected");
+        } catch (JsonException expected) {
+            // expected
+        }
+        // A request body read up to the limit is rejected for its length
+        String body = SynchronizedRequestHandler
+                .getRequestBody(new StringReader(message), 100);
+        try {
+            rpcHandler.handleRpc(ui, body, request);
+            fail("Truncated body should have been rejected");
+        } catch (JsonException expected) {
+            assertTrue(expected.getMessage().contains("maximum of 100"));
+        }
+        assertEquals(-1, ui.getLastProcessedClientToServerId());
+    }
+
+    @Test
+    public void handleRpc_getMessageOverridden_overrideUsed()
+            throws Exception {
+        VaadinService service = Mockito.mock(VaadinService.class);
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getService()).thenReturn(service);
+        AlwaysLockedVaadinSession s = new AlwaysLockedVaadinSession(service);
+        TestUI ui = new TestUI();
+        ui.doInit(request, 1, null);
+        ui.setSession(s);
+        s.addUI(ui);
+
+        List<String> read = new ArrayList<>();
+        ServerRpcHandler rpcHandler = new ServerRpcHandler() {
+            @Override
+            protected String getMessage(Reader reader) throws IOException {
+                read.add(super.getMessage(reader));
+                // Replace the message with an empty one
+                return "";
+            }
+        };
+        rpcHandler.handleRpc(ui, new StringReader("not json"), request);
+
+        assertEquals(Arrays.asList("not json"), read);
+    }
 }
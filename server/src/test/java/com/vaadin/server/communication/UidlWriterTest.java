@@ -0,0 +1,83 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+public class UidlWriterTest {
+
+    private final List<Component> responseOrder = new ArrayList<>();
+
+    private class RecordingLayout extends CssLayout {
+        @Override
+        public void beforeClientResponse(boolean initial) {
+            super.beforeClientResponse(initial);
+            responseOrder.add(this);
+        }
+    }
+
+    private class RecordingLabel extends Label {
+        @Override
+        public void beforeClientResponse(boolean initial) {
+            super.beforeClientResponse(initial);
+            responseOrder.add(this);
+        }
+    }
+
+    @Test
+    public void write_parentsBeforeChildren() throws Exception {
+        VaadinServletService service = new VaadinServletService(
+                new VaadinServlet(), new MockDeploymentConfiguration());
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        UI ui = new MockUI(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), 1, null);
+        session.addUI(ui);
+
+        // The dirty connectors are not in hierarchy order
+        RecordingLayout root = new RecordingLayout();
+        for (int branch = 0; branch < 3; branch++) {
+            RecordingLayout parent = root;
+            for (int depth = 0; depth < 5; depth++) {
+                RecordingLayout layout = new RecordingLayout();
+                layout.addComponent(new RecordingLabel());
+                parent.addComponent(layout);
+                parent = layout;
+            }
+        }
+        ui.setContent(root);
+
+        new UidlWriter().write(ui, new StringWriter(), false);
+
+        assertEquals(31, responseOrder.size());
+        for (int i = 0; i < responseOrder.size(); i++) {
+            Component parent = responseOrder.get(i).getParent();
+            if (parent != ui) {
+                assertTrue(
+                        "Parent of " + i + " should have been processed first",
+                        responseOrder.subList(0, i).contains(parent));
+            }
+        }
+        session.unlock();
+    }
+}
@@ -2,6 +2,7 @@ package com.vaadin.tests.components.grid;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -28,6 +29,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.ListDataProvider;
 import com.vaadin.data.provider.bov.Person;
 import com.vaadin.event.selection.MultiSelectionEvent;
 import com.vaadin.event.selection.MultiSelectionListener;
@@ -35,6 +37,7 @@ import com.vaadin.shared.Registration;
 import com.vaadin.tests.util.MockUI;
 import com.vaadin.ui.Grid;
 import com.vaadin.ui.Grid.SelectionMode;
+import com.vaadin.ui.MultiSelect;
 import com.vaadin.ui.UI;
 import com.vaadin.ui.components.grid.GridSelectionModel;
 import com.vaadin.ui.components.grid.MultiSelectionModel;
@@ -707,4 +710,209 @@ public class GridMultiSelectionModelTest {
         assertEquals(SelectAllCheckBoxVisibility.DEFAULT,
                 model.getSelectAllCheckBoxVisibility());
     }
+
+    @Test
+    public void virtualSelectAll_itemsNotFetched() {
+        AtomicInteger fetches = new AtomicInteger();
+        Grid<String> grid = createLazyGrid(1000, fetches);
+        MultiSelectionModelImpl<String> model = (MultiSelectionModelImpl<String>) grid
+                .getSelectionModel();
+        model.setVirtualSelectAll(true);
+        AtomicReference<MultiSelectionEvent<String>> event = new AtomicReference<>();
+        model.addMultiSelectionListener(event::set);
+
+        model.selectAll();
+
+        assertEquals(0, fetches.get());
+        assertTrue(model.isAllSelected());
+        assertTrue(model.isSelected("Item 0"));
+        assertTrue(model.isSelected("Item 999"));
+        assertTrue(event.get().getOldSelection().isEmpty());
+        assertTrue(event.get().getRemovedSelection().isEmpty());
+        assertTrue(event.get().getAddedSelection().contains("Item 500"));
+        assertTrue(event.get().isAllSelected());
+        assertTrue(event.get().getDeselectedItems().isEmpty());
+        assertEquals(0, fetches.get());
+
+        // Size is queried from the data provider
+        assertEquals(1000, model.getSelectedItems().size());
+        assertEquals(0, fetches.get());
+        assertEquals("Item 999",
+                model.getSelectedItems().stream().skip(999).findFirst().get());
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void virtualSelectAll_deselectItems_excludedFromSelection() {
+        Grid<String> grid = createLazyGrid(1000, new AtomicInteger());
+        MultiSelectionModelImpl<String> model = (MultiSelectionModelImpl<String>) grid
+                .getSelectionModel();
+        model.setVirtualSelectAll(true);
+        model.select("Item 3");
+        model.selectAll();
+        AtomicReference<MultiSelectionEvent<String>> event = new AtomicReference<>();
+        model.addMultiSelectionListener(event::set);
+
+        model.deselectItems("Item 1", "Item 2");
+
+        assertFalse(model.isAllSelected());
+        assertFalse(model.isSelected("Item 1"));
+        assertTrue(model.isSelected("Item 3"));
+        assertEquals(asSet("Item 1", "Item 2"),
+                event.get().getRemovedSelection());
+        assertTrue(event.get().getAddedSelection().isEmpty());
+        assertTrue(event.get().getOldSelection().contains("Item 1"));
+        assertFalse(event.get().getNewSelection().contains("Item 1"));
+        assertTrue(event.get().isAllSelected());
+        assertEquals(asSet("Item 1", "Item 2"),
+                event.get().getDeselectedItems());
+        assertEquals(998, model.getSelectedItems().size());
+        assertEquals(Arrays.asList("Item 0", "Item 3"), model
+                .getSelectedItems().stream().limit(2)
+                .collect(Collectors.toList()));
+
+        model.select("Item 1");
+
+        assertTrue(model.isSelected("Item 1"));
+        assertEquals(asSet("Item 1"), event.get().getAddedSelection());
+        assertTrue(event.get().getRemovedSelection().isEmpty());
+        assertEquals(asSet("Item 2"), event.get().getDeselectedItems());
+        assertEquals(999, model.getSelectedItems().size());
+
+        model.selectAll();
+
+        assertTrue(model.isAllSelected());
+        assertEquals(asSet("Item 2"), event.get().getAddedSelection());
+        assertEquals(1000, model.getSelectedItems().size());
+    }
+
+    @Test
+    public void virtualSelectAll_deselectAll() {
+        Grid<String> grid = createLazyGrid(1000, new AtomicInteger());
+        MultiSelectionModelImpl<String> model = (MultiSelectionModelImpl<String>) grid
+                .getSelectionModel();
+        model.setVirtualSelectAll(true);
+        model.selectAll();
+        model.deselect("Item 0");
+        AtomicReference<MultiSelectionEvent<String>> event = new AtomicReference<>();
+        model.addMultiSelectionListener(event::set);
+
+        model.deselectAll();
+
+        assertFalse(model.isAllSelected());
+        assertFalse(model.isSelected("Item 1"));
+        assertTrue(model.getSelectedItems().isEmpty());
+        assertTrue(event.get().getAddedSelection().isEmpty());
+        assertEquals(999, event.get().getRemovedSelection().size());
+        assertFalse(event.get().getRemovedSelection().contains("Item 0"));
+        assertFalse(event.get().isAllSelected());
+        assertTrue(event.get().getDeselectedItems().isEmpty());
+    }
+
+    @Test
+    public void virtualSelectAll_setValue_replacesSelection() {
+        Grid<String> grid = createLazyGrid(1000, new AtomicInteger());
+        MultiSelectionModelImpl<String> model = (MultiSelectionModelImpl<String>) grid
+                .getSelectionModel();
+        model.setVirtualSelectAll(true);
+        model.selectAll();
+        model.deselect("Item 2");
+        AtomicReference<MultiSelectionEvent<String>> event = new AtomicReference<>();
+        model.addMultiSelectionListener(event::set);
+
+        model.asMultiSelect().setValue(asSet("Item 1", "Item 2"));
+
+        assertEquals(asSet("Item 1", "Item 2"), model.getSelectedItems());
+        assertFalse(model.isSelected("Item 3"));
+        assertEquals(asSet("Item 2"), event.get().getAddedSelection());
+        assertEquals(998, event.get().getRemovedSelection().size());
+        assertFalse(event.get().getRemovedSelection().contains("Item 1"));
+    }
+
+    @Test
+    public void virtualSelectAll_selectedItemsMatchCurrentFilter() {
+        grid.getSelectionModel().deselectAll();
+        selectionModel.setVirtualSelectAll(true);
+        selectionModel.selectAll();
+
+        ListDataProvider<Person> dataProvider = (ListDataProvider<Person>) grid
+                .getDataProvider();
+        dataProvider.setFilter(person -> person.getBorn() > 1);
+
+        assertEquals(Arrays.asList(PERSON_B, PERSON_C),
+                new ArrayList<>(selectionModel.getSelectedItems()));
+
+        dataProvider.clearFilters();
+        selectionModel.deselect(PERSON_C);
+
+        assertEquals(Arrays.asList(PERSON_A, PERSON_B),
+                new ArrayList<>(selectionModel.getSelectedItems()));
+        assertEquals(Arrays.asList(PERSON_A, PERSON_B),
+                currentSelectionCapture.getValue());
+        assertEquals(Arrays.asList(PERSON_A, PERSON_B, PERSON_C),
+                oldSelectionCapture.getValue());
+    }
+
+    @Test
+    public void virtualSelectAll_selectAllCheckboxVisibleForLazyDataProvider() {
+        Grid<String> grid = createLazyGrid(1000, new AtomicInteger());
+        MultiSelectionModelImpl<String> model = (MultiSelectionModelImpl<String>) grid
+                .getSelectionModel();
+        assertFalse(model.isSelectAllCheckBoxVisible());
+
+        model.setVirtualSelectAll(true);
+
+        assertTrue(model.isSelectAllCheckBoxVisible());
+    }
+
+    @Test
+    public void virtualSelectAll_emptyCheckedWithoutFetchingAll() {
+        Grid<String> grid = new Grid<>();
+        grid.setSelectionMode(SelectionMode.MULTI);
+        grid.setDataProvider(DataProvider.fromCallbacks(query -> {
+            if (query.getLimit() == Integer.MAX_VALUE) {
+                throw new AssertionError("All items should not be fetched");
+            }
+            return IntStream
+                    .range(query.getOffset(),
+                            Math.min(3, query.getOffset() + query.getLimit()))
+                    .mapToObj(i -> "Item " + i);
+        }, query -> 3));
+        MultiSelectionModelImpl<String> model = (MultiSelectionModelImpl<String>) grid
+                .getSelectionModel();
+        model.setVirtualSelectAll(true);
+        MultiSelect<String> multiSelect = grid.asMultiSelect();
+
+        model.selectAll();
+
+        assertFalse(multiSelect.isEmpty());
+        assertEquals(model.getSelectedItems(), model.getSelectedItems());
+        assertEquals(model.getSelectedItems().hashCode(),
+                model.getSelectedItems().hashCode());
+
+        model.deselectItems("Item 0", "Item 1");
+
+        assertFalse(multiSelect.isEmpty());
+        assertFalse(model.getSelectedItems().isEmpty());
+        assertNotEquals(model.getSelectedItems(), Collections.emptySet());
+
+        model.deselect("Item 2");
+
+        assertTrue(multiSelect.isEmpty());
+        assertEquals(model.getSelectedItems(), Collections.emptySet());
+    }
+
+    private static Grid<String> createLazyGrid(int size,
+            AtomicInteger fetches) {
+        Grid<String> grid = new Grid<>();
+        grid.setSelectionMode(SelectionMode.MULTI);
+        grid.setDataProvider(DataProvider.fromCallbacks(query -> {
+            fetches.incrementAndGet();
+            return IntStream
+                    .range(query.getOffset(),
+                            Math.min(size, query.getOffset() + query.getLimit()))
+                    .mapToObj(i -> "Item " + i);
+        }, query -> size));
+        return grid;
+    }
 }
@@ -0,0 +1,195 @@
+package com.vaadin.tests.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.EventObject;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vaadin.event.ListenerMethod;
+import com.vaadin.event.ListenerMethod.MethodException;
+import com.vaadin.util.ReflectTools;
+
+/**
+ * Tests calling trigger methods with {@link ListenerMethod}.
+ */
+public class ListenerMethodTest {
+
+    public static class TestEvent extends EventObject {
+        public TestEvent(Object source) {
+            super(source);
+        }
+    }
+
+    public static class Target implements Serializable {
+        private final List<Object> received = new ArrayList<>();
+
+        public void onEvent(TestEvent event) {
+            received.add(event);
+        }
+
+        public void onEventObject(EventObject event) {
+            received.add(event);
+        }
+
+        public void onAnyEvent() {
+            received.add("no arguments");
+        }
+
+        public boolean onEventReturning(TestEvent event) {
+            received.add(event);
+            return true;
+        }
+
+        public void onEventWithArguments(String prefix, TestEvent event) {
+            received.add(prefix);
+            received.add(event);
+        }
+
+        public void onEventThrowing(TestEvent event) {
+            throw new IllegalStateException("listener failed");
+        }
+
+        public void onOverloaded(TestEvent event) {
+            received.add("TestEvent");
+        }
+
+        public void onOverloaded(EventObject event) {
+            received.add("EventObject");
+        }
+
+        public static void onStaticEvent(TestEvent event) {
+            STATIC_RECEIVED.add(event);
+        }
+    }
+
+    private static final List<Object> STATIC_RECEIVED = new ArrayList<>();
+
+    private final Target target = new Target();
+    private final TestEvent event = new TestEvent(this);
+
+    @Test
+    public void eventArgument_methodCalledWithEvent() {
+        new ListenerMethod(TestEvent.class, target, "onEvent")
+                .receiveEvent(event);
+        new ListenerMethod(TestEvent.class, target, "onEventObject")
+                .receiveEvent(event);
+        new ListenerMethod(TestEvent.class, target, "onEventReturning")
+                .receiveEvent(event);
+
+        assertEquals(3, target.received.size());
+        for (Object received : target.received) {
+            assertSame(event, received);
+        }
+    }
+
+    @Test
+    public void noArguments_methodCalled() {
+        new ListenerMethod(TestEvent.class, target, "onAnyEvent")
+                .receiveEvent(event);
+
+        assertEquals(1, target.received.size());
+        assertEquals("no arguments", target.received.get(0));
+    }
+
+    @Test
+    public void staticMethod_methodCalledWithEvent() {
+        STATIC_RECEIVED.clear();
+        new ListenerMethod(TestEvent.class, target, "onStaticEvent")
+                .receiveEvent(event);
+
+        assertEquals(1, STATIC_RECEIVED.size());
+        assertSame(event, STATIC_RECEIVED.get(0));
+    }
+
+    @Test
+    public void argumentArray_methodCalledWithArgumentsAndEvent() {
+        ListenerMethod listenerMethod = new ListenerMethod(TestEvent.class,
+                target,
+                ReflectTools.findMethod(Target.class, "onEventWithArguments",
+                        String.class, TestEvent.class),
+                new Object[] { "prefix", null }, 1);
+        listenerMethod.receiveEvent(event);
+        listenerMethod.receiveEvent(event);
+
+        assertEquals(4, target.received.size());
+        assertEquals("prefix", target.received.get(2));
+        assertSame(event, target.received.get(3));
+    }
+
+    @Test
+    public void otherEventType_methodNotCalled() {
+        new ListenerMethod(TestEvent.class, target, "onEventObject")
+                .receiveEvent(new EventObject(this));
+
+        assertEquals(0, target.received.size());
+    }
+
+    @Test
+    public void exceptionFromMethod_wrappedInMethodException() {
+        try {
+            new ListenerMethod(TestEvent.class, target, "onEventThrowing")
+                    .receiveEvent(event);
+            fail("Did not receive expected exception from listener");
+        } catch (MethodException e) {
+            assertEquals(IllegalStateException.class,
+                    e.getCause().getClass());
+            assertEquals("listener failed", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void serializedAfterEvent_methodCalledAfterDeserialization()
+            throws IOException, ClassNotFoundException {
+        ListenerMethod listenerMethod = new ListenerMethod(TestEvent.class,
+                target, "onEvent");
+        listenerMethod.receiveEvent(event);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ObjectOutputStream(bytes).writeObject(listenerMethod);
+        ListenerMethod deserialized = (ListenerMethod) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        deserialized.receiveEvent(event);
+
+        assertEquals(1, target.received.size());
+        Target deserializedTarget = (Target) deserialized.getTarget();
+        assertEquals(2, deserializedTarget.received.size());
+        assertSame(event, deserializedTarget.received.get(1));
+    }
+
+    @Test
+    public void overloadedMethods_deserializedWithParameterTypes()
+            throws IOException, ClassNotFoundException {
+        for (Class<?> parameterType : new Class<?>[] { TestEvent.class,
+                EventObject.class, TestEvent.class }) {
+            ListenerMethod deserialized = serializeAndDeserialize(
+                    new ListenerMethod(TestEvent.class, target,
+                            ReflectTools.findMethod(Target.class,
+                                    "onOverloaded", parameterType)));
+            deserialized.receiveEvent(event);
+
+            Target deserializedTarget = (Target) deserialized.getTarget();
+            assertEquals(parameterType.getSimpleName(),
+                    deserializedTarget.received.get(0));
+        }
+    }
+
+    private static ListenerMethod serializeAndDeserialize(
+            ListenerMethod listenerMethod)
+            throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ObjectOutputStream(bytes).writeObject(listenerMethod);
+        return (ListenerMethod) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    }
+}
@@ -91,6 +91,10 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.AbstractClientConnector\\$1", //
             "com\\.vaadin\\.server\\.AbstractClientConnector\\$1\\$1", //
             "com\\.vaadin\\.server\\.JsonCodec\\$1", //
+            "com\\.vaadin\\.event\\.ListenerMethod\\$DeserializedMethods", //
+            "com\\.vaadin\\.data\\.provider\\.DataCommunicator\\$UsesDefaultFetch", //
+            "com\\.vaadin\\.server\\.communication\\.ServerRpcHandler\\$GetMessageOverridden", //
+            "com\\.vaadin\\.server\\.AbstractClientConnector\\$RpcProxyConstructors", //
             "com\\.vaadin\\.server\\.communication\\.PushConnection", //
             "com\\.vaadin\\.server\\.communication\\.AtmospherePushConnection.*", //
             "com\\.vaadin\\.ui\\.components\\.colorpicker\\.ColorUtil", //
@@ -1,9 +1,15 @@
 package com.vaadin.tests.server;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -113,6 +119,59 @@ public class SimpleMultiPartInputStreamTest {
                 "abcabd", "xyz123abc");
     }
 
+    @Test
+    public void testBulkReadOfLargeContent() throws Exception {
+        byte[] content = new byte[100000];
+        new Random(42).nextBytes(content);
+        byte[] input = concat(content,
+                getFullBoundary("abcabd").getBytes(UTF_8));
+
+        assertArrayEquals(content,
+                readInBlocks(new ByteArrayInputStream(input), "abcabd", 1000));
+    }
+
+    @Test
+    public void testBulkReadWithBoundarySplitBetweenReads() throws Exception {
+        byte[] content = "xyz123\r\n--abcab\r\n--abc".getBytes(UTF_8);
+        byte[] input = concat(content,
+                (getFullBoundary("abcabd") + "\r\n").getBytes(UTF_8));
+
+        // Underlying stream returns a single byte for each bulk read
+        InputStream trickling = new FilterInputStream(
+                new ByteArrayInputStream(input)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        assertArrayEquals(content, readInBlocks(trickling, "abcabd", 7));
+    }
+
+    @Test(expected = IOException.class)
+    public void testBulkReadWithoutBoundary() throws Exception {
+        readInBlocks(new ByteArrayInputStream(new byte[50000]), "abc", 4096);
+    }
+
+    private static byte[] readInBlocks(InputStream input, String boundary,
+            int blockSize) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                input, boundary)) {
+            byte[] block = new byte[blockSize];
+            int read;
+            while ((read = smpis.read(block)) != -1) {
+                result.write(block, 0, read);
+            }
+        }
+        return result.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
     /*
      * TODO fix these tests, they don't do what their method name says.
      */
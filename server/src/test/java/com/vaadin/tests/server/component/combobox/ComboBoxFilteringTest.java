@@ -2,16 +2,19 @@ package com.vaadin.tests.server.component.combobox;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vaadin.data.provider.CaptionIndexDataProvider;
 import com.vaadin.data.provider.DataCommunicator;
 import com.vaadin.data.provider.DataProvider;
 import com.vaadin.data.provider.ListDataProvider;
@@ -86,6 +89,30 @@ public class ComboBoxFilteringTest {
         checkFiltering("en", "ennen", 3, 2);
     }
 
+    @Test
+    public void setItems_captionIndex_defaultFiltering() {
+        comboBox.setCaptionIndexEnabled(true);
+        comboBox.setItemCaptionGenerator(Person::getFirstName);
+        comboBox.setItems(getPersonCollection());
+
+        assertTrue(comboBox
+                .getDataProvider() instanceof CaptionIndexDataProvider);
+        checkFiltering("en", "ennen", 3, 2);
+        checkFiltering("enr", "enrx", 3, 2);
+    }
+
+    @Test
+    public void setItems_captionIndex_setItemCaptionAfterItems() {
+        comboBox.setCaptionIndexEnabled(true);
+        comboBox.setItemCaptionGenerator(Person::getLastName);
+        comboBox.setItems(getPersonCollection());
+        checkFiltering("Iglesias", "Henry", 3, 1);
+
+        comboBox.setItemCaptionGenerator(Person::getFirstName);
+
+        checkFiltering("enr", "Iglesias", 3, 2);
+    }
+
     @Test
     public void setItems_array_customFiltering() {
         comboBox.setItemCaptionGenerator(Person::getFirstName);
@@ -176,6 +203,33 @@ public class ComboBoxFilteringTest {
         checkFiltering("foo", "bar", 0, 0);
     }
 
+    @Test
+    public void setListDataProvider_viewCache_reusedForSameFilterText() {
+        AtomicInteger tests = new AtomicInteger();
+        comboBox.setItemCaptionGenerator(Person::getFirstName);
+        ListDataProvider<Person> dataProvider = DataProvider
+                .ofCollection(getPersonCollection());
+        dataProvider.setViewCacheEnabled(true);
+        comboBox.setDataProvider((caption, filterText) -> {
+            tests.incrementAndGet();
+            return caption.startsWith(filterText);
+        }, dataProvider);
+
+        assertEquals(1, comboBoxSizeWithFilter("En"));
+        assertEquals(PERSON_NAMES.length, tests.get());
+        assertEquals(0, comboBoxSizeWithFilter("Dun"));
+        assertEquals(2 * PERSON_NAMES.length, tests.get());
+
+        // A new filter is created for the same text
+        assertEquals(1, comboBoxSizeWithFilter("En"));
+        assertEquals(2 * PERSON_NAMES.length, tests.get());
+
+        // Not reused for the captions of another caption generator
+        comboBox.setItemCaptionGenerator(Person::getLastName);
+
+        assertEquals(1, comboBoxSizeWithFilter("Dun"));
+    }
+
     @Test
     public void setListDataProvider_notWrapped() {
         ListDataProvider<Person> provider = new ListDataProvider<>(
@@ -0,0 +1,178 @@
+package com.vaadin.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.tests.util.MockUI;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class ConnectorTrackerTest {
+
+    private UI ui;
+    private TextField field;
+
+    @Before
+    public void setUp() {
+        ui = new MockUI();
+        field = new TextField();
+        ui.setContent(field);
+    }
+
+    @Test
+    public void encodeState_onlyChangedValuesInDiff() {
+        field.setValue("foo");
+        JsonObject diff = encodeState();
+        assertEquals("foo", diff.getString("text"));
+        assertFalse(diff.hasKey("readOnly"));
+
+        assertEquals(0, encodeState().keys().length);
+
+        field.setReadOnly(true);
+        diff = encodeState();
+        assertEquals(1, diff.keys().length);
+        assertTrue(diff.getBoolean("readOnly"));
+    }
+
+    @Test
+    public void encodeState_valueChangedBackToDefault_sent() {
+        field.setValue("foo");
+        field.setReadOnly(true);
+        encodeState();
+
+        field.setValue("");
+        field.setReadOnly(false);
+        JsonObject diff = encodeState();
+        assertEquals(2, diff.keys().length);
+        assertEquals("", diff.getString("text"));
+        assertFalse(diff.getBoolean("readOnly"));
+
+        assertEquals(0, encodeState().keys().length);
+    }
+
+    @Test
+    public void getDiffState_containsDefaultValues() {
+        field.setValue("foo");
+        encodeState();
+
+        JsonObject diffState = ui.getConnectorTracker().getDiffState(field);
+        assertEquals("foo", diffState.getString("text"));
+        assertFalse(diffState.getBoolean("readOnly"));
+        assertEquals(-1, (int) diffState.getNumber("maxLength"));
+    }
+
+    @Test
+    public void getDiffState_modified_changesUsedForNextDiff() {
+        field.setValue("foo");
+        encodeState();
+
+        JsonObject diffState = ui.getConnectorTracker().getDiffState(field);
+        diffState.put("text", "bar");
+        diffState.remove("maxLength");
+        JsonObject diff = encodeState();
+        assertEquals(2, diff.keys().length);
+        assertEquals("foo", diff.getString("text"));
+        assertEquals(-1, (int) diff.getNumber("maxLength"));
+
+        assertEquals(0, encodeState().keys().length);
+    }
+
+    @Test
+    public void setDiffState_replacesCompactState() {
+        field.setValue("foo");
+        encodeState();
+
+        JsonObject diffState = Json.createObject();
+        diffState.put("text", "bar");
+        ui.getConnectorTracker().setDiffState(field, diffState);
+        assertEquals(diffState, ui.getConnectorTracker().getDiffState(field));
+        assertNull(ui.getConnectorTracker().getCompactDiffState(field,
+                Json.createObject()));
+    }
+
+    @Test
+    public void markAllClientSidesUninitialized_compactStatesCleared() {
+        field.setValue("foo");
+        encodeState();
+
+        ui.getConnectorTracker().markAllClientSidesUninitialized();
+        assertNull(ui.getConnectorTracker().getDiffState(field));
+        assertEquals("foo", encodeState().getString("text"));
+    }
+
+    @Test
+    public void isConnectorVisibleToClient_sameAsLegacyCommunicationManager() {
+        TabSheet tabSheet = new TabSheet();
+        Label first = new Label("first");
+        Label second = new Label("second");
+        tabSheet.addTab(first);
+        tabSheet.addTab(second);
+        Label hidden = new Label("hidden");
+        hidden.setVisible(false);
+        VerticalLayout hiddenLayout = new VerticalLayout(new Label("child"));
+        hiddenLayout.setVisible(false);
+        VerticalLayout layout = new VerticalLayout(tabSheet, hidden,
+                hiddenLayout);
+        ui.setContent(layout);
+        Label detached = new Label("detached");
+
+        List<ClientConnector> connectors = new ArrayList<>(
+                ui.getConnectorTracker().getDirtyConnectors());
+        connectors.add(detached);
+        ui.getConnectorTracker().setWritingResponse(true);
+        try {
+            for (ClientConnector connector : connectors) {
+                assertEquals(
+                        LegacyCommunicationManager
+                                .isConnectorVisibleToClient(connector),
+                        ui.getConnectorTracker()
+                                .isConnectorVisibleToClient(connector));
+            }
+            assertFalse(ui.getConnectorTracker()
+                    .isConnectorVisibleToClient(second));
+            assertTrue(ui.getConnectorTracker()
+                    .isConnectorVisibleToClient(first));
+            assertFalse(ui.getConnectorTracker()
+                    .isConnectorVisibleToClient(detached));
+        } finally {
+            ui.getConnectorTracker().setWritingResponse(false);
+        }
+    }
+
+    @Test
+    public void getDirtyVisibleConnectors_invisibleConnectorsSkipped() {
+        Label hidden = new Label("hidden");
+        VerticalLayout hiddenLayout = new VerticalLayout(hidden);
+        hiddenLayout.setVisible(false);
+        VerticalLayout layout = new VerticalLayout(hiddenLayout);
+        ui.setContent(layout);
+
+        List<ClientConnector> visible = ui.getConnectorTracker()
+                .getDirtyVisibleConnectors();
+        assertTrue(visible.contains(layout));
+        assertFalse(visible.contains(hiddenLayout));
+        assertFalse(visible.contains(hidden));
+
+        // Not cached outside of writing a response
+        hiddenLayout.setVisible(true);
+        visible = ui.getConnectorTracker().getDirtyVisibleConnectors();
+        assertTrue(visible.contains(hiddenLayout));
+        assertTrue(visible.contains(hidden));
+    }
+
+    private JsonObject encodeState() {
+        return LegacyCommunicationManager.encodeState(field,
+                field.getState(false));
+    }
+}
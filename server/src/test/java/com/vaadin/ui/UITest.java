@@ -1,9 +1,14 @@
 package com.vaadin.ui;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.lang.ref.WeakReference;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -17,6 +22,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.MockServletConfig;
 import com.vaadin.server.MockVaadinSession;
 import com.vaadin.server.VaadinRequest;
@@ -25,8 +31,14 @@ import com.vaadin.server.VaadinServletService;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.server.communication.PushConnection;
 import com.vaadin.shared.communication.PushMode;
+import com.vaadin.tests.util.MockUI;
 import com.vaadin.util.CurrentInstanceTest;
 
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.impl.JsonUtil;
+
 public class UITest {
 
     @Test
@@ -197,6 +209,113 @@ public class UITest {
         CurrentInstanceTest.waitUntilGarbageCollected(contentSentToClient);
     }
 
+    @Test
+    public void connectorTrackerSerialization_diffStatesRestored()
+            throws Exception {
+        ServletConfig servletConfig = new MockServletConfig();
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(servletConfig);
+        MockVaadinSession session = new MockVaadinSession(
+                new VaadinServletService(servlet,
+                        new DefaultDeploymentConfiguration(UI.class,
+                                new Properties())));
+        session.lock();
+        UI ui = new MockUI(session);
+        UI.setCurrent(null);
+        Label label = new Label("label");
+        ui.setContent(label);
+
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 30000; i++) {
+            longString.append('\u20ac');
+        }
+        JsonObject nested = Json.createObject();
+        nested.put("1", "one");
+        nested.put("nested", Json.createObject());
+        JsonArray array = Json.createArray();
+        array.set(0, Json.createNull());
+        array.set(1, 0.5);
+        array.set(2, -0.0);
+        array.set(3, Integer.MIN_VALUE);
+        array.set(4, 1e100);
+        array.set(5, nested);
+        array.set(6, Json.createArray());
+        JsonObject labelState = Json.createObject();
+        labelState.put("text", "label");
+        labelState.put("enabled", true);
+        labelState.put("visible", false);
+        labelState.put("height", "");
+        labelState.put("long", longString.toString());
+        labelState.put("array", array);
+        JsonObject uiState = Json.createObject();
+        uiState.put("enabled", true);
+        uiState.put("height", "");
+        ui.getConnectorTracker().setDiffState(label, labelState);
+        ui.getConnectorTracker().setDiffState(ui, uiState);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(ui);
+        }
+        session.unlock();
+        UI deserializedUi = (UI) new ObjectInputStream(
+                new ByteArrayInputStream(bos.toByteArray())).readObject();
+
+        ConnectorTracker tracker = deserializedUi.getConnectorTracker();
+        assertEquals(JsonUtil.stringify(labelState), JsonUtil
+                .stringify(tracker.getDiffState(deserializedUi.getContent())));
+        assertEquals(JsonUtil.stringify(uiState),
+                JsonUtil.stringify(tracker.getDiffState(deserializedUi)));
+        assertEquals(Double.doubleToRawLongBits(-0.0),
+                Double.doubleToRawLongBits(tracker
+                        .getDiffState(deserializedUi.getContent())
+                        .getArray("array").getNumber(2)));
+    }
+
+    @Test
+    public void connectorTrackerSerialization_compactDiffStatesRestored()
+            throws Exception {
+        ServletConfig servletConfig = new MockServletConfig();
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(servletConfig);
+        MockVaadinSession session = new MockVaadinSession(
+                new VaadinServletService(servlet,
+                        new DefaultDeploymentConfiguration(UI.class,
+                                new Properties())));
+        session.lock();
+        UI ui = new MockUI(session);
+        UI.setCurrent(null);
+        HorizontalLayout layout = new HorizontalLayout(new Label("first"),
+                new Label("second"));
+        ui.setContent(layout);
+        for (Component component : layout) {
+            LegacyCommunicationManager.encodeState(component,
+                    ((AbstractComponent) component).getState(false));
+        }
+        String firstState = JsonUtil.stringify(ui.getConnectorTracker()
+                .getDiffState(layout.getComponent(0)));
+        // Compacted again after having been expanded by getDiffState
+        LegacyCommunicationManager.encodeState(layout.getComponent(0),
+                ((AbstractComponent) layout.getComponent(0)).getState(false));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(ui);
+        }
+        session.unlock();
+        UI deserializedUi = (UI) new ObjectInputStream(
+                new ByteArrayInputStream(bos.toByteArray())).readObject();
+
+        ConnectorTracker tracker = deserializedUi.getConnectorTracker();
+        HorizontalLayout deserializedLayout = (HorizontalLayout) deserializedUi
+                .getContent();
+        assertEquals(firstState, JsonUtil.stringify(
+                tracker.getDiffState(deserializedLayout.getComponent(0))));
+        assertEquals(firstState.replace("first", "second"),
+                JsonUtil.stringify(tracker
+                        .getDiffState(deserializedLayout.getComponent(1))));
+    }
+
     private Component createContent() {
         VerticalLayout vl = new VerticalLayout();
         vl.addComponent(new Button("foo"));